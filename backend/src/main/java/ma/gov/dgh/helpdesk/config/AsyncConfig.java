@@ -1,5 +1,6 @@
 package ma.gov.dgh.helpdesk.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -43,4 +44,78 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+    
+    /**
+     * Executor running reverse DNS lookups of discovered hosts side by side; submissions beyond the queue are rejected
+     */
+    @Bean(name = "dnsExecutor")
+    public Executor dnsExecutor(@Value("${network.discovery.dns.workers:32}") int workers,
+                                @Value("${network.discovery.dns.queue-capacity:65536}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("DGH-Dns-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor probing known hosts during incremental discovery; submissions beyond the queue are rejected
+     */
+    @Bean(name = "discoveryProbeExecutor")
+    public Executor discoveryProbeExecutor(@Value("${network.discovery.incremental.probe-workers:16}") int workers,
+                                           @Value("${network.discovery.incremental.queue-capacity:65536}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("DGH-Probe-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Bounded executor for background report jobs; submissions beyond the queue are rejected
+     */
+    @Bean(name = "reportExecutor")
+    public Executor reportExecutor(@Value("${report.jobs.workers:2}") int workers,
+                                   @Value("${report.jobs.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("DGH-Reports-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Bounded executor decoding image attachments into previews; submissions beyond the queue are rejected
+     */
+    @Bean(name = "previewExecutor")
+    public Executor previewExecutor(@Value("${attachments.previews.workers:2}") int workers,
+                                    @Value("${attachments.previews.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("DGH-Previews-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor writing queued domain events to stream subscribers; each subscriber is drained by one task
+     * at a time, so a slow client holds at most one thread. Tasks are bounded by the number of subscribers.
+     */
+    @Bean(name = "eventDispatchExecutor")
+    public Executor eventDispatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setThreadNamePrefix("DGH-Events-");
+        executor.initialize();
+        return executor;
+    }
 }
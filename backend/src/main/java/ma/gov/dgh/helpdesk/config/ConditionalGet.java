@@ -0,0 +1,31 @@
+package ma.gov.dgh.helpdesk.config;
+
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET handler whose response only changes when the listed aggregates are written.
+ * The ETag is built from their change versions before the handler runs, and a request whose
+ * If-None-Match still matches is answered 304 without running it.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConditionalGet {
+    
+    /**
+     * Aggregates the response is built from
+     */
+    Aggregate[] value();
+    
+    /**
+     * For responses that also change with the clock (durations, windows ending now): length of
+     * the time bucket mixed into the ETag, so a cached copy is reused for at most that long
+     */
+    long timeBucketSeconds() default 0;
+}
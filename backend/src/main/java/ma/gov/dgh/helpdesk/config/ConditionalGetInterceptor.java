@@ -0,0 +1,41 @@
+package ma.gov.dgh.helpdesk.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Interceptor answering {@link ConditionalGet} handlers with 304 when the client's ETag is current.
+ * Otherwise the ETag is set on the response, with no-cache so polling clients revalidate every time.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+    
+    private final ChangeVersionService changeVersionService;
+    
+    public ConditionalGetInterceptor(ChangeVersionService changeVersionService) {
+        this.changeVersionService = changeVersionService;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return true;
+        }
+        
+        String etag = changeVersionService.etag(conditionalGet.timeBucketSeconds(), conditionalGet.value());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        // Sets the ETag header, and the 304 status when If-None-Match matches it
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
@@ -1,5 +1,6 @@
 package ma.gov.dgh.helpdesk.config;
 
+import jakarta.servlet.DispatcherType;
 import ma.gov.dgh.helpdesk.security.JwtAuthenticationFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,6 +40,7 @@ public class DevelopmentSecurityConfig {
             .csrf(csrf -> csrf.disable())
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(authz -> authz
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()  // Event stream writes after the request was authorized
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers("/api/health/**").permitAll()
                 .requestMatchers("/api/auth/login").permitAll()
@@ -53,6 +55,8 @@ public class DevelopmentSecurityConfig {
                 .requestMatchers("/api/tickets/samples/create").permitAll()  // Allow ticket creation for testing
                 .requestMatchers("/api/tickets/**").permitAll()  // Temporarily allow all ticket endpoints for testing
                 .requestMatchers("/api/equipment/**").permitAll()  // Temporarily allow all equipment endpoints for testing
+                .requestMatchers("/api/events/**").permitAll()  // Temporarily allow dashboard event stream for testing
+                .requestMatchers("/api/reports/**").permitAll()  // Temporarily allow report exports for testing
                 .requestMatchers("/api/**").authenticated()
                 .anyRequest().permitAll()
             )
@@ -0,0 +1,23 @@
+package ma.gov.dgh.helpdesk.config;
+
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for JSON serialization of JPA entities
+ */
+@Configuration
+public class JacksonConfig {
+    
+    /**
+     * Serialize uninitialized lazy associations as null instead of loading them
+     * after the transaction has ended (only needed when open-in-view is disabled)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.jpa.open-in-view", havingValue = "false")
+    public Hibernate6Module hibernate6Module() {
+        return new Hibernate6Module();
+    }
+}
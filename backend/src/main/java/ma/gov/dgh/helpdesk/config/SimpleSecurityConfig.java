@@ -1,5 +1,6 @@
 package ma.gov.dgh.helpdesk.config;
 
+import jakarta.servlet.DispatcherType;
 import ma.gov.dgh.helpdesk.security.CustomLdapAuthenticationProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +32,7 @@ public class SimpleSecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authz -> authz
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()  // Event stream writes after the request was authorized
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers("/api/health/**").permitAll()
                 .requestMatchers("/api/auth/login").permitAll()
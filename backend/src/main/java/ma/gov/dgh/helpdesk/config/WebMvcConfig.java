@@ -0,0 +1,23 @@
+package ma.gov.dgh.helpdesk.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration for Spring MVC handler interceptors
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+    
+    public WebMvcConfig(ConditionalGetInterceptor conditionalGetInterceptor) {
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -1,15 +1,23 @@
 package ma.gov.dgh.helpdesk.controller;
 
+import ma.gov.dgh.helpdesk.config.ConditionalGet;
+import ma.gov.dgh.helpdesk.service.AutoAssignmentService;
 import ma.gov.dgh.helpdesk.service.EquipmentService;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import ma.gov.dgh.helpdesk.service.TicketMetricsService;
 import ma.gov.dgh.helpdesk.service.TicketService;
 import ma.gov.dgh.helpdesk.service.UserService;
 import ma.gov.dgh.helpdesk.entity.User;
 import ma.gov.dgh.helpdesk.entity.Ticket;
-import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.RollupGranularity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
@@ -26,18 +34,24 @@ public class DashboardController {
     private final UserService userService;
     private final EquipmentService equipmentService;
     private final TicketService ticketService;
+    private final AutoAssignmentService autoAssignmentService;
+    private final TicketMetricsService ticketMetricsService;
     
     @Autowired
-    public DashboardController(UserService userService, EquipmentService equipmentService, TicketService ticketService) {
+    public DashboardController(UserService userService, EquipmentService equipmentService, TicketService ticketService,
+                               AutoAssignmentService autoAssignmentService, TicketMetricsService ticketMetricsService) {
         this.userService = userService;
         this.equipmentService = equipmentService;
         this.ticketService = ticketService;
+        this.autoAssignmentService = autoAssignmentService;
+        this.ticketMetricsService = ticketMetricsService;
     }
     
     /**
      * Get overall dashboard statistics
      */
     @GetMapping("/statistics")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.EQUIPMENT, Aggregate.USERS})
     public ResponseEntity<DashboardStatistics> getDashboardStatistics() {
         UserService.UserStatistics userStats = userService.getUserStatistics();
         EquipmentService.EquipmentStatistics equipmentStats = equipmentService.getEquipmentStatistics();
@@ -51,6 +65,7 @@ public class DashboardController {
      * Get technician-specific statistics
      */
     @GetMapping("/technician/{technicianId}/statistics")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.EQUIPMENT, Aggregate.USERS})
     public ResponseEntity<TechnicianStatistics> getTechnicianStatistics(@PathVariable Long technicianId) {
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
@@ -71,7 +86,7 @@ public class DashboardController {
         List<Ticket> unassignedTickets = ticketService.findUnassignedTickets();
         
         // Get equipment alerts (offline/maintenance equipment)
-        List<Equipment> allEquipment = equipmentService.findAll();
+        List<EquipmentSummary> allEquipment = equipmentService.findAllSummaries();
         long equipmentAlerts = allEquipment.stream()
             .filter(e -> e.getStatus().name().equals("OFFLINE") || e.getStatus().name().equals("MAINTENANCE"))
             .count();
@@ -92,6 +107,7 @@ public class DashboardController {
      * Get technician's workload overview
      */
     @GetMapping("/technician/{technicianId}/workload")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<TechnicianWorkload> getTechnicianWorkload(@PathVariable Long technicianId) {
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
@@ -127,10 +143,10 @@ public class DashboardController {
      * Get technician's performance metrics
      */
     @GetMapping("/technician/{technicianId}/performance")
+    @ConditionalGet(value = {Aggregate.TICKETS, Aggregate.USERS}, timeBucketSeconds = 60)
     public ResponseEntity<TechnicianPerformance> getTechnicianPerformance(
             @PathVariable Long technicianId,
             @RequestParam(defaultValue = "30") int period) {
-        
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -167,13 +183,14 @@ public class DashboardController {
      * Get technician's assigned equipment statistics
      */
     @GetMapping("/technician/{technicianId}/equipment-stats")
+    @ConditionalGet({Aggregate.EQUIPMENT, Aggregate.USERS})
     public ResponseEntity<TechnicianEquipmentStats> getTechnicianEquipmentStats(@PathVariable Long technicianId) {
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Equipment> allEquipment = equipmentService.findAll();
+        List<EquipmentSummary> allEquipment = equipmentService.findAllSummaries();
         
         // Calculate equipment statistics
         long totalEquipment = allEquipment.size();
@@ -195,6 +212,7 @@ public class DashboardController {
      * Get priority queue for technician
      */
     @GetMapping("/technician/{technicianId}/priority-queue")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.EQUIPMENT, Aggregate.USERS})
     public ResponseEntity<List<Ticket>> getTechnicianPriorityQueue(@PathVariable Long technicianId) {
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
@@ -219,10 +237,10 @@ public class DashboardController {
      * Get technician's time tracking summary
      */
     @GetMapping("/technician/{technicianId}/time-tracking")
+    @ConditionalGet(value = {Aggregate.TICKETS, Aggregate.USERS}, timeBucketSeconds = 60)
     public ResponseEntity<TechnicianTimeTracking> getTechnicianTimeTracking(
             @PathVariable Long technicianId,
             @RequestParam(defaultValue = "7") int period) {
-        
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -254,16 +272,17 @@ public class DashboardController {
      * Get equipment alerts for technician's area
      */
     @GetMapping("/technician/{technicianId}/equipment-alerts")
-    public ResponseEntity<List<Equipment>> getTechnicianEquipmentAlerts(@PathVariable Long technicianId) {
+    @ConditionalGet({Aggregate.EQUIPMENT, Aggregate.USERS})
+    public ResponseEntity<List<EquipmentSummary>> getTechnicianEquipmentAlerts(@PathVariable Long technicianId) {
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Equipment> allEquipment = equipmentService.findAll();
+        List<EquipmentSummary> allEquipment = equipmentService.findAllSummaries();
         
         // Filter for equipment alerts (offline/maintenance)
-        List<Equipment> alerts = allEquipment.stream()
+        List<EquipmentSummary> alerts = allEquipment.stream()
             .filter(e -> e.getStatus().name().equals("OFFLINE") || e.getStatus().name().equals("MAINTENANCE"))
             .collect(java.util.stream.Collectors.toList());
         
@@ -274,10 +293,10 @@ public class DashboardController {
      * Get recent activity for technician
      */
     @GetMapping("/technician/{technicianId}/recent-activity")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.EQUIPMENT, Aggregate.USERS})
     public ResponseEntity<List<Ticket>> getTechnicianRecentActivity(
             @PathVariable Long technicianId,
             @RequestParam(defaultValue = "10") int limit) {
-        
         Optional<User> technician = userService.findById(technicianId);
         if (technician.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -295,10 +314,61 @@ public class DashboardController {
         return ResponseEntity.ok(assignedTickets);
     }
     
+    /**
+     * Get the live workload of all technicians from the auto-assignment index
+     */
+    @GetMapping("/technicians/workload")
+    public ResponseEntity<List<AutoAssignmentService.TechnicianWorkload>> getTechniciansWorkload() {
+        return ResponseEntity.ok(autoAssignmentService.getWorkloadSnapshot());
+    }
+    
+    /**
+     * Get ticket created/resolved counts per hour or day from the metric rollups (last 30 days by default)
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<List<TicketMetricsService.TrendPoint>> getTicketTrends(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(ticketMetricsService.getTrend(granularity, start, end));
+    }
+    
+    /**
+     * Get ticket metric totals by category, priority, status or assignee (last 30 days by default)
+     */
+    @GetMapping("/trends/breakdown")
+    public ResponseEntity<List<TicketMetricsService.MetricBreakdown>> getTicketTrendBreakdown(
+            @RequestParam(defaultValue = "category") String dimension,
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        try {
+            return ResponseEntity.ok(ticketMetricsService.getBreakdown(dimension, granularity, start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Rebuild the ticket metric rollups from ticket history
+     */
+    @PostMapping("/trends/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> backfillTicketTrends() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticketsProcessed", ticketMetricsService.backfill());
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Get user statistics
      */
     @GetMapping("/users/statistics")
+    @ConditionalGet(Aggregate.USERS)
     public ResponseEntity<UserService.UserStatistics> getUserStatistics() {
         UserService.UserStatistics statistics = userService.getUserStatistics();
         return ResponseEntity.ok(statistics);
@@ -308,6 +378,7 @@ public class DashboardController {
      * Get equipment statistics
      */
     @GetMapping("/equipment/statistics")
+    @ConditionalGet(Aggregate.EQUIPMENT)
     public ResponseEntity<EquipmentService.EquipmentStatistics> getEquipmentStatistics() {
         EquipmentService.EquipmentStatistics statistics = equipmentService.getEquipmentStatistics();
         return ResponseEntity.ok(statistics);
@@ -317,6 +388,7 @@ public class DashboardController {
      * Get ticket statistics
      */
     @GetMapping("/tickets/statistics")
+    @ConditionalGet(Aggregate.TICKETS)
     public ResponseEntity<TicketService.TicketStatistics> getTicketStatistics() {
         TicketService.TicketStatistics statistics = ticketService.getTicketStatistics();
         return ResponseEntity.ok(statistics);
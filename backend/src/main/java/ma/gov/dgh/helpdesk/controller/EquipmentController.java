@@ -1,42 +1,83 @@
 package ma.gov.dgh.helpdesk.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
 import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttribute;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttributeKey;
+import ma.gov.dgh.helpdesk.entity.EquipmentInterface;
 import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
 import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.service.EquipmentAttributeService;
+import ma.gov.dgh.helpdesk.service.EquipmentHeartbeatService;
+import ma.gov.dgh.helpdesk.service.EquipmentInterfaceService;
 import ma.gov.dgh.helpdesk.service.EquipmentService;
+import ma.gov.dgh.helpdesk.service.EquipmentSubnetService;
+import ma.gov.dgh.helpdesk.service.EquipmentTicketCountService;
+import ma.gov.dgh.helpdesk.service.SnmpPollingService;
+import ma.gov.dgh.helpdesk.utils.SparseFieldset;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
- * REST Controller for Equipment operations
+ * REST Controller for Equipment operations.
+ * List endpoints return equipment summaries, without the specifications; the detail endpoints
+ * (by id, IP address, MAC address or host name) return the full equipment. Both accept a
+ * sparse fieldset, e.g. fields=hostname,ipAddress,status.
  */
 @RestController
 @RequestMapping("/api/equipment")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:4200"})
 public class EquipmentController {
     
+    private static final List<String> DETAIL_FIELDS = detailFields();
+    
     private final EquipmentService equipmentService;
+    private final EquipmentHeartbeatService equipmentHeartbeatService;
+    private final SnmpPollingService snmpPollingService;
+    private final EquipmentInterfaceService equipmentInterfaceService;
+    private final EquipmentSubnetService equipmentSubnetService;
+    private final EquipmentTicketCountService equipmentTicketCountService;
+    private final EquipmentAttributeService equipmentAttributeService;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public EquipmentController(EquipmentService equipmentService) {
+    public EquipmentController(EquipmentService equipmentService, EquipmentHeartbeatService equipmentHeartbeatService,
+                               SnmpPollingService snmpPollingService,
+                               EquipmentInterfaceService equipmentInterfaceService,
+                               EquipmentSubnetService equipmentSubnetService,
+                               EquipmentTicketCountService equipmentTicketCountService,
+                               EquipmentAttributeService equipmentAttributeService,
+                               ObjectMapper objectMapper) {
         this.equipmentService = equipmentService;
+        this.equipmentHeartbeatService = equipmentHeartbeatService;
+        this.snmpPollingService = snmpPollingService;
+        this.equipmentInterfaceService = equipmentInterfaceService;
+        this.equipmentSubnetService = equipmentSubnetService;
+        this.equipmentTicketCountService = equipmentTicketCountService;
+        this.equipmentAttributeService = equipmentAttributeService;
+        this.objectMapper = objectMapper;
     }
     
     /**
      * Get all equipment with pagination and filtering
      */
     @GetMapping
-    public ResponseEntity<Page<Equipment>> getAllEquipment(
+    public ResponseEntity<?> getAllEquipment(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
@@ -45,119 +86,222 @@ public class EquipmentController {
             @RequestParam(required = false) EquipmentType equipmentType,
             @RequestParam(required = false) EquipmentStatus status,
             @RequestParam(required = false) String location,
-            @RequestParam(required = false) Boolean isManaged) {
+            @RequestParam(required = false) Boolean isManaged,
+            @RequestParam(required = false) String fields) {
         
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<Equipment> equipment = equipmentService.findEquipmentWithFilters(
+        Page<EquipmentSummary> equipment = equipmentService.findEquipmentWithFilters(
             search, equipmentType, status, location, isManaged, pageable);
-        return ResponseEntity.ok(equipment);
+        if (fieldset.isAll()) {
+            return ResponseEntity.ok(equipment);
+        }
+        return ResponseEntity.ok(equipment.map(summary -> fieldset.select(objectMapper, summary)));
     }
     
     /**
      * Get equipment by ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Equipment> getEquipmentById(@PathVariable Long id) {
+    public ResponseEntity<?> getEquipmentById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, DETAIL_FIELDS);
         Optional<Equipment> equipment = equipmentService.findById(id);
-        return equipment.map(ResponseEntity::ok)
-                       .orElse(ResponseEntity.notFound().build());
+        return detail(equipment, fieldset);
     }
     
     /**
      * Get equipment by IP address
      */
     @GetMapping("/ip/{ipAddress}")
-    public ResponseEntity<Equipment> getEquipmentByIpAddress(@PathVariable String ipAddress) {
+    public ResponseEntity<?> getEquipmentByIpAddress(
+            @PathVariable String ipAddress,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, DETAIL_FIELDS);
         Optional<Equipment> equipment = equipmentService.findByIpAddress(ipAddress);
-        return equipment.map(ResponseEntity::ok)
-                       .orElse(ResponseEntity.notFound().build());
+        return detail(equipment, fieldset);
     }
     
     /**
      * Get equipment by MAC address
      */
     @GetMapping("/mac/{macAddress}")
-    public ResponseEntity<Equipment> getEquipmentByMacAddress(@PathVariable String macAddress) {
+    public ResponseEntity<?> getEquipmentByMacAddress(
+            @PathVariable String macAddress,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, DETAIL_FIELDS);
         Optional<Equipment> equipment = equipmentService.findByMacAddress(macAddress);
-        return equipment.map(ResponseEntity::ok)
-                       .orElse(ResponseEntity.notFound().build());
+        return detail(equipment, fieldset);
     }
     
     /**
      * Get equipment by hostname
      */
     @GetMapping("/hostname/{hostname}")
-    public ResponseEntity<Equipment> getEquipmentByHostname(@PathVariable String hostname) {
+    public ResponseEntity<?> getEquipmentByHostname(
+            @PathVariable String hostname,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, DETAIL_FIELDS);
         Optional<Equipment> equipment = equipmentService.findByHostname(hostname);
-        return equipment.map(ResponseEntity::ok)
-                       .orElse(ResponseEntity.notFound().build());
+        return detail(equipment, fieldset);
     }
     
     /**
      * Get equipment by type
      */
     @GetMapping("/type/{equipmentType}")
-    public ResponseEntity<List<Equipment>> getEquipmentByType(@PathVariable EquipmentType equipmentType) {
-        List<Equipment> equipment = equipmentService.findByType(equipmentType);
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getEquipmentByType(
+            @PathVariable EquipmentType equipmentType,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findByType(equipmentType);
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get equipment by status
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Equipment>> getEquipmentByStatus(@PathVariable EquipmentStatus status) {
-        List<Equipment> equipment = equipmentService.findByStatus(status);
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getEquipmentByStatus(
+            @PathVariable EquipmentStatus status,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findByStatus(status);
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get equipment by location
      */
     @GetMapping("/location/{location}")
-    public ResponseEntity<List<Equipment>> getEquipmentByLocation(@PathVariable String location) {
-        List<Equipment> equipment = equipmentService.findByLocation(location);
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getEquipmentByLocation(
+            @PathVariable String location,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findByLocation(location);
+        return summaries(equipment, fieldset);
+    }
+    
+    /**
+     * Get equipment in a CIDR range (e.g. 10.2.0.0/15), in address order
+     */
+    @GetMapping("/subnet")
+    public ResponseEntity<?> getEquipmentInSubnet(
+            @RequestParam String cidr,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentSubnetService.findInRange(cidr);
+        return summaries(equipment, fieldset);
+    }
+    
+    /**
+     * Get the free host addresses of a subnet, lowest first
+     */
+    @GetMapping("/subnet/free")
+    public ResponseEntity<EquipmentSubnetService.FreeAddresses> getFreeAddresses(
+            @RequestParam String cidr,
+            @RequestParam(defaultValue = "256") int limit) {
+        return ResponseEntity.ok(equipmentSubnetService.findFreeAddresses(cidr, limit));
+    }
+    
+    /**
+     * Get equipment in any of several CIDR ranges (repeat the cidr parameter), in address order
+     */
+    @GetMapping("/ranges")
+    public ResponseEntity<?> getEquipmentInRanges(
+            @RequestParam List<String> cidr,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentSubnetService.findInRanges(cidr);
+        return summaries(equipment, fieldset);
+    }
+    
+    /**
+     * Get the equipment with the most open tickets, then the most tickets (operations dashboard hotspots)
+     */
+    @GetMapping("/top-problems")
+    public ResponseEntity<?> getTopProblemEquipment(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentTicketCountService.findTopProblemEquipment(limit);
+        return summaries(equipment, fieldset);
+    }
+    
+    /**
+     * Get equipment by specification attribute: a value for text attributes
+     * (key=SYS_LOCATION&value=Server Room), min and/or max for numeric ones (key=IF_NUMBER&min=24)
+     */
+    @GetMapping("/attributes")
+    public ResponseEntity<?> getEquipmentByAttribute(
+            @RequestParam EquipmentAttributeKey key,
+            @RequestParam(required = false) String value,
+            @RequestParam(required = false) Long min,
+            @RequestParam(required = false) Long max,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentAttributeService.findByAttribute(key, value, min, max);
+        return summaries(equipment, fieldset);
+    }
+    
+    /**
+     * Get equipment that booted within the last hours (uptime below them), as of its last discovery
+     */
+    @GetMapping("/recently-booted")
+    public ResponseEntity<?> getRecentlyBootedEquipment(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentAttributeService.findBootedWithin(hours);
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get managed equipment
      */
     @GetMapping("/managed")
-    public ResponseEntity<List<Equipment>> getManagedEquipment() {
-        List<Equipment> equipment = equipmentService.findManagedEquipment();
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getManagedEquipment(@RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findManagedEquipment();
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get unmanaged equipment
      */
     @GetMapping("/unmanaged")
-    public ResponseEntity<List<Equipment>> getUnmanagedEquipment() {
-        List<Equipment> equipment = equipmentService.findUnmanagedEquipment();
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getUnmanagedEquipment(@RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findUnmanagedEquipment();
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get equipment not seen for specified hours
      */
     @GetMapping("/not-seen")
-    public ResponseEntity<List<Equipment>> getEquipmentNotSeen(@RequestParam(defaultValue = "24") int hours) {
-        List<Equipment> equipment = equipmentService.findEquipmentNotSeenSince(hours);
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getEquipmentNotSeen(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findEquipmentNotSeenSince(hours);
+        return summaries(equipment, fieldset);
     }
     
     /**
      * Get equipment with expiring warranty
      */
     @GetMapping("/warranty-expiring")
-    public ResponseEntity<List<Equipment>> getEquipmentWithExpiringWarranty(
-            @RequestParam(defaultValue = "30") int daysFromNow) {
-        List<Equipment> equipment = equipmentService.findEquipmentWithExpiringWarranty(daysFromNow);
-        return ResponseEntity.ok(equipment);
+    public ResponseEntity<?> getEquipmentWithExpiringWarranty(
+            @RequestParam(defaultValue = "30") int daysFromNow,
+            @RequestParam(required = false) String fields) {
+        SparseFieldset fieldset = SparseFieldset.parse(fields, EquipmentSummary.FIELDS);
+        List<EquipmentSummary> equipment = equipmentService.findEquipmentWithExpiringWarranty(daysFromNow);
+        return summaries(equipment, fieldset);
     }
     
     /**
@@ -245,6 +389,92 @@ public class EquipmentController {
         }
     }
     
+    /**
+     * Record a batch of agent heartbeats; they are coalesced and written by a periodic bulk update
+     */
+    @PostMapping("/heartbeats")
+    public ResponseEntity<Map<String, Object>> recordHeartbeats(@RequestBody HeartbeatBatchRequest request) {
+        try {
+            int accepted = equipmentHeartbeatService.record(request.getEquipmentIds(), request.getIpAddresses());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", accepted));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get the network interfaces of equipment
+     */
+    @GetMapping("/{id}/interfaces")
+    public ResponseEntity<List<EquipmentInterface>> getEquipmentInterfaces(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(equipmentInterfaceService.getInterfaces(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * Get the specification attributes of equipment, as read over SNMP at its last discovery
+     */
+    @GetMapping("/{id}/attributes")
+    public ResponseEntity<List<EquipmentAttribute>> getEquipmentAttributes(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(equipmentAttributeService.getAttributes(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * Walk the interface tables of equipment over SNMP and store the result
+     */
+    @PostMapping("/{id}/interfaces/refresh")
+    public ResponseEntity<?> refreshEquipmentInterfaces(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(equipmentInterfaceService.refresh(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get the names of the SNMP metrics recorded for equipment
+     */
+    @GetMapping("/{id}/metrics")
+    public ResponseEntity<List<String>> getEquipmentMetrics(@PathVariable Long id) {
+        return ResponseEntity.ok(snmpPollingService.getMetricNames(id));
+    }
+    
+    /**
+     * Get the history of an SNMP metric (last 6 hours by default)
+     */
+    @GetMapping("/{id}/metrics/{metric}")
+    public ResponseEntity<SnmpPollingService.MetricHistory> getEquipmentMetricHistory(
+            @PathVariable Long id,
+            @PathVariable String metric,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "auto") String resolution) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(6);
+        try {
+            return ResponseEntity.ok(snmpPollingService.getHistory(id, metric, start, end, resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Get SNMP poller statistics
+     */
+    @GetMapping("/metrics/stats")
+    public ResponseEntity<SnmpPollingService.PollingStats> getPollingStats() {
+        return ResponseEntity.ok(snmpPollingService.getStats());
+    }
+    
     /**
      * Mark equipment as managed
      */
@@ -313,6 +543,26 @@ public class EquipmentController {
         }
     }
     
+    private ResponseEntity<?> summaries(List<EquipmentSummary> equipment, SparseFieldset fieldset) {
+        if (fieldset.isAll()) {
+            return ResponseEntity.ok(equipment);
+        }
+        return ResponseEntity.ok(equipment.stream().map(summary -> fieldset.select(objectMapper, summary)).toList());
+    }
+    
+    private ResponseEntity<?> detail(Optional<Equipment> equipment, SparseFieldset fieldset) {
+        if (equipment.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(fieldset.isAll() ? equipment.get() : fieldset.select(objectMapper, equipment.get()));
+    }
+    
+    private static List<String> detailFields() {
+        List<String> fields = new ArrayList<>(EquipmentSummary.FIELDS);
+        fields.add("specifications");
+        return List.copyOf(fields);
+    }
+    
     // Inner classes for request DTOs
     
     public static class StatusUpdateRequest {
@@ -327,6 +577,27 @@ public class EquipmentController {
         }
     }
     
+    public static class HeartbeatBatchRequest {
+        private List<Long> equipmentIds;
+        private List<String> ipAddresses;
+        
+        public List<Long> getEquipmentIds() {
+            return equipmentIds;
+        }
+        
+        public void setEquipmentIds(List<Long> equipmentIds) {
+            this.equipmentIds = equipmentIds;
+        }
+        
+        public List<String> getIpAddresses() {
+            return ipAddresses;
+        }
+        
+        public void setIpAddresses(List<String> ipAddresses) {
+            this.ipAddresses = ipAddresses;
+        }
+    }
+    
     public static class DiscoveryRequest {
         private String ipAddress;
         private String macAddress;
@@ -0,0 +1,70 @@
+package ma.gov.dgh.helpdesk.controller;
+
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.service.EventStreamService;
+import ma.gov.dgh.helpdesk.utils.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * REST Controller streaming ticket and equipment changes as Server-Sent Events
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:4200"})
+public class EventStreamController {
+    
+    private final EventStreamService eventStreamService;
+    
+    @Autowired
+    public EventStreamController(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+    
+    /**
+     * Subscribe to domain events, optionally filtered by topic (tickets, equipment, reports, discovery).
+     * Reconnecting clients send Last-Event-ID to receive the events they missed.
+     * Report job updates are only streamed to the job's owner.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String topics,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                             @RequestParam(required = false) Long lastEventId) {
+        Set<String> topicFilter = topics == null ? Set.of() : Arrays.stream(topics.split(","))
+            .map(String::trim)
+            .filter(topic -> !topic.isEmpty())
+            .collect(Collectors.toSet());
+        
+        Long resumeFrom = lastEventId;
+        if (lastEventIdHeader != null) {
+            try {
+                resumeFrom = Long.parseLong(lastEventIdHeader.trim());
+            } catch (NumberFormatException e) {
+                resumeFrom = null;
+            }
+        }
+        
+        String username = SecurityUtils.getCurrentUser().map(User::getLdapUsername).orElse("anonymous");
+        return eventStreamService.subscribe(username, topicFilter, resumeFrom);
+    }
+    
+    /**
+     * Get event stream statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", eventStreamService.getSubscriberCount());
+        stats.put("lastEventId", eventStreamService.getLastEventId());
+        return ResponseEntity.ok(stats);
+    }
+}
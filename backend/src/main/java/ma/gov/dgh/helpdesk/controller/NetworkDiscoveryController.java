@@ -1,14 +1,23 @@
 package ma.gov.dgh.helpdesk.controller;
 
 import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.service.DeviceClassificationService;
+import ma.gov.dgh.helpdesk.service.DeviceClassificationService.ClassificationInfo;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService.DiscoveryJob;
 import ma.gov.dgh.helpdesk.service.NetworkDiscoveryService;
 import ma.gov.dgh.helpdesk.service.SnmpService;
+import ma.gov.dgh.helpdesk.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -21,28 +30,73 @@ public class NetworkDiscoveryController {
     
     private final NetworkDiscoveryService networkDiscoveryService;
     private final SnmpService snmpService;
+    private final DiscoveryJobService discoveryJobService;
+    private final DeviceClassificationService deviceClassificationService;
     
     @Autowired
-    public NetworkDiscoveryController(NetworkDiscoveryService networkDiscoveryService, SnmpService snmpService) {
+    public NetworkDiscoveryController(NetworkDiscoveryService networkDiscoveryService, SnmpService snmpService,
+                                      DiscoveryJobService discoveryJobService,
+                                      DeviceClassificationService deviceClassificationService) {
         this.networkDiscoveryService = networkDiscoveryService;
         this.snmpService = snmpService;
+        this.discoveryJobService = discoveryJobService;
+        this.deviceClassificationService = deviceClassificationService;
     }
     
     /**
-     * Start network discovery scan
+     * Start a network discovery job over the given subnets, or the configured ones.
+     * Requested subnets must lie within the configured ranges.
+     * Progress and discovered devices are streamed on the "discovery" event topic.
      */
     @PostMapping("/scan")
     @PreAuthorize("hasRole('TECHNICIAN') or hasRole('ADMIN')")
-    public ResponseEntity<DiscoveryResponse> startNetworkScan() {
+    public ResponseEntity<?> startNetworkScan(@RequestBody(required = false) ScanRequest request) {
         try {
-            CompletableFuture<List<Equipment>> future = networkDiscoveryService.performNetworkDiscovery();
-            return ResponseEntity.ok(new DiscoveryResponse("Network discovery started", true));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(new DiscoveryResponse("Failed to start network discovery: " + e.getMessage(), false));
+            List<String> subnets = request != null && request.getSubnets() != null && !request.getSubnets().isEmpty()
+                ? networkDiscoveryService.checkRequestedSubnets(request.getSubnets())
+                : networkDiscoveryService.getConfiguredSubnets();
+            DiscoveryJob job = discoveryJobService.submit(currentOwner(), subnets);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error(e.getMessage()));
         }
     }
     
+    /**
+     * Get the discovery jobs, newest first
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasRole('TECHNICIAN') or hasRole('ADMIN')")
+    public ResponseEntity<List<DiscoveryJob>> getJobs() {
+        return ResponseEntity.ok(discoveryJobService.findJobs());
+    }
+    
+    /**
+     * Get the progress of a discovery job
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasRole('TECHNICIAN') or hasRole('ADMIN')")
+    public ResponseEntity<DiscoveryJob> getJob(@PathVariable Long id) {
+        return discoveryJobService.findJob(id).map(ResponseEntity::ok)
+                                  .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Cancel a running discovery job, or delete a finished one
+     */
+    @DeleteMapping("/jobs/{id}")
+    @PreAuthorize("hasRole('TECHNICIAN') or hasRole('ADMIN')")
+    public ResponseEntity<Void> cancelJob(@PathVariable Long id) {
+        return discoveryJobService.findJob(id)
+            .map(job -> {
+                discoveryJobService.cancelOrDelete(job);
+                return ResponseEntity.noContent().<Void>build();
+            })
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * Scan a specific device by IP address
      */
@@ -83,23 +137,46 @@ public class NetworkDiscoveryController {
         return ResponseEntity.ok(status);
     }
     
-    // Inner classes for response DTOs
+    /**
+     * Get the version of the device classification rules in use
+     */
+    @GetMapping("/classification")
+    @PreAuthorize("hasRole('TECHNICIAN') or hasRole('ADMIN')")
+    public ResponseEntity<ClassificationInfo> getClassificationRules() {
+        return ResponseEntity.ok(deviceClassificationService.getInfo());
+    }
     
-    public static class DiscoveryResponse {
-        private String message;
-        private boolean success;
-        
-        public DiscoveryResponse(String message, boolean success) {
-            this.message = message;
-            this.success = success;
-        }
+    /**
+     * Reload the device classification rules; a rejected rule file leaves the rules in use active
+     */
+    @PostMapping("/classification/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ClassificationInfo> reloadClassificationRules() {
+        ClassificationInfo info = deviceClassificationService.reload();
+        return info.getError() == null ? ResponseEntity.ok(info) : ResponseEntity.badRequest().body(info);
+    }
+    
+    private static String currentOwner() {
+        return SecurityUtils.getCurrentUser().map(User::getLdapUsername).orElse("anonymous");
+    }
+    
+    private static Map<String, String> error(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return error;
+    }
+    
+    // Inner classes for request and response DTOs
+    
+    public static class ScanRequest {
+        private List<String> subnets;
         
-        public String getMessage() {
-            return message;
+        public List<String> getSubnets() {
+            return subnets;
         }
         
-        public boolean isSuccess() {
-            return success;
+        public void setSubnets(List<String> subnets) {
+            this.subnets = subnets;
         }
     }
     
@@ -0,0 +1,209 @@
+package ma.gov.dgh.helpdesk.controller;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.service.ReportJobService;
+import ma.gov.dgh.helpdesk.service.ReportJobService.JobStatus;
+import ma.gov.dgh.helpdesk.service.ReportJobService.ReportJob;
+import ma.gov.dgh.helpdesk.service.ReportService;
+import ma.gov.dgh.helpdesk.utils.ReportFormat;
+import ma.gov.dgh.helpdesk.utils.ReportType;
+import ma.gov.dgh.helpdesk.utils.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST Controller streaming ticket and equipment reports as CSV or XLSX downloads,
+ * and managing background report jobs
+ */
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:4200"})
+public class ReportController {
+    
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    
+    @Autowired
+    public ReportController(ReportService reportService, ReportJobService reportJobService) {
+        this.reportService = reportService;
+        this.reportJobService = reportJobService;
+    }
+    
+    /**
+     * Export tickets with the same filters as the ticket list
+     */
+    @GetMapping("/tickets")
+    public ResponseEntity<StreamingResponseBody> exportTickets(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) TicketStatus status,
+            @RequestParam(required = false) TicketPriority priority,
+            @RequestParam(required = false) TicketCategory category,
+            @RequestParam(required = false) Long createdById,
+            @RequestParam(required = false) Long assignedToId,
+            @RequestParam(required = false) Long equipmentId) {
+        ReportFormat reportFormat = parseFormat(format);
+        if (reportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> reportService.exportTickets(reportFormat, out,
+            search, status, priority, category, createdById, assignedToId, equipmentId);
+        return download("tickets", reportFormat, body);
+    }
+    
+    /**
+     * Export equipment with the same filters as the equipment list
+     */
+    @GetMapping("/equipment")
+    public ResponseEntity<StreamingResponseBody> exportEquipment(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) EquipmentType equipmentType,
+            @RequestParam(required = false) EquipmentStatus status,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) Boolean isManaged) {
+        ReportFormat reportFormat = parseFormat(format);
+        if (reportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> reportService.exportEquipment(reportFormat, out,
+            search, equipmentType, status, location, isManaged);
+        return download("equipment", reportFormat, body);
+    }
+    
+    /**
+     * Submit a background report job
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody ReportJobRequest request) {
+        ReportFormat reportFormat = parseFormat(request.getFormat() != null ? request.getFormat() : "csv");
+        if (reportFormat == null || request.getType() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            ReportJob job = reportJobService.submit(currentOwner(), request.getType(), reportFormat, request.getFilters());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+        }
+    }
+    
+    /**
+     * Get the current user's report jobs
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ReportJob>> getJobs() {
+        return ResponseEntity.ok(reportJobService.findJobs(currentOwner()));
+    }
+    
+    /**
+     * Get the status of a report job
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ReportJob> getJob(@PathVariable Long id) {
+        return findJob(id).map(ResponseEntity::ok)
+                          .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Download the result of a completed report job
+     */
+    @GetMapping("/jobs/{id}/download")
+    public ResponseEntity<Resource> downloadJobResult(@PathVariable Long id) {
+        Optional<ReportJob> job = findJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != JobStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        FileSystemResource resource = reportJobService.getResult(job.get());
+        if (!resource.exists()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_TYPE, job.get().getFormat().getContentType())
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(job.get().getFileName()).build().toString())
+            .body(resource);
+    }
+    
+    /**
+     * Cancel a running report job, or delete a finished one with its result
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Void> cancelJob(@PathVariable Long id) {
+        Optional<ReportJob> job = findJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        reportJobService.cancelOrDelete(job.get());
+        return ResponseEntity.noContent().build();
+    }
+    
+    private Optional<ReportJob> findJob(Long id) {
+        return reportJobService.findJob(id, currentOwner(), SecurityUtils.isAdmin());
+    }
+    
+    private static String currentOwner() {
+        return SecurityUtils.getCurrentUser().map(User::getLdapUsername).orElse("anonymous");
+    }
+    
+    private ResponseEntity<StreamingResponseBody> download(String name, ReportFormat format, StreamingResponseBody body) {
+        String filename = name + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "." + format.getExtension();
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_TYPE, format.getContentType())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(body);
+    }
+    
+    private static ReportFormat parseFormat(String format) {
+        try {
+            return ReportFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public static class ReportJobRequest {
+        private ReportType type;
+        private String format;
+        private Map<String, String> filters;
+        
+        public ReportType getType() { return type; }
+        public void setType(ReportType type) { this.type = type; }
+        
+        public String getFormat() { return format; }
+        public void setFormat(String format) { this.format = format; }
+        
+        public Map<String, String> getFilters() { return filters; }
+        public void setFilters(Map<String, String> filters) { this.filters = filters; }
+    }
+}
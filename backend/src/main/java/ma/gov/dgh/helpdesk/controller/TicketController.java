@@ -1,22 +1,43 @@
 package ma.gov.dgh.helpdesk.controller;
 
+import ma.gov.dgh.helpdesk.config.ConditionalGet;
 import ma.gov.dgh.helpdesk.entity.*;
+import ma.gov.dgh.helpdesk.service.AttachmentPreviewService;
+import ma.gov.dgh.helpdesk.service.AttachmentPreviewService.Preview;
+import ma.gov.dgh.helpdesk.service.AttachmentPreviewService.PreviewSize;
+import ma.gov.dgh.helpdesk.service.AttachmentStorageService;
+import ma.gov.dgh.helpdesk.service.EquipmentService;
 import ma.gov.dgh.helpdesk.service.TicketService;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
 import ma.gov.dgh.helpdesk.service.UserService;
 import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.utils.FileResponseWriter;
+import ma.gov.dgh.helpdesk.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -34,15 +55,26 @@ import java.util.stream.Collectors;
 })
 public class TicketController {
     
+    // Seconds a client waits before asking again for a preview being generated
+    private static final int PREVIEW_RETRY_AFTER_SECONDS = 1;
+    
     private final TicketService ticketService;
     private final UserService userService;
     private final TicketRepository ticketRepository;
+    private final AttachmentStorageService attachmentStorageService;
+    private final AttachmentPreviewService attachmentPreviewService;
+    private final EquipmentService equipmentService;
     
     @Autowired
-    public TicketController(TicketService ticketService, UserService userService, TicketRepository ticketRepository) {
+    public TicketController(TicketService ticketService, UserService userService, TicketRepository ticketRepository,
+                            AttachmentStorageService attachmentStorageService,
+                            AttachmentPreviewService attachmentPreviewService, EquipmentService equipmentService) {
         this.ticketService = ticketService;
         this.userService = userService;
         this.ticketRepository = ticketRepository;
+        this.attachmentStorageService = attachmentStorageService;
+        this.attachmentPreviewService = attachmentPreviewService;
+        this.equipmentService = equipmentService;
     }
     
     /**
@@ -194,6 +226,7 @@ public class TicketController {
      * Get all tickets with pagination and filtering
      */
     @GetMapping
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<Page<TicketDTO>> getAllTickets(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -206,7 +239,6 @@ public class TicketController {
             @RequestParam(required = false) Long createdById,
             @RequestParam(required = false) Long assignedToId,
             @RequestParam(required = false) Long equipmentId) {
-        
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -227,6 +259,7 @@ public class TicketController {
      * Get ticket by ID
      */
     @GetMapping("/{id}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<TicketDTO> getTicketById(@PathVariable Long id) {
         Optional<Ticket> ticket = ticketService.findById(id);
         return ticket.map(t -> ResponseEntity.ok(new TicketDTO(t)))
@@ -237,6 +270,7 @@ public class TicketController {
      * Get tickets by status
      */
     @GetMapping("/status/{status}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getTicketsByStatus(@PathVariable TicketStatus status) {
         List<Ticket> tickets = ticketService.findByStatus(status);
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -249,6 +283,7 @@ public class TicketController {
      * Get tickets by priority
      */
     @GetMapping("/priority/{priority}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getTicketsByPriority(@PathVariable TicketPriority priority) {
         List<Ticket> tickets = ticketService.findByPriority(priority);
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -261,6 +296,7 @@ public class TicketController {
      * Get tickets by category
      */
     @GetMapping("/category/{category}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getTicketsByCategory(@PathVariable TicketCategory category) {
         List<Ticket> tickets = ticketService.findByCategory(category);
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -273,6 +309,7 @@ public class TicketController {
      * Get tickets created by user
      */
     @GetMapping("/created-by/{userId}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getTicketsCreatedByUser(@PathVariable Long userId) {
         Optional<User> user = userService.findById(userId);
         if (user.isEmpty()) {
@@ -289,6 +326,7 @@ public class TicketController {
      * Get tickets assigned to user
      */
     @GetMapping("/assigned-to/{userId}")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getTicketsAssignedToUser(@PathVariable Long userId) {
         Optional<User> user = userService.findById(userId);
         if (user.isEmpty()) {
@@ -305,6 +343,7 @@ public class TicketController {
      * Get unassigned tickets
      */
     @GetMapping("/unassigned")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getUnassignedTickets() {
         List<Ticket> tickets = ticketService.findUnassignedTickets();
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -317,6 +356,7 @@ public class TicketController {
      * Get open tickets
      */
     @GetMapping("/open")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getOpenTickets() {
         List<Ticket> tickets = ticketService.findOpenTickets();
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -326,7 +366,7 @@ public class TicketController {
     }
     
     /**
-     * Get overdue tickets
+     * Get overdue tickets (not versioned: the result changes with the clock, not only with writes)
      */
     @GetMapping("/overdue")
     public ResponseEntity<List<TicketDTO>> getOverdueTickets() {
@@ -341,6 +381,7 @@ public class TicketController {
      * Get escalated tickets
      */
     @GetMapping("/escalated")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getEscalatedTickets() {
         List<Ticket> tickets = ticketService.findEscalatedTickets();
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -353,6 +394,7 @@ public class TicketController {
      * Get critical open tickets
      */
     @GetMapping("/critical")
+    @ConditionalGet({Aggregate.TICKETS, Aggregate.USERS})
     public ResponseEntity<List<TicketDTO>> getCriticalOpenTickets() {
         List<Ticket> tickets = ticketService.findCriticalOpenTickets();
         List<TicketDTO> ticketDTOs = tickets.stream()
@@ -372,8 +414,7 @@ public class TicketController {
             
             Equipment equipment = null;
             if (request.getEquipmentId() != null) {
-                // You would need to inject EquipmentService here if you have one
-                // equipment = equipmentService.findById(request.getEquipmentId()).orElse(null);
+                equipment = equipmentService.findById(request.getEquipmentId()).orElse(null);
             }
             
             Ticket ticket = new Ticket();
@@ -438,6 +479,24 @@ public class TicketController {
         return ResponseEntity.ok(new TicketDTO(updatedTicket));
     }
     
+    /**
+     * Assign ticket to the least loaded technician
+     */
+    @PutMapping("/{id}/auto-assign")
+    public ResponseEntity<TicketDTO> autoAssignTicket(@PathVariable Long id) {
+        Optional<Ticket> ticket = ticketService.findById(id);
+        if (ticket.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        try {
+            Ticket updatedTicket = ticketService.autoAssignTicket(id);
+            return ResponseEntity.ok(new TicketDTO(updatedTicket));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
     /**
      * Change ticket status
      */
@@ -484,6 +543,95 @@ public class TicketController {
         }
     }
     
+    /**
+     * Upload an attachment to a ticket as a new comment
+     */
+    @PostMapping(value = "/{id}/attachments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TicketComment> uploadAttachment(@PathVariable Long id,
+                                                          @RequestParam("file") MultipartFile file,
+                                                          @RequestParam Long userId,
+                                                          @RequestParam(required = false) String comment,
+                                                          @RequestParam(defaultValue = "false") Boolean isInternal) throws IOException {
+        Optional<User> user = userService.findById(userId);
+        if (user.isEmpty() || file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String fileName = file.getOriginalFilename() != null
+            ? Path.of(file.getOriginalFilename()).getFileName().toString() : "attachment";
+        try (InputStream content = file.getInputStream()) {
+            TicketComment attachment = ticketService.addAttachment(id, user.get(), fileName, file.getSize(),
+                content, comment, isInternal);
+            return ResponseEntity.status(HttpStatus.CREATED).body(attachment);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * Download the attachment of a ticket comment; supports byte ranges and conditional requests.
+     * Attachments the caller may not read are reported as not found.
+     */
+    @GetMapping("/{id}/comments/{commentId}/attachment")
+    public void downloadAttachment(@PathVariable Long id, @PathVariable Long commentId,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<TicketComment> comment = ticketService.findAttachmentComment(id, commentId, SecurityUtils.getCurrentUser().orElse(null));
+        Path file = comment.map(c -> attachmentStorageService.resolve(c.getAttachmentPath())).orElse(null);
+        if (file == null || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        String fileName = comment.get().getAttachmentName() != null ? comment.get().getAttachmentName() : "attachment";
+        String contentType = MediaTypeFactory.getMediaType(fileName)
+            .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        // Stored files are content-addressed, so a given path never changes
+        String etag = "\"" + file.getFileName() + "\"";
+        String cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePrivate().immutable().getHeaderValue();
+        FileResponseWriter.send(request, response, file, fileName, contentType, etag, cacheControl);
+    }
+    
+    /**
+     * Get a downscaled JPEG of an image attachment (size: thumbnail or preview), for timelines
+     */
+    @GetMapping("/{id}/comments/{commentId}/attachment/preview")
+    public void getAttachmentPreview(@PathVariable Long id, @PathVariable Long commentId,
+                                     @RequestParam(defaultValue = "thumbnail") String size,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PreviewSize previewSize;
+        try {
+            previewSize = PreviewSize.valueOf(size.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        
+        Optional<TicketComment> comment = ticketService.findAttachmentComment(id, commentId, SecurityUtils.getCurrentUser().orElse(null));
+        if (comment.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Preview preview = attachmentPreviewService.getPreview(comment.get().getAttachmentPath(), previewSize);
+        if (preview.isPending()) {
+            // The preview is being generated: the client polls again
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(PREVIEW_RETRY_AFTER_SECONDS));
+            return;
+        }
+        if (preview.getFile().isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        // Derivatives are named after the content hash of their original
+        Path file = preview.getFile().get();
+        String etag = "\"" + file.getFileName() + "\"";
+        String cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePrivate().immutable().getHeaderValue();
+        FileResponseWriter.send(request, response, file, null, MediaType.IMAGE_JPEG_VALUE, etag, cacheControl);
+    }
+    
     /**
      * Get ticket comments
      */
@@ -514,6 +662,7 @@ public class TicketController {
      * Get ticket statistics
      */
     @GetMapping("/statistics")
+    @ConditionalGet(Aggregate.TICKETS)
     public ResponseEntity<TicketService.TicketStatistics> getTicketStatistics() {
         TicketService.TicketStatistics statistics = ticketService.getTicketStatistics();
         return ResponseEntity.ok(statistics);
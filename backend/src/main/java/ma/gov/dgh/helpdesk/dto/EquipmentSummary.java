@@ -0,0 +1,140 @@
+package ma.gov.dgh.helpdesk.dto;
+
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Equipment as shown in list views: every column except the specifications JSON, which is only
+ * returned by the detail views. Repository list queries select it with a constructor expression,
+ * so the specifications column is never read for a list.
+ */
+public class EquipmentSummary {
+
+    /**
+     * Names of the summary fields, in serialization order (sparse fieldsets of list views)
+     */
+    public static final List<String> FIELDS = List.of(
+        "id", "hostname", "ipAddress", "macAddress", "equipmentType", "manufacturer", "model",
+        "serialNumber", "osName", "osVersion", "location", "status", "lastSeen", "cpuInfo", "memoryGb",
+        "diskGb", "networkPorts", "isManaged", "assetTag", "purchaseDate", "warrantyExpiry", "createdAt",
+        "updatedAt", "openTicketCount", "totalTicketCount", "lastTicketAt");
+
+    /**
+     * JPQL select list matching the constructor, for queries on Equipment aliased as e
+     */
+    public static final String SELECT = "SELECT new ma.gov.dgh.helpdesk.dto.EquipmentSummary(" +
+        "e.id, e.hostname, e.ipAddress, e.macAddress, e.equipmentType, e.manufacturer, e.model, " +
+        "e.serialNumber, e.osName, e.osVersion, e.location, e.status, e.lastSeen, e.cpuInfo, e.memoryGb, " +
+        "e.diskGb, e.networkPorts, e.isManaged, e.assetTag, e.purchaseDate, e.warrantyExpiry, e.createdAt, " +
+        "e.updatedAt, e.openTicketCount, e.totalTicketCount, e.lastTicketAt) FROM Equipment e ";
+
+    private final Long id;
+    private final String hostname;
+    private final String ipAddress;
+    private final String macAddress;
+    private final EquipmentType equipmentType;
+    private final String manufacturer;
+    private final String model;
+    private final String serialNumber;
+    private final String osName;
+    private final String osVersion;
+    private final String location;
+    private final EquipmentStatus status;
+    private final LocalDateTime lastSeen;
+    private final String cpuInfo;
+    private final Integer memoryGb;
+    private final Integer diskGb;
+    private final Integer networkPorts;
+    private final Boolean isManaged;
+    private final String assetTag;
+    private final LocalDateTime purchaseDate;
+    private final LocalDateTime warrantyExpiry;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final int openTicketCount;
+    private final int totalTicketCount;
+    private final LocalDateTime lastTicketAt;
+
+    public EquipmentSummary(Long id, String hostname, String ipAddress, String macAddress,
+                            EquipmentType equipmentType, String manufacturer, String model,
+                            String serialNumber, String osName, String osVersion, String location,
+                            EquipmentStatus status, LocalDateTime lastSeen, String cpuInfo, Integer memoryGb,
+                            Integer diskGb, Integer networkPorts, Boolean isManaged, String assetTag,
+                            LocalDateTime purchaseDate, LocalDateTime warrantyExpiry, LocalDateTime createdAt,
+                            LocalDateTime updatedAt, int openTicketCount, int totalTicketCount,
+                            LocalDateTime lastTicketAt) {
+        this.id = id;
+        this.hostname = hostname;
+        this.ipAddress = ipAddress;
+        this.macAddress = macAddress;
+        this.equipmentType = equipmentType;
+        this.manufacturer = manufacturer;
+        this.model = model;
+        this.serialNumber = serialNumber;
+        this.osName = osName;
+        this.osVersion = osVersion;
+        this.location = location;
+        this.status = status;
+        this.lastSeen = lastSeen;
+        this.cpuInfo = cpuInfo;
+        this.memoryGb = memoryGb;
+        this.diskGb = diskGb;
+        this.networkPorts = networkPorts;
+        this.isManaged = isManaged;
+        this.assetTag = assetTag;
+        this.purchaseDate = purchaseDate;
+        this.warrantyExpiry = warrantyExpiry;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.openTicketCount = openTicketCount;
+        this.totalTicketCount = totalTicketCount;
+        this.lastTicketAt = lastTicketAt;
+    }
+
+    public EquipmentSummary(Equipment equipment) {
+        this(equipment.getId(), equipment.getHostname(), equipment.getIpAddress(), equipment.getMacAddress(),
+            equipment.getEquipmentType(), equipment.getManufacturer(), equipment.getModel(),
+            equipment.getSerialNumber(), equipment.getOsName(), equipment.getOsVersion(), equipment.getLocation(),
+            equipment.getStatus(), equipment.getLastSeen(), equipment.getCpuInfo(), equipment.getMemoryGb(),
+            equipment.getDiskGb(), equipment.getNetworkPorts(), equipment.getIsManaged(), equipment.getAssetTag(),
+            equipment.getPurchaseDate(), equipment.getWarrantyExpiry(), equipment.getCreatedAt(),
+            equipment.getUpdatedAt(), equipment.getOpenTicketCount(), equipment.getTotalTicketCount(),
+            equipment.getLastTicketAt());
+    }
+
+    public static List<EquipmentSummary> of(List<Equipment> equipment) {
+        return equipment.stream().map(EquipmentSummary::new).toList();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getHostname() { return hostname; }
+    public String getIpAddress() { return ipAddress; }
+    public String getMacAddress() { return macAddress; }
+    public EquipmentType getEquipmentType() { return equipmentType; }
+    public String getManufacturer() { return manufacturer; }
+    public String getModel() { return model; }
+    public String getSerialNumber() { return serialNumber; }
+    public String getOsName() { return osName; }
+    public String getOsVersion() { return osVersion; }
+    public String getLocation() { return location; }
+    public EquipmentStatus getStatus() { return status; }
+    public LocalDateTime getLastSeen() { return lastSeen; }
+    public String getCpuInfo() { return cpuInfo; }
+    public Integer getMemoryGb() { return memoryGb; }
+    public Integer getDiskGb() { return diskGb; }
+    public Integer getNetworkPorts() { return networkPorts; }
+    public Boolean getIsManaged() { return isManaged; }
+    public String getAssetTag() { return assetTag; }
+    public LocalDateTime getPurchaseDate() { return purchaseDate; }
+    public LocalDateTime getWarrantyExpiry() { return warrantyExpiry; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public int getOpenTicketCount() { return openTicketCount; }
+    public int getTotalTicketCount() { return totalTicketCount; }
+    public LocalDateTime getLastTicketAt() { return lastTicketAt; }
+}
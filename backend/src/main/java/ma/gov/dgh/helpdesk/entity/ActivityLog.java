@@ -10,7 +10,14 @@ import java.time.LocalDateTime;
  * Used for admin monitoring, security auditing, and compliance
  */
 @Entity
-@Table(name = "activity_logs")
+@Table(name = "activity_logs", indexes = {
+    @Index(name = "idx_activity_timestamp", columnList = "timestamp"),
+    @Index(name = "idx_activity_user_timestamp", columnList = "user_identifier, timestamp"),
+    @Index(name = "idx_activity_action_timestamp", columnList = "action, timestamp, ip_address"),
+    @Index(name = "idx_activity_severity_timestamp", columnList = "severity, timestamp"),
+    @Index(name = "idx_activity_ip_timestamp", columnList = "ip_address, timestamp"),
+    @Index(name = "idx_activity_resource_timestamp", columnList = "affected_resource, timestamp")
+})
 public class ActivityLog {
     
     @Id
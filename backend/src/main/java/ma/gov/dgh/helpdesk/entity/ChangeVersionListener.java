@@ -0,0 +1,35 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA listener bumping the aggregate change counter on every insert, update or delete,
+ * whichever service or controller performed the write
+ */
+public class ChangeVersionListener {
+    
+    private final ChangeVersionService changeVersionService;
+    
+    @Autowired
+    public ChangeVersionListener(ChangeVersionService changeVersionService) {
+        this.changeVersionService = changeVersionService;
+    }
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Ticket || entity instanceof TicketComment) {
+            changeVersionService.markChanged(Aggregate.TICKETS);
+        } else if (entity instanceof Equipment) {
+            changeVersionService.markChanged(Aggregate.EQUIPMENT);
+        } else if (entity instanceof User) {
+            changeVersionService.markChanged(Aggregate.USERS);
+        }
+    }
+}
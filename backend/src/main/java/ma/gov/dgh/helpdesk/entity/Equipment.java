@@ -1,13 +1,17 @@
 package ma.gov.dgh.helpdesk.entity;
 
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import ma.gov.dgh.helpdesk.utils.IpAddresses;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,13 +20,20 @@ import java.util.List;
  * Equipment entity representing IT assets discovered through network scanning
  */
 @Entity
+@EntityListeners({ChangeVersionListener.class, EquipmentInventoryListener.class})
 @Table(name = "equipment", indexes = {
     @Index(name = "idx_equipment_ip", columnList = "ip_address"),
+    @Index(name = "idx_equipment_ip_numeric", columnList = "ip_numeric"),
     @Index(name = "idx_equipment_mac", columnList = "mac_address"),
     @Index(name = "idx_equipment_hostname", columnList = "hostname"),
     @Index(name = "idx_equipment_type", columnList = "equipment_type"),
     @Index(name = "idx_equipment_location", columnList = "location"),
-    @Index(name = "idx_equipment_status", columnList = "status")
+    @Index(name = "idx_equipment_status_last_seen", columnList = "status, last_seen"),
+    @Index(name = "idx_equipment_last_seen", columnList = "last_seen"),
+    @Index(name = "idx_equipment_asset_tag", columnList = "asset_tag"),
+    @Index(name = "idx_equipment_manufacturer_model", columnList = "manufacturer, model"),
+    @Index(name = "idx_equipment_warranty_expiry", columnList = "warranty_expiry"),
+    @Index(name = "idx_equipment_ticket_counts", columnList = "open_ticket_count DESC, total_ticket_count DESC")
 })
 public class Equipment {
     
@@ -39,6 +50,11 @@ public class Equipment {
              message = "Invalid IP address format")
     private String ipAddress;
     
+    // IP address as a 128-bit key for range queries (IPv4 in ::ffff:0:0/96), derived on save
+    @JsonIgnore
+    @Column(name = "ip_numeric", precision = 39, scale = 0)
+    private BigInteger ipNumeric;
+    
     @Column(name = "mac_address", length = 17)
     @Pattern(regexp = "^([0-9A-Fa-f]{2}[:-]){5}([0-9A-Fa-f]{2})$", 
              message = "Invalid MAC address format")
@@ -79,8 +95,7 @@ public class Equipment {
     @Column(name = "last_seen")
     private LocalDateTime lastSeen;
     
-    @Lob
-    @Column(name = "specifications")
+    @Column(name = "specifications", columnDefinition = "TEXT")
     private String specifications; // JSON string containing detailed specs
     
     @Column(name = "cpu_info", length = 255)
@@ -117,9 +132,24 @@ public class Equipment {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    // Relationships
+    // Ticket counters, maintained by EquipmentTicketCountService; entity saves never write them
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "open_ticket_count", nullable = false, insertable = false, updatable = false)
+    private int openTicketCount;
+    
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "total_ticket_count", nullable = false, insertable = false, updatable = false)
+    private int totalTicketCount;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "last_ticket_at", insertable = false, updatable = false)
+    private LocalDateTime lastTicketAt;
+    
+    // Relationships; not serialized, the ticket counters summarize them
     @OneToMany(mappedBy = "equipment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference(value = "equipment-tickets")
+    @JsonIgnore
     private List<Ticket> tickets = new ArrayList<>();
     
     // Constructors
@@ -155,6 +185,10 @@ public class Equipment {
         this.ipAddress = ipAddress;
     }
     
+    public BigInteger getIpNumeric() {
+        return ipNumeric;
+    }
+    
     public String getMacAddress() {
         return macAddress;
     }
@@ -323,6 +357,30 @@ public class Equipment {
         this.updatedAt = updatedAt;
     }
     
+    public int getOpenTicketCount() {
+        return openTicketCount;
+    }
+    
+    public void setOpenTicketCount(int openTicketCount) {
+        this.openTicketCount = openTicketCount;
+    }
+    
+    public int getTotalTicketCount() {
+        return totalTicketCount;
+    }
+    
+    public void setTotalTicketCount(int totalTicketCount) {
+        this.totalTicketCount = totalTicketCount;
+    }
+    
+    public LocalDateTime getLastTicketAt() {
+        return lastTicketAt;
+    }
+    
+    public void setLastTicketAt(LocalDateTime lastTicketAt) {
+        this.lastTicketAt = lastTicketAt;
+    }
+    
     public List<Ticket> getTickets() {
         return tickets;
     }
@@ -331,6 +389,12 @@ public class Equipment {
         this.tickets = tickets;
     }
     
+    @PrePersist
+    @PreUpdate
+    void deriveIpNumeric() {
+        ipNumeric = IpAddresses.toKey(ipAddress);
+    }
+    
     // Utility methods
     public boolean isOnline() {
         return status == EquipmentStatus.ONLINE;
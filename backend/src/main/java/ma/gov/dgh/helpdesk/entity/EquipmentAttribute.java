@@ -0,0 +1,102 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * EquipmentAttribute entity holding one specification attribute of a device, as read over SNMP
+ * at discovery. Rows are keyed by equipment and attribute; text attributes fill the text value,
+ * numeric ones the numeric value, and both are indexed with the key for inventory queries.
+ */
+@Entity
+@Table(name = "equipment_attributes",
+    uniqueConstraints = @UniqueConstraint(name = "uk_equipment_attribute_key", columnNames = {"equipment_id", "attribute_key"}),
+    indexes = {
+        @Index(name = "idx_equipment_attribute_text", columnList = "attribute_key, text_value"),
+        @Index(name = "idx_equipment_attribute_numeric", columnList = "attribute_key, numeric_value")
+    })
+public class EquipmentAttribute {
+    
+    /**
+     * Longest stored text value; longer values are truncated
+     */
+    public static final int MAX_TEXT_LENGTH = 512;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "equipment_id", nullable = false)
+    private Long equipmentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "attribute_key", nullable = false, length = 50)
+    private EquipmentAttributeKey attributeKey;
+    
+    @Column(name = "text_value", length = MAX_TEXT_LENGTH)
+    private String textValue;
+    
+    @Column(name = "numeric_value")
+    private Long numericValue;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public EquipmentAttribute() {}
+    
+    public EquipmentAttribute(Long equipmentId, EquipmentAttributeKey attributeKey) {
+        this.equipmentId = equipmentId;
+        this.attributeKey = attributeKey;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getEquipmentId() {
+        return equipmentId;
+    }
+    
+    public void setEquipmentId(Long equipmentId) {
+        this.equipmentId = equipmentId;
+    }
+    
+    public EquipmentAttributeKey getAttributeKey() {
+        return attributeKey;
+    }
+    
+    public void setAttributeKey(EquipmentAttributeKey attributeKey) {
+        this.attributeKey = attributeKey;
+    }
+    
+    public String getTextValue() {
+        return textValue;
+    }
+    
+    public void setTextValue(String textValue) {
+        this.textValue = textValue;
+    }
+    
+    public Long getNumericValue() {
+        return numericValue;
+    }
+    
+    public void setNumericValue(Long numericValue) {
+        this.numericValue = numericValue;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,74 @@
+package ma.gov.dgh.helpdesk.entity;
+
+/**
+ * Enumeration of the structured specification attributes of equipment, named after the SNMP
+ * objects they are read from. Numeric attributes are stored and queried as numbers.
+ */
+public enum EquipmentAttributeKey {
+    /**
+     * sysDescr: textual description of the device
+     */
+    SYS_DESCR("sysDescr", false),
+    
+    /**
+     * sysObjectID: vendor object identifier of the device
+     */
+    SYS_OBJECT_ID("sysObjectID", false),
+    
+    /**
+     * sysName: administratively assigned name
+     */
+    SYS_NAME("sysName", false),
+    
+    /**
+     * sysLocation: physical location configured on the device
+     */
+    SYS_LOCATION("sysLocation", false),
+    
+    /**
+     * sysContact: contact person configured on the device
+     */
+    SYS_CONTACT("sysContact", false),
+    
+    /**
+     * sysUpTime when the device was last discovered, in seconds
+     */
+    SYS_UP_TIME("sysUpTime", true),
+    
+    /**
+     * Boot time derived from sysUpTime, in epoch seconds; unlike the uptime it does not go stale,
+     * so "up for less than a day" is a range lookup on it
+     */
+    BOOT_TIME("bootTime", true),
+    
+    /**
+     * ifNumber: number of network interfaces
+     */
+    IF_NUMBER("ifNumber", true),
+    
+    /**
+     * hrSystemProcesses: number of running processes
+     */
+    HR_SYSTEM_PROCESSES("hrSystemProcesses", true),
+    
+    /**
+     * hrMemorySize: physical memory, in kilobytes
+     */
+    HR_MEMORY_SIZE("hrMemorySize", true);
+    
+    private final String objectName;
+    private final boolean numeric;
+    
+    EquipmentAttributeKey(String objectName, boolean numeric) {
+        this.objectName = objectName;
+        this.numeric = numeric;
+    }
+    
+    public String getObjectName() {
+        return objectName;
+    }
+    
+    public boolean isNumeric() {
+        return numeric;
+    }
+}
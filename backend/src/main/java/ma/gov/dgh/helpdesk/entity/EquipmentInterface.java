@@ -0,0 +1,174 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * EquipmentInterface entity holding one network interface of a device, as walked from
+ * the SNMP ifTable and ifXTable. Rows are keyed by equipment and ifIndex and refreshed
+ * on every walk; statuses use the RFC 2863 names (up, down, testing, ...).
+ */
+@Entity
+@Table(name = "equipment_interfaces",
+    uniqueConstraints = @UniqueConstraint(name = "uk_equipment_interface_index", columnNames = {"equipment_id", "if_index"}))
+public class EquipmentInterface {
+    
+    /**
+     * IANA ifType of Ethernet ports, counted as the network ports of a device
+     */
+    public static final int TYPE_ETHERNET = 6;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "equipment_id", nullable = false)
+    private Long equipmentId;
+    
+    @Column(name = "if_index", nullable = false)
+    private Integer ifIndex;
+    
+    @Column(name = "name", length = 255)
+    private String name;
+    
+    @Column(name = "description", length = 255)
+    private String description;
+    
+    @Column(name = "alias", length = 255)
+    private String alias;
+    
+    @Column(name = "if_type")
+    private Integer ifType;
+    
+    @Column(name = "mtu")
+    private Integer mtu;
+    
+    @Column(name = "speed_mbps")
+    private Long speedMbps;
+    
+    @Column(name = "mac_address", length = 17)
+    private String macAddress;
+    
+    @Column(name = "admin_status", length = 20)
+    private String adminStatus;
+    
+    @Column(name = "oper_status", length = 20)
+    private String operStatus;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public EquipmentInterface() {}
+    
+    public EquipmentInterface(Long equipmentId, Integer ifIndex) {
+        this.equipmentId = equipmentId;
+        this.ifIndex = ifIndex;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getEquipmentId() {
+        return equipmentId;
+    }
+    
+    public void setEquipmentId(Long equipmentId) {
+        this.equipmentId = equipmentId;
+    }
+    
+    public Integer getIfIndex() {
+        return ifIndex;
+    }
+    
+    public void setIfIndex(Integer ifIndex) {
+        this.ifIndex = ifIndex;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public String getAlias() {
+        return alias;
+    }
+    
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+    
+    public Integer getIfType() {
+        return ifType;
+    }
+    
+    public void setIfType(Integer ifType) {
+        this.ifType = ifType;
+    }
+    
+    public Integer getMtu() {
+        return mtu;
+    }
+    
+    public void setMtu(Integer mtu) {
+        this.mtu = mtu;
+    }
+    
+    public Long getSpeedMbps() {
+        return speedMbps;
+    }
+    
+    public void setSpeedMbps(Long speedMbps) {
+        this.speedMbps = speedMbps;
+    }
+    
+    public String getMacAddress() {
+        return macAddress;
+    }
+    
+    public void setMacAddress(String macAddress) {
+        this.macAddress = macAddress;
+    }
+    
+    public String getAdminStatus() {
+        return adminStatus;
+    }
+    
+    public void setAdminStatus(String adminStatus) {
+        this.adminStatus = adminStatus;
+    }
+    
+    public String getOperStatus() {
+        return operStatus;
+    }
+    
+    public void setOperStatus(String operStatus) {
+        this.operStatus = operStatus;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
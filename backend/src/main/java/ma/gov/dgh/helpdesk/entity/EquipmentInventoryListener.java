@@ -0,0 +1,34 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ma.gov.dgh.helpdesk.service.EquipmentInventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA listener feeding equipment inserts, updates and deletes to the in-memory inventory,
+ * whichever service or controller performed the write
+ */
+public class EquipmentInventoryListener {
+    
+    private final EquipmentInventoryService equipmentInventoryService;
+    
+    // Lazy: the inventory needs the repository, which needs the entity manager this listener belongs to
+    @Autowired
+    public EquipmentInventoryListener(@Lazy EquipmentInventoryService equipmentInventoryService) {
+        this.equipmentInventoryService = equipmentInventoryService;
+    }
+    
+    @PostPersist
+    @PostUpdate
+    public void onSave(Equipment equipment) {
+        equipmentInventoryService.recordSaved(equipment);
+    }
+    
+    @PostRemove
+    public void onRemove(Equipment equipment) {
+        equipmentInventoryService.recordDeleted(equipment.getId());
+    }
+}
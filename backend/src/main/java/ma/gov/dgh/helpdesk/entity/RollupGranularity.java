@@ -0,0 +1,36 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Enumeration for the bucket sizes of ticket metric rollups
+ */
+public enum RollupGranularity {
+    /**
+     * One bucket per hour
+     */
+    HOUR(ChronoUnit.HOURS),
+    
+    /**
+     * One bucket per calendar day
+     */
+    DAY(ChronoUnit.DAYS);
+    
+    private final ChronoUnit unit;
+    
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+    
+    /**
+     * Get the start of the bucket containing the given time
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+    
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+}
@@ -1,6 +1,7 @@
 package ma.gov.dgh.helpdesk.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -16,14 +17,18 @@ import java.util.List;
  * Ticket entity representing helpdesk tickets in the DGH HelpDesk system
  */
 @Entity
+@EntityListeners(ChangeVersionListener.class)
 @Table(name = "tickets", indexes = {
     @Index(name = "idx_ticket_status", columnList = "status"),
-    @Index(name = "idx_ticket_priority", columnList = "priority"),
+    @Index(name = "idx_ticket_priority_status", columnList = "priority, status, assigned_to"),
     @Index(name = "idx_ticket_category", columnList = "category"),
-    @Index(name = "idx_ticket_created_by", columnList = "created_by"),
-    @Index(name = "idx_ticket_assigned_to", columnList = "assigned_to"),
+    @Index(name = "idx_ticket_created_by_status", columnList = "created_by, status"),
+    @Index(name = "idx_ticket_assigned_to_status", columnList = "assigned_to, status"),
     @Index(name = "idx_ticket_equipment", columnList = "equipment_id"),
-    @Index(name = "idx_ticket_created_at", columnList = "created_at")
+    @Index(name = "idx_ticket_created_at_status", columnList = "created_at, status"),
+    @Index(name = "idx_ticket_due_date_status", columnList = "due_date, status"),
+    @Index(name = "idx_ticket_resolved_at_category", columnList = "resolved_at, category"),
+    @Index(name = "idx_ticket_escalated", columnList = "is_escalated")
 })
 public class Ticket {
     
@@ -36,8 +41,7 @@ public class Ticket {
     @Size(max = 255, message = "Title must not exceed 255 characters")
     private String title;
     
-    @Lob
-    @Column(name = "description")
+    @Column(name = "description", columnDefinition = "TEXT")
     private String description;
     
     @Enumerated(EnumType.STRING)
@@ -64,7 +68,7 @@ public class Ticket {
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "equipment_id")
-    @JsonBackReference(value = "equipment-tickets")
+    @JsonIgnore
     private Equipment equipment;
     
     @CreationTimestamp
@@ -81,8 +85,7 @@ public class Ticket {
     @Column(name = "due_date")
     private LocalDateTime dueDate;
     
-    @Lob
-    @Column(name = "resolution")
+    @Column(name = "resolution", columnDefinition = "TEXT")
     private String resolution;
     
     @Column(name = "estimated_hours")
@@ -290,7 +293,7 @@ public class Ticket {
     }
     
     public boolean isResolved() {
-        return status == TicketStatus.RESOLVED || status == TicketStatus.CLOSED;
+        return status != null && status.isResolved();
     }
     
     public boolean isOverdue() {
@@ -11,11 +11,12 @@ import java.time.LocalDateTime;
  * TicketComment entity representing comments and updates on tickets
  */
 @Entity
+@EntityListeners(ChangeVersionListener.class)
 @Table(name = "ticket_comments", indexes = {
-    @Index(name = "idx_comment_ticket", columnList = "ticket_id"),
-    @Index(name = "idx_comment_user", columnList = "user_id"),
+    @Index(name = "idx_comment_ticket_created_at", columnList = "ticket_id, created_at"),
+    @Index(name = "idx_comment_user_created_at", columnList = "user_id, created_at"),
     @Index(name = "idx_comment_created_at", columnList = "created_at"),
-    @Index(name = "idx_comment_internal", columnList = "is_internal")
+    @Index(name = "idx_comment_type", columnList = "comment_type")
 })
 public class TicketComment {
     
@@ -33,8 +34,7 @@ public class TicketComment {
     @JsonBackReference(value = "user-comments")
     private User user;
     
-    @Lob
-    @Column(name = "comment", nullable = false)
+    @Column(name = "comment", nullable = false, columnDefinition = "TEXT")
     @NotBlank(message = "Comment cannot be empty")
     private String comment;
     
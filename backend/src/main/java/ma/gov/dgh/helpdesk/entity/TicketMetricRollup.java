@@ -0,0 +1,179 @@
+package ma.gov.dgh.helpdesk.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * TicketMetricRollup entity holding pre-aggregated ticket counters for one time bucket
+ * and one combination of category, priority, status and assignee.
+ * Tickets are counted as created under the OPEN status and as resolved under the status
+ * they were resolved into; an assignee id of 0 stands for unassigned tickets.
+ */
+@Entity
+@Table(name = "ticket_metric_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_rollup_bucket_dimensions",
+        columnNames = {"granularity", "bucket_start", "category", "priority", "status", "assignee_id"}),
+    indexes = {
+        @Index(name = "idx_rollup_assignee_bucket", columnList = "assignee_id, granularity, bucket_start")
+    })
+public class TicketMetricRollup {
+    
+    /**
+     * Assignee id stored for tickets without a technician
+     */
+    public static final long UNASSIGNED = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private RollupGranularity granularity;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "category", nullable = false, length = 100)
+    private TicketCategory category;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority", nullable = false, length = 20)
+    private TicketPriority priority;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 50)
+    private TicketStatus status;
+    
+    @Column(name = "assignee_id", nullable = false)
+    private Long assigneeId = UNASSIGNED;
+    
+    @Column(name = "created_count", nullable = false)
+    private Long createdCount = 0L;
+    
+    @Column(name = "resolved_count", nullable = false)
+    private Long resolvedCount = 0L;
+    
+    @Column(name = "resolution_minutes_total", nullable = false)
+    private Long resolutionMinutesTotal = 0L;
+    
+    // Constructors
+    public TicketMetricRollup() {}
+    
+    public TicketMetricRollup(RollupGranularity granularity, LocalDateTime bucketStart, TicketCategory category,
+                              TicketPriority priority, TicketStatus status, Long assigneeId) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.category = category;
+        this.priority = priority;
+        this.status = status;
+        this.assigneeId = assigneeId;
+    }
+    
+    /**
+     * Add counter deltas to this bucket
+     */
+    public void add(long created, long resolved, long resolutionMinutes) {
+        this.createdCount += created;
+        this.resolvedCount += resolved;
+        this.resolutionMinutesTotal += resolutionMinutes;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public RollupGranularity getGranularity() {
+        return granularity;
+    }
+    
+    public void setGranularity(RollupGranularity granularity) {
+        this.granularity = granularity;
+    }
+    
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public TicketCategory getCategory() {
+        return category;
+    }
+    
+    public void setCategory(TicketCategory category) {
+        this.category = category;
+    }
+    
+    public TicketPriority getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(TicketPriority priority) {
+        this.priority = priority;
+    }
+    
+    public TicketStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(TicketStatus status) {
+        this.status = status;
+    }
+    
+    public Long getAssigneeId() {
+        return assigneeId;
+    }
+    
+    public void setAssigneeId(Long assigneeId) {
+        this.assigneeId = assigneeId;
+    }
+    
+    public Long getCreatedCount() {
+        return createdCount;
+    }
+    
+    public void setCreatedCount(Long createdCount) {
+        this.createdCount = createdCount;
+    }
+    
+    public Long getResolvedCount() {
+        return resolvedCount;
+    }
+    
+    public void setResolvedCount(Long resolvedCount) {
+        this.resolvedCount = resolvedCount;
+    }
+    
+    public Long getResolutionMinutesTotal() {
+        return resolutionMinutesTotal;
+    }
+    
+    public void setResolutionMinutesTotal(Long resolutionMinutesTotal) {
+        this.resolutionMinutesTotal = resolutionMinutesTotal;
+    }
+    
+    
+    @Override
+    public String toString() {
+        return "TicketMetricRollup{" +
+                "granularity=" + granularity +
+                ", bucketStart=" + bucketStart +
+                ", category=" + category +
+                ", priority=" + priority +
+                ", status=" + status +
+                ", assigneeId=" + assigneeId +
+                ", createdCount=" + createdCount +
+                ", resolvedCount=" + resolvedCount +
+                '}';
+    }
+}
@@ -49,6 +49,13 @@ public enum TicketStatus {
         return displayName;
     }
     
+    /**
+     * Whether the ticket counts as resolved in this status
+     */
+    public boolean isResolved() {
+        return this == RESOLVED || this == CLOSED;
+    }
+    
     @Override
     public String toString() {
         return displayName;
@@ -17,6 +17,7 @@ import java.util.List;
  * Users are synchronized from LDAP/Active Directory
  */
 @Entity
+@EntityListeners(ChangeVersionListener.class)
 @Table(name = "users", indexes = {
     @Index(name = "idx_user_ldap_username", columnList = "ldap_username"),
     @Index(name = "idx_user_email", columnList = "email"),
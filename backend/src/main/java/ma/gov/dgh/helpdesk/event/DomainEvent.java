@@ -0,0 +1,139 @@
+package ma.gov.dgh.helpdesk.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketComment;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Domain event published by the services after a ticket or equipment change.
+ * The payload is a flat delta built inside the transaction, so it can be serialized
+ * after commit without touching lazy associations. Events with a recipient are only
+ * streamed to that user.
+ */
+public class DomainEvent {
+    
+    public static final String TOPIC_TICKETS = "tickets";
+    public static final String TOPIC_EQUIPMENT = "equipment";
+    public static final String TOPIC_REPORTS = "reports";
+    public static final String TOPIC_DISCOVERY = "discovery";
+    
+    private final DomainEventType type;
+    private final Long aggregateId;
+    private final Map<String, Object> payload;
+    private final LocalDateTime timestamp;
+    private final String recipient;
+    
+    public DomainEvent(DomainEventType type, Long aggregateId, Map<String, Object> payload) {
+        this(type, aggregateId, payload, null);
+    }
+    
+    public DomainEvent(DomainEventType type, Long aggregateId, Map<String, Object> payload, String recipient) {
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.timestamp = LocalDateTime.now();
+        this.recipient = recipient;
+    }
+    
+    /**
+     * Build a ticket event carrying the ticket's current summary
+     */
+    public static DomainEvent ticket(DomainEventType type, Ticket ticket) {
+        return ticket(type, ticket, null);
+    }
+    
+    /**
+     * Build a ticket event that also records the status the ticket left
+     */
+    public static DomainEvent ticket(DomainEventType type, Ticket ticket, TicketStatus previousStatus) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", ticket.getId());
+        payload.put("title", ticket.getTitle());
+        payload.put("status", ticket.getStatus());
+        payload.put("priority", ticket.getPriority());
+        payload.put("category", ticket.getCategory());
+        payload.put("isEscalated", ticket.getIsEscalated());
+        payload.put("dueDate", ticket.getDueDate());
+        payload.put("createdAt", ticket.getCreatedAt());
+        payload.put("resolvedAt", ticket.getResolvedAt());
+        if (previousStatus != null) {
+            payload.put("previousStatus", previousStatus);
+        }
+        putUser(payload, "createdBy", ticket.getCreatedBy());
+        putUser(payload, "assignedTo", ticket.getAssignedTo());
+        return new DomainEvent(type, ticket.getId(), payload);
+    }
+    
+    /**
+     * Build a comment event for the comment's ticket
+     */
+    public static DomainEvent comment(TicketComment comment) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("ticketId", comment.getTicket().getId());
+        payload.put("commentId", comment.getId());
+        payload.put("commentType", comment.getCommentType());
+        payload.put("isInternal", comment.getIsInternal());
+        putUser(payload, "user", comment.getUser());
+        return new DomainEvent(DomainEventType.TICKET_COMMENT_ADDED, comment.getTicket().getId(), payload);
+    }
+    
+    /**
+     * Build an equipment event carrying the equipment's current summary
+     */
+    public static DomainEvent equipment(DomainEventType type, Equipment equipment) {
+        return equipment(type, equipment.getId(), equipment.getHostname(), equipment.getIpAddress(),
+            equipment.getEquipmentType(), equipment.getStatus(), equipment.getLocation(), equipment.getLastSeen());
+    }
+    
+    /**
+     * Build an equipment event from projected columns, for bulk changes that do not load entities
+     */
+    public static DomainEvent equipment(DomainEventType type, Long id, String hostname, String ipAddress,
+                                        EquipmentType equipmentType, EquipmentStatus status, String location,
+                                        LocalDateTime lastSeen) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", id);
+        payload.put("hostname", hostname);
+        payload.put("ipAddress", ipAddress);
+        payload.put("equipmentType", equipmentType);
+        payload.put("status", status);
+        payload.put("location", location);
+        payload.put("lastSeen", lastSeen);
+        return new DomainEvent(type, id, payload);
+    }
+    
+    /**
+     * Build a deletion event, which only carries the identifier
+     */
+    public static DomainEvent deleted(DomainEventType type, Long aggregateId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", aggregateId);
+        return new DomainEvent(type, aggregateId, payload);
+    }
+    
+    private static void putUser(Map<String, Object> payload, String prefix, User user) {
+        payload.put(prefix + "Id", user != null ? user.getId() : null);
+        payload.put(prefix + "Name", user != null ? user.getFullName() : null);
+    }
+    
+    public String getTopic() {
+        return type.getTopic();
+    }
+    
+    // Getters
+    public DomainEventType getType() { return type; }
+    public Long getAggregateId() { return aggregateId; }
+    public Map<String, Object> getPayload() { return payload; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    @JsonIgnore
+    public String getRecipient() { return recipient; }
+}
@@ -0,0 +1,33 @@
+package ma.gov.dgh.helpdesk.event;
+
+/**
+ * Enum representing domain events pushed to connected clients
+ */
+public enum DomainEventType {
+    TICKET_CREATED(DomainEvent.TOPIC_TICKETS),
+    TICKET_UPDATED(DomainEvent.TOPIC_TICKETS),
+    TICKET_ASSIGNED(DomainEvent.TOPIC_TICKETS),
+    TICKET_STATUS_CHANGED(DomainEvent.TOPIC_TICKETS),
+    TICKET_ESCALATED(DomainEvent.TOPIC_TICKETS),
+    TICKET_SLA_BREACHED(DomainEvent.TOPIC_TICKETS),
+    TICKET_COMMENT_ADDED(DomainEvent.TOPIC_TICKETS),
+    TICKET_DELETED(DomainEvent.TOPIC_TICKETS),
+    EQUIPMENT_CREATED(DomainEvent.TOPIC_EQUIPMENT),
+    EQUIPMENT_UPDATED(DomainEvent.TOPIC_EQUIPMENT),
+    EQUIPMENT_STATUS_CHANGED(DomainEvent.TOPIC_EQUIPMENT),
+    EQUIPMENT_DISCOVERED(DomainEvent.TOPIC_EQUIPMENT),
+    EQUIPMENT_DELETED(DomainEvent.TOPIC_EQUIPMENT),
+    REPORT_JOB_UPDATED(DomainEvent.TOPIC_REPORTS),
+    DISCOVERY_JOB_UPDATED(DomainEvent.TOPIC_DISCOVERY),
+    DISCOVERY_DEVICE_FOUND(DomainEvent.TOPIC_DISCOVERY);
+    
+    private final String topic;
+    
+    DomainEventType(String topic) {
+        this.topic = topic;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+}
@@ -82,6 +82,14 @@ public class BusinessException extends RuntimeException {
         }
     }
     
+    public static class AttachmentQuotaExceededException extends BusinessException {
+        public AttachmentQuotaExceededException(Long ticketId, String limit) {
+            super("ATTACHMENT_QUOTA_EXCEEDED",
+                  "Attachment quota exceeded for ticket " + ticketId + ": " + limit,
+                  HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+    }
+    
     public static class UnauthorizedOperationException extends BusinessException {
         public UnauthorizedOperationException(String operation) {
             super("UNAUTHORIZED_OPERATION", 
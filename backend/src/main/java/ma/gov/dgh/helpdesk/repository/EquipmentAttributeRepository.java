@@ -0,0 +1,29 @@
+package ma.gov.dgh.helpdesk.repository;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentAttribute;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for EquipmentAttribute entity operations
+ */
+@Repository
+public interface EquipmentAttributeRepository extends JpaRepository<EquipmentAttribute, Long> {
+    
+    /**
+     * Find the attributes of a device in key order
+     */
+    List<EquipmentAttribute> findByEquipmentIdOrderByAttributeKey(Long equipmentId);
+    
+    /**
+     * Delete the attributes of a device
+     */
+    @Modifying
+    @Query("DELETE FROM EquipmentAttribute a WHERE a.equipmentId = :equipmentId")
+    int deleteByEquipmentId(@Param("equipmentId") Long equipmentId);
+}
@@ -0,0 +1,29 @@
+package ma.gov.dgh.helpdesk.repository;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentInterface;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for EquipmentInterface entity operations
+ */
+@Repository
+public interface EquipmentInterfaceRepository extends JpaRepository<EquipmentInterface, Long> {
+    
+    /**
+     * Find the interfaces of a device in ifIndex order
+     */
+    List<EquipmentInterface> findByEquipmentIdOrderByIfIndex(Long equipmentId);
+    
+    /**
+     * Delete the interfaces of a device
+     */
+    @Modifying
+    @Query("DELETE FROM EquipmentInterface i WHERE i.equipmentId = :equipmentId")
+    int deleteByEquipmentId(@Param("equipmentId") Long equipmentId);
+}
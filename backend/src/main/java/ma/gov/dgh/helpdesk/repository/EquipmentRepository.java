@@ -1,18 +1,27 @@
 package ma.gov.dgh.helpdesk.repository;
 
+import jakarta.persistence.QueryHint;
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
 import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttributeKey;
 import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
 import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Equipment entity operations
@@ -41,19 +50,28 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
     Optional<Equipment> findByAssetTag(String assetTag);
     
     /**
-     * Find equipment by type
+     * Summaries of all equipment (list views never read the specifications)
      */
-    List<Equipment> findByEquipmentType(EquipmentType equipmentType);
+    @Query(EquipmentSummary.SELECT + "ORDER BY e.id")
+    List<EquipmentSummary> findAllSummaries();
     
     /**
-     * Find equipment by status
+     * Find equipment summaries by type
      */
-    List<Equipment> findByStatus(EquipmentStatus status);
+    @Query(EquipmentSummary.SELECT + "WHERE e.equipmentType = :equipmentType ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByEquipmentType(@Param("equipmentType") EquipmentType equipmentType);
     
     /**
-     * Find equipment by location
+     * Find equipment summaries by status
      */
-    List<Equipment> findByLocation(String location);
+    @Query(EquipmentSummary.SELECT + "WHERE e.status = :status ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByStatus(@Param("status") EquipmentStatus status);
+    
+    /**
+     * Find equipment summaries by location
+     */
+    @Query(EquipmentSummary.SELECT + "WHERE e.location = :location ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByLocation(@Param("location") String location);
     
     /**
      * Find equipment by manufacturer
@@ -66,14 +84,10 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
     List<Equipment> findByManufacturerAndModel(String manufacturer, String model);
     
     /**
-     * Find managed equipment
-     */
-    List<Equipment> findByIsManagedTrue();
-    
-    /**
-     * Find unmanaged equipment
+     * Find summaries of managed or unmanaged equipment
      */
-    List<Equipment> findByIsManagedFalse();
+    @Query(EquipmentSummary.SELECT + "WHERE e.isManaged = :isManaged ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByIsManaged(@Param("isManaged") boolean isManaged);
     
     /**
      * Find online equipment
@@ -92,9 +106,11 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
     List<Equipment> findByLastSeenBefore(LocalDateTime date);
     
     /**
-     * Find equipment with warranty expiring soon
+     * Find summaries of equipment with warranty expiring soon
      */
-    List<Equipment> findByWarrantyExpiryBetween(LocalDateTime startDate, LocalDateTime endDate);
+    @Query(EquipmentSummary.SELECT + "WHERE e.warrantyExpiry BETWEEN :startDate AND :endDate ORDER BY e.warrantyExpiry")
+    List<EquipmentSummary> findSummariesByWarrantyExpiryBetween(@Param("startDate") LocalDateTime startDate,
+                                                                @Param("endDate") LocalDateTime endDate);
     
     /**
      * Find equipment purchased in a date range
@@ -117,9 +133,19 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
     boolean existsByHostname(String hostname);
     
     /**
-     * Find equipment with pagination and search
+     * Find equipment summaries with pagination and search
      */
-    @Query("SELECT e FROM Equipment e WHERE " +
+    @Query(value = EquipmentSummary.SELECT + "WHERE " +
+           "(:search IS NULL OR LOWER(e.hostname) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.ipAddress) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.manufacturer) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.model) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.location) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:equipmentType IS NULL OR e.equipmentType = :equipmentType) AND " +
+           "(:status IS NULL OR e.status = :status) AND " +
+           "(:location IS NULL OR e.location = :location) AND " +
+           "(:isManaged IS NULL OR e.isManaged = :isManaged)",
+           countQuery = "SELECT COUNT(e) FROM Equipment e WHERE " +
            "(:search IS NULL OR LOWER(e.hostname) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(e.ipAddress) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(e.manufacturer) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
@@ -129,12 +155,38 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
            "(:status IS NULL OR e.status = :status) AND " +
            "(:location IS NULL OR e.location = :location) AND " +
            "(:isManaged IS NULL OR e.isManaged = :isManaged)")
-    Page<Equipment> findEquipmentWithFilters(@Param("search") String search,
-                                           @Param("equipmentType") EquipmentType equipmentType,
-                                           @Param("status") EquipmentStatus status,
-                                           @Param("location") String location,
-                                           @Param("isManaged") Boolean isManaged,
-                                           Pageable pageable);
+    Page<EquipmentSummary> findSummariesWithFilters(@Param("search") String search,
+                                                    @Param("equipmentType") EquipmentType equipmentType,
+                                                    @Param("status") EquipmentStatus status,
+                                                    @Param("location") String location,
+                                                    @Param("isManaged") Boolean isManaged,
+                                                    Pageable pageable);
+    
+    /**
+     * Stream report rows of the equipment matching the list filters (report export)
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e.id, e.hostname, e.ipAddress, e.macAddress, e.equipmentType, e.status, e.location, " +
+           "e.manufacturer, e.model, e.serialNumber, e.assetTag, e.osName, e.osVersion, e.isManaged, " +
+           "e.lastSeen, e.purchaseDate, e.warrantyExpiry FROM Equipment e WHERE " +
+           "(:search IS NULL OR LOWER(e.hostname) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.ipAddress) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.manufacturer) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.model) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(e.location) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:equipmentType IS NULL OR e.equipmentType = :equipmentType) AND " +
+           "(:status IS NULL OR e.status = :status) AND " +
+           "(:location IS NULL OR e.location = :location) AND " +
+           "(:isManaged IS NULL OR e.isManaged = :isManaged) " +
+           "ORDER BY e.id")
+    Stream<Object[]> streamEquipmentReportRows(@Param("search") String search,
+                                               @Param("equipmentType") EquipmentType equipmentType,
+                                               @Param("status") EquipmentStatus status,
+                                               @Param("location") String location,
+                                               @Param("isManaged") Boolean isManaged);
     
     /**
      * Count equipment by type
@@ -157,22 +209,100 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
     long countByIsManagedTrue();
     
     /**
-     * Find equipment in IP range
+     * Find summaries of equipment whose numeric IP key lies in a range, in address order
+     */
+    @Query(EquipmentSummary.SELECT + "WHERE e.ipNumeric BETWEEN :first AND :last ORDER BY e.ipNumeric, e.id")
+    List<EquipmentSummary> findSummariesByIpNumericBetween(@Param("first") BigInteger first, @Param("last") BigInteger last);
+    
+    /**
+     * Numeric IP keys in use within a range, in address order (free address search)
+     */
+    @Query("SELECT DISTINCT e.ipNumeric FROM Equipment e WHERE e.ipNumeric BETWEEN :first AND :last ORDER BY e.ipNumeric")
+    List<BigInteger> findIpNumericBetween(@Param("first") BigInteger first, @Param("last") BigInteger last);
+    
+    /**
+     * Id and IP address of equipment whose numeric IP key was never derived (rows written outside JPA)
+     */
+    @Query("SELECT e.id, e.ipAddress FROM Equipment e " +
+           "WHERE e.id > :afterId AND e.ipNumeric IS NULL AND e.ipAddress IS NOT NULL ORDER BY e.id")
+    List<Object[]> findIpAddressesWithoutIpNumeric(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Set the numeric IP key of one equipment
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.ipNumeric = :ipNumeric WHERE e.id = :id")
+    int updateIpNumeric(@Param("id") Long id, @Param("ipNumeric") BigInteger ipNumeric);
+    
+    /**
+     * Find summaries of the equipment whose text attribute has a value (attribute text index)
+     */
+    @Query(EquipmentSummary.SELECT + "WHERE e.id IN (SELECT a.equipmentId FROM EquipmentAttribute a " +
+           "WHERE a.attributeKey = :attributeKey AND a.textValue = :value) ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByAttributeText(@Param("attributeKey") EquipmentAttributeKey attributeKey,
+                                                        @Param("value") String value);
+    
+    /**
+     * Find summaries of the equipment whose numeric attribute lies in a range (attribute numeric index)
      */
-    @Query("SELECT e FROM Equipment e WHERE e.ipAddress LIKE :ipPattern")
-    List<Equipment> findByIpAddressPattern(@Param("ipPattern") String ipPattern);
+    @Query(EquipmentSummary.SELECT + "WHERE e.id IN (SELECT a.equipmentId FROM EquipmentAttribute a " +
+           "WHERE a.attributeKey = :attributeKey AND a.numericValue BETWEEN :min AND :max) ORDER BY e.id")
+    List<EquipmentSummary> findSummariesByAttributeRange(@Param("attributeKey") EquipmentAttributeKey attributeKey,
+                                                         @Param("min") long min, @Param("max") long max);
     
     /**
-     * Find equipment with most tickets
+     * Specifications JSON of one equipment (detail views served from the in-memory inventory)
      */
-    @Query("SELECT e FROM Equipment e LEFT JOIN e.tickets t GROUP BY e ORDER BY COUNT(t) DESC")
-    List<Equipment> findEquipmentOrderByTicketCount(Pageable pageable);
+    @Query("SELECT e.specifications FROM Equipment e WHERE e.id = :id")
+    Optional<String> findSpecificationsById(@Param("id") Long id);
     
     /**
-     * Find equipment not seen for specified hours
+     * Id and specifications JSON of equipment that has specifications but no attributes yet
+     * (discovered before attributes were stored)
      */
-    @Query("SELECT e FROM Equipment e WHERE e.lastSeen < :cutoffTime OR e.lastSeen IS NULL")
-    List<Equipment> findEquipmentNotSeenSince(@Param("cutoffTime") LocalDateTime cutoffTime);
+    @Query("SELECT e.id, e.specifications FROM Equipment e WHERE e.id > :afterId AND e.specifications IS NOT NULL " +
+           "AND NOT EXISTS (SELECT a.id FROM EquipmentAttribute a WHERE a.equipmentId = e.id) ORDER BY e.id")
+    List<Object[]> findSpecificationsWithoutAttributes(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Find summaries of the equipment with the most open tickets, then the most tickets (ticket counter index)
+     */
+    @Query(EquipmentSummary.SELECT + "WHERE e.totalTicketCount > 0 " +
+           "ORDER BY e.openTicketCount DESC, e.totalTicketCount DESC, e.id")
+    List<EquipmentSummary> findTopSummariesByTicketCounts(Pageable pageable);
+    
+    /**
+     * Add to the ticket counters of one equipment; the last ticket time only moves forward, when a ticket is added
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.openTicketCount = e.openTicketCount + :openDelta, " +
+           "e.totalTicketCount = e.totalTicketCount + :totalDelta, " +
+           "e.lastTicketAt = CASE WHEN :totalDelta > 0 AND (e.lastTicketAt IS NULL OR e.lastTicketAt < :ticketAt) " +
+           "THEN :ticketAt ELSE e.lastTicketAt END " +
+           "WHERE e.id = :id")
+    int addTicketCounts(@Param("id") Long id, @Param("openDelta") int openDelta,
+                        @Param("totalDelta") int totalDelta, @Param("ticketAt") LocalDateTime ticketAt);
+    
+    /**
+     * Recount the ticket counters of every equipment whose counts or last ticket time drifted from its tickets
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET " +
+           "e.openTicketCount = (SELECT COUNT(t) FROM Ticket t WHERE t.equipment.id = e.id AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')), " +
+           "e.totalTicketCount = (SELECT COUNT(t) FROM Ticket t WHERE t.equipment.id = e.id), " +
+           "e.lastTicketAt = (SELECT MAX(t.createdAt) FROM Ticket t WHERE t.equipment.id = e.id) " +
+           "WHERE e.openTicketCount <> (SELECT COUNT(t) FROM Ticket t WHERE t.equipment.id = e.id AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')) " +
+           "OR e.totalTicketCount <> (SELECT COUNT(t) FROM Ticket t WHERE t.equipment.id = e.id) " +
+           "OR e.lastTicketAt <> (SELECT MAX(t.createdAt) FROM Ticket t WHERE t.equipment.id = e.id) " +
+           "OR (e.lastTicketAt IS NULL AND EXISTS (SELECT t.id FROM Ticket t WHERE t.equipment.id = e.id)) " +
+           "OR (e.lastTicketAt IS NOT NULL AND NOT EXISTS (SELECT t.id FROM Ticket t WHERE t.equipment.id = e.id))")
+    int reconcileTicketCounts();
+    
+    /**
+     * Find summaries of equipment not seen for specified hours
+     */
+    @Query(EquipmentSummary.SELECT + "WHERE e.lastSeen < :cutoffTime OR e.lastSeen IS NULL ORDER BY e.id")
+    List<EquipmentSummary> findSummariesNotSeenSince(@Param("cutoffTime") LocalDateTime cutoffTime);
     
     /**
      * Find equipment by OS name
@@ -200,4 +330,65 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
      */
     @Query("SELECT DISTINCT e.manufacturer FROM Equipment e WHERE e.manufacturer IS NOT NULL ORDER BY e.manufacturer")
     List<String> findDistinctManufacturers();
+    
+    /**
+     * Resolve IP addresses to equipment ids (heartbeat ingestion)
+     */
+    @Query("SELECT e.id, e.ipAddress FROM Equipment e WHERE e.ipAddress IN :ipAddresses")
+    List<Object[]> findIdsByIpAddressIn(@Param("ipAddresses") Collection<String> ipAddresses);
+    
+    /**
+     * Find which of the given equipment are not in the given status (heartbeat ingestion)
+     */
+    @Query("SELECT e.id FROM Equipment e WHERE e.id IN :ids AND (e.status IS NULL OR e.status <> :status)")
+    List<Long> findIdsByIdInAndStatusNot(@Param("ids") Collection<Long> ids, @Param("status") EquipmentStatus status);
+    
+    /**
+     * Set last seen time and status of many equipment in one statement, without loading them.
+     * Bypasses entity listeners and the persistence context.
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.lastSeen = :lastSeen, e.status = :status WHERE e.id IN :ids")
+    int updateLastSeenAndStatus(@Param("ids") Collection<Long> ids, @Param("lastSeen") LocalDateTime lastSeen,
+                                @Param("status") EquipmentStatus status);
+    
+    /**
+     * Find online equipment of the given types not seen since the cutoff, as
+     * (id, hostname, ipAddress, equipmentType, location, lastSeen) rows (offline sweep)
+     */
+    @Query("SELECT e.id, e.hostname, e.ipAddress, e.equipmentType, e.location, e.lastSeen FROM Equipment e " +
+           "WHERE e.status = :status AND e.lastSeen < :cutoff AND " +
+           "(e.equipmentType IN :types OR (:includeUntyped = true AND e.equipmentType IS NULL))")
+    List<Object[]> findStaleEquipment(@Param("status") EquipmentStatus status,
+                                      @Param("cutoff") LocalDateTime cutoff,
+                                      @Param("types") Collection<EquipmentType> types,
+                                      @Param("includeUntyped") boolean includeUntyped);
+    
+    /**
+     * Move the given equipment from one status to another if still not seen since the cutoff (offline sweep)
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.status = :newStatus " +
+           "WHERE e.id IN :ids AND e.status = :currentStatus AND e.lastSeen < :cutoff")
+    int updateStaleStatus(@Param("ids") Collection<Long> ids, @Param("currentStatus") EquipmentStatus currentStatus,
+                          @Param("newStatus") EquipmentStatus newStatus, @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Find id and IP address of managed equipment (SNMP polling targets)
+     */
+    @Query("SELECT e.id, e.ipAddress FROM Equipment e WHERE e.isManaged = true AND e.ipAddress IS NOT NULL ORDER BY e.id")
+    List<Object[]> findManagedPollTargets();
+    
+    /**
+     * Find id and IP address of all equipment with an address (incremental discovery seed)
+     */
+    @Query("SELECT e.id, e.ipAddress FROM Equipment e WHERE e.ipAddress IS NOT NULL")
+    List<Object[]> findIdsAndIpAddresses();
+    
+    /**
+     * Find the equipment following the given id, in id order (inventory index rebuild, one page at a time)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT e FROM Equipment e WHERE e.id > :afterId ORDER BY e.id")
+    List<Equipment> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -155,11 +155,23 @@ public interface TicketCommentRepository extends JpaRepository<TicketComment, Lo
     List<Object[]> getCommentStatsByUser();
     
     /**
-     * Get comment statistics by date
+     * Get comment count per day
      */
-    @Query("SELECT tc.createdAt, COUNT(tc) FROM TicketComment tc WHERE tc.createdAt BETWEEN :startDate AND :endDate GROUP BY tc.createdAt ORDER BY tc.createdAt")
+    @Query("SELECT CAST(tc.createdAt AS LocalDate), COUNT(tc) FROM TicketComment tc WHERE tc.createdAt BETWEEN :startDate AND :endDate GROUP BY CAST(tc.createdAt AS LocalDate) ORDER BY CAST(tc.createdAt AS LocalDate)")
     List<Object[]> getCommentStatsByDate(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
+    /**
+     * Get the number and total size of a ticket's attachments (attachment quota)
+     */
+    @Query("SELECT COUNT(tc), COALESCE(SUM(tc.attachmentSize), 0) FROM TicketComment tc WHERE tc.ticket.id = :ticketId AND tc.attachmentPath IS NOT NULL")
+    List<Object[]> getAttachmentUsageByTicketId(@Param("ticketId") Long ticketId);
+    
+    /**
+     * Find every stored attachment path still referenced (attachment orphan sweep)
+     */
+    @Query("SELECT DISTINCT tc.attachmentPath FROM TicketComment tc WHERE tc.attachmentPath IS NOT NULL")
+    List<String> findAllAttachmentPaths();
+    
     /**
      * Delete comments by ticket
      */
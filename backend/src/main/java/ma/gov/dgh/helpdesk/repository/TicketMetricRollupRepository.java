@@ -0,0 +1,78 @@
+package ma.gov.dgh.helpdesk.repository;
+
+import ma.gov.dgh.helpdesk.entity.RollupGranularity;
+import ma.gov.dgh.helpdesk.entity.TicketMetricRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for TicketMetricRollup entity operations
+ */
+@Repository
+public interface TicketMetricRollupRepository extends JpaRepository<TicketMetricRollup, Long> {
+    
+    /**
+     * Find the rollup rows of the given buckets
+     */
+    List<TicketMetricRollup> findByGranularityAndBucketStartIn(RollupGranularity granularity,
+                                                               Collection<LocalDateTime> bucketStarts);
+    
+    /**
+     * Get counters per bucket in a time range
+     */
+    @Query("SELECT r.bucketStart, SUM(r.createdCount), SUM(r.resolvedCount), SUM(r.resolutionMinutesTotal) " +
+           "FROM TicketMetricRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+    List<Object[]> getTrend(@Param("granularity") RollupGranularity granularity,
+                            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Get counters per category in a time range
+     */
+    @Query("SELECT r.category, SUM(r.createdCount), SUM(r.resolvedCount), SUM(r.resolutionMinutesTotal) " +
+           "FROM TicketMetricRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.category")
+    List<Object[]> getTotalsByCategory(@Param("granularity") RollupGranularity granularity,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Get counters per priority in a time range
+     */
+    @Query("SELECT r.priority, SUM(r.createdCount), SUM(r.resolvedCount), SUM(r.resolutionMinutesTotal) " +
+           "FROM TicketMetricRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.priority")
+    List<Object[]> getTotalsByPriority(@Param("granularity") RollupGranularity granularity,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Get counters per status in a time range
+     */
+    @Query("SELECT r.status, SUM(r.createdCount), SUM(r.resolvedCount), SUM(r.resolutionMinutesTotal) " +
+           "FROM TicketMetricRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.status")
+    List<Object[]> getTotalsByStatus(@Param("granularity") RollupGranularity granularity,
+                                     @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Get counters per assignee in a time range
+     */
+    @Query("SELECT r.assigneeId, SUM(r.createdCount), SUM(r.resolvedCount), SUM(r.resolutionMinutesTotal) " +
+           "FROM TicketMetricRollup r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.assigneeId")
+    List<Object[]> getTotalsByAssignee(@Param("granularity") RollupGranularity granularity,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * Delete every rollup row, before a backfill
+     */
+    @Modifying
+    @Query("DELETE FROM TicketMetricRollup r")
+    int deleteAllRollups();
+}
@@ -1,19 +1,28 @@
 package ma.gov.dgh.helpdesk.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import ma.gov.dgh.helpdesk.entity.Ticket;
 import ma.gov.dgh.helpdesk.entity.TicketCategory;
 import ma.gov.dgh.helpdesk.entity.TicketPriority;
 import ma.gov.dgh.helpdesk.entity.TicketStatus;
 import ma.gov.dgh.helpdesk.entity.User;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Ticket entity operations
@@ -21,34 +30,47 @@ import java.util.List;
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
     
+    /**
+     * Find ticket by ID with creator and assignee loaded
+     */
+    @Override
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
+    Optional<Ticket> findById(Long id);
+    
     /**
      * Find tickets by status
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByStatus(TicketStatus status);
     
     /**
      * Find tickets by priority
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByPriority(TicketPriority priority);
     
     /**
      * Find tickets by category
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByCategory(TicketCategory category);
     
     /**
      * Find tickets created by a specific user
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByCreatedBy(User createdBy);
     
     /**
      * Find tickets assigned to a specific user
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByAssignedTo(User assignedTo);
     
     /**
      * Find unassigned tickets
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByAssignedToIsNull();
     
     /**
@@ -69,23 +91,73 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     /**
      * Find overdue tickets
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     @Query("SELECT t FROM Ticket t WHERE t.dueDate < :currentTime AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
     List<Ticket> findOverdueTickets(@Param("currentTime") LocalDateTime currentTime);
     
+    /**
+     * Find id, due date and escalation flag of open tickets with a due date (SLA scheduler warm-up)
+     */
+    @Query("SELECT t.id, t.dueDate, t.isEscalated FROM Ticket t WHERE t.dueDate IS NOT NULL AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
+    List<Object[]> findOpenTicketDeadlines();
+    
+    /**
+     * Find id, assignee id and priority of open assigned tickets (workload index rebuild)
+     */
+    @Query("SELECT t.id, t.assignedTo.id, t.priority FROM Ticket t WHERE t.assignedTo IS NOT NULL AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
+    List<Object[]> findOpenAssignedTicketPriorities();
+    
+    /**
+     * Find which of the given equipment already have an open ticket (offline sweep auto-tickets)
+     */
+    @Query("SELECT DISTINCT t.equipment.id FROM Ticket t WHERE t.equipment.id IN :equipmentIds AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
+    List<Long> findEquipmentIdsWithOpenTickets(@Param("equipmentIds") Collection<Long> equipmentIds);
+    
+    /**
+     * Lock a ticket's row until the end of the transaction (attachment quota), returning its id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.id FROM Ticket t WHERE t.id = :id")
+    Optional<Long> lockById(@Param("id") Long id);
+    
+    /**
+     * Find the stored status, equipment id, priority and assignee id of a ticket. Pending changes
+     * to the ticket are not flushed first, so this is its state before the current update.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT t.status, t.equipment.id, t.priority, t.assignedTo.id FROM Ticket t WHERE t.id = :id")
+    List<Object[]> findStoredState(@Param("id") Long id);
+    
+    /**
+     * Count resolved tickets per assignee and category (technician category skill)
+     */
+    @Query("SELECT t.assignedTo.id, t.category, COUNT(t) FROM Ticket t WHERE t.assignedTo IS NOT NULL AND t.status IN ('RESOLVED', 'CLOSED') GROUP BY t.assignedTo.id, t.category")
+    List<Object[]> getResolvedCountByAssigneeAndCategory();
+    
+    /**
+     * Stream creation and resolution facts of every ticket (metric rollup backfill)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t.createdAt, t.resolvedAt, t.status, t.category, t.priority, a.id, t.id FROM Ticket t LEFT JOIN t.assignedTo a")
+    Stream<Object[]> streamTicketHistory();
+    
     /**
      * Find escalated tickets
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     List<Ticket> findByIsEscalatedTrue();
     
     /**
      * Find open tickets (not resolved, closed, or cancelled)
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     @Query("SELECT t FROM Ticket t WHERE t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
     List<Ticket> findOpenTickets();
     
     /**
      * Find tickets with pagination and search
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     @Query("SELECT t FROM Ticket t WHERE " +
            "(:search IS NULL OR " +
            "LOWER(t.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
@@ -106,6 +178,36 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
                                        @Param("equipmentId") Long equipmentId,
                                        Pageable pageable);
     
+    /**
+     * Stream report rows of the tickets matching the list filters, with creator, assignee
+     * and equipment names joined in (report export)
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t.id, t.title, t.status, t.priority, t.category, c.fullName, a.fullName, e.hostname, " +
+           "t.isEscalated, t.createdAt, t.updatedAt, t.dueDate, t.resolvedAt " +
+           "FROM Ticket t LEFT JOIN t.createdBy c LEFT JOIN t.assignedTo a LEFT JOIN t.equipment e WHERE " +
+           "(:search IS NULL OR " +
+           "LOWER(t.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(CAST(t.description AS string)) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(t.category) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:status IS NULL OR t.status = :status) AND " +
+           "(:priority IS NULL OR t.priority = :priority) AND " +
+           "(:category IS NULL OR t.category = :category) AND " +
+           "(:createdById IS NULL OR c.id = :createdById) AND " +
+           "(:assignedToId IS NULL OR a.id = :assignedToId) AND " +
+           "(:equipmentId IS NULL OR e.id = :equipmentId) " +
+           "ORDER BY t.id")
+    Stream<Object[]> streamTicketReportRows(@Param("search") String search,
+                                            @Param("status") TicketStatus status,
+                                            @Param("priority") TicketPriority priority,
+                                            @Param("category") TicketCategory category,
+                                            @Param("createdById") Long createdById,
+                                            @Param("assignedToId") Long assignedToId,
+                                            @Param("equipmentId") Long equipmentId);
+    
     /**
      * Count tickets by status
      */
@@ -174,6 +276,7 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     /**
      * Find tickets with critical priority
      */
+    @EntityGraph(attributePaths = {"createdBy", "assignedTo"})
     @Query("SELECT t FROM Ticket t WHERE t.priority = 'CRITICAL' AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')")
     List<Ticket> findCriticalOpenTickets();
     
@@ -191,9 +294,9 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     List<Object[]> getTicketStatsByCategory();
     
     /**
-     * Get average resolution time by category
+     * Get average resolution time in minutes and resolved count by category
      */
-    @Query("SELECT t.category, COUNT(t) FROM Ticket t WHERE t.resolvedAt IS NOT NULL GROUP BY t.category")
+    @Query("SELECT t.category, AVG((t.resolvedAt - t.createdAt) BY MINUTE), COUNT(t) FROM Ticket t WHERE t.resolvedAt IS NOT NULL GROUP BY t.category")
     List<Object[]> getAverageResolutionTimeByCategory();
     
     /**
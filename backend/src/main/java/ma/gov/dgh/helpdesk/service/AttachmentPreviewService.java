@@ -0,0 +1,306 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service generating downscaled JPEG derivatives of image attachments.
+ * Derivatives are written next to the content-addressed original, so they are shared by
+ * identical uploads and never go stale. Originals are decoded once for all sizes with
+ * source subsampling, which keeps the decoded raster close to the largest preview size
+ * whatever the original resolution; decoding runs on a bounded worker pool, and requests never
+ * wait for it. An original that is not a decodable image gets an empty marker derivative instead.
+ */
+@Service
+public class AttachmentPreviewService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentPreviewService.class);
+    
+    private static final String TEMP_PREFIX = "preview-";
+    private static final float JPEG_QUALITY = 0.85f;
+    // Marker of originals that are not decodable images; their content never changes
+    private static final String UNSUPPORTED_SUFFIX = "nopreview";
+    
+    private final AttachmentStorageService attachmentStorageService;
+    private final Executor previewExecutor;
+    
+    // Generations in progress, so concurrent uploads and requests for one original share a decode
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    
+    @Value("${attachments.previews.enabled:true}")
+    private boolean previewsEnabled;
+    
+    @Value("${attachments.previews.max-source-pixels:100000000}")
+    private long maxSourcePixels;
+    
+    @Autowired
+    public AttachmentPreviewService(AttachmentStorageService attachmentStorageService,
+                                    @Qualifier("previewExecutor") Executor previewExecutor) {
+        this.attachmentStorageService = attachmentStorageService;
+        this.previewExecutor = previewExecutor;
+    }
+    
+    /**
+     * Queue derivative generation for a stored attachment once the current transaction commits
+     */
+    public void schedule(String relativePath) {
+        if (!previewsEnabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(relativePath);
+                }
+            });
+        } else {
+            submit(relativePath);
+        }
+    }
+    
+    /**
+     * Get the derivative of a stored attachment, starting its generation if missing.
+     * The preview is pending while it is generated, or when the pool is saturated; callers
+     * retry later. It is unavailable when the attachment is not an image or generation failed.
+     */
+    public Preview getPreview(String relativePath, PreviewSize size) {
+        Path derivative = attachmentStorageService.resolveDerivative(relativePath, size.getSuffix());
+        if (Files.isRegularFile(derivative)) {
+            return Preview.ready(derivative);
+        }
+        if (!previewsEnabled || isUnsupported(relativePath)) {
+            return Preview.UNAVAILABLE;
+        }
+        
+        CompletableFuture<Void> generation = submit(relativePath);
+        if (!generation.isDone()) {
+            return Preview.PENDING;
+        }
+        Throwable failure = generation.handle((result, e) -> e).join();
+        if (failure instanceof RejectedExecutionException) {
+            return Preview.PENDING;
+        }
+        return failure == null && Files.isRegularFile(derivative) ? Preview.ready(derivative) : Preview.UNAVAILABLE;
+    }
+    
+    private CompletableFuture<Void> submit(String relativePath) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(relativePath, created);
+        if (existing != null) {
+            return existing;
+        }
+        
+        try {
+            previewExecutor.execute(() -> {
+                try {
+                    generate(relativePath);
+                    created.complete(null);
+                } catch (Exception e) {
+                    logger.warn("Could not generate previews for attachment {}: {}", relativePath, e.getMessage());
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(relativePath, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is saturated; the preview is produced on a later request instead
+            inFlight.remove(relativePath, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+    
+    private void generate(String relativePath) throws IOException {
+        boolean missing = false;
+        for (PreviewSize size : PreviewSize.values()) {
+            missing |= !Files.isRegularFile(attachmentStorageService.resolveDerivative(relativePath, size.getSuffix()));
+        }
+        if (!missing || isUnsupported(relativePath)) {
+            return;
+        }
+        
+        BufferedImage source = decode(attachmentStorageService.resolve(relativePath), PreviewSize.largest());
+        if (source == null) {
+            Path marker = attachmentStorageService.resolveDerivative(relativePath, UNSUPPORTED_SUFFIX);
+            try {
+                Files.createFile(marker);
+            } catch (FileAlreadyExistsException e) {
+                // Marked by a concurrent generation
+            }
+            return;
+        }
+        for (PreviewSize size : PreviewSize.values()) {
+            Path target = attachmentStorageService.resolveDerivative(relativePath, size.getSuffix());
+            if (!Files.isRegularFile(target)) {
+                writeJpeg(scale(source, size.getMaxDimension()), target);
+            }
+        }
+    }
+    
+    private boolean isUnsupported(String relativePath) {
+        return Files.exists(attachmentStorageService.resolveDerivative(relativePath, UNSUPPORTED_SUFFIX));
+    }
+    
+    /**
+     * Decode the image with the coarsest subsampling that still covers the requested size;
+     * returns null when the file is not a readable image
+     */
+    private BufferedImage decode(Path file, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Dimensions come from the header, before any pixel is decoded
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || (long) width * height > maxSourcePixels) {
+                    return null;
+                }
+                
+                // Keeps the longest decoded side at or above the requested size, below twice of it
+                int subsampling = Math.max(1, Math.max(width, height) / maxDimension);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IIOException e) {
+            // Unsupported variants (CMYK JPEG, truncated files) are treated as non-images
+            return null;
+        }
+    }
+    
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            // Transparent areas are flattened onto white, as JPEG has no alpha channel
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+    
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Outcome of a preview request: the derivative when ready, or whether it is still pending
+     */
+    public static final class Preview {
+        static final Preview PENDING = new Preview(null, true);
+        static final Preview UNAVAILABLE = new Preview(null, false);
+        
+        private final Path file;
+        private final boolean pending;
+        
+        private Preview(Path file, boolean pending) {
+            this.file = file;
+            this.pending = pending;
+        }
+        
+        static Preview ready(Path file) {
+            return new Preview(file, false);
+        }
+        
+        // Getters
+        public Optional<Path> getFile() { return Optional.ofNullable(file); }
+        public boolean isPending() { return pending; }
+    }
+    
+    /**
+     * Derivative sizes, each bounded by its longest side
+     */
+    public enum PreviewSize {
+        THUMBNAIL("thumb.jpg", 200),
+        PREVIEW("preview.jpg", 1024);
+        
+        private final String suffix;
+        private final int maxDimension;
+        
+        PreviewSize(String suffix, int maxDimension) {
+            this.suffix = suffix;
+            this.maxDimension = maxDimension;
+        }
+        
+        public String getSuffix() {
+            return suffix;
+        }
+        
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+        
+        static int largest() {
+            int largest = 0;
+            for (PreviewSize size : values()) {
+                largest = Math.max(largest, size.maxDimension);
+            }
+            return largest;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.repository.TicketCommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for ticket attachments.
+ * Uploads are streamed to a temporary file while their SHA-256 is computed, then moved to
+ * a path derived from the hash, so identical files are stored once. Files no longer
+ * referenced by any comment are removed by a periodic sweep after a grace period.
+ */
+@Service
+public class AttachmentStorageService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStorageService.class);
+    
+    private static final String TEMP_PREFIX = "upload-";
+    
+    private final TicketCommentRepository ticketCommentRepository;
+    private final Path root;
+    
+    @Value("${attachments.orphan-grace:1h}")
+    private Duration orphanGrace;
+    
+    @Autowired
+    public AttachmentStorageService(TicketCommentRepository ticketCommentRepository,
+                                    @Value("${attachments.storage-dir:./data/attachments}") String storageDir) throws IOException {
+        this.ticketCommentRepository = ticketCommentRepository;
+        this.root = Paths.get(storageDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+    
+    /**
+     * Store the content of the stream; returns its relative storage path and size
+     */
+    public StoredFile store(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(root, TEMP_PREFIX, ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = content;
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+            
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+            Path target = root.resolve(relativePath);
+            Files.createDirectories(target.getParent());
+            try {
+                // Identical content is already stored; touching it restarts the sweeper's grace period
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } catch (NoSuchFileException e) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredFile(relativePath, hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Resolve a stored relative path to its file, refusing paths outside the store
+     */
+    public Path resolve(String relativePath) {
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid attachment path: " + relativePath);
+        }
+        return file;
+    }
+    
+    /**
+     * Resolve the derivative (preview, thumbnail) stored next to an attachment
+     */
+    public Path resolveDerivative(String relativePath, String suffix) {
+        return resolve(relativePath + "." + suffix);
+    }
+    
+    /**
+     * Delete stored files that no comment references anymore, their derivatives, and abandoned
+     * temporary uploads
+     */
+    @Scheduled(fixedDelayString = "${attachments.sweep-interval:3600000}", initialDelay = 60000)
+    public void sweepOrphans() {
+        Set<Path> referenced = new HashSet<>();
+        for (String path : ticketCommentRepository.findAllAttachmentPaths()) {
+            referenced.add(root.resolve(path).normalize());
+        }
+        Instant cutoff = Instant.now().minus(orphanGrace);
+        
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (!referenced.contains(originalOf(file)) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error sweeping attachment store: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} orphaned attachment files", deleted);
+        }
+    }
+    
+    // Derivatives are named <hash>.<suffix> and live as long as their original
+    private static Path originalOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot > 0 ? file.resolveSibling(name.substring(0, dot)) : file;
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Inner class for the location of a stored file
+     */
+    public static class StoredFile {
+        private final String path;
+        private final String sha256;
+        private final long size;
+        
+        public StoredFile(String path, String sha256, long size) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+        
+        // Getters
+        public String getPath() { return path; }
+        public String getSha256() { return sha256; }
+        public long getSize() { return size; }
+    }
+}
@@ -0,0 +1,334 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.entity.UserRole;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Service choosing the technician for new tickets from an in-memory workload index.
+ * Each technician's load is the sum of priority weights of their open tickets; one ordered set
+ * per category ranks technicians by load minus a bonus for tickets already resolved in that
+ * category, so picking the best candidate and updating a load are both O(log n).
+ * The index follows committed ticket events and is rebuilt periodically from the database.
+ */
+@Service
+public class AutoAssignmentService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AutoAssignmentService.class);
+    
+    private static final Set<TicketStatus> CLOSED_STATUSES =
+        EnumSet.of(TicketStatus.RESOLVED, TicketStatus.CLOSED, TicketStatus.CANCELLED);
+    
+    // Load discount per doubling of tickets resolved in the category
+    private static final double SKILL_WEIGHT = 1.5;
+    
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+    
+    @Value("${ticket.auto-assignment.enabled:true}")
+    private boolean autoAssignmentEnabled;
+    
+    // All index state below is guarded by this lock; operations are short and in-memory only
+    private final Object lock = new Object();
+    private final Map<Long, TechnicianLoad> technicians = new HashMap<>();
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+    private final Map<TicketCategory, TreeSet<TechnicianLoad>> rankings = new EnumMap<>(TicketCategory.class);
+    // Contributions changed while a rebuild reads the database (null value: removed); null when no rebuild runs
+    private Map<Long, Contribution> changedDuringRebuild;
+    
+    @Autowired
+    public AutoAssignmentService(TicketRepository ticketRepository, UserRepository userRepository) {
+        this.ticketRepository = ticketRepository;
+        this.userRepository = userRepository;
+        for (TicketCategory category : TicketCategory.values()) {
+            rankings.put(category, new TreeSet<>(rankingOrder(category)));
+        }
+    }
+    
+    /**
+     * Rebuild the index from active technicians, their open tickets and their resolution history.
+     * Reservations and events applied while the database is read are kept over what was loaded.
+     */
+    @Scheduled(fixedRateString = "${ticket.auto-assignment.rebuild-interval:600000}")
+    @Transactional(readOnly = true)
+    public void rebuildIndex() {
+        synchronized (lock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+        try {
+            Map<Long, TechnicianLoad> loadedTechnicians = new HashMap<>();
+            for (User user : userRepository.findByRoleAndIsActiveTrue(UserRole.TECHNICIAN)) {
+                loadedTechnicians.put(user.getId(), new TechnicianLoad(user.getId(), user.getFullName()));
+            }
+            
+            for (Object[] row : ticketRepository.getResolvedCountByAssigneeAndCategory()) {
+                TechnicianLoad technician = loadedTechnicians.get((Long) row[0]);
+                if (technician != null && row[1] != null) {
+                    technician.resolvedByCategory.put((TicketCategory) row[1], ((Long) row[2]).intValue());
+                }
+            }
+            
+            Map<Long, Object[]> openTickets = new HashMap<>();
+            for (Object[] row : ticketRepository.findOpenAssignedTicketPriorities()) {
+                openTickets.put((Long) row[0], row);
+            }
+            
+            synchronized (lock) {
+                Map<Long, Contribution> loadedContributions = new HashMap<>();
+                for (Map.Entry<Long, Object[]> openTicket : openTickets.entrySet()) {
+                    Object[] row = openTicket.getValue();
+                    // Keep the timestamp of the state already known, so older events stay ignored and newer ones apply
+                    Contribution known = contributions.get(openTicket.getKey());
+                    loadedContributions.put(openTicket.getKey(), new Contribution((Long) row[1],
+                        weight((TicketPriority) row[2]), known != null ? known.updatedAt : LocalDateTime.MIN));
+                }
+                for (Map.Entry<Long, Contribution> change : changedDuringRebuild.entrySet()) {
+                    if (change.getValue() != null) {
+                        loadedContributions.put(change.getKey(), change.getValue());
+                    } else {
+                        loadedContributions.remove(change.getKey());
+                    }
+                }
+                for (Contribution contribution : loadedContributions.values()) {
+                    TechnicianLoad technician = loadedTechnicians.get(contribution.technicianId);
+                    if (technician != null) {
+                        technician.load += contribution.weight;
+                        technician.openTickets++;
+                    }
+                }
+                
+                technicians.clear();
+                technicians.putAll(loadedTechnicians);
+                contributions.clear();
+                contributions.putAll(loadedContributions);
+                for (TreeSet<TechnicianLoad> ranking : rankings.values()) {
+                    ranking.clear();
+                    ranking.addAll(loadedTechnicians.values());
+                }
+                logger.debug("Workload index rebuilt: {} technicians, {} open assigned tickets",
+                    loadedTechnicians.size(), loadedContributions.size());
+            }
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+    
+    /**
+     * Pick the technician for a saved ticket and reserve its weight right away, so concurrent
+     * creations spread over technicians. The reservation is released if the transaction rolls back.
+     */
+    public Optional<User> selectTechnician(Ticket ticket) {
+        if (!autoAssignmentEnabled || ticket.getId() == null) {
+            return Optional.empty();
+        }
+        
+        TicketCategory category = ticket.getCategory() != null ? ticket.getCategory() : TicketCategory.OTHER;
+        Long ticketId = ticket.getId();
+        Long technicianId;
+        synchronized (lock) {
+            TreeSet<TechnicianLoad> ranking = rankings.get(category);
+            if (ranking.isEmpty()) {
+                return Optional.empty();
+            }
+            technicianId = ranking.first().id;
+            apply(ticketId, new Contribution(technicianId, weight(ticket.getPriority()), LocalDateTime.now()));
+        }
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(ticketId, technicianId);
+                    }
+                }
+            });
+        }
+        
+        return userRepository.findById(technicianId);
+    }
+    
+    /**
+     * Keep the index in line with committed assignments, priority changes and resolutions
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTicketEvent(DomainEvent event) {
+        if (!DomainEvent.TOPIC_TICKETS.equals(event.getTopic())
+                || event.getType() == DomainEventType.TICKET_COMMENT_ADDED) {
+            return;
+        }
+        
+        Map<String, Object> payload = event.getPayload();
+        TicketStatus status = (TicketStatus) payload.get("status");
+        Long assignedToId = (Long) payload.get("assignedToId");
+        boolean open = event.getType() != DomainEventType.TICKET_DELETED
+            && assignedToId != null && !CLOSED_STATUSES.contains(status);
+        
+        synchronized (lock) {
+            Contribution current = contributions.get(event.getAggregateId());
+            // Events of concurrent transactions may arrive out of order; keep the newest state
+            if (current != null && current.updatedAt.isAfter(event.getTimestamp())) {
+                return;
+            }
+            apply(event.getAggregateId(), open
+                ? new Contribution(assignedToId, weight((TicketPriority) payload.get("priority")), event.getTimestamp())
+                : null);
+        }
+    }
+    
+    /**
+     * Get the current workload of every technician, least loaded first
+     */
+    public List<TechnicianWorkload> getWorkloadSnapshot() {
+        List<TechnicianWorkload> snapshot = new ArrayList<>();
+        synchronized (lock) {
+            for (TechnicianLoad technician : technicians.values()) {
+                snapshot.add(new TechnicianWorkload(technician.id, technician.fullName,
+                    technician.openTickets, technician.load));
+            }
+        }
+        snapshot.sort(Comparator.comparingInt(TechnicianWorkload::getWeightedLoad));
+        return snapshot;
+    }
+    
+    private void release(Long ticketId, Long technicianId) {
+        synchronized (lock) {
+            Contribution current = contributions.get(ticketId);
+            if (current != null && current.technicianId.equals(technicianId)) {
+                apply(ticketId, null);
+            }
+        }
+    }
+    
+    // Replace the ticket's contribution; callers hold the lock
+    private void apply(Long ticketId, Contribution contribution) {
+        Contribution previous = contribution != null
+            ? contributions.put(ticketId, contribution)
+            : contributions.remove(ticketId);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(ticketId, contribution);
+        }
+        if (previous != null) {
+            adjust(previous.technicianId, -previous.weight, -1);
+        }
+        if (contribution != null) {
+            adjust(contribution.technicianId, contribution.weight, 1);
+        }
+    }
+    
+    private void adjust(Long technicianId, int weightDelta, int ticketDelta) {
+        TechnicianLoad technician = technicians.get(technicianId);
+        if (technician == null) {
+            return;
+        }
+        // Re-key the technician in every ranking around the change
+        for (TreeSet<TechnicianLoad> ranking : rankings.values()) {
+            ranking.remove(technician);
+        }
+        technician.load += weightDelta;
+        technician.openTickets += ticketDelta;
+        for (TreeSet<TechnicianLoad> ranking : rankings.values()) {
+            ranking.add(technician);
+        }
+    }
+    
+    private static int weight(TicketPriority priority) {
+        return 1 << ((priority != null ? priority : TicketPriority.MEDIUM).getLevel() - 1);
+    }
+    
+    private static Comparator<TechnicianLoad> rankingOrder(TicketCategory category) {
+        return Comparator.<TechnicianLoad>comparingDouble(technician -> technician.score(category))
+            .thenComparingInt(technician -> technician.openTickets)
+            .thenComparingLong(technician -> technician.id);
+    }
+    
+    /**
+     * Mutable load entry of one technician
+     */
+    private static class TechnicianLoad {
+        private final Long id;
+        private final String fullName;
+        private final Map<TicketCategory, Integer> resolvedByCategory = new EnumMap<>(TicketCategory.class);
+        private int load;
+        private int openTickets;
+        
+        TechnicianLoad(Long id, String fullName) {
+            this.id = id;
+            this.fullName = fullName;
+        }
+        
+        double score(TicketCategory category) {
+            int resolved = resolvedByCategory.getOrDefault(category, 0);
+            return load - SKILL_WEIGHT * (Math.log1p(resolved) / Math.log(2));
+        }
+    }
+    
+    /**
+     * Weight one open ticket adds to its technician
+     */
+    private static class Contribution {
+        private final Long technicianId;
+        private final int weight;
+        private final LocalDateTime updatedAt;
+        
+        Contribution(Long technicianId, int weight, LocalDateTime updatedAt) {
+            this.technicianId = technicianId;
+            this.weight = weight;
+            this.updatedAt = updatedAt;
+        }
+    }
+    
+    /**
+     * Inner class for technician workload snapshots
+     */
+    public static class TechnicianWorkload {
+        private final Long technicianId;
+        private final String fullName;
+        private final int openTickets;
+        private final int weightedLoad;
+        
+        public TechnicianWorkload(Long technicianId, String fullName, int openTickets, int weightedLoad) {
+            this.technicianId = technicianId;
+            this.fullName = fullName;
+            this.openTickets = openTickets;
+            this.weightedLoad = weightedLoad;
+        }
+        
+        // Getters
+        public Long getTechnicianId() { return technicianId; }
+        public String getFullName() { return fullName; }
+        public int getOpenTickets() { return openTickets; }
+        public int getWeightedLoad() { return weightedLoad; }
+    }
+}
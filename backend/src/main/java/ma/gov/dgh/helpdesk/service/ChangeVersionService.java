@@ -0,0 +1,88 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service keeping a cheap modification counter per aggregate, used to build ETags
+ * for polled read endpoints without running any repository query.
+ */
+@Service
+public class ChangeVersionService {
+    
+    /**
+     * Aggregates whose changes invalidate cached responses
+     */
+    public enum Aggregate {
+        TICKETS, EQUIPMENT, USERS
+    }
+    
+    private final Map<Aggregate, AtomicLong> versions = new EnumMap<>(Aggregate.class);
+    
+    // Counters restart at zero, so the startup time keeps ETags from a previous run from matching
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    
+    public ChangeVersionService() {
+        for (Aggregate aggregate : Aggregate.values()) {
+            versions.put(aggregate, new AtomicLong());
+        }
+    }
+    
+    /**
+     * Record a change to the aggregate. Inside a transaction the counter moves once the
+     * transaction completes, so a version is never paired with data that is not yet visible.
+     */
+    public void markChanged(Aggregate aggregate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.get(aggregate).incrementAndGet();
+            return;
+        }
+        
+        String resourceKey = ChangeVersionService.class.getName() + "." + aggregate.name();
+        if (TransactionSynchronizationManager.hasResource(resourceKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(resourceKey, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(resourceKey);
+                versions.get(aggregate).incrementAndGet();
+            }
+        });
+    }
+    
+    /**
+     * Get the current version of an aggregate
+     */
+    public long getVersion(Aggregate aggregate) {
+        return versions.get(aggregate).get();
+    }
+    
+    /**
+     * Build a weak ETag from the versions of the aggregates a response depends on
+     */
+    public String etag(Aggregate... aggregates) {
+        return etag(0, aggregates);
+    }
+    
+    /**
+     * Build a weak ETag that also changes every timeBucketSeconds (none when 0), for responses
+     * computed against the current time
+     */
+    public String etag(long timeBucketSeconds, Aggregate... aggregates) {
+        StringBuilder tag = new StringBuilder("W/\"").append(epoch);
+        for (Aggregate aggregate : aggregates) {
+            tag.append('-').append(aggregate.name().charAt(0)).append(versions.get(aggregate).get());
+        }
+        if (timeBucketSeconds > 0) {
+            tag.append("-t").append(System.currentTimeMillis() / 1000 / timeBucketSeconds);
+        }
+        return tag.append('"').toString();
+    }
+}
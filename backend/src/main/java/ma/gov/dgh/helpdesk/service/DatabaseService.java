@@ -25,10 +25,12 @@ public class DatabaseService {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseService.class);
     
     private final JdbcTemplate jdbcTemplate;
+    private final EquipmentTicketCountService equipmentTicketCountService;
     
     @Autowired
-    public DatabaseService(JdbcTemplate jdbcTemplate) {
+    public DatabaseService(JdbcTemplate jdbcTemplate, EquipmentTicketCountService equipmentTicketCountService) {
         this.jdbcTemplate = jdbcTemplate;
+        this.equipmentTicketCountService = equipmentTicketCountService;
     }
     
     /**
@@ -47,7 +49,7 @@ public class DatabaseService {
             } else {
                 logger.warn("Database schema validation found issues: {}", result.getIssues());
             }
-            
+        
         } catch (Exception e) {
             logger.error("Database schema validation failed: {}", e.getMessage(), e);
         }
@@ -75,7 +77,7 @@ public class DatabaseService {
                     }
                 }
             }
-            
+        
         } catch (Exception e) {
             result.addError("Schema validation failed", e.getMessage());
         }
@@ -116,7 +118,7 @@ public class DatabaseService {
             } catch (Exception e) {
                 logger.debug("Could not get database size: {}", e.getMessage());
             }
-            
+        
         } catch (Exception e) {
             logger.error("Error getting database statistics: {}", e.getMessage());
         }
@@ -152,12 +154,17 @@ public class DatabaseService {
             int equipmentDeleted = jdbcTemplate.update(cleanupEquipmentQuery, -daysToKeep * 2); // Keep equipment longer
             result.setEquipmentDeleted(equipmentDeleted);
             
+            // The deleted tickets bypassed the ticket service, so their equipment counters are recounted
+            if (ticketsDeleted > 0) {
+                equipmentTicketCountService.reconcile();
+            }
+            
             result.setSuccess(true);
             result.setMessage("Cleanup completed successfully");
             
             logger.info("Database cleanup completed: {} tickets, {} comments, {} equipment deleted", 
                        ticketsDeleted, commentsDeleted, equipmentDeleted);
-            
+        
         } catch (Exception e) {
             result.setSuccess(false);
             result.setMessage("Cleanup failed: " + e.getMessage());
@@ -182,7 +189,7 @@ public class DatabaseService {
             result.setBackupPath(backupPath);
             
             logger.info("Database backup completed: {}", backupPath);
-            
+        
         } catch (Exception e) {
             result.setSuccess(false);
             result.setMessage("Backup failed: " + e.getMessage());
@@ -0,0 +1,132 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.utils.DeviceRuleSet;
+import ma.gov.dgh.helpdesk.utils.DeviceRuleSet.Classification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Service classifying discovered devices with the rules of a versioned rule file.
+ * The file is compiled once and swapped atomically; it is checked for changes periodically
+ * and can be reloaded on demand. A file that fails to load or validate is rejected and the
+ * rules in use stay active.
+ */
+@Service
+public class DeviceClassificationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeviceClassificationService.class);
+    
+    private final ObjectMapper objectMapper;
+    private final Resource rulesResource;
+    
+    private volatile DeviceRuleSet ruleSet;
+    private volatile long lastModified;
+    private volatile LocalDateTime loadedAt;
+    
+    @Autowired
+    public DeviceClassificationService(ObjectMapper objectMapper, ResourceLoader resourceLoader,
+                                       @Value("${network.discovery.classification.rules-location:classpath:classification/device-rules.json}") String rulesLocation) {
+        this.objectMapper = objectMapper;
+        this.rulesResource = resourceLoader.getResource(rulesLocation);
+        ClassificationInfo info = reload();
+        if (ruleSet == null) {
+            throw new IllegalStateException("Device classification rules could not be loaded: " + info.getError());
+        }
+    }
+    
+    /**
+     * Classify a device from its sysObjectID, sysDescr and host name; any of them may be null
+     */
+    public Classification classify(String objectId, String description, String hostname) {
+        return ruleSet.classify(objectId, description, hostname);
+    }
+    
+    /**
+     * Load and compile the rule file, replacing the rules in use when it is valid
+     */
+    public synchronized ClassificationInfo reload() {
+        try {
+            long modified = lastModified();
+            DeviceRuleSet.RuleFile file;
+            try (InputStream in = rulesResource.getInputStream()) {
+                file = objectMapper.readValue(in, DeviceRuleSet.RuleFile.class);
+            }
+            DeviceRuleSet compiled = DeviceRuleSet.compile(file);
+            String previous = ruleSet != null ? ruleSet.getVersion() : null;
+            ruleSet = compiled;
+            lastModified = modified;
+            loadedAt = LocalDateTime.now();
+            logger.info("Loaded device classification rules {} ({} rules){}", compiled.getVersion(),
+                compiled.getRuleCount(), previous != null ? ", replacing " + previous : "");
+            return getInfo();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Rejected device classification rules from {}: {}", rulesResource.getDescription(), e.getMessage());
+            ClassificationInfo info = getInfo();
+            info.error = e.getMessage();
+            return info;
+        }
+    }
+    
+    /**
+     * Reload the rule file when it changed since it was last loaded
+     */
+    @Scheduled(fixedDelayString = "${network.discovery.classification.reload-interval:30000}",
+               initialDelayString = "${network.discovery.classification.reload-interval:30000}")
+    public void reloadIfChanged() {
+        long modified = lastModified();
+        if (modified > 0 && modified != lastModified) {
+            reload();
+        }
+    }
+    
+    /**
+     * Get the version and origin of the rules in use
+     */
+    public ClassificationInfo getInfo() {
+        ClassificationInfo info = new ClassificationInfo();
+        DeviceRuleSet current = ruleSet;
+        info.version = current != null ? current.getVersion() : null;
+        info.ruleCount = current != null ? current.getRuleCount() : 0;
+        info.source = rulesResource.getDescription();
+        info.loadedAt = loadedAt;
+        return info;
+    }
+    
+    // Resources inside a jar may not report a modification time; they are then never reloaded
+    private long lastModified() {
+        try {
+            return rulesResource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Rules in use; error is set when the last reload was rejected
+     */
+    public static class ClassificationInfo {
+        private String version;
+        private int ruleCount;
+        private String source;
+        private LocalDateTime loadedAt;
+        private String error;
+        
+        // Getters
+        public String getVersion() { return version; }
+        public int getRuleCount() { return ruleCount; }
+        public String getSource() { return source; }
+        public LocalDateTime getLoadedAt() { return loadedAt; }
+        public String getError() { return error; }
+    }
+}
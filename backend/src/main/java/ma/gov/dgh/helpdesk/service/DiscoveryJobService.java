@@ -0,0 +1,422 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.utils.IpAddresses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service managing network discovery jobs.
+ * A job scans its ranges one after the other on the discovery executor, keeping per-subnet
+ * progress that can be polled or followed on the "discovery" event stream, together with each
+ * device as it is found. Ranges being scanned are claimed, so scans of overlapping ranges,
+ * including the sweeps of the incremental scheduler, never run at the same time.
+ * Finished jobs expire after a TTL.
+ */
+@Service
+public class DiscoveryJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryJobService.class);
+    
+    /**
+     * Owner of the jobs started by the scheduled scan
+     */
+    public static final String SCHEDULER = "scheduler";
+    
+    // Progress events are throttled; phase and status changes are always published
+    private static final long PROGRESS_PUBLISH_INTERVAL_MILLIS = 1000;
+    
+    private final DiscoveryJobWorker worker;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Value("${network.discovery.jobs.ttl:24h}")
+    private Duration jobTtl;
+    
+    private final Map<Long, DiscoveryJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong();
+    // Ranges swept outside jobs, guarded by the jobs lock
+    private final List<String> claimedRanges = new ArrayList<>();
+    
+    @Autowired
+    public DiscoveryJobService(@Lazy DiscoveryJobWorker worker, ApplicationEventPublisher eventPublisher) {
+        this.worker = worker;
+        this.eventPublisher = eventPublisher;
+    }
+    
+    /**
+     * Queue a discovery job over the given ranges.
+     * Throws IllegalStateException when a range overlaps one being scanned.
+     */
+    public DiscoveryJob submit(String owner, List<String> subnets) {
+        if (subnets == null || subnets.isEmpty()) {
+            throw new IllegalArgumentException("At least one subnet is required");
+        }
+        LinkedHashSet<String> ranges = new LinkedHashSet<>();
+        for (String subnet : subnets) {
+            // Canonical ranges, so that the overlap checks compare network addresses
+            ranges.add(NetworkDiscoveryService.canonicalSubnet(subnet));
+        }
+        
+        DiscoveryJob job;
+        synchronized (jobs) {
+            for (String range : ranges) {
+                String busy = findActiveOverlap(range);
+                if (busy != null) {
+                    throw new IllegalStateException("Range " + range + " overlaps " + busy + ", which is being scanned");
+                }
+            }
+            long id = jobSequence.incrementAndGet();
+            job = new DiscoveryJob(id, owner, new ArrayList<>(ranges));
+            jobs.put(id, job);
+        }
+        
+        // Published before the worker can report it running
+        publish(job);
+        try {
+            worker.run(job);
+        } catch (TaskRejectedException e) {
+            finish(job, JobStatus.FAILED, "Discovery queue is full");
+            jobs.remove(job.id);
+            throw new IllegalStateException("Discovery queue is full, try again later");
+        }
+        return job;
+    }
+    
+    /**
+     * Claim a range for a sweep outside jobs; false when it overlaps a range being scanned
+     */
+    public boolean claim(String range) {
+        synchronized (jobs) {
+            if (findActiveOverlap(range) != null) {
+                return false;
+            }
+            claimedRanges.add(range);
+            return true;
+        }
+    }
+    
+    /**
+     * Release a range claimed for a sweep
+     */
+    public void release(String range) {
+        synchronized (jobs) {
+            claimedRanges.remove(range);
+        }
+    }
+    
+    public Optional<DiscoveryJob> findJob(Long id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+    
+    /**
+     * Get all jobs, newest first
+     */
+    public List<DiscoveryJob> findJobs() {
+        return jobs.values().stream()
+            .sorted(Comparator.comparing((DiscoveryJob job) -> job.id).reversed())
+            .toList();
+    }
+    
+    /**
+     * Cancel an unfinished job, or delete a finished one
+     */
+    public void cancelOrDelete(DiscoveryJob job) {
+        if (!job.isFinished()) {
+            job.cancelRequested = true;
+            if (job.status == JobStatus.QUEUED) {
+                finish(job, JobStatus.CANCELLED, null);
+            }
+            return;
+        }
+        jobs.remove(job.id);
+    }
+    
+    /**
+     * Remove finished jobs older than the TTL
+     */
+    @Scheduled(fixedDelayString = "${network.discovery.jobs.cleanup-interval:600000}")
+    public void cleanupExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobTtl);
+        int removed = 0;
+        for (DiscoveryJob job : jobs.values()) {
+            if (job.isFinished() && job.finishedAt.isBefore(cutoff) && jobs.remove(job.id, job)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} expired discovery jobs", removed);
+        }
+    }
+    
+    private String findActiveOverlap(String range) {
+        for (String claimed : claimedRanges) {
+            if (IpAddresses.parseRange(range).overlaps(IpAddresses.parseRange(claimed))) {
+                return claimed;
+            }
+        }
+        for (DiscoveryJob job : jobs.values()) {
+            if (!job.isFinished()) {
+                for (SubnetProgress subnet : job.subnets) {
+                    if (IpAddresses.parseRange(range).overlaps(IpAddresses.parseRange(subnet.subnet))) {
+                        return subnet.subnet;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Job lifecycle, driven by the worker
+    
+    boolean start(DiscoveryJob job) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return false;
+            }
+            job.status = JobStatus.RUNNING;
+            job.startedAt = LocalDateTime.now();
+        }
+        publish(job);
+        return true;
+    }
+    
+    void phase(DiscoveryJob job, SubnetProgress subnet, SubnetPhase phase) {
+        subnet.phase = phase;
+        publish(job);
+    }
+    
+    void progress(DiscoveryJob job) {
+        long now = System.currentTimeMillis();
+        if (now - job.lastPublishedAt >= PROGRESS_PUBLISH_INTERVAL_MILLIS) {
+            publish(job);
+        }
+    }
+    
+    void deviceFound(DiscoveryJob job, SubnetProgress subnet, Equipment equipment) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("jobId", job.id);
+        payload.put("subnet", subnet.subnet);
+        payload.put("id", equipment.getId());
+        payload.put("ipAddress", equipment.getIpAddress());
+        payload.put("macAddress", equipment.getMacAddress());
+        payload.put("hostname", equipment.getHostname());
+        payload.put("equipmentType", equipment.getEquipmentType());
+        payload.put("manufacturer", equipment.getManufacturer());
+        payload.put("model", equipment.getModel());
+        payload.put("status", equipment.getStatus());
+        eventPublisher.publishEvent(new DomainEvent(DomainEventType.DISCOVERY_DEVICE_FOUND, job.id, payload));
+        progress(job);
+    }
+    
+    void finish(DiscoveryJob job, JobStatus status, String error) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return;
+            }
+            job.status = status;
+            job.error = error;
+            job.finishedAt = LocalDateTime.now();
+        }
+        publish(job);
+    }
+    
+    private void publish(DiscoveryJob job) {
+        job.lastPublishedAt = System.currentTimeMillis();
+        List<Map<String, Object>> subnets = new ArrayList<>(job.subnets.size());
+        for (SubnetProgress subnet : job.subnets) {
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("subnet", subnet.subnet);
+            progress.put("phase", subnet.phase);
+            progress.put("sweepPercent", subnet.getSweepPercent());
+            progress.put("hostsUp", subnet.getHostsUp());
+            progress.put("hostsProcessed", subnet.getHostsProcessed());
+            progress.put("devicesDiscovered", subnet.getDevicesDiscovered());
+            subnets.add(progress);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", job.id);
+        payload.put("owner", job.owner);
+        payload.put("status", job.status);
+        payload.put("progressPercent", job.getProgressPercent());
+        payload.put("estimatedSecondsRemaining", job.getEstimatedSecondsRemaining());
+        payload.put("devicesDiscovered", job.getDevicesDiscovered());
+        payload.put("subnets", subnets);
+        payload.put("error", job.error);
+        eventPublisher.publishEvent(new DomainEvent(DomainEventType.DISCOVERY_JOB_UPDATED, job.id, payload));
+    }
+    
+    /**
+     * Enumeration for discovery job states
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+    
+    /**
+     * Enumeration for the phases of a subnet within a job
+     */
+    public enum SubnetPhase {
+        PENDING, SWEEPING, DISCOVERING, DONE
+    }
+    
+    /**
+     * Inner class for a discovery job and its state
+     */
+    public static class DiscoveryJob {
+        private final Long id;
+        private final String owner;
+        private final List<SubnetProgress> subnets;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        private volatile boolean cancelRequested;
+        private volatile long lastPublishedAt;
+        
+        DiscoveryJob(Long id, String owner, List<String> ranges) {
+            this.id = id;
+            this.owner = owner;
+            this.subnets = ranges.stream().map(SubnetProgress::new).toList();
+        }
+        
+        public boolean isFinished() {
+            return status == JobStatus.COMPLETED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+        }
+        
+        boolean isCancelRequested() {
+            return cancelRequested;
+        }
+        
+        /**
+         * Share of the work done, weighting each subnet by its size
+         */
+        public double getProgressPercent() {
+            if (status == JobStatus.COMPLETED) {
+                return 100.0;
+            }
+            double total = 0;
+            double done = 0;
+            for (SubnetProgress subnet : subnets) {
+                total += subnet.addressCount;
+                done += subnet.addressCount * subnet.getFraction();
+            }
+            return total > 0 ? Math.round(1000.0 * done / total) / 10.0 : 0.0;
+        }
+        
+        /**
+         * Remaining time extrapolated from the elapsed time and the progress; null until it can be estimated
+         */
+        public Long getEstimatedSecondsRemaining() {
+            LocalDateTime started = startedAt;
+            double percent = getProgressPercent();
+            if (status != JobStatus.RUNNING || started == null || percent <= 0) {
+                return null;
+            }
+            double elapsed = Duration.between(started, LocalDateTime.now()).toMillis() / 1000.0;
+            return Math.round(elapsed * (100.0 - percent) / percent);
+        }
+        
+        public int getDevicesDiscovered() {
+            int devices = 0;
+            for (SubnetProgress subnet : subnets) {
+                devices += subnet.getDevicesDiscovered();
+            }
+            return devices;
+        }
+        
+        // Getters
+        public Long getId() { return id; }
+        public String getOwner() { return owner; }
+        public List<SubnetProgress> getSubnets() { return subnets; }
+        public JobStatus getStatus() { return status; }
+        public LocalDateTime getSubmittedAt() { return submittedAt; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public String getError() { return error; }
+    }
+    
+    /**
+     * Inner class for the progress of one subnet of a job
+     */
+    public static class SubnetProgress {
+        // Share of a subnet's progress given to the sweep, the rest going to device discovery
+        private static final double SWEEP_SHARE = 0.5;
+        
+        private final String subnet;
+        private final long addressCount;
+        private volatile SubnetPhase phase = SubnetPhase.PENDING;
+        private volatile double sweepPercent;
+        private final AtomicInteger hostsUp = new AtomicInteger();
+        private final AtomicInteger hostsProcessed = new AtomicInteger();
+        private final AtomicInteger devicesDiscovered = new AtomicInteger();
+        
+        SubnetProgress(String subnet) {
+            this.subnet = subnet;
+            // Only weighs the progress; wide IPv6 ranges are capped
+            this.addressCount = IpAddresses.parseRange(subnet).size().min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+        }
+        
+        void sweepProgress(double percent) {
+            sweepPercent = Math.max(0, Math.min(100, percent));
+        }
+        
+        void hostUp() {
+            hostsUp.incrementAndGet();
+        }
+        
+        void sweepCompleted(int hosts) {
+            sweepPercent = 100;
+            hostsUp.set(hosts);
+        }
+        
+        void hostProcessed(boolean discovered) {
+            hostsProcessed.incrementAndGet();
+            if (discovered) {
+                devicesDiscovered.incrementAndGet();
+            }
+        }
+        
+        double getFraction() {
+            return switch (phase) {
+                case PENDING -> 0.0;
+                case SWEEPING -> SWEEP_SHARE * sweepPercent / 100.0;
+                case DISCOVERING -> SWEEP_SHARE
+                    + (1 - SWEEP_SHARE) * hostsProcessed.get() / Math.max(1, hostsUp.get());
+                case DONE -> 1.0;
+            };
+        }
+        
+        // Getters
+        public String getSubnet() { return subnet; }
+        public long getAddressCount() { return addressCount; }
+        public SubnetPhase getPhase() { return phase; }
+        public double getSweepPercent() { return Math.round(sweepPercent * 10) / 10.0; }
+        public int getHostsUp() { return hostsUp.get(); }
+        public int getHostsProcessed() { return hostsProcessed.get(); }
+        public int getDevicesDiscovered() { return devicesDiscovered.get(); }
+    }
+}
@@ -0,0 +1,109 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService.DiscoveryJob;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService.JobStatus;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService.SubnetPhase;
+import ma.gov.dgh.helpdesk.service.DiscoveryJobService.SubnetProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs discovery jobs on the discovery executor.
+ * Subnets are scanned in order; a cancelled job stops at the next host or sweep progress
+ * update, keeping the devices discovered so far.
+ */
+@Component
+public class DiscoveryJobWorker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryJobWorker.class);
+    
+    private final NetworkDiscoveryService networkDiscoveryService;
+    private final DiscoveryJobService discoveryJobService;
+    
+    @Autowired
+    public DiscoveryJobWorker(NetworkDiscoveryService networkDiscoveryService, DiscoveryJobService discoveryJobService) {
+        this.networkDiscoveryService = networkDiscoveryService;
+        this.discoveryJobService = discoveryJobService;
+    }
+    
+    /**
+     * Scan the job's subnets
+     */
+    @Async("networkDiscoveryExecutor")
+    public void run(DiscoveryJob job) {
+        if (!discoveryJobService.start(job)) {
+            return;
+        }
+        
+        try {
+            for (SubnetProgress subnet : job.getSubnets()) {
+                if (job.isCancelRequested()) {
+                    throw new CancellationException();
+                }
+                discoveryJobService.phase(job, subnet, SubnetPhase.SWEEPING);
+                networkDiscoveryService.scanSubnet(subnet.getSubnet(), new JobScanListener(job, subnet));
+                discoveryJobService.phase(job, subnet, SubnetPhase.DONE);
+            }
+            discoveryJobService.finish(job, JobStatus.COMPLETED, null);
+            logger.info("Discovery job {} completed with {} devices", job.getId(), job.getDevicesDiscovered());
+        } catch (CancellationException e) {
+            discoveryJobService.finish(job, JobStatus.CANCELLED, null);
+            logger.info("Discovery job {} cancelled after {} devices", job.getId(), job.getDevicesDiscovered());
+        } catch (Exception e) {
+            logger.error("Discovery job {} failed: {}", job.getId(), e.getMessage());
+            discoveryJobService.finish(job, JobStatus.FAILED, e.getMessage());
+        }
+    }
+    
+    /**
+     * Feeds scan progress of one subnet into its job
+     */
+    private class JobScanListener implements NetworkDiscoveryService.ScanListener {
+        private final DiscoveryJob job;
+        private final SubnetProgress subnet;
+        
+        JobScanListener(DiscoveryJob job, SubnetProgress subnet) {
+            this.job = job;
+            this.subnet = subnet;
+        }
+        
+        @Override
+        public void hostUp(String ipAddress) {
+            subnet.hostUp();
+            discoveryJobService.progress(job);
+        }
+        
+        @Override
+        public void sweepProgress(double percent) {
+            subnet.sweepProgress(percent);
+            discoveryJobService.progress(job);
+        }
+        
+        @Override
+        public void sweepCompleted(int hostsUp) {
+            subnet.sweepCompleted(hostsUp);
+            discoveryJobService.phase(job, subnet, SubnetPhase.DISCOVERING);
+        }
+        
+        @Override
+        public void hostProcessed(String ipAddress, Equipment equipment) {
+            subnet.hostProcessed(equipment != null);
+            if (equipment != null) {
+                discoveryJobService.deviceFound(job, subnet, equipment);
+            } else {
+                discoveryJobService.progress(job);
+            }
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return job.isCancelRequested();
+        }
+    }
+}
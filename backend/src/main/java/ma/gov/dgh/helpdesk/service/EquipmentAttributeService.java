@@ -0,0 +1,263 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttribute;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttributeKey;
+import ma.gov.dgh.helpdesk.repository.EquipmentAttributeRepository;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service keeping the structured specification attributes of equipment: what discovery reads
+ * over SNMP is stored as one typed row per attribute, and inventory queries ("devices with
+ * sysLocation X", "devices up for less than a day") are index lookups on those rows. The
+ * specifications JSON of the equipment is still written, as the document shown on detail views.
+ */
+@Service
+public class EquipmentAttributeService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentAttributeService.class);
+    
+    private static final int BACKFILL_PAGE_SIZE = 500;
+    private static final long KB_PER_GB = 1024L * 1024L;
+    
+    private final EquipmentAttributeRepository equipmentAttributeRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    public EquipmentAttributeService(EquipmentAttributeRepository equipmentAttributeRepository,
+                                     EquipmentRepository equipmentRepository, ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager) {
+        this.equipmentAttributeRepository = equipmentAttributeRepository;
+        this.equipmentRepository = equipmentRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Convert the specifications JSON of equipment discovered before attributes were stored.
+     * Uptimes are skipped: the document does not say when they were read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillFromSpecifications() {
+        int converted = 0;
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            long from = afterId;
+            page = equipmentRepository.findSpecificationsWithoutAttributes(from, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+            List<Object[]> rows = page;
+            converted += transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                int stored = 0;
+                for (Object[] row : rows) {
+                    Map<EquipmentAttributeKey, Object> values = parseSpecifications((String) row[1]);
+                    if (!values.isEmpty()) {
+                        replaceAttributes((Long) row[0], values, now);
+                        stored++;
+                    }
+                }
+                return stored;
+            });
+            if (!page.isEmpty()) {
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == BACKFILL_PAGE_SIZE);
+        if (converted > 0) {
+            logger.info("Stored specification attributes of {} equipment", converted);
+        }
+    }
+    
+    /**
+     * Store what discovery read from a device: its attributes, its specifications document,
+     * its operating system, and its memory size unless one was entered by hand
+     */
+    @Transactional
+    public void recordDeviceInfo(Long equipmentId, SnmpDeviceInfo info) {
+        Equipment equipment = equipmentRepository.findById(equipmentId).orElse(null);
+        if (equipment == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        replaceAttributes(equipmentId, attributesOf(info), now);
+        
+        if (info.getOsName() != null) {
+            equipment.setOsName(info.getOsName());
+            equipment.setOsVersion(info.getOsVersion());
+        }
+        if (equipment.getMemoryGb() == null && info.getMemoryKb() != null) {
+            equipment.setMemoryGb((int) Math.round((double) info.getMemoryKb() / KB_PER_GB));
+        }
+        try {
+            equipment.setSpecifications(objectMapper.writeValueAsString(info.toSpecifications()));
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize the specifications of equipment {}: {}", equipmentId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Get the attributes of a device
+     */
+    @Transactional(readOnly = true)
+    public List<EquipmentAttribute> getAttributes(Long equipmentId) {
+        if (!equipmentRepository.existsById(equipmentId)) {
+            throw new IllegalArgumentException("Equipment not found with ID: " + equipmentId);
+        }
+        return equipmentAttributeRepository.findByEquipmentIdOrderByAttributeKey(equipmentId);
+    }
+    
+    /**
+     * Get the equipment whose attribute has a value (text attributes) or lies within bounds
+     * (numeric attributes, either bound may be left out)
+     */
+    @Transactional(readOnly = true)
+    public List<EquipmentSummary> findByAttribute(EquipmentAttributeKey key, String value, Long min, Long max) {
+        if (key.isNumeric()) {
+            if (value != null || (min == null && max == null)) {
+                throw new IllegalArgumentException("Attribute " + key + " is numeric: query it with min and/or max");
+            }
+            long lower = min != null ? min : Long.MIN_VALUE;
+            long upper = max != null ? max : Long.MAX_VALUE;
+            if (lower > upper) {
+                throw new IllegalArgumentException("min must not be greater than max");
+            }
+            return equipmentRepository.findSummariesByAttributeRange(key, lower, upper);
+        }
+        if (value == null || value.isBlank() || min != null || max != null) {
+            throw new IllegalArgumentException("Attribute " + key + " is text: query it with a value");
+        }
+        return equipmentRepository.findSummariesByAttributeText(key, truncate(value.trim()));
+    }
+    
+    /**
+     * Get the equipment that booted within the last hours, i.e. whose uptime is below them
+     */
+    @Transactional(readOnly = true)
+    public List<EquipmentSummary> findBootedWithin(int hours) {
+        if (hours < 1) {
+            throw new IllegalArgumentException("Hours must be at least 1");
+        }
+        long since = System.currentTimeMillis() / 1000 - hours * 3600L;
+        return equipmentRepository.findSummariesByAttributeRange(EquipmentAttributeKey.BOOT_TIME, since, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Replace the stored attributes of a device; rows are matched by key and updated in place
+     */
+    private void replaceAttributes(Long equipmentId, Map<EquipmentAttributeKey, Object> values, LocalDateTime now) {
+        Map<EquipmentAttributeKey, EquipmentAttribute> existing = new EnumMap<>(EquipmentAttributeKey.class);
+        for (EquipmentAttribute stored : equipmentAttributeRepository.findByEquipmentIdOrderByAttributeKey(equipmentId)) {
+            existing.put(stored.getAttributeKey(), stored);
+        }
+        
+        List<EquipmentAttribute> attributes = new ArrayList<>(values.size());
+        for (Map.Entry<EquipmentAttributeKey, Object> value : values.entrySet()) {
+            EquipmentAttribute attribute = existing.remove(value.getKey());
+            if (attribute == null) {
+                attribute = new EquipmentAttribute(equipmentId, value.getKey());
+            }
+            if (value.getKey().isNumeric()) {
+                attribute.setNumericValue((Long) value.getValue());
+                attribute.setTextValue(null);
+            } else {
+                attribute.setTextValue(truncate((String) value.getValue()));
+                attribute.setNumericValue(null);
+            }
+            attribute.setUpdatedAt(now);
+            attributes.add(attribute);
+        }
+        equipmentAttributeRepository.deleteAll(existing.values());
+        equipmentAttributeRepository.saveAll(attributes);
+    }
+    
+    private static Map<EquipmentAttributeKey, Object> attributesOf(SnmpDeviceInfo info) {
+        Map<EquipmentAttributeKey, Object> values = new EnumMap<>(EquipmentAttributeKey.class);
+        putText(values, EquipmentAttributeKey.SYS_DESCR, info.getSystemDescription());
+        putText(values, EquipmentAttributeKey.SYS_OBJECT_ID, info.getSystemObjectId());
+        putText(values, EquipmentAttributeKey.SYS_NAME, info.getSystemName());
+        putText(values, EquipmentAttributeKey.SYS_LOCATION, info.getSystemLocation());
+        putText(values, EquipmentAttributeKey.SYS_CONTACT, info.getSystemContact());
+        Long uptime = info.getSystemUptimeSeconds();
+        if (uptime != null) {
+            values.put(EquipmentAttributeKey.SYS_UP_TIME, uptime);
+            values.put(EquipmentAttributeKey.BOOT_TIME, System.currentTimeMillis() / 1000 - uptime);
+        }
+        putNumber(values, EquipmentAttributeKey.IF_NUMBER,
+            info.getInterfaceCount() != null ? info.getInterfaceCount().toString() : null);
+        putNumber(values, EquipmentAttributeKey.HR_SYSTEM_PROCESSES, info.getProcessCount());
+        if (info.getMemoryKb() != null) {
+            values.put(EquipmentAttributeKey.HR_MEMORY_SIZE, info.getMemoryKb());
+        }
+        return values;
+    }
+    
+    // Documents written by SnmpDeviceInfo.toSpecifications; anything else (hand-entered text) yields nothing
+    private Map<EquipmentAttributeKey, Object> parseSpecifications(String specifications) {
+        Map<EquipmentAttributeKey, Object> values = new EnumMap<>(EquipmentAttributeKey.class);
+        JsonNode document;
+        try {
+            document = objectMapper.readTree(specifications);
+        } catch (JsonProcessingException e) {
+            return values;
+        }
+        if (document == null || !document.isObject()) {
+            return values;
+        }
+        putText(values, EquipmentAttributeKey.SYS_DESCR, textOf(document, "systemDescription"));
+        putText(values, EquipmentAttributeKey.SYS_NAME, textOf(document, "systemName"));
+        putText(values, EquipmentAttributeKey.SYS_LOCATION, textOf(document, "systemLocation"));
+        putText(values, EquipmentAttributeKey.SYS_CONTACT, textOf(document, "systemContact"));
+        putNumber(values, EquipmentAttributeKey.IF_NUMBER, textOf(document, "interfaceCount"));
+        putNumber(values, EquipmentAttributeKey.HR_SYSTEM_PROCESSES, textOf(document, "processCount"));
+        putNumber(values, EquipmentAttributeKey.HR_MEMORY_SIZE, textOf(document, "memoryKb"));
+        return values;
+    }
+    
+    private static String textOf(JsonNode document, String field) {
+        JsonNode value = document.get(field);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+    
+    private static void putText(Map<EquipmentAttributeKey, Object> values, EquipmentAttributeKey key, String value) {
+        if (value != null && !value.isBlank()) {
+            values.put(key, value.trim());
+        }
+    }
+    
+    private static void putNumber(Map<EquipmentAttributeKey, Object> values, EquipmentAttributeKey key, String value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            values.put(key, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // Not a number (e.g. an agent error string): the attribute is left out
+        }
+    }
+    
+    private static String truncate(String value) {
+        return value != null && value.length() > EquipmentAttribute.MAX_TEXT_LENGTH
+            ? value.substring(0, EquipmentAttribute.MAX_TEXT_LENGTH) : value;
+    }
+}
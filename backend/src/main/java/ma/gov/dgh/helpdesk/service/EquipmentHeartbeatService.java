@@ -0,0 +1,183 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service ingesting equipment heartbeats at high rate.
+ * Heartbeats only mark a device as pending; a scheduled flush resolves pending IP addresses
+ * in one query and sets last seen and status of every pending device with a bulk UPDATE,
+ * so a flush costs a few statements however many heartbeats arrived in the interval.
+ * Last seen therefore has the precision of the flush interval.
+ */
+@Service
+public class EquipmentHeartbeatService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentHeartbeatService.class);
+    
+    // Keeps IN lists within the bind parameter limits of every supported database
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+    
+    private final EquipmentRepository equipmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeVersionService changeVersionService;
+    private final EquipmentInventoryService equipmentInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    
+    // Devices heard from since the last flush; repeated heartbeats collapse into one entry
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingIpAddresses = ConcurrentHashMap.newKeySet();
+    // Serializes flushes, including the final one at shutdown
+    private final Object flushLock = new Object();
+    
+    @Value("${equipment.heartbeat.max-batch-size:5000}")
+    private int maxBatchSize;
+    
+    @Autowired
+    public EquipmentHeartbeatService(EquipmentRepository equipmentRepository, ApplicationEventPublisher eventPublisher,
+                                     ChangeVersionService changeVersionService,
+                                     EquipmentInventoryService equipmentInventoryService,
+                                     PlatformTransactionManager transactionManager) {
+        this.equipmentRepository = equipmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.changeVersionService = changeVersionService;
+        this.equipmentInventoryService = equipmentInventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Record a batch of heartbeats by equipment id and/or IP address; returns the number accepted.
+     * Unknown devices are ignored at flush time.
+     */
+    public int record(Collection<Long> equipmentIds, Collection<String> ipAddresses) {
+        int size = (equipmentIds != null ? equipmentIds.size() : 0) + (ipAddresses != null ? ipAddresses.size() : 0);
+        if (size > maxBatchSize) {
+            throw new IllegalArgumentException("Heartbeat batch exceeds " + maxBatchSize + " entries");
+        }
+        
+        int accepted = 0;
+        if (equipmentIds != null) {
+            for (Long id : equipmentIds) {
+                if (id != null) {
+                    pendingIds.add(id);
+                    accepted++;
+                }
+            }
+        }
+        if (ipAddresses != null) {
+            for (String ipAddress : ipAddresses) {
+                if (ipAddress != null && !ipAddress.isBlank()) {
+                    pendingIpAddresses.add(ipAddress.trim());
+                    accepted++;
+                }
+            }
+        }
+        return accepted;
+    }
+    
+    /**
+     * Get the number of devices waiting for the next flush
+     */
+    public int getPendingCount() {
+        return pendingIds.size() + pendingIpAddresses.size();
+    }
+    
+    /**
+     * Write the pending heartbeats; on failure they are kept for the next flush
+     */
+    @Scheduled(fixedDelayString = "${equipment.heartbeat.flush-interval:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (pendingIds.isEmpty() && pendingIpAddresses.isEmpty()) {
+                return;
+            }
+            Set<Long> ids = drain(pendingIds);
+            Set<String> ipAddresses = drain(pendingIpAddresses);
+            
+            try {
+                Integer updated = transactionTemplate.execute(status -> apply(ids, ipAddresses, LocalDateTime.now()));
+                logger.debug("Flushed heartbeats of {} equipment", updated);
+            } catch (RuntimeException e) {
+                pendingIds.addAll(ids);
+                pendingIpAddresses.addAll(ipAddresses);
+                logger.error("Error flushing equipment heartbeats, will retry: {}", e.getMessage());
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    private int apply(Set<Long> ids, Set<String> ipAddresses, LocalDateTime seenAt) {
+        Set<Long> targetIds = new HashSet<>(ids);
+        for (List<String> chunk : chunks(ipAddresses)) {
+            for (Object[] row : equipmentRepository.findIdsByIpAddressIn(chunk)) {
+                targetIds.add((Long) row[0]);
+            }
+        }
+        
+        int updated = 0;
+        List<Long> cameOnline = new ArrayList<>();
+        for (List<Long> chunk : chunks(targetIds)) {
+            // Routine heartbeats are not pushed, only transitions back to online
+            cameOnline.addAll(equipmentRepository.findIdsByIdInAndStatusNot(chunk, EquipmentStatus.ONLINE));
+            updated += equipmentRepository.updateLastSeenAndStatus(chunk, seenAt, EquipmentStatus.ONLINE);
+        }
+        
+        // Transitions are rare, so loading those devices for their events stays cheap
+        for (List<Long> chunk : chunks(cameOnline)) {
+            for (Equipment equipment : equipmentRepository.findAllById(chunk)) {
+                eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_STATUS_CHANGED, equipment));
+            }
+        }
+        if (updated > 0) {
+            // The bulk UPDATE does not go through the entity listeners
+            changeVersionService.markChanged(Aggregate.EQUIPMENT);
+            equipmentInventoryService.recordStatus(targetIds, EquipmentStatus.ONLINE, seenAt);
+        }
+        return updated;
+    }
+    
+    private static <T> Set<T> drain(Set<T> pending) {
+        Set<T> drained = new HashSet<>();
+        for (T value : new ArrayList<>(pending)) {
+            if (pending.remove(value)) {
+                drained.add(value);
+            }
+        }
+        return drained;
+    }
+    
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += UPDATE_CHUNK_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + UPDATE_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,129 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentInterface;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentInterfaceRepository;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Service keeping the interface inventory of equipment in sync with SNMP walks.
+ * Rows are matched by ifIndex, so a refresh updates interfaces in place, inserts new ones
+ * and deletes the ones the device no longer reports; the Ethernet port count is kept
+ * on the equipment as its network ports.
+ */
+@Service
+public class EquipmentInterfaceService {
+    
+    private final EquipmentInterfaceRepository equipmentInterfaceRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final SnmpService snmpService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    public EquipmentInterfaceService(EquipmentInterfaceRepository equipmentInterfaceRepository,
+                                     EquipmentRepository equipmentRepository, SnmpService snmpService,
+                                     ApplicationEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager) {
+        this.equipmentInterfaceRepository = equipmentInterfaceRepository;
+        this.equipmentRepository = equipmentRepository;
+        this.snmpService = snmpService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Get the interfaces of a device
+     */
+    @Transactional(readOnly = true)
+    public List<EquipmentInterface> getInterfaces(Long equipmentId) {
+        if (!equipmentRepository.existsById(equipmentId)) {
+            throw new IllegalArgumentException("Equipment not found with ID: " + equipmentId);
+        }
+        return equipmentInterfaceRepository.findByEquipmentIdOrderByIfIndex(equipmentId);
+    }
+    
+    /**
+     * Walk the interface tables of a device and store the result.
+     * The walk runs outside any transaction; only the write is transactional.
+     */
+    public List<EquipmentInterface> refresh(Long equipmentId) {
+        String ipAddress = equipmentRepository.findById(equipmentId)
+            .map(Equipment::getIpAddress)
+            .orElseThrow(() -> new IllegalArgumentException("Equipment not found with ID: " + equipmentId));
+        if (ipAddress == null) {
+            throw new IllegalArgumentException("Equipment has no IP address: " + equipmentId);
+        }
+        
+        List<SnmpService.InterfaceInfo> walked = snmpService.getInterfaces(ipAddress);
+        if (walked == null) {
+            throw new IllegalStateException("SNMP interface walk failed for " + ipAddress);
+        }
+        return transactionTemplate.execute(status -> replaceInterfaces(equipmentId, walked));
+    }
+    
+    /**
+     * Replace the stored interfaces of a device with a walk result
+     */
+    @Transactional
+    public List<EquipmentInterface> replaceInterfaces(Long equipmentId, List<SnmpService.InterfaceInfo> walked) {
+        Map<Integer, EquipmentInterface> existing = new HashMap<>();
+        for (EquipmentInterface stored : equipmentInterfaceRepository.findByEquipmentIdOrderByIfIndex(equipmentId)) {
+            existing.put(stored.getIfIndex(), stored);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<EquipmentInterface> interfaces = new ArrayList<>(walked.size());
+        int ethernetPorts = 0;
+        for (SnmpService.InterfaceInfo info : walked) {
+            EquipmentInterface entry = existing.remove(info.getIfIndex());
+            if (entry == null) {
+                entry = new EquipmentInterface(equipmentId, info.getIfIndex());
+            }
+            entry.setName(truncate(info.getName()));
+            entry.setDescription(truncate(info.getDescription()));
+            entry.setAlias(truncate(info.getAlias()));
+            entry.setIfType(info.getIfType());
+            entry.setMtu(info.getMtu());
+            entry.setSpeedMbps(info.getSpeedMbps());
+            entry.setMacAddress(info.getMacAddress());
+            entry.setAdminStatus(info.getAdminStatus());
+            entry.setOperStatus(info.getOperStatus());
+            entry.setUpdatedAt(now);
+            interfaces.add(entry);
+            if (Objects.equals(info.getIfType(), EquipmentInterface.TYPE_ETHERNET)) {
+                ethernetPorts++;
+            }
+        }
+        equipmentInterfaceRepository.deleteAll(existing.values());
+        List<EquipmentInterface> saved = equipmentInterfaceRepository.saveAll(interfaces);
+        
+        Integer networkPorts = ethernetPorts;
+        equipmentRepository.findById(equipmentId)
+            .filter(equipment -> !networkPorts.equals(equipment.getNetworkPorts()))
+            .ifPresent(equipment -> {
+                equipment.setNetworkPorts(networkPorts);
+                eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_UPDATED, equipment));
+            });
+        return saved;
+    }
+    
+    private static String truncate(String value) {
+        return value != null && value.length() > 255 ? value.substring(0, 255) : value;
+    }
+}
@@ -0,0 +1,510 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.utils.IpAddresses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Service keeping the whole equipment inventory in memory for lookups and uniqueness checks.
+ * Equipment snapshots are indexed by id, IP address, MAC address and host name, with secondary
+ * indexes by type, status and location, and an ordered index of numeric IP keys for subnet
+ * queries. Committed writes are applied as they happen: entity saves and deletes through the JPA
+ * listener, bulk status and last-seen updates by the services running them. The index is loaded
+ * at startup and rebuilt periodically; until the first load completes, or when it is disabled,
+ * lookups go to the database. Snapshots leave out the specifications JSON: single lookups read it
+ * back by id for their copy, list queries return summaries without it.
+ */
+@Service
+public class EquipmentInventoryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentInventoryService.class);
+    
+    private final EquipmentRepository equipmentRepository;
+    private final TransactionTemplate readOnlyTemplate;
+    private final boolean enabled;
+    private final int pageSize;
+    
+    // Writes are serialized by this lock; readers use the current inventory without locking
+    private final Object lock = new Object();
+    private volatile Inventory inventory = new Inventory();
+    private volatile boolean ready;
+    // Ids of the equipment changed while a rebuild loads, read again before the swap; guarded by lock
+    private Set<Long> changedDuringRebuild;
+    
+    @Autowired
+    public EquipmentInventoryService(EquipmentRepository equipmentRepository, PlatformTransactionManager transactionManager,
+                                     @Value("${equipment.inventory.enabled:true}") boolean enabled,
+                                     @Value("${equipment.inventory.page-size:1000}") int pageSize) {
+        this.equipmentRepository = equipmentRepository;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Load the inventory once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        rebuild();
+    }
+    
+    /**
+     * Reload the inventory from the database, in pages of ids. A change committed meanwhile may
+     * or may not be in the pages read, so the equipment it touched is read again, until a pass
+     * sees no new change and the loaded inventory replaces the current one.
+     */
+    @Scheduled(fixedDelayString = "${equipment.inventory.rebuild-interval:3600000}",
+               initialDelayString = "${equipment.inventory.rebuild-interval:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            if (changedDuringRebuild != null) {
+                return;
+            }
+            changedDuringRebuild = new HashSet<>();
+        }
+        
+        Inventory loaded = new Inventory();
+        try {
+            long afterId = 0;
+            List<Equipment> page;
+            do {
+                long from = afterId;
+                page = readOnlyTemplate.execute(status -> equipmentRepository.findPageAfterId(from, PageRequest.of(0, pageSize))
+                    .stream().map(EquipmentInventoryService::snapshot).toList());
+                for (Equipment equipment : page) {
+                    loaded.put(equipment);
+                    afterId = equipment.getId();
+                }
+            } while (page.size() == pageSize);
+            
+            while (true) {
+                Set<Long> changed;
+                synchronized (lock) {
+                    changed = changedDuringRebuild;
+                    if (changed.isEmpty()) {
+                        changedDuringRebuild = null;
+                        inventory = loaded;
+                        ready = true;
+                        break;
+                    }
+                    changedDuringRebuild = new HashSet<>();
+                }
+                reload(loaded, changed);
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+            logger.error("Error loading the equipment inventory: {}", e.getMessage());
+            return;
+        }
+        logger.info("Equipment inventory loaded: {} equipment in {} ms", loaded.byId.size(),
+            System.currentTimeMillis() - start);
+    }
+    
+    // Current rows of the given equipment; the ones no longer found were deleted
+    private void reload(Inventory loaded, Set<Long> equipmentIds) {
+        List<Equipment> rows = readOnlyTemplate.execute(status -> equipmentRepository.findAllById(equipmentIds)
+            .stream().map(EquipmentInventoryService::snapshot).toList());
+        Set<Long> deleted = new HashSet<>(equipmentIds);
+        for (Equipment equipment : rows) {
+            deleted.remove(equipment.getId());
+            loaded.put(equipment);
+        }
+        deleted.forEach(loaded::remove);
+    }
+    
+    /**
+     * Record a saved equipment; applied when the current transaction commits
+     */
+    public void recordSaved(Equipment equipment) {
+        if (equipment.getId() != null) {
+            Equipment saved = snapshot(equipment);
+            afterCommit(List.of(saved.getId()), current -> current.put(saved));
+        }
+    }
+    
+    /**
+     * Record a deleted equipment; applied when the current transaction commits
+     */
+    public void recordDeleted(Long equipmentId) {
+        afterCommit(List.of(equipmentId), current -> current.remove(equipmentId));
+    }
+    
+    /**
+     * Record a bulk status change, with the last seen time when it was set too (null keeps it);
+     * applied when the current transaction commits
+     */
+    public void recordStatus(Collection<Long> equipmentIds, EquipmentStatus status, LocalDateTime lastSeen) {
+        List<Long> ids = List.copyOf(equipmentIds);
+        afterCommit(ids, current -> {
+            for (Long id : ids) {
+                Equipment existing = current.byId.get(id);
+                if (existing != null) {
+                    Equipment changed = snapshot(existing);
+                    changed.setStatus(status);
+                    if (lastSeen != null) {
+                        changed.setLastSeen(lastSeen);
+                    }
+                    current.put(changed);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Record a change to the ticket counters of an equipment; applied when the current transaction commits
+     */
+    public void recordTicketCounts(Long equipmentId, int openDelta, int totalDelta, LocalDateTime ticketAt) {
+        afterCommit(List.of(equipmentId), current -> {
+            Equipment existing = current.byId.get(equipmentId);
+            if (existing != null) {
+                Equipment changed = snapshot(existing);
+                changed.setOpenTicketCount(existing.getOpenTicketCount() + openDelta);
+                changed.setTotalTicketCount(existing.getTotalTicketCount() + totalDelta);
+                if (totalDelta > 0 && (existing.getLastTicketAt() == null || existing.getLastTicketAt().isBefore(ticketAt))) {
+                    changed.setLastTicketAt(ticketAt);
+                }
+                current.put(changed);
+            }
+        });
+    }
+    
+    public Optional<Equipment> findByIpAddress(String ipAddress) {
+        if (!ready) {
+            return equipmentRepository.findByIpAddress(ipAddress);
+        }
+        Inventory current = inventory;
+        return lookup(current, current.byIpAddress, ipAddress);
+    }
+    
+    public Optional<Equipment> findByMacAddress(String macAddress) {
+        if (!ready) {
+            return equipmentRepository.findByMacAddress(macAddress);
+        }
+        Inventory current = inventory;
+        return lookup(current, current.byMacAddress, macAddress);
+    }
+    
+    public Optional<Equipment> findByHostname(String hostname) {
+        if (!ready) {
+            return equipmentRepository.findByHostname(hostname);
+        }
+        Inventory current = inventory;
+        return lookup(current, current.byHostname, hostname);
+    }
+    
+    /**
+     * Get the id of the equipment using an IP address (uniqueness checks)
+     */
+    public Optional<Long> findIdByIpAddress(String ipAddress) {
+        if (!ready) {
+            return equipmentRepository.findByIpAddress(ipAddress).map(Equipment::getId);
+        }
+        return Optional.ofNullable(Inventory.owner(inventory.byIpAddress, ipAddress));
+    }
+    
+    /**
+     * Get the id of the equipment using a MAC address (uniqueness checks)
+     */
+    public Optional<Long> findIdByMacAddress(String macAddress) {
+        if (!ready) {
+            return equipmentRepository.findByMacAddress(macAddress).map(Equipment::getId);
+        }
+        return Optional.ofNullable(Inventory.owner(inventory.byMacAddress, macAddress));
+    }
+    
+    /**
+     * Get the id of the equipment using a host name (uniqueness checks)
+     */
+    public Optional<Long> findIdByHostname(String hostname) {
+        if (!ready) {
+            return equipmentRepository.findByHostname(hostname).map(Equipment::getId);
+        }
+        return Optional.ofNullable(Inventory.owner(inventory.byHostname, hostname));
+    }
+    
+    public List<EquipmentSummary> findByType(EquipmentType equipmentType) {
+        if (!ready) {
+            return equipmentRepository.findSummariesByEquipmentType(equipmentType);
+        }
+        Inventory current = inventory;
+        return collect(current, current.byType.get(equipmentType), equipment -> equipmentType == equipment.getEquipmentType());
+    }
+    
+    public List<EquipmentSummary> findByStatus(EquipmentStatus status) {
+        if (!ready) {
+            return equipmentRepository.findSummariesByStatus(status);
+        }
+        Inventory current = inventory;
+        return collect(current, current.byStatus.get(status), equipment -> status == equipment.getStatus());
+    }
+    
+    public List<EquipmentSummary> findByLocation(String location) {
+        if (!ready) {
+            return equipmentRepository.findSummariesByLocation(location);
+        }
+        Inventory current = inventory;
+        return collect(current, current.byLocation.get(location), equipment -> location.equals(equipment.getLocation()));
+    }
+    
+    /**
+     * Get the equipment whose IP address lies in a numeric key range, in address order
+     */
+    public List<EquipmentSummary> findByIpRange(BigInteger first, BigInteger last) {
+        if (!ready) {
+            return equipmentRepository.findSummariesByIpNumericBetween(first, last);
+        }
+        Inventory current = inventory;
+        List<EquipmentSummary> result = new ArrayList<>();
+        for (long[] ids : current.byIpKey.subMap(first, true, last, true).values()) {
+            for (long id : ids) {
+                Equipment equipment = current.byId.get(id);
+                BigInteger key = equipment != null ? IpAddresses.toKey(equipment.getIpAddress()) : null;
+                if (key != null && key.compareTo(first) >= 0 && key.compareTo(last) <= 0) {
+                    result.add(new EquipmentSummary(equipment));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get the numeric IP keys in use within a range, in address order
+     */
+    public List<BigInteger> findIpKeysInRange(BigInteger first, BigInteger last) {
+        if (!ready) {
+            return equipmentRepository.findIpNumericBetween(first, last);
+        }
+        return new ArrayList<>(inventory.byIpKey.subMap(first, true, last, true).keySet());
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int getSize() {
+        return inventory.byId.size();
+    }
+    
+    private void afterCommit(Collection<Long> equipmentIds, Consumer<Inventory> change) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(equipmentIds, change);
+                }
+            });
+        } else {
+            apply(equipmentIds, change);
+        }
+    }
+    
+    private void apply(Collection<Long> equipmentIds, Consumer<Inventory> change) {
+        synchronized (lock) {
+            change.accept(inventory);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(equipmentIds);
+            }
+        }
+    }
+    
+    private Optional<Equipment> lookup(Inventory current, Map<String, long[]> index, String key) {
+        Long id = Inventory.owner(index, key);
+        Equipment equipment = id != null ? current.byId.get(id) : null;
+        if (equipment == null) {
+            return Optional.empty();
+        }
+        Equipment copy = snapshot(equipment);
+        copy.setSpecifications(equipmentRepository.findSpecificationsById(id).orElse(null));
+        return Optional.of(copy);
+    }
+    
+    // Index sets may briefly hold an id whose snapshot moved on, so each match is checked again
+    private static List<EquipmentSummary> collect(Inventory current, Set<Long> ids, Predicate<Equipment> matches) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<EquipmentSummary> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Equipment equipment = current.byId.get(id);
+            if (equipment != null && matches.test(equipment)) {
+                result.add(new EquipmentSummary(equipment));
+            }
+        }
+        result.sort(Comparator.comparing(EquipmentSummary::getId));
+        return result;
+    }
+    
+    /**
+     * Detached copy of the columns of an equipment. Tickets are left out: they are loaded lazily,
+     * never serialized and summarized by the ticket counters. The specifications are left out too,
+     * since no inventory query reads them. Callers get copies, so the indexed snapshots never change.
+     */
+    static Equipment snapshot(Equipment source) {
+        Equipment copy = new Equipment();
+        copy.setId(source.getId());
+        copy.setHostname(source.getHostname());
+        copy.setIpAddress(source.getIpAddress());
+        copy.setMacAddress(source.getMacAddress());
+        copy.setEquipmentType(source.getEquipmentType());
+        copy.setManufacturer(source.getManufacturer());
+        copy.setModel(source.getModel());
+        copy.setSerialNumber(source.getSerialNumber());
+        copy.setOsName(source.getOsName());
+        copy.setOsVersion(source.getOsVersion());
+        copy.setLocation(source.getLocation());
+        copy.setStatus(source.getStatus());
+        copy.setLastSeen(source.getLastSeen());
+        copy.setCpuInfo(source.getCpuInfo());
+        copy.setMemoryGb(source.getMemoryGb());
+        copy.setDiskGb(source.getDiskGb());
+        copy.setNetworkPorts(source.getNetworkPorts());
+        copy.setIsManaged(source.getIsManaged());
+        copy.setAssetTag(source.getAssetTag());
+        copy.setPurchaseDate(source.getPurchaseDate());
+        copy.setWarrantyExpiry(source.getWarrantyExpiry());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setOpenTicketCount(source.getOpenTicketCount());
+        copy.setTotalTicketCount(source.getTotalTicketCount());
+        copy.setLastTicketAt(source.getLastTicketAt());
+        copy.setTickets(null);
+        return copy;
+    }
+    
+    /**
+     * One generation of the indexes; only modified under the lock
+     */
+    private static class Inventory {
+        private final Map<Long, Equipment> byId = new ConcurrentHashMap<>();
+        // Ids per key in ascending order; the schema does not prevent duplicates, the lowest id owns the key
+        private final Map<String, long[]> byIpAddress = new ConcurrentHashMap<>();
+        private final Map<String, long[]> byMacAddress = new ConcurrentHashMap<>();
+        private final Map<String, long[]> byHostname = new ConcurrentHashMap<>();
+        // Ordered by numeric IP key: a subnet is one sub-map
+        private final ConcurrentSkipListMap<BigInteger, long[]> byIpKey = new ConcurrentSkipListMap<>();
+        private final Map<EquipmentType, Set<Long>> byType = new ConcurrentHashMap<>();
+        private final Map<EquipmentStatus, Set<Long>> byStatus = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> byLocation = new ConcurrentHashMap<>();
+        
+        void put(Equipment equipment) {
+            remove(equipment.getId());
+            Long id = equipment.getId();
+            byId.put(id, equipment);
+            putKey(byIpAddress, equipment.getIpAddress(), id);
+            putKey(byMacAddress, equipment.getMacAddress(), id);
+            putKey(byHostname, equipment.getHostname(), id);
+            putKey(byIpKey, IpAddresses.toKey(equipment.getIpAddress()), id);
+            addToSet(byType, equipment.getEquipmentType(), id);
+            addToSet(byStatus, equipment.getStatus(), id);
+            addToSet(byLocation, equipment.getLocation(), id);
+        }
+        
+        void remove(Long id) {
+            Equipment previous = byId.remove(id);
+            if (previous == null) {
+                return;
+            }
+            removeKey(byIpAddress, previous.getIpAddress(), id);
+            removeKey(byMacAddress, previous.getMacAddress(), id);
+            removeKey(byHostname, previous.getHostname(), id);
+            removeKey(byIpKey, IpAddresses.toKey(previous.getIpAddress()), id);
+            removeFromSet(byType, previous.getEquipmentType(), id);
+            removeFromSet(byStatus, previous.getStatus(), id);
+            removeFromSet(byLocation, previous.getLocation(), id);
+        }
+        
+        static Long owner(Map<String, long[]> index, String key) {
+            long[] ids = key != null ? index.get(key) : null;
+            return ids != null ? ids[0] : null;
+        }
+        
+        private static <K> void putKey(Map<K, long[]> index, K key, long id) {
+            if (key == null) {
+                return;
+            }
+            index.compute(key, (k, ids) -> {
+                if (ids == null) {
+                    return new long[] {id};
+                }
+                int position = Arrays.binarySearch(ids, id);
+                if (position >= 0) {
+                    return ids;
+                }
+                int insertAt = -position - 1;
+                long[] added = new long[ids.length + 1];
+                System.arraycopy(ids, 0, added, 0, insertAt);
+                added[insertAt] = id;
+                System.arraycopy(ids, insertAt, added, insertAt + 1, ids.length - insertAt);
+                return added;
+            });
+        }
+        
+        private static <K> void removeKey(Map<K, long[]> index, K key, long id) {
+            if (key == null) {
+                return;
+            }
+            index.computeIfPresent(key, (k, ids) -> {
+                long[] remaining = Arrays.stream(ids).filter(other -> other != id).toArray();
+                return remaining.length > 0 ? remaining : null;
+            });
+        }
+        
+        private static <K> void addToSet(Map<K, Set<Long>> index, K key, Long id) {
+            if (key != null) {
+                index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+        
+        private static <K> void removeFromSet(Map<K, Set<Long>> index, K key, Long id) {
+            if (key != null) {
+                index.computeIfPresent(key, (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Service turning equipment that stopped sending heartbeats to OFFLINE.
+ * A scheduled sweep runs one projection query and one set-based UPDATE per distinct offline
+ * threshold, publishes status events from the projected columns, and optionally opens a ticket
+ * for critical equipment types, so no Equipment entity is ever loaded.
+ */
+@Service
+public class EquipmentOfflineService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentOfflineService.class);
+    
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+    
+    private static final Set<EquipmentType> NETWORK_TYPES =
+        EnumSet.of(EquipmentType.SWITCH, EquipmentType.ROUTER, EquipmentType.FIREWALL, EquipmentType.ACCESS_POINT);
+    
+    private final EquipmentRepository equipmentRepository;
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+    private final TicketService ticketService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeVersionService changeVersionService;
+    private final EquipmentInventoryService equipmentInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final Duration defaultThreshold;
+    private final Map<EquipmentType, Duration> thresholds = new EnumMap<>(EquipmentType.class);
+    private final Set<EquipmentType> autoTicketTypes = EnumSet.noneOf(EquipmentType.class);
+    // Heartbeats sent while the application was down were lost, so nothing is stale before a full threshold
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    
+    @Value("${equipment.offline.enabled:true}")
+    private boolean sweepEnabled;
+    
+    @Value("${equipment.offline.ticket-creator:admin}")
+    private String ticketCreator;
+    
+    @Autowired
+    public EquipmentOfflineService(EquipmentRepository equipmentRepository, TicketRepository ticketRepository,
+                                   UserRepository userRepository, TicketService ticketService,
+                                   ApplicationEventPublisher eventPublisher, ChangeVersionService changeVersionService,
+                                   EquipmentInventoryService equipmentInventoryService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${equipment.offline.default-threshold:15m}") String defaultThreshold,
+                                   @Value("${equipment.offline.thresholds:}") String thresholds,
+                                   @Value("${equipment.offline.auto-ticket-types:}") String autoTicketTypes) {
+        this.equipmentRepository = equipmentRepository;
+        this.ticketRepository = ticketRepository;
+        this.userRepository = userRepository;
+        this.ticketService = ticketService;
+        this.eventPublisher = eventPublisher;
+        this.changeVersionService = changeVersionService;
+        this.equipmentInventoryService = equipmentInventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultThreshold = DurationStyle.detectAndParse(defaultThreshold);
+        
+        // Format: TYPE:duration pairs separated by commas, e.g. SERVER:5m,LAPTOP:8h
+        for (String entry : thresholds.split(",")) {
+            if (!entry.isBlank()) {
+                String[] parts = entry.split(":", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid offline threshold: " + entry);
+                }
+                this.thresholds.put(EquipmentType.valueOf(parts[0].trim().toUpperCase()),
+                    DurationStyle.detectAndParse(parts[1].trim()));
+            }
+        }
+        for (String type : autoTicketTypes.split(",")) {
+            if (!type.isBlank()) {
+                this.autoTicketTypes.add(EquipmentType.valueOf(type.trim().toUpperCase()));
+            }
+        }
+    }
+    
+    /**
+     * Mark stale online equipment as offline; returns the number of devices that went offline
+     */
+    @Scheduled(fixedDelayString = "${equipment.offline.sweep-interval:60000}",
+               initialDelayString = "${equipment.offline.sweep-interval:60000}")
+    public int sweep() {
+        if (!sweepEnabled) {
+            return 0;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> wentOffline = new ArrayList<>();
+        for (Map.Entry<Duration, Set<EquipmentType>> group : typesByThreshold().entrySet()) {
+            if (group.getValue().isEmpty() || startedAt.plus(group.getKey()).isAfter(now)) {
+                continue;
+            }
+            LocalDateTime cutoff = now.minus(group.getKey());
+            boolean includeUntyped = group.getKey().equals(defaultThreshold);
+            List<Object[]> rows = transactionTemplate.execute(status -> markOffline(group.getValue(), includeUntyped, cutoff));
+            if (rows != null) {
+                wentOffline.addAll(rows);
+            }
+        }
+        
+        if (!wentOffline.isEmpty()) {
+            logger.info("Marked {} equipment offline", wentOffline.size());
+            openTickets(wentOffline);
+        }
+        return wentOffline.size();
+    }
+    
+    private List<Object[]> markOffline(Set<EquipmentType> types, boolean includeUntyped, LocalDateTime cutoff) {
+        List<Object[]> candidates = equipmentRepository.findStaleEquipment(EquipmentStatus.ONLINE, cutoff, types, includeUntyped);
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        
+        List<Long> ids = candidates.stream().map(row -> (Long) row[0]).toList();
+        int updated = 0;
+        // Keeps IN lists within the bind parameter limits of every supported database
+        for (int i = 0; i < ids.size(); i += UPDATE_CHUNK_SIZE) {
+            updated += equipmentRepository.updateStaleStatus(ids.subList(i, Math.min(i + UPDATE_CHUNK_SIZE, ids.size())),
+                EquipmentStatus.ONLINE, EquipmentStatus.OFFLINE, cutoff);
+        }
+        List<Object[]> offline = candidates;
+        if (updated < ids.size()) {
+            // A heartbeat flush raced the sweep; only report the devices actually switched
+            Set<Long> stillUp = new HashSet<>(equipmentRepository.findIdsByIdInAndStatusNot(ids, EquipmentStatus.OFFLINE));
+            offline = candidates.stream().filter(row -> !stillUp.contains((Long) row[0])).toList();
+        }
+        
+        for (Object[] row : offline) {
+            eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_STATUS_CHANGED, (Long) row[0],
+                (String) row[1], (String) row[2], (EquipmentType) row[3], EquipmentStatus.OFFLINE,
+                (String) row[4], (LocalDateTime) row[5]));
+        }
+        // The bulk UPDATE does not go through the entity listeners
+        changeVersionService.markChanged(Aggregate.EQUIPMENT);
+        equipmentInventoryService.recordStatus(offline.stream().map(row -> (Long) row[0]).toList(),
+            EquipmentStatus.OFFLINE, null);
+        return offline;
+    }
+    
+    /**
+     * Open one ticket per critical device that went offline, unless it already has an open ticket
+     */
+    private void openTickets(List<Object[]> wentOffline) {
+        List<Object[]> critical = wentOffline.stream()
+            .filter(row -> row[3] != null && autoTicketTypes.contains((EquipmentType) row[3]))
+            .toList();
+        if (critical.isEmpty()) {
+            return;
+        }
+        Optional<User> creator = userRepository.findByLdapUsername(ticketCreator);
+        if (creator.isEmpty()) {
+            logger.warn("Offline tickets not opened: creator user '{}' not found", ticketCreator);
+            return;
+        }
+        
+        Set<Long> alreadyOpen = new HashSet<>(ticketRepository.findEquipmentIdsWithOpenTickets(
+            critical.stream().map(row -> (Long) row[0]).toList()));
+        for (Object[] row : critical) {
+            Long equipmentId = (Long) row[0];
+            if (alreadyOpen.contains(equipmentId)) {
+                continue;
+            }
+            try {
+                ticketService.createTicket(offlineTicket(row, creator.get()));
+            } catch (Exception e) {
+                logger.error("Error opening offline ticket for equipment {}: {}", equipmentId, e.getMessage());
+            }
+        }
+    }
+    
+    private Ticket offlineTicket(Object[] row, User creator) {
+        String hostname = row[1] != null ? (String) row[1] : "equipment #" + row[0];
+        EquipmentType type = (EquipmentType) row[3];
+        Ticket ticket = new Ticket("Equipment offline: " + hostname + (row[2] != null ? " (" + row[2] + ")" : ""),
+            "No heartbeat received since " + row[5] + (row[4] != null ? " at " + row[4] : "")
+                + "; the device was marked offline by the monitoring sweep.",
+            creator);
+        ticket.setCategory(NETWORK_TYPES.contains(type) ? TicketCategory.NETWORK : TicketCategory.HARDWARE);
+        ticket.setPriority(TicketPriority.HIGH);
+        // A reference is enough to set the foreign key
+        ticket.setEquipment(equipmentRepository.getReferenceById((Long) row[0]));
+        return ticket;
+    }
+    
+    // Types grouped by offline threshold, so each distinct threshold costs one query and one UPDATE
+    private Map<Duration, Set<EquipmentType>> typesByThreshold() {
+        Map<Duration, Set<EquipmentType>> groups = new TreeMap<>();
+        groups.put(defaultThreshold, EnumSet.noneOf(EquipmentType.class));
+        for (EquipmentType type : EquipmentType.values()) {
+            groups.computeIfAbsent(thresholds.getOrDefault(type, defaultThreshold),
+                threshold -> EnumSet.noneOf(EquipmentType.class)).add(type);
+        }
+        return groups;
+    }
+}
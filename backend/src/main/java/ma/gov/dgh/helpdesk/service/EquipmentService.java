@@ -1,13 +1,20 @@
 package ma.gov.dgh.helpdesk.service;
 
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
 import ma.gov.dgh.helpdesk.entity.Equipment;
 import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
 import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentAttributeRepository;
+import ma.gov.dgh.helpdesk.repository.EquipmentInterfaceRepository;
 import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -22,10 +29,22 @@ import java.util.Optional;
 public class EquipmentService {
     
     private final EquipmentRepository equipmentRepository;
+    private final EquipmentInterfaceRepository equipmentInterfaceRepository;
+    private final EquipmentAttributeRepository equipmentAttributeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EquipmentInventoryService equipmentInventoryService;
     
     @Autowired
-    public EquipmentService(EquipmentRepository equipmentRepository) {
+    public EquipmentService(EquipmentRepository equipmentRepository,
+                            EquipmentInterfaceRepository equipmentInterfaceRepository,
+                            EquipmentAttributeRepository equipmentAttributeRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            EquipmentInventoryService equipmentInventoryService) {
         this.equipmentRepository = equipmentRepository;
+        this.equipmentInterfaceRepository = equipmentInterfaceRepository;
+        this.equipmentAttributeRepository = equipmentAttributeRepository;
+        this.eventPublisher = eventPublisher;
+        this.equipmentInventoryService = equipmentInventoryService;
     }
     
     /**
@@ -33,22 +52,24 @@ public class EquipmentService {
      */
     public Equipment createEquipment(Equipment equipment) {
         // Check for duplicate IP address
-        if (equipment.getIpAddress() != null && equipmentRepository.existsByIpAddress(equipment.getIpAddress())) {
+        if (equipment.getIpAddress() != null && equipmentInventoryService.findIdByIpAddress(equipment.getIpAddress()).isPresent()) {
             throw new IllegalArgumentException("Equipment with IP address already exists: " + equipment.getIpAddress());
         }
         
         // Check for duplicate MAC address
-        if (equipment.getMacAddress() != null && equipmentRepository.existsByMacAddress(equipment.getMacAddress())) {
+        if (equipment.getMacAddress() != null && equipmentInventoryService.findIdByMacAddress(equipment.getMacAddress()).isPresent()) {
             throw new IllegalArgumentException("Equipment with MAC address already exists: " + equipment.getMacAddress());
         }
         
         // Check for duplicate hostname
-        if (equipment.getHostname() != null && equipmentRepository.existsByHostname(equipment.getHostname())) {
+        if (equipment.getHostname() != null && equipmentInventoryService.findIdByHostname(equipment.getHostname()).isPresent()) {
             throw new IllegalArgumentException("Equipment with hostname already exists: " + equipment.getHostname());
         }
         
         equipment.setLastSeen(LocalDateTime.now());
-        return equipmentRepository.save(equipment);
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_CREATED, savedEquipment));
+        return savedEquipment;
     }
     
     /**
@@ -66,29 +87,37 @@ public class EquipmentService {
         
         // Check for duplicate IP address (excluding current equipment)
         if (equipment.getIpAddress() != null) {
-            Optional<Equipment> equipmentWithSameIp = equipmentRepository.findByIpAddress(equipment.getIpAddress());
-            if (equipmentWithSameIp.isPresent() && !equipmentWithSameIp.get().getId().equals(equipment.getId())) {
+            Optional<Long> equipmentWithSameIp = equipmentInventoryService.findIdByIpAddress(equipment.getIpAddress());
+            if (equipmentWithSameIp.isPresent() && !equipmentWithSameIp.get().equals(equipment.getId())) {
                 throw new IllegalArgumentException("Another equipment with IP address already exists: " + equipment.getIpAddress());
             }
         }
         
         // Check for duplicate MAC address (excluding current equipment)
         if (equipment.getMacAddress() != null) {
-            Optional<Equipment> equipmentWithSameMac = equipmentRepository.findByMacAddress(equipment.getMacAddress());
-            if (equipmentWithSameMac.isPresent() && !equipmentWithSameMac.get().getId().equals(equipment.getId())) {
+            Optional<Long> equipmentWithSameMac = equipmentInventoryService.findIdByMacAddress(equipment.getMacAddress());
+            if (equipmentWithSameMac.isPresent() && !equipmentWithSameMac.get().equals(equipment.getId())) {
                 throw new IllegalArgumentException("Another equipment with MAC address already exists: " + equipment.getMacAddress());
             }
         }
         
         // Check for duplicate hostname (excluding current equipment)
         if (equipment.getHostname() != null) {
-            Optional<Equipment> equipmentWithSameHostname = equipmentRepository.findByHostname(equipment.getHostname());
-            if (equipmentWithSameHostname.isPresent() && !equipmentWithSameHostname.get().getId().equals(equipment.getId())) {
+            Optional<Long> equipmentWithSameHostname = equipmentInventoryService.findIdByHostname(equipment.getHostname());
+            if (equipmentWithSameHostname.isPresent() && !equipmentWithSameHostname.get().equals(equipment.getId())) {
                 throw new IllegalArgumentException("Another equipment with hostname already exists: " + equipment.getHostname());
             }
         }
         
-        return equipmentRepository.save(equipment);
+        // Ticket counters are kept by EquipmentTicketCountService, never taken from the request
+        Equipment existing = existingEquipment.get();
+        equipment.setOpenTicketCount(existing.getOpenTicketCount());
+        equipment.setTotalTicketCount(existing.getTotalTicketCount());
+        equipment.setLastTicketAt(existing.getLastTicketAt());
+        
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_UPDATED, savedEquipment));
+        return savedEquipment;
     }
     
     /**
@@ -100,85 +129,85 @@ public class EquipmentService {
     }
     
     /**
-     * Find equipment by IP address
+     * Find equipment by IP address (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Equipment> findByIpAddress(String ipAddress) {
-        return equipmentRepository.findByIpAddress(ipAddress);
+        return equipmentInventoryService.findByIpAddress(ipAddress);
     }
     
     /**
-     * Find equipment by MAC address
+     * Find equipment by MAC address (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Equipment> findByMacAddress(String macAddress) {
-        return equipmentRepository.findByMacAddress(macAddress);
+        return equipmentInventoryService.findByMacAddress(macAddress);
     }
     
     /**
-     * Find equipment by hostname
+     * Find equipment by hostname (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Equipment> findByHostname(String hostname) {
-        return equipmentRepository.findByHostname(hostname);
+        return equipmentInventoryService.findByHostname(hostname);
     }
     
     /**
-     * Get all equipment
+     * Get summaries of all equipment
      */
     @Transactional(readOnly = true)
-    public List<Equipment> findAll() {
-        return equipmentRepository.findAll();
+    public List<EquipmentSummary> findAllSummaries() {
+        return equipmentRepository.findAllSummaries();
     }
     
     /**
-     * Get equipment by type
+     * Get equipment by type (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
-    public List<Equipment> findByType(EquipmentType equipmentType) {
-        return equipmentRepository.findByEquipmentType(equipmentType);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<EquipmentSummary> findByType(EquipmentType equipmentType) {
+        return equipmentInventoryService.findByType(equipmentType);
     }
     
     /**
-     * Get equipment by status
+     * Get equipment by status (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
-    public List<Equipment> findByStatus(EquipmentStatus status) {
-        return equipmentRepository.findByStatus(status);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<EquipmentSummary> findByStatus(EquipmentStatus status) {
+        return equipmentInventoryService.findByStatus(status);
     }
     
     /**
-     * Get equipment by location
+     * Get equipment by location (served from the in-memory inventory)
      */
-    @Transactional(readOnly = true)
-    public List<Equipment> findByLocation(String location) {
-        return equipmentRepository.findByLocation(location);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<EquipmentSummary> findByLocation(String location) {
+        return equipmentInventoryService.findByLocation(location);
     }
     
     /**
      * Get managed equipment
      */
     @Transactional(readOnly = true)
-    public List<Equipment> findManagedEquipment() {
-        return equipmentRepository.findByIsManagedTrue();
+    public List<EquipmentSummary> findManagedEquipment() {
+        return equipmentRepository.findSummariesByIsManaged(true);
     }
     
     /**
      * Get unmanaged equipment
      */
     @Transactional(readOnly = true)
-    public List<Equipment> findUnmanagedEquipment() {
-        return equipmentRepository.findByIsManagedFalse();
+    public List<EquipmentSummary> findUnmanagedEquipment() {
+        return equipmentRepository.findSummariesByIsManaged(false);
     }
     
     /**
      * Get equipment with filters and pagination
      */
     @Transactional(readOnly = true)
-    public Page<Equipment> findEquipmentWithFilters(String search, EquipmentType equipmentType, 
-                                                   EquipmentStatus status, String location, 
-                                                   Boolean isManaged, Pageable pageable) {
-        return equipmentRepository.findEquipmentWithFilters(search, equipmentType, status, location, isManaged, pageable);
+    public Page<EquipmentSummary> findEquipmentWithFilters(String search, EquipmentType equipmentType, 
+                                                          EquipmentStatus status, String location, 
+                                                          Boolean isManaged, Pageable pageable) {
+        return equipmentRepository.findSummariesWithFilters(search, equipmentType, status, location, isManaged, pageable);
     }
     
     /**
@@ -193,7 +222,9 @@ public class EquipmentService {
         Equipment equipment = equipmentOpt.get();
         equipment.setStatus(status);
         equipment.setLastSeen(LocalDateTime.now());
-        return equipmentRepository.save(equipment);
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_STATUS_CHANGED, savedEquipment));
+        return savedEquipment;
     }
     
     /**
@@ -205,10 +236,7 @@ public class EquipmentService {
             throw new IllegalArgumentException("Equipment not found with ID: " + equipmentId);
         }
         
-        Equipment equipment = equipmentOpt.get();
-        equipment.setLastSeen(LocalDateTime.now());
-        equipment.setStatus(EquipmentStatus.ONLINE);
-        return equipmentRepository.save(equipment);
+        return markOnline(equipmentOpt.get());
     }
     
     /**
@@ -220,10 +248,7 @@ public class EquipmentService {
             throw new IllegalArgumentException("Equipment not found with IP address: " + ipAddress);
         }
         
-        Equipment equipment = equipmentOpt.get();
-        equipment.setLastSeen(LocalDateTime.now());
-        equipment.setStatus(EquipmentStatus.ONLINE);
-        return equipmentRepository.save(equipment);
+        return markOnline(equipmentOpt.get());
     }
     
     /**
@@ -237,7 +262,9 @@ public class EquipmentService {
         
         Equipment equipment = equipmentOpt.get();
         equipment.setIsManaged(true);
-        return equipmentRepository.save(equipment);
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_UPDATED, savedEquipment));
+        return savedEquipment;
     }
     
     /**
@@ -251,7 +278,9 @@ public class EquipmentService {
         
         Equipment equipment = equipmentOpt.get();
         equipment.setIsManaged(false);
-        return equipmentRepository.save(equipment);
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_UPDATED, savedEquipment));
+        return savedEquipment;
     }
     
     /**
@@ -261,26 +290,29 @@ public class EquipmentService {
         if (!equipmentRepository.existsById(equipmentId)) {
             throw new IllegalArgumentException("Equipment not found with ID: " + equipmentId);
         }
+        equipmentInterfaceRepository.deleteByEquipmentId(equipmentId);
+        equipmentAttributeRepository.deleteByEquipmentId(equipmentId);
         equipmentRepository.deleteById(equipmentId);
+        eventPublisher.publishEvent(DomainEvent.deleted(DomainEventType.EQUIPMENT_DELETED, equipmentId));
     }
     
     /**
      * Find equipment not seen for specified hours
      */
     @Transactional(readOnly = true)
-    public List<Equipment> findEquipmentNotSeenSince(int hours) {
+    public List<EquipmentSummary> findEquipmentNotSeenSince(int hours) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusHours(hours);
-        return equipmentRepository.findEquipmentNotSeenSince(cutoffTime);
+        return equipmentRepository.findSummariesNotSeenSince(cutoffTime);
     }
     
     /**
      * Find equipment with warranty expiring soon
      */
     @Transactional(readOnly = true)
-    public List<Equipment> findEquipmentWithExpiringWarranty(int daysFromNow) {
+    public List<EquipmentSummary> findEquipmentWithExpiringWarranty(int daysFromNow) {
         LocalDateTime startDate = LocalDateTime.now();
         LocalDateTime endDate = LocalDateTime.now().plusDays(daysFromNow);
-        return equipmentRepository.findByWarrantyExpiryBetween(startDate, endDate);
+        return equipmentRepository.findSummariesByWarrantyExpiryBetween(startDate, endDate);
     }
     
     /**
@@ -329,7 +361,9 @@ public class EquipmentService {
             equipment.setModel(model);
             equipment.setLastSeen(LocalDateTime.now());
             equipment.setStatus(EquipmentStatus.ONLINE);
-            return equipmentRepository.save(equipment);
+            Equipment savedEquipment = equipmentRepository.save(equipment);
+            eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_DISCOVERED, savedEquipment));
+            return savedEquipment;
         } else {
             // Create new equipment
             Equipment newEquipment = new Equipment(ipAddress, type);
@@ -339,8 +373,24 @@ public class EquipmentService {
             newEquipment.setModel(model);
             newEquipment.setLastSeen(LocalDateTime.now());
             newEquipment.setStatus(EquipmentStatus.ONLINE);
-            return equipmentRepository.save(newEquipment);
+            Equipment savedEquipment = equipmentRepository.save(newEquipment);
+            eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_DISCOVERED, savedEquipment));
+            return savedEquipment;
+        }
+    }
+    
+    // Private helper methods
+    
+    private Equipment markOnline(Equipment equipment) {
+        EquipmentStatus previousStatus = equipment.getStatus();
+        equipment.setLastSeen(LocalDateTime.now());
+        equipment.setStatus(EquipmentStatus.ONLINE);
+        Equipment savedEquipment = equipmentRepository.save(equipment);
+        // Routine heartbeats are not pushed, only transitions back to online
+        if (previousStatus != EquipmentStatus.ONLINE) {
+            eventPublisher.publishEvent(DomainEvent.equipment(DomainEventType.EQUIPMENT_STATUS_CHANGED, savedEquipment));
         }
+        return savedEquipment;
     }
     
     /**
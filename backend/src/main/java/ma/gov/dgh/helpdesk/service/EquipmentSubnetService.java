@@ -0,0 +1,170 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.utils.IpAddresses;
+import ma.gov.dgh.helpdesk.utils.IpAddresses.Range;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service answering subnet questions about the equipment inventory: equipment in a CIDR range,
+ * across several ranges, and the free addresses of a subnet. Ranges are resolved to numeric IP
+ * keys and served by the ordered index of the in-memory inventory, or by a range scan of
+ * equipment.ip_numeric until the inventory is loaded.
+ */
+@Service
+public class EquipmentSubnetService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentSubnetService.class);
+    
+    static final int MAX_RANGES = 64;
+    static final int MAX_FREE_ADDRESSES = 4096;
+    private static final int BACKFILL_PAGE_SIZE = 500;
+    
+    private final EquipmentRepository equipmentRepository;
+    private final EquipmentInventoryService equipmentInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    public EquipmentSubnetService(EquipmentRepository equipmentRepository,
+                                  EquipmentInventoryService equipmentInventoryService,
+                                  PlatformTransactionManager transactionManager) {
+        this.equipmentRepository = equipmentRepository;
+        this.equipmentInventoryService = equipmentInventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Derive the numeric IP key of rows that were written without one (seed data, rows from before
+     * the column existed). Saves through JPA derive it themselves.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIpKeys() {
+        int filled = 0;
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            long from = afterId;
+            page = equipmentRepository.findIpAddressesWithoutIpNumeric(from, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+            List<Object[]> rows = page;
+            filled += transactionTemplate.execute(status -> {
+                int updated = 0;
+                for (Object[] row : rows) {
+                    BigInteger key = IpAddresses.toKey((String) row[1]);
+                    if (key != null) {
+                        updated += equipmentRepository.updateIpNumeric((Long) row[0], key);
+                    }
+                }
+                return updated;
+            });
+            if (!page.isEmpty()) {
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == BACKFILL_PAGE_SIZE);
+        if (filled > 0) {
+            logger.info("Derived numeric IP keys for {} equipment", filled);
+        }
+    }
+    
+    /**
+     * Get the equipment in a CIDR range, in address order
+     */
+    public List<EquipmentSummary> findInRange(String cidr) {
+        Range range = IpAddresses.parseRange(cidr);
+        return equipmentInventoryService.findByIpRange(range.getFirst(), range.getLast());
+    }
+    
+    /**
+     * Get the equipment in any of several CIDR ranges, in address order. Overlapping ranges are
+     * merged first, so each equipment is listed once.
+     */
+    public List<EquipmentSummary> findInRanges(Collection<String> cidrs) {
+        if (cidrs == null || cidrs.isEmpty()) {
+            throw new IllegalArgumentException("At least one IP range is required");
+        }
+        if (cidrs.size() > MAX_RANGES) {
+            throw new IllegalArgumentException("At most " + MAX_RANGES + " IP ranges can be queried at once");
+        }
+        List<Range> ranges = new ArrayList<>(cidrs.size());
+        for (String cidr : cidrs) {
+            ranges.add(IpAddresses.parseRange(cidr));
+        }
+        List<EquipmentSummary> result = new ArrayList<>();
+        for (Range range : IpAddresses.merge(ranges)) {
+            result.addAll(equipmentInventoryService.findByIpRange(range.getFirst(), range.getLast()));
+        }
+        return result;
+    }
+    
+    /**
+     * Get the free host addresses of a subnet, lowest first, up to a limit. IPv4 network and
+     * broadcast addresses are not host addresses.
+     */
+    public FreeAddresses findFreeAddresses(String cidr, int limit) {
+        if (limit < 1 || limit > MAX_FREE_ADDRESSES) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_FREE_ADDRESSES);
+        }
+        Range range = IpAddresses.parseRange(cidr);
+        BigInteger firstHost = range.firstHost();
+        BigInteger lastHost = range.lastHost();
+        List<BigInteger> used = equipmentInventoryService.findIpKeysInRange(firstHost, lastHost);
+        BigInteger hostCount = lastHost.subtract(firstHost).add(BigInteger.ONE);
+        BigInteger freeCount = hostCount.subtract(BigInteger.valueOf(used.size()));
+        
+        List<String> addresses = new ArrayList<>(freeCount.min(BigInteger.valueOf(limit)).intValue());
+        int next = 0;
+        for (BigInteger candidate = firstHost; candidate.compareTo(lastHost) <= 0 && addresses.size() < limit;
+             candidate = candidate.add(BigInteger.ONE)) {
+            if (next < used.size() && used.get(next).equals(candidate)) {
+                next++;
+            } else {
+                addresses.add(IpAddresses.format(candidate));
+            }
+        }
+        return new FreeAddresses(range.toString(), hostCount, used.size(), freeCount, addresses,
+            freeCount.compareTo(BigInteger.valueOf(addresses.size())) > 0);
+    }
+    
+    /**
+     * Free addresses of a subnet; counts are numbers of host addresses
+     */
+    public static class FreeAddresses {
+        private final String range;
+        private final BigInteger hostCount;
+        private final int usedCount;
+        private final BigInteger freeCount;
+        private final List<String> addresses;
+        private final boolean truncated;
+        
+        public FreeAddresses(String range, BigInteger hostCount, int usedCount, BigInteger freeCount,
+                             List<String> addresses, boolean truncated) {
+            this.range = range;
+            this.hostCount = hostCount;
+            this.usedCount = usedCount;
+            this.freeCount = freeCount;
+            this.addresses = addresses;
+            this.truncated = truncated;
+        }
+        
+        // Getters
+        public String getRange() { return range; }
+        public BigInteger getHostCount() { return hostCount; }
+        public int getUsedCount() { return usedCount; }
+        public BigInteger getFreeCount() { return freeCount; }
+        public List<String> getAddresses() { return addresses; }
+        public boolean isTruncated() { return truncated; }
+    }
+}
@@ -0,0 +1,155 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Service maintaining the ticket counters of equipment (open tickets, total tickets, last ticket
+ * time). Ticket writes adjust them with one atomic UPDATE in the same transaction, so the counts
+ * commit or roll back with the ticket. A periodic recount repairs drift from writes that bypass
+ * the ticket service, such as the maintenance cleanup.
+ */
+@Service
+public class EquipmentTicketCountService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EquipmentTicketCountService.class);
+    
+    private static final Set<TicketStatus> CLOSED_STATUSES =
+        EnumSet.of(TicketStatus.RESOLVED, TicketStatus.CLOSED, TicketStatus.CANCELLED);
+    
+    static final int MAX_TOP_EQUIPMENT = 100;
+    
+    private final EquipmentRepository equipmentRepository;
+    private final EquipmentInventoryService equipmentInventoryService;
+    private final ChangeVersionService changeVersionService;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    public EquipmentTicketCountService(EquipmentRepository equipmentRepository,
+                                       EquipmentInventoryService equipmentInventoryService,
+                                       ChangeVersionService changeVersionService,
+                                       PlatformTransactionManager transactionManager) {
+        this.equipmentRepository = equipmentRepository;
+        this.equipmentInventoryService = equipmentInventoryService;
+        this.changeVersionService = changeVersionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Count a new ticket against its equipment
+     */
+    public void ticketCreated(Ticket ticket) {
+        Long equipmentId = equipmentId(ticket);
+        if (equipmentId != null) {
+            add(equipmentId, isOpen(ticket.getStatus()) ? 1 : 0, 1, createdAt(ticket));
+        }
+    }
+    
+    /**
+     * Move a changed ticket's counts: from open to closed or back, and from its previous equipment
+     * to its current one
+     */
+    public void ticketChanged(Long previousEquipmentId, TicketStatus previousStatus, Ticket ticket) {
+        Long equipmentId = equipmentId(ticket);
+        int wasOpen = isOpen(previousStatus) ? 1 : 0;
+        int open = isOpen(ticket.getStatus()) ? 1 : 0;
+        if (Objects.equals(previousEquipmentId, equipmentId)) {
+            if (equipmentId != null && wasOpen != open) {
+                add(equipmentId, open - wasOpen, 0, createdAt(ticket));
+            }
+            return;
+        }
+        if (previousEquipmentId != null) {
+            add(previousEquipmentId, -wasOpen, -1, createdAt(ticket));
+        }
+        if (equipmentId != null) {
+            add(equipmentId, open, 1, createdAt(ticket));
+        }
+    }
+    
+    /**
+     * Move a ticket's counts after a status change on the same equipment
+     */
+    public void ticketStatusChanged(TicketStatus previousStatus, Ticket ticket) {
+        ticketChanged(equipmentId(ticket), previousStatus, ticket);
+    }
+    
+    /**
+     * Remove a deleted ticket from its equipment's counts. The last ticket time is left as is
+     * until the next recount.
+     */
+    public void ticketDeleted(Long equipmentId, TicketStatus status, LocalDateTime createdAt) {
+        if (equipmentId != null) {
+            add(equipmentId, isOpen(status) ? -1 : 0, -1, createdAt != null ? createdAt : LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Get the equipment with the most open tickets, then the most tickets
+     */
+    public List<EquipmentSummary> findTopProblemEquipment(int limit) {
+        if (limit < 1 || limit > MAX_TOP_EQUIPMENT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TOP_EQUIPMENT);
+        }
+        return equipmentRepository.findTopSummariesByTicketCounts(PageRequest.of(0, limit));
+    }
+    
+    /**
+     * Recount the counters of every equipment that drifted from its tickets
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${equipment.ticket-counts.reconcile-interval:3600000}",
+               initialDelayString = "${equipment.ticket-counts.reconcile-interval:3600000}")
+    public void reconcile() {
+        int updated;
+        try {
+            updated = transactionTemplate.execute(status -> equipmentRepository.reconcileTicketCounts());
+        } catch (RuntimeException e) {
+            logger.error("Error recounting equipment tickets: {}", e.getMessage());
+            return;
+        }
+        if (updated > 0) {
+            logger.info("Recounted tickets of {} equipment", updated);
+            changeVersionService.markChanged(Aggregate.EQUIPMENT);
+            equipmentInventoryService.rebuild();
+        }
+    }
+    
+    private void add(Long equipmentId, int openDelta, int totalDelta, LocalDateTime ticketAt) {
+        if (equipmentRepository.addTicketCounts(equipmentId, openDelta, totalDelta, ticketAt) > 0) {
+            equipmentInventoryService.recordTicketCounts(equipmentId, openDelta, totalDelta, ticketAt);
+            changeVersionService.markChanged(Aggregate.EQUIPMENT);
+        }
+    }
+    
+    private static boolean isOpen(TicketStatus status) {
+        return status != null && !CLOSED_STATUSES.contains(status);
+    }
+    
+    private static Long equipmentId(Ticket ticket) {
+        return ticket.getEquipment() != null ? ticket.getEquipment().getId() : null;
+    }
+    
+    private static LocalDateTime createdAt(Ticket ticket) {
+        return ticket.getCreatedAt() != null ? ticket.getCreatedAt() : LocalDateTime.now();
+    }
+}
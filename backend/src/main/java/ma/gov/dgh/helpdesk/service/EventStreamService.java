@@ -0,0 +1,278 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service pushing committed domain events to clients over Server-Sent Events.
+ * Connections are held by async servlet requests, so no thread is parked per subscriber.
+ * Each event is serialized once and queued in the outbox of every matching subscriber; outboxes
+ * are drained on the dispatch executor one subscriber at a time, so a slow client only delays itself.
+ * A subscriber whose outbox overflows loses its queued events and is told to resync.
+ * Events addressed to a user (report jobs) only reach that user's subscriptions.
+ */
+@Service
+public class EventStreamService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamService.class);
+    
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int REPLAY_BUFFER_SIZE = 500;
+    static final int OUTBOX_CAPACITY = 1000;
+    private static final String RESYNC_EVENT = "resync";
+    
+    private final ObjectMapper objectMapper;
+    private final Executor eventDispatchExecutor;
+    
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Deque<StreamedEvent> replayBuffer = new ArrayDeque<>(REPLAY_BUFFER_SIZE);
+    private long sequence = 0;
+    
+    @Autowired
+    public EventStreamService(ObjectMapper objectMapper,
+                              @Qualifier("eventDispatchExecutor") Executor eventDispatchExecutor) {
+        this.objectMapper = objectMapper;
+        this.eventDispatchExecutor = eventDispatchExecutor;
+    }
+    
+    /**
+     * Open a stream of the given user for the given topics (empty means all), replaying events after lastEventId.
+     * When the requested id is older than the replay buffer, a resync event tells the client to reload.
+     * Replayed events are queued before the subscriber is registered, so live events follow them in order.
+     */
+    public SseEmitter subscribe(String username, Set<String> topics, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter, username, topics);
+        
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        
+        synchronized (replayBuffer) {
+            if (lastEventId != null) {
+                StreamedEvent oldest = replayBuffer.peekFirst();
+                // Ids ahead of the sequence come from before a server restart
+                if (lastEventId > sequence
+                        || (lastEventId < sequence && (oldest == null || oldest.id > lastEventId + 1))) {
+                    subscriber.enqueue(StreamedEvent.control(sequence, RESYNC_EVENT));
+                } else {
+                    for (StreamedEvent event : replayBuffer) {
+                        if (event.id > lastEventId && subscriber.accepts(event)) {
+                            subscriber.enqueue(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        
+        logger.debug("Event stream subscriber added (topics: {}), {} active", topics, subscribers.size());
+        return emitter;
+    }
+    
+    /**
+     * Queue a domain event for broadcast once the publishing transaction has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainEvent(DomainEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize domain event {}: {}", event.getType(), e.getMessage());
+            return;
+        }
+        
+        List<Subscriber> recipients = new ArrayList<>();
+        synchronized (replayBuffer) {
+            StreamedEvent streamed = new StreamedEvent(++sequence, event.getTopic(), event.getRecipient(),
+                event.getType().name(), data);
+            if (replayBuffer.size() == REPLAY_BUFFER_SIZE) {
+                replayBuffer.removeFirst();
+            }
+            replayBuffer.addLast(streamed);
+            // Enqueue under the lock so every outbox holds events in sequence order
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(streamed)) {
+                    subscriber.enqueue(streamed);
+                    recipients.add(subscriber);
+                }
+            }
+        }
+        recipients.forEach(this::schedule);
+    }
+    
+    /**
+     * Keep idle connections open through proxies and detect dead clients
+     */
+    @Scheduled(fixedRate = 25000)
+    public void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(StreamedEvent.HEARTBEAT);
+            schedule(subscriber);
+        }
+    }
+    
+    /**
+     * Get the number of connected subscribers
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Get the id of the last published event
+     */
+    public long getLastEventId() {
+        synchronized (replayBuffer) {
+            return sequence;
+        }
+    }
+    
+    // At most one drain per subscriber is queued or running, so its events are written in order
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.markScheduled()) {
+            return;
+        }
+        try {
+            eventDispatchExecutor.execute(subscriber::drain);
+        } catch (RejectedExecutionException e) {
+            subscriber.drop(e);
+        }
+    }
+    
+    /**
+     * Event serialized once and shared by all subscribers; control events carry no topic
+     */
+    private static class StreamedEvent {
+        private static final StreamedEvent HEARTBEAT = new StreamedEvent(0, null, null, null, null);
+        
+        private final long id;
+        private final String topic;
+        private final String recipient;
+        private final String name;
+        private final String data;
+        
+        StreamedEvent(long id, String topic, String recipient, String name, String data) {
+            this.id = id;
+            this.topic = topic;
+            this.recipient = recipient;
+            this.name = name;
+            this.data = data;
+        }
+        
+        static StreamedEvent control(long id, String name) {
+            return new StreamedEvent(id, null, null, name, name);
+        }
+    }
+    
+    /**
+     * Connected client with its user, topic filter and outbox of events not yet written
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final String username;
+        private final Set<String> topics;
+        private final Deque<StreamedEvent> outbox = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        
+        Subscriber(SseEmitter emitter, String username, Set<String> topics) {
+            this.emitter = emitter;
+            this.username = username;
+            this.topics = topics;
+        }
+        
+        boolean accepts(StreamedEvent event) {
+            return (topics.isEmpty() || topics.contains(event.topic))
+                && (event.recipient == null || event.recipient.equals(username));
+        }
+        
+        synchronized void enqueue(StreamedEvent event) {
+            if (closed) {
+                return;
+            }
+            if (outbox.size() >= OUTBOX_CAPACITY) {
+                // The client is too far behind: what it missed is replaced by a resync at the latest position
+                logger.debug("Event stream subscriber fell {} events behind, sending resync", outbox.size());
+                outbox.clear();
+                outbox.addLast(StreamedEvent.control(event.id, RESYNC_EVENT));
+                return;
+            }
+            outbox.addLast(event);
+        }
+        
+        synchronized boolean markScheduled() {
+            if (scheduled || closed || outbox.isEmpty()) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+        
+        void drain() {
+            while (true) {
+                StreamedEvent event;
+                synchronized (this) {
+                    event = outbox.pollFirst();
+                    if (event == null || closed) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                write(event);
+            }
+        }
+        
+        private void write(StreamedEvent event) {
+            try {
+                if (event == StreamedEvent.HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (event.topic == null) {
+                    emitter.send(SseEmitter.event().id(String.valueOf(event.id)).name(event.name).data(event.data));
+                } else {
+                    emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.id))
+                        .name(event.name)
+                        .data(event.data, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                drop(e);
+            }
+        }
+        
+        void drop(Exception e) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                outbox.clear();
+            }
+            subscribers.remove(this);
+            logger.debug("Dropping event stream subscriber: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Hashtable;
+
+/**
+ * Reverse resolver querying PTR records through the JDK DNS client.
+ * Unlike InetAddress.getHostName it has an explicit per-query timeout and bypasses the
+ * JVM name service, so lookups can run concurrently and fail fast. Uses the system
+ * name servers unless servers are configured.
+ */
+@Component
+public class JndiReverseDnsResolver implements ReverseDnsResolver {
+    
+    private final Hashtable<String, String> environment = new Hashtable<>();
+    
+    public JndiReverseDnsResolver(@Value("${network.discovery.dns.servers:}") String servers,
+                                  @Value("${network.discovery.dns.timeout:2000}") long timeoutMillis) {
+        StringBuilder providerUrl = new StringBuilder();
+        for (String server : servers.split(",")) {
+            if (!server.isBlank()) {
+                providerUrl.append(providerUrl.length() > 0 ? " " : "").append("dns://").append(server.trim());
+            }
+        }
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        environment.put(Context.PROVIDER_URL, providerUrl.length() > 0 ? providerUrl.toString() : "dns:");
+        environment.put("com.sun.jndi.dns.timeout.initial", String.valueOf(timeoutMillis));
+        environment.put("com.sun.jndi.dns.timeout.retries", "1");
+    }
+    
+    @Override
+    public String lookup(String ipAddress) throws IOException {
+        String name = reverseName(ipAddress);
+        DirContext context = null;
+        try {
+            context = new InitialDirContext(environment);
+            Attributes attributes = context.getAttributes(name, new String[]{"PTR"});
+            Attribute ptr = attributes.get("PTR");
+            if (ptr == null || ptr.size() == 0) {
+                return null;
+            }
+            String hostname = ptr.get(0).toString();
+            return hostname.endsWith(".") ? hostname.substring(0, hostname.length() - 1) : hostname;
+        } catch (NameNotFoundException e) {
+            return null;
+        } catch (NamingException e) {
+            throw new IOException("PTR lookup failed for " + ipAddress + ": " + e.getMessage(), e);
+        } finally {
+            if (context != null) {
+                try {
+                    context.close();
+                } catch (NamingException e) {
+                    // Nothing held open
+                }
+            }
+        }
+    }
+    
+    /**
+     * Build the in-addr.arpa or ip6.arpa name of an address literal
+     */
+    static String reverseName(String ipAddress) throws UnknownHostException {
+        if (ipAddress == null || !(ipAddress.matches("[0-9]{1,3}(\\.[0-9]{1,3}){3}")
+                || ipAddress.contains(":") && ipAddress.matches("[0-9a-fA-F.:]+"))) {
+            // Only literals: getByName must never trigger a forward lookup here
+            throw new UnknownHostException("Not an IP address: " + ipAddress);
+        }
+        byte[] bytes = InetAddress.getByName(ipAddress).getAddress();
+        StringBuilder name = new StringBuilder();
+        if (InetAddress.getByAddress(bytes) instanceof Inet4Address) {
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                name.append(bytes[i] & 0xff).append('.');
+            }
+            return name.append("in-addr.arpa").toString();
+        }
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            name.append(Character.forDigit(bytes[i] & 0x0f, 16)).append('.')
+                .append(Character.forDigit((bytes[i] >> 4) & 0x0f, 16)).append('.');
+        }
+        return name.append("ip6.arpa").toString();
+    }
+}
@@ -0,0 +1,202 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service reading the IP-to-MAC neighbor table of the host in one pass.
+ * Linux exposes it in /proc/net/arp, which is read without spawning anything; elsewhere
+ * the table is listed by one `ip neigh` or `arp -an` process per snapshot. Tool locations
+ * are resolved from the PATH once, at startup.
+ */
+@Service
+public class NeighborTableService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NeighborTableService.class);
+    
+    private static final Path PROC_ARP = Paths.get("/proc/net/arp");
+    private static final long COMMAND_TIMEOUT_MILLIS = 10_000;
+    
+    private static final Pattern MAC_PATTERN = Pattern.compile("([0-9A-Fa-f]{1,2}[:-]){5}[0-9A-Fa-f]{1,2}");
+    private static final Pattern IPV4_PATTERN = Pattern.compile("\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}\\b");
+    private static final String NO_MAC = "00:00:00:00:00:00";
+    // /proc/net/arp flag of a resolved entry (ATF_COM)
+    private static final int ATF_COMPLETE = 0x2;
+    
+    private final Optional<Path> ipCommand = findExecutable("ip");
+    private final Optional<Path> arpCommand = findExecutable("arp");
+    
+    /**
+     * Read the current neighbor table; returns upper-case colon-separated MAC addresses by IP
+     */
+    public Map<String, String> snapshot() {
+        if (Files.isReadable(PROC_ARP)) {
+            try (BufferedReader reader = Files.newBufferedReader(PROC_ARP, StandardCharsets.US_ASCII)) {
+                return parseProcArp(reader);
+            } catch (IOException e) {
+                logger.debug("Could not read {}: {}", PROC_ARP, e.getMessage());
+            }
+        }
+        if (ipCommand.isPresent()) {
+            Map<String, String> table = runCommand(COMMAND_TIMEOUT_MILLIS, ipCommand.get().toString(), "neigh", "show");
+            if (table != null) {
+                return table;
+            }
+        }
+        if (arpCommand.isPresent()) {
+            Map<String, String> table = runCommand(COMMAND_TIMEOUT_MILLIS, arpCommand.get().toString(), "-an");
+            if (table != null) {
+                return table;
+            }
+        }
+        return Map.of();
+    }
+    
+    /**
+     * Locate an executable on the PATH without running it
+     */
+    public static Optional<Path> findExecutable(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return Optional.empty();
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+        for (String directory : path.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+            for (String candidate : windows ? new String[]{name + ".exe", name} : new String[]{name}) {
+                Path file = Paths.get(directory, candidate);
+                if (Files.isRegularFile(file) && Files.isExecutable(file)) {
+                    return Optional.of(file);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * List the neighbor table with a command; null when it fails or does not finish in time.
+     * The output is read to its end, so the timeout is enforced by a watchdog killing the process.
+     */
+    static Map<String, String> runCommand(long timeoutMillis, String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            CompletableFuture<Process> watchdog = process.onExit().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            watchdog.whenComplete((exited, timeout) -> {
+                if (timeout != null) {
+                    process.destroyForcibly();
+                }
+            });
+            
+            Map<String, String> table;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                table = parseNeighborLines(reader);
+            }
+            process.waitFor();
+            if (watchdog.isCompletedExceptionally()) {
+                logger.debug("{} did not finish within {} ms", command[0], timeoutMillis);
+                return null;
+            }
+            return process.exitValue() == 0 ? table : null;
+        } catch (IOException e) {
+            logger.debug("Could not list neighbors with {}: {}", command[0], e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    /**
+     * Parse /proc/net/arp: IP address, HW type, Flags, HW address, Mask, Device
+     */
+    static Map<String, String> parseProcArp(BufferedReader reader) throws IOException {
+        Map<String, String> table = new HashMap<>();
+        String line = reader.readLine(); // header
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length < 4) {
+                continue;
+            }
+            int flags;
+            try {
+                flags = Integer.decode(columns[2]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String mac = normalizeMac(columns[3]);
+            if ((flags & ATF_COMPLETE) != 0 && mac != null) {
+                table.put(columns[0], mac);
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Parse `ip neigh` ("10.0.0.1 dev eth0 lladdr aa:bb:.. REACHABLE") or `arp -an`
+     * ("? (10.0.0.1) at aa:bb:.. [ether] on eth0") output; unresolved entries have no MAC
+     */
+    static Map<String, String> parseNeighborLines(BufferedReader reader) throws IOException {
+        Map<String, String> table = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.contains("FAILED") || line.contains("INCOMPLETE") || line.contains("incomplete")) {
+                continue;
+            }
+            Matcher ip = IPV4_PATTERN.matcher(line);
+            Matcher mac = MAC_PATTERN.matcher(line);
+            if (ip.find() && mac.find()) {
+                String normalized = normalizeMac(mac.group());
+                if (normalized != null) {
+                    table.putIfAbsent(ip.group(), normalized);
+                }
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Normalize a MAC address to upper-case, colon-separated, zero-padded octets
+     */
+    static String normalizeMac(String mac) {
+        String[] octets = mac.split("[:-]");
+        if (octets.length != 6) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(17);
+        for (String octet : octets) {
+            if (octet.isEmpty() || octet.length() > 2) {
+                return null;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(':');
+            }
+            if (octet.length() == 1) {
+                normalized.append('0');
+            }
+            normalized.append(octet.toUpperCase(Locale.ROOT));
+        }
+        String result = normalized.toString();
+        return result.equals(NO_MAC) ? null : result;
+    }
+}
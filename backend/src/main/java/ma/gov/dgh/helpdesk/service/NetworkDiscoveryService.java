@@ -2,35 +2,81 @@ package ma.gov.dgh.helpdesk.service;
 
 import ma.gov.dgh.helpdesk.entity.Equipment;
 import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.utils.DiscoveryStateStore;
+import ma.gov.dgh.helpdesk.utils.IpAddresses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.io.BufferedReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.math.BigInteger;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Service for automated network discovery and equipment scanning
+ * Service for automated network discovery and equipment scanning.
+ * In incremental mode the scheduler keeps per-host state instead of rescanning every subnet:
+ * known hosts are probed with one SNMP GET of their fingerprint, and only hosts whose
+ * fingerprint changed go through full discovery; the others are recorded as heartbeats.
+ * Ranges are swept for new hosts, less and less often while sweeps find none.
  */
 @Service
 public class NetworkDiscoveryService {
     
     private static final Logger logger = LoggerFactory.getLogger(NetworkDiscoveryService.class);
     
+    private static final long NMAP_TIMEOUT_MINUTES = 30;
+    private static final int HEARTBEAT_BATCH_SIZE = 1000;
+    private static final String NMAP_STATS_INTERVAL = "5s";
+    
     private final EquipmentService equipmentService;
     private final SnmpService snmpService;
+    private final DeviceClassificationService deviceClassificationService;
+    private final EquipmentInterfaceService equipmentInterfaceService;
+    private final EquipmentAttributeService equipmentAttributeService;
+    private final NeighborTableService neighborTableService;
+    private final ReverseDnsService reverseDnsService;
+    private final EquipmentHeartbeatService equipmentHeartbeatService;
+    private final EquipmentRepository equipmentRepository;
+    private final Executor probeExecutor;
+    private final Executor discoveryExecutor;
+    private final DiscoveryStateStore discoveryState;
+    private final DiscoveryJobService discoveryJobService;
+    
+    // Set once the known hosts of the configured ranges have been loaded into the state
+    private volatile boolean stateSeeded;
+    // Set while an incremental run is queued or running on the discovery executor
+    private final AtomicBoolean incrementalRunning = new AtomicBoolean();
+    
+    // Resolved once; probing with `nmap --version` before every scan cost a process each time
+    private final Optional<Path> nmapCommand = NeighborTableService.findExecutable("nmap");
     
     @Value("${network.discovery.enabled:true}")
     private boolean discoveryEnabled;
@@ -38,10 +84,43 @@ public class NetworkDiscoveryService {
     @Value("${network.discovery.subnet-ranges:192.168.1.0/24}")
     private String subnetRanges;
     
+    @Value("${network.discovery.min-prefix-length:16}")
+    private int minPrefixLength;
+    
+    @Value("${network.discovery.incremental.enabled:true}")
+    private boolean incrementalEnabled;
+    
+    @Value("${network.discovery.incremental.ping-timeout:1000}")
+    private int pingTimeout;
+    
     @Autowired
-    public NetworkDiscoveryService(EquipmentService equipmentService, SnmpService snmpService) {
+    public NetworkDiscoveryService(EquipmentService equipmentService, SnmpService snmpService,
+                                   DeviceClassificationService deviceClassificationService,
+                                   EquipmentInterfaceService equipmentInterfaceService,
+                                   EquipmentAttributeService equipmentAttributeService,
+                                   NeighborTableService neighborTableService, ReverseDnsService reverseDnsService,
+                                   EquipmentHeartbeatService equipmentHeartbeatService,
+                                   EquipmentRepository equipmentRepository,
+                                   @Qualifier("discoveryProbeExecutor") Executor probeExecutor,
+                                   @Qualifier("networkDiscoveryExecutor") Executor discoveryExecutor,
+                                   DiscoveryJobService discoveryJobService,
+                                   @Value("${network.discovery.incremental.live-interval:15m}") Duration liveInterval,
+                                   @Value("${network.discovery.incremental.range-interval:1h}") Duration rangeInterval,
+                                   @Value("${network.discovery.incremental.max-backoff:24h}") Duration maxBackoff) {
         this.equipmentService = equipmentService;
         this.snmpService = snmpService;
+        this.deviceClassificationService = deviceClassificationService;
+        this.equipmentInterfaceService = equipmentInterfaceService;
+        this.equipmentAttributeService = equipmentAttributeService;
+        this.neighborTableService = neighborTableService;
+        this.reverseDnsService = reverseDnsService;
+        this.equipmentHeartbeatService = equipmentHeartbeatService;
+        this.equipmentRepository = equipmentRepository;
+        this.probeExecutor = probeExecutor;
+        this.discoveryExecutor = discoveryExecutor;
+        this.discoveryJobService = discoveryJobService;
+        this.discoveryState = new DiscoveryStateStore(liveInterval.toMillis(), rangeInterval.toMillis(),
+            maxBackoff.toMillis());
     }
     
     /**
@@ -54,53 +133,319 @@ public class NetworkDiscoveryService {
             return;
         }
         
+        if (incrementalEnabled) {
+            // Subnets are covered by the incremental scheduler
+            return;
+        }
+        
         logger.info("Starting scheduled network discovery scan");
-        performNetworkDiscovery();
+        try {
+            discoveryJobService.submit(DiscoveryJobService.SCHEDULER, getConfiguredSubnets());
+        } catch (IllegalStateException e) {
+            logger.info("Skipping scheduled network discovery: {}", e.getMessage());
+        }
     }
     
     /**
-     * Manual network discovery trigger
+     * Incremental discovery: probe the known hosts that are due, then sweep the ranges that are due.
+     * Probes and sweeps take minutes, so the run is handed to the discovery executor instead of
+     * holding the scheduler thread shared by every scheduled job; a tick is skipped while a run is active.
      */
-    @Async
-    public CompletableFuture<List<Equipment>> performNetworkDiscovery() {
-        logger.info("Starting network discovery for subnets: {}", subnetRanges);
+    @Scheduled(fixedDelayString = "${network.discovery.incremental.tick-interval:60000}",
+               initialDelayString = "${network.discovery.incremental.tick-interval:60000}")
+    public void incrementalScan() {
+        if (!discoveryEnabled || !incrementalEnabled || !incrementalRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            discoveryExecutor.execute(() -> {
+                try {
+                    runIncrementalScan();
+                } catch (RuntimeException e) {
+                    logger.error("Error during incremental discovery: {}", e.getMessage());
+                } finally {
+                    incrementalRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            incrementalRunning.set(false);
+            logger.warn("Discovery executor busy, incremental discovery skipped this tick");
+        }
+    }
+    
+    private void runIncrementalScan() {
+        if (!stateSeeded) {
+            seedKnownHosts();
+        }
+        probeDueHosts();
+        for (String subnet : discoveryState.dueRanges(getConfiguredSubnets(), System.currentTimeMillis())) {
+            sweepRange(subnet);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEquipmentEvent(DomainEvent event) {
+        if (event.getType() == DomainEventType.EQUIPMENT_DELETED) {
+            discoveryState.removeEquipment(event.getAggregateId());
+        }
+    }
+    
+    /**
+     * Load the equipment of the configured ranges, so restarts probe them instead of rediscovering them.
+     * Their fingerprints are not known yet, so each gets one full discovery at its first probe.
+     */
+    private void seedKnownHosts() {
+        List<String> subnets = getConfiguredSubnets();
+        long now = System.currentTimeMillis();
+        for (Object[] row : equipmentRepository.findIdsAndIpAddresses()) {
+            String ipAddress = (String) row[1];
+            if (inConfiguredRange(ipAddress, subnets)) {
+                discoveryState.addHost(ipAddress, (Long) row[0], now);
+            }
+        }
+        stateSeeded = true;
+        logger.info("Incremental discovery tracking {} known hosts", discoveryState.getHostCount());
+    }
+    
+    /**
+     * Probe the due hosts side by side; hosts that could not be submitted stay due for the next run
+     */
+    private void probeDueHosts() {
+        List<String> due = discoveryState.dueHosts(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
         
-        List<Equipment> discoveredEquipment = new ArrayList<>();
-        String[] subnets = subnetRanges.split(",");
+        List<CompletableFuture<ProbeResult>> probes = new ArrayList<>(due.size());
+        try {
+            for (String ipAddress : due) {
+                probes.add(CompletableFuture.supplyAsync(() -> probeHost(ipAddress), probeExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("Probe queue full, {} hosts left for the next run", due.size() - probes.size());
+        }
         
-        for (String subnet : subnets) {
+        List<Long> unchangedIds = new ArrayList<>();
+        List<String> unchangedIpAddresses = new ArrayList<>();
+        int changed = 0;
+        int unreachable = 0;
+        for (int i = 0; i < probes.size(); i++) {
+            ProbeResult result = probes.get(i).join();
+            if (result == ProbeResult.UNCHANGED) {
+                DiscoveryStateStore.HostState state = discoveryState.getHost(due.get(i));
+                if (state != null && state.getEquipmentId() != null) {
+                    unchangedIds.add(state.getEquipmentId());
+                } else {
+                    unchangedIpAddresses.add(due.get(i));
+                }
+            } else if (result == ProbeResult.CHANGED) {
+                changed++;
+            } else {
+                unreachable++;
+            }
+        }
+        
+        // Unchanged hosts only need their last seen refreshed, which the heartbeat flush does in bulk
+        for (int i = 0; i < unchangedIds.size(); i += HEARTBEAT_BATCH_SIZE) {
+            equipmentHeartbeatService.record(
+                unchangedIds.subList(i, Math.min(i + HEARTBEAT_BATCH_SIZE, unchangedIds.size())), null);
+        }
+        for (int i = 0; i < unchangedIpAddresses.size(); i += HEARTBEAT_BATCH_SIZE) {
+            equipmentHeartbeatService.record(null,
+                unchangedIpAddresses.subList(i, Math.min(i + HEARTBEAT_BATCH_SIZE, unchangedIpAddresses.size())));
+        }
+        logger.debug("Probed {} hosts: {} unchanged, {} rediscovered, {} unreachable", probes.size(),
+            unchangedIds.size() + unchangedIpAddresses.size(), changed, unreachable);
+    }
+    
+    /**
+     * Probe one known host: fingerprint over SNMP, or a ping for hosts without SNMP
+     */
+    private ProbeResult probeHost(String ipAddress) {
+        try {
+            DiscoveryStateStore.HostState state = discoveryState.getHost(ipAddress);
+            String previous = state != null ? state.getFingerprint() : null;
+            
+            boolean askSnmp = discoveryState.isSnmpProbeDue(ipAddress, System.currentTimeMillis());
+            String fingerprint = askSnmp ? snmpService.getFingerprint(ipAddress) : null;
+            if (fingerprint == null) {
+                if (!InetAddress.getByName(ipAddress).isReachable(pingTimeout)) {
+                    discoveryState.recordFailure(ipAddress, System.currentTimeMillis());
+                    return ProbeResult.UNREACHABLE;
+                }
+                // A device that stops answering SNMP but still pings keeps its fingerprint
+                fingerprint = previous != null ? previous : DiscoveryStateStore.NO_SNMP;
+            }
+            
+            if (fingerprint.equals(previous)) {
+                // A host still without SNMP after being asked again backs off further
+                discoveryState.recordSeen(ipAddress, null,
+                    askSnmp && DiscoveryStateStore.NO_SNMP.equals(previous) ? previous : null, System.currentTimeMillis());
+                return ProbeResult.UNCHANGED;
+            }
+            
+            Equipment equipment = discoverDevice(ipAddress, neighborTableService.snapshot().get(ipAddress),
+                reverseDnsService.resolve(ipAddress));
+            if (equipment == null) {
+                discoveryState.recordFailure(ipAddress, System.currentTimeMillis());
+                return ProbeResult.UNREACHABLE;
+            }
+            return ProbeResult.CHANGED;
+        } catch (Exception e) {
+            logger.debug("Probe of {} failed: {}", ipAddress, e.getMessage());
+            discoveryState.recordFailure(ipAddress, System.currentTimeMillis());
+            return ProbeResult.UNREACHABLE;
+        }
+    }
+    
+    /**
+     * Sweep a range for hosts not known yet; known hosts seen answering are only woken up
+     */
+    private void sweepRange(String subnet) {
+        if (!discoveryJobService.claim(subnet)) {
+            // A discovery job is scanning an overlapping range; the sweep stays due
+            return;
+        }
+        try {
+            sweepClaimedRange(subnet);
+        } finally {
+            discoveryJobService.release(subnet);
+        }
+    }
+    
+    private void sweepClaimedRange(String subnet) {
+        logger.info("Sweeping subnet for new hosts: {}", subnet);
+        Map<String, CompletableFuture<String>> hostnames = new LinkedHashMap<>();
+        Map<String, String> activeHosts = performPingScan(subnet, ip -> {
+            if (!discoveryState.isKnown(ip)) {
+                hostnames.computeIfAbsent(ip, reverseDnsService::resolveAsync);
+            }
+        }, ScanListener.NONE);
+        Map<String, String> neighbors = neighborTableService.snapshot();
+        
+        int newHosts = 0;
+        for (Map.Entry<String, String> host : activeHosts.entrySet()) {
+            String ip = host.getKey();
+            if (discoveryState.isKnown(ip)) {
+                discoveryState.wakeUp(ip, System.currentTimeMillis());
+                continue;
+            }
             try {
-                List<Equipment> subnetEquipment = scanSubnet(subnet.trim());
-                discoveredEquipment.addAll(subnetEquipment);
+                String hostname = reverseDnsService.await(hostnames.computeIfAbsent(ip, reverseDnsService::resolveAsync));
+                if (discoverDevice(ip, host.getValue() != null ? host.getValue() : neighbors.get(ip), hostname) != null) {
+                    newHosts++;
+                }
             } catch (Exception e) {
-                logger.error("Error scanning subnet {}: {}", subnet, e.getMessage());
+                logger.warn("Error discovering device at {}: {}", ip, e.getMessage());
             }
         }
-        
-        logger.info("Network discovery completed. Found {} devices", discoveredEquipment.size());
-        return CompletableFuture.completedFuture(discoveredEquipment);
+        discoveryState.recordSweep(subnet, newHosts > 0, System.currentTimeMillis());
+        logger.info("Sweep of {} found {} new hosts", subnet, newHosts);
     }
     
     /**
-     * Scan a specific subnet for devices
+     * Get the configured subnet ranges
      */
-    private List<Equipment> scanSubnet(String subnet) {
+    public List<String> getConfiguredSubnets() {
+        List<String> subnets = new ArrayList<>();
+        for (String subnet : subnetRanges.split(",")) {
+            if (subnet.isBlank()) {
+                continue;
+            }
+            try {
+                subnets.add(canonicalSubnet(subnet));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring configured subnet: {}", e.getMessage());
+            }
+        }
+        return subnets;
+    }
+    
+    /**
+     * Check the subnets requested for a scan and return them in canonical form.
+     * Each must lie within a configured range, and be no wider than the minimum prefix length
+     * unless it is a configured range itself.
+     *
+     * @throws IllegalArgumentException when a subnet is invalid or not allowed
+     */
+    public List<String> checkRequestedSubnets(List<String> subnets) {
+        List<IpAddresses.Range> allowed = new ArrayList<>();
+        for (String configured : getConfiguredSubnets()) {
+            allowed.add(IpAddresses.parseRange(configured));
+        }
+        List<String> checked = new ArrayList<>();
+        for (String subnet : subnets) {
+            String canonical = canonicalSubnet(subnet);
+            IpAddresses.Range range = IpAddresses.parseRange(canonical);
+            IpAddresses.Range within = null;
+            for (IpAddresses.Range candidate : allowed) {
+                if (range.getFirst().compareTo(candidate.getFirst()) >= 0
+                        && range.getLast().compareTo(candidate.getLast()) <= 0) {
+                    within = candidate;
+                    break;
+                }
+            }
+            if (within == null) {
+                throw new IllegalArgumentException("Subnet " + canonical + " is outside the configured ranges");
+            }
+            if (range.getPrefix() < minPrefixLength && !canonical.equals(within.toString())) {
+                throw new IllegalArgumentException("Subnet " + canonical + " is wider than /" + minPrefixLength);
+            }
+            checked.add(canonical);
+        }
+        return checked;
+    }
+    
+    private static boolean inConfiguredRange(String ipAddress, List<String> subnets) {
+        BigInteger key = IpAddresses.toKey(ipAddress);
+        if (key == null) {
+            return false;
+        }
+        for (String subnet : subnets) {
+            if (IpAddresses.parseRange(subnet).contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Scan a subnet for devices, reporting progress to the listener.
+     * Throws CancellationException when the listener asks to stop.
+     */
+    public List<Equipment> scanSubnet(String subnet, ScanListener listener) {
         logger.info("Scanning subnet: {}", subnet);
         List<Equipment> equipment = new ArrayList<>();
         
         try {
-            List<String> activeIps = performPingScan(subnet);
+            // Host names are looked up as the sweep finds hosts, overlapping with the rest of the scan
+            Map<String, CompletableFuture<String>> hostnames = new LinkedHashMap<>();
+            Map<String, String> activeHosts = performPingScan(subnet, ip -> {
+                hostnames.computeIfAbsent(ip, reverseDnsService::resolveAsync);
+                listener.hostUp(ip);
+            }, listener);
+            listener.sweepCompleted(activeHosts.size());
+            // The sweep has just filled the neighbor table, so one read covers every host
+            Map<String, String> neighbors = neighborTableService.snapshot();
             
-            for (String ip : activeIps) {
+            for (Map.Entry<String, String> host : activeHosts.entrySet()) {
+                checkCancelled(listener);
+                String ip = host.getKey();
+                Equipment device = null;
                 try {
-                    Equipment device = discoverDevice(ip);
+                    String hostname = reverseDnsService.await(hostnames.computeIfAbsent(ip, reverseDnsService::resolveAsync));
+                    device = discoverDevice(ip, host.getValue() != null ? host.getValue() : neighbors.get(ip),
+                        hostname);
                     if (device != null) {
                         equipment.add(device);
                     }
                 } catch (Exception e) {
                     logger.warn("Error discovering device at {}: {}", ip, e.getMessage());
                 }
+                listener.hostProcessed(ip, device);
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error scanning subnet {}: {}", subnet, e.getMessage());
         }
@@ -109,70 +454,172 @@ public class NetworkDiscoveryService {
     }
     
     /**
-     * Perform ping scan to find active IPs
+     * Whether a subnet is an IPv4 address or CIDR range that can be passed to a scanner
      */
-    private List<String> performPingScan(String subnet) {
-        List<String> activeIps = new ArrayList<>();
+    public static boolean isValidSubnet(String subnet) {
+        try {
+            canonicalSubnet(subnet);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Canonical form of an IPv4 address or CIDR range ("10.1.2.3/16" becomes "10.1.0.0/16"),
+     * as the scanners and the range checks of the discovery state expect it
+     *
+     * @throws IllegalArgumentException when the subnet is not an IPv4 range
+     */
+    public static String canonicalSubnet(String subnet) {
+        IpAddresses.Range range = IpAddresses.parseRange(subnet);
+        if (!range.isIpv4()) {
+            throw new IllegalArgumentException("Only IPv4 subnets can be scanned: " + subnet);
+        }
+        return range.toString();
+    }
+    
+    private static void checkCancelled(ScanListener listener) {
+        if (listener.isCancelled()) {
+            throw new CancellationException("Network discovery cancelled");
+        }
+    }
+    
+    /**
+     * Perform ping scan to find active hosts; returns the MAC address by IP when the scan saw it
+     */
+    private Map<String, String> performPingScan(String subnet, Consumer<String> onHostUp, ScanListener listener) {
+        Map<String, String> activeHosts = new LinkedHashMap<>();
+        if (!isValidSubnet(subnet)) {
+            logger.warn("Skipping invalid subnet: {}", subnet);
+            return activeHosts;
+        }
         
         try {
             // Use nmap for network scanning if available
-            if (isNmapAvailable()) {
-                activeIps = performNmapScan(subnet);
+            if (nmapCommand.isPresent()) {
+                activeHosts = performNmapScan(subnet, onHostUp, listener);
             } else {
                 // Fallback to Java ping
-                activeIps = performJavaPingScan(subnet);
+                for (String ip : performJavaPingScan(subnet, onHostUp, listener)) {
+                    activeHosts.put(ip, null);
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error performing ping scan: {}", e.getMessage());
         }
         
-        return activeIps;
+        return activeHosts;
     }
     
     /**
-     * Check if nmap is available on the system
+     * Perform network scan using nmap, reading its XML report as it is written.
+     * Periodic progress lines keep the reader waking up, so a cancelled scan stops within seconds.
+     * The report is read to its end, so the scan timeout is enforced by a watchdog killing the process.
      */
-    private boolean isNmapAvailable() {
-        try {
-            Process process = Runtime.getRuntime().exec("nmap --version");
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
+    private Map<String, String> performNmapScan(String subnet, Consumer<String> onHostUp, ScanListener listener)
+            throws IOException, InterruptedException {
+        // Arguments are passed as-is, never through a shell
+        Process process = new ProcessBuilder(nmapCommand.get().toString(), "-sn", "--stats-every", NMAP_STATS_INTERVAL,
+                "-oX", "-", subnet)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        CompletableFuture<Process> watchdog = process.onExit().orTimeout(NMAP_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        watchdog.whenComplete((exited, timeout) -> {
+            if (timeout != null) {
+                process.destroyForcibly();
+            }
+        });
+        
+        Map<String, String> activeHosts;
+        try (InputStream output = process.getInputStream()) {
+            activeHosts = parseNmapXml(output, onHostUp, listener);
+        } catch (XMLStreamException e) {
+            process.destroyForcibly();
+            if (watchdog.isCompletedExceptionally()) {
+                throw new IOException("nmap scan of " + subnet + " timed out after " + NMAP_TIMEOUT_MINUTES + " minutes");
+            }
+            throw new IOException("Invalid nmap output: " + e.getMessage(), e);
+        } catch (CancellationException e) {
+            process.destroyForcibly();
+            throw e;
         }
+        
+        // The report is complete, so nmap is exiting
+        process.waitFor();
+        return activeHosts;
     }
     
     /**
-     * Perform network scan using nmap
+     * Parse an nmap XML report into the IPv4 addresses of up hosts, with the MAC address
+     * nmap resolved on directly attached subnets (null otherwise); each up host is also
+     * passed to the callback as soon as its element is read, and task progress to the listener
      */
-    private List<String> performNmapScan(String subnet) throws IOException, InterruptedException {
-        List<String> activeIps = new ArrayList<>();
-        
-        String command = "nmap -sn " + subnet;
-        Process process = Runtime.getRuntime().exec(command);
+    static Map<String, String> parseNmapXml(InputStream input, Consumer<String> onHostUp, ScanListener listener)
+            throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
         
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            Pattern ipPattern = Pattern.compile("\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}\\b");
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.contains("Nmap scan report for")) {
-                    Matcher matcher = ipPattern.matcher(line);
-                    if (matcher.find()) {
-                        activeIps.add(matcher.group());
+        Map<String, String> hosts = new LinkedHashMap<>();
+        XMLStreamReader reader = factory.createXMLStreamReader(input);
+        try {
+            boolean up = false;
+            String ip = null;
+            String mac = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                checkCancelled(listener);
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "host" -> {
+                            up = false;
+                            ip = null;
+                            mac = null;
+                        }
+                        case "status" -> up = "up".equals(reader.getAttributeValue(null, "state"));
+                        case "taskprogress" -> {
+                            String percent = reader.getAttributeValue(null, "percent");
+                            if (percent != null) {
+                                try {
+                                    listener.sweepProgress(Double.parseDouble(percent));
+                                } catch (NumberFormatException e) {
+                                    // Progress is informational only
+                                }
+                            }
+                        }
+                        case "address" -> {
+                            String type = reader.getAttributeValue(null, "addrtype");
+                            String address = reader.getAttributeValue(null, "addr");
+                            if ("ipv4".equals(type)) {
+                                ip = address;
+                            } else if ("mac".equals(type) && address != null) {
+                                mac = NeighborTableService.normalizeMac(address);
+                            }
+                        }
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "host".equals(reader.getLocalName())) {
+                    if (up && ip != null) {
+                        hosts.put(ip, mac);
+                        onHostUp.accept(ip);
                     }
                 }
             }
+        } finally {
+            reader.close();
         }
-        
-        process.waitFor();
-        return activeIps;
+        return hosts;
     }
     
     /**
      * Fallback ping scan using Java
      */
-    private List<String> performJavaPingScan(String subnet) {
+    private List<String> performJavaPingScan(String subnet, Consumer<String> onHostUp, ScanListener listener) {
         List<String> activeIps = new ArrayList<>();
         
         // Parse subnet (simple implementation for /24 networks)
@@ -180,11 +627,14 @@ public class NetworkDiscoveryService {
             String baseIp = subnet.substring(0, subnet.lastIndexOf('.'));
             
             for (int i = 1; i < 255; i++) {
+                checkCancelled(listener);
+                listener.sweepProgress(100.0 * (i - 1) / 254);
                 String ip = baseIp + "." + i;
                 try {
                     InetAddress address = InetAddress.getByName(ip);
                     if (address.isReachable(1000)) { // 1 second timeout
                         activeIps.add(ip);
+                        onHostUp.accept(ip);
                     }
                 } catch (Exception e) {
                     // Ignore unreachable hosts
@@ -198,16 +648,10 @@ public class NetworkDiscoveryService {
     /**
      * Discover device information for a specific IP
      */
-    private Equipment discoverDevice(String ipAddress) {
+    private Equipment discoverDevice(String ipAddress, String macAddress, String hostname) {
         logger.debug("Discovering device at IP: {}", ipAddress);
         
         try {
-            // Get hostname
-            String hostname = getHostname(ipAddress);
-            
-            // Get MAC address (if possible)
-            String macAddress = getMacAddress(ipAddress);
-            
             // Try SNMP discovery for additional information
             SnmpDeviceInfo snmpInfo = snmpService.getDeviceInfo(ipAddress);
             
@@ -224,16 +668,24 @@ public class NetworkDiscoveryService {
                 snmpInfo != null ? snmpInfo.getModel() : null
             );
             
-            // Set additional SNMP information
+            // Store the SNMP attributes, operating system and interfaces
             if (snmpInfo != null) {
-                equipment.setOsName(snmpInfo.getOsName());
-                equipment.setOsVersion(snmpInfo.getOsVersion());
-                equipment.setSpecifications(snmpInfo.toJson());
+                equipmentAttributeService.recordDeviceInfo(equipment.getId(), snmpInfo);
+                if (snmpInfo.getInterfaces() != null) {
+                    equipmentInterfaceService.replaceInterfaces(equipment.getId(), snmpInfo.getInterfaces());
+                }
+            }
+            
+            if (inConfiguredRange(ipAddress, getConfiguredSubnets())) {
+                String fingerprint = snmpInfo != null
+                    ? SnmpService.fingerprint(snmpInfo.getSystemObjectId(), snmpInfo.getSystemDescription()) : null;
+                discoveryState.recordSeen(ipAddress, equipment.getId(),
+                    fingerprint != null ? fingerprint : DiscoveryStateStore.NO_SNMP, System.currentTimeMillis());
             }
             
             logger.info("Discovered device: {} ({})", hostname, ipAddress);
             return equipment;
-            
+        
         } catch (Exception e) {
             logger.warn("Failed to discover device at {}: {}", ipAddress, e.getMessage());
             return null;
@@ -241,83 +693,15 @@ public class NetworkDiscoveryService {
     }
     
     /**
-     * Get hostname for IP address
-     */
-    private String getHostname(String ipAddress) {
-        try {
-            InetAddress address = InetAddress.getByName(ipAddress);
-            String hostname = address.getHostName();
-            return hostname.equals(ipAddress) ? null : hostname;
-        } catch (UnknownHostException e) {
-            return null;
-        }
-    }
-    
-    /**
-     * Get MAC address for IP (using ARP table)
-     */
-    private String getMacAddress(String ipAddress) {
-        try {
-            // Try to get MAC address from ARP table
-            Process process = Runtime.getRuntime().exec("arp -a " + ipAddress);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line = reader.readLine();
-                if (line != null) {
-                    Pattern macPattern = Pattern.compile("([0-9A-Fa-f]{2}[:-]){5}([0-9A-Fa-f]{2})");
-                    Matcher matcher = macPattern.matcher(line);
-                    if (matcher.find()) {
-                        return matcher.group();
-                    }
-                }
-            }
-            process.waitFor();
-        } catch (Exception e) {
-            logger.debug("Could not get MAC address for {}: {}", ipAddress, e.getMessage());
-        }
-        return null;
-    }
-    
-    /**
-     * Determine equipment type based on available information
+     * Determine equipment type from the classification rules; the SNMP system name stands in
+     * for a host name DNS did not resolve
      */
     private EquipmentType determineEquipmentType(SnmpDeviceInfo snmpInfo, String hostname) {
-        if (snmpInfo != null) {
-            String sysDescr = snmpInfo.getSystemDescription();
-            if (sysDescr != null) {
-                String sysDescrLower = sysDescr.toLowerCase();
-                
-                if (sysDescrLower.contains("switch")) {
-                    return EquipmentType.SWITCH;
-                } else if (sysDescrLower.contains("router")) {
-                    return EquipmentType.ROUTER;
-                } else if (sysDescrLower.contains("printer")) {
-                    return EquipmentType.PRINTER;
-                } else if (sysDescrLower.contains("access point") || sysDescrLower.contains("ap")) {
-                    return EquipmentType.ACCESS_POINT;
-                } else if (sysDescrLower.contains("server")) {
-                    return EquipmentType.SERVER;
-                } else if (sysDescrLower.contains("windows") || sysDescrLower.contains("linux")) {
-                    return EquipmentType.DESKTOP;
-                }
-            }
+        if (snmpInfo == null) {
+            return deviceClassificationService.classify(null, null, hostname).getEquipmentType();
         }
-        
-        // Try to determine from hostname
-        if (hostname != null) {
-            String hostnameLower = hostname.toLowerCase();
-            if (hostnameLower.contains("switch")) {
-                return EquipmentType.SWITCH;
-            } else if (hostnameLower.contains("router")) {
-                return EquipmentType.ROUTER;
-            } else if (hostnameLower.contains("printer")) {
-                return EquipmentType.PRINTER;
-            } else if (hostnameLower.contains("server")) {
-                return EquipmentType.SERVER;
-            }
-        }
-        
-        // Default to unknown
-        return EquipmentType.UNKNOWN;
+        return deviceClassificationService.classify(snmpInfo.getSystemObjectId(), snmpInfo.getSystemDescription(),
+            hostname != null ? hostname : snmpInfo.getSystemName()).getEquipmentType();
     }
     
     /**
@@ -327,7 +711,9 @@ public class NetworkDiscoveryService {
     public CompletableFuture<Equipment> scanSingleDevice(String ipAddress) {
         logger.info("Scanning single device: {}", ipAddress);
         
-        Equipment equipment = discoverDevice(ipAddress);
+        CompletableFuture<String> hostname = reverseDnsService.resolveAsync(ipAddress);
+        Equipment equipment = discoverDevice(ipAddress, neighborTableService.snapshot().get(ipAddress),
+            reverseDnsService.await(hostname));
         
         if (equipment != null) {
             logger.info("Successfully scanned device: {}", ipAddress);
@@ -342,7 +728,42 @@ public class NetworkDiscoveryService {
      * Get discovery status
      */
     public DiscoveryStatus getDiscoveryStatus() {
-        return new DiscoveryStatus(discoveryEnabled, subnetRanges);
+        return new DiscoveryStatus(discoveryEnabled, subnetRanges, incrementalEnabled,
+            discoveryState.getHostCount(), discoveryState.getUnreachableCount());
+    }
+    
+    private enum ProbeResult { UNCHANGED, CHANGED, UNREACHABLE }
+    
+    /**
+     * Receives the progress of a subnet scan and can stop it
+     */
+    public interface ScanListener {
+    
+        ScanListener NONE = new ScanListener() { };
+        
+        /**
+         * A host answered the sweep
+         */
+        default void hostUp(String ipAddress) { }
+        
+        /**
+         * Share of the range swept so far, in percent
+         */
+        default void sweepProgress(double percent) { }
+        
+        /**
+         * The sweep is over; the up hosts are discovered next
+         */
+        default void sweepCompleted(int hostsUp) { }
+        
+        /**
+         * A host was discovered; equipment is null when discovery failed
+         */
+        default void hostProcessed(String ipAddress, Equipment equipment) { }
+        
+        default boolean isCancelled() {
+            return false;
+        }
     }
     
     /**
@@ -351,10 +772,17 @@ public class NetworkDiscoveryService {
     public static class DiscoveryStatus {
         private final boolean enabled;
         private final String subnetRanges;
+        private final boolean incremental;
+        private final int knownHosts;
+        private final int unreachableHosts;
         
-        public DiscoveryStatus(boolean enabled, String subnetRanges) {
+        public DiscoveryStatus(boolean enabled, String subnetRanges, boolean incremental,
+                               int knownHosts, int unreachableHosts) {
             this.enabled = enabled;
             this.subnetRanges = subnetRanges;
+            this.incremental = incremental;
+            this.knownHosts = knownHosts;
+            this.unreachableHosts = unreachableHosts;
         }
         
         public boolean isEnabled() {
@@ -364,5 +792,17 @@ public class NetworkDiscoveryService {
         public String getSubnetRanges() {
             return subnetRanges;
         }
+        
+        public boolean isIncremental() {
+            return incremental;
+        }
+        
+        public int getKnownHosts() {
+            return knownHosts;
+        }
+        
+        public int getUnreachableHosts() {
+            return unreachableHosts;
+        }
     }
 }
@@ -0,0 +1,303 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.annotation.PostConstruct;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.utils.ReportFormat;
+import ma.gov.dgh.helpdesk.utils.ReportType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service managing background report jobs.
+ * A submitted job is queued on the bounded report executor, writes its result to the local
+ * report store and can be polled or followed on the "reports" event stream. Each user may
+ * only have a limited number of unfinished jobs, and finished jobs expire after a TTL.
+ */
+@Service
+public class ReportJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+    
+    private final ReportJobWorker worker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path storageDir;
+    
+    @Value("${report.jobs.max-per-user:2}")
+    private int maxJobsPerUser;
+    
+    @Value("${report.jobs.ttl:24h}")
+    private Duration resultTtl;
+    
+    private final Map<Long, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong();
+    
+    @Autowired
+    public ReportJobService(@Lazy ReportJobWorker worker, ApplicationEventPublisher eventPublisher,
+                            @Value("${report.jobs.storage-dir:${java.io.tmpdir}/dgh-reports}") String storageDir) {
+        this.worker = worker;
+        this.eventPublisher = eventPublisher;
+        this.storageDir = Paths.get(storageDir);
+    }
+    
+    /**
+     * Create the report store and remove results left by a previous run, whose jobs are unknown now
+     */
+    @PostConstruct
+    public void initStore() throws IOException {
+        Files.createDirectories(storageDir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storageDir, "report-*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+    
+    /**
+     * Queue a report job for the given owner
+     */
+    public ReportJob submit(String owner, ReportType type, ReportFormat format, Map<String, String> filters) {
+        if (type == null || format == null) {
+            throw new IllegalArgumentException("Report type and format are required");
+        }
+        
+        ReportJob job;
+        synchronized (jobs) {
+            long unfinished = jobs.values().stream()
+                .filter(existing -> existing.owner.equals(owner) && !existing.isFinished())
+                .count();
+            if (unfinished >= maxJobsPerUser) {
+                throw new IllegalStateException("Too many report jobs in progress (limit " + maxJobsPerUser + ")");
+            }
+            long id = jobSequence.incrementAndGet();
+            job = new ReportJob(id, owner, type, format,
+                filters != null ? new LinkedHashMap<>(filters) : Map.of(),
+                storageDir.resolve("report-" + id + "." + format.getExtension()));
+            jobs.put(id, job);
+        }
+        
+        try {
+            worker.run(job);
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new IllegalStateException("Report queue is full, try again later");
+        }
+        publish(job);
+        return job;
+    }
+    
+    /**
+     * Find a job visible to the requester
+     */
+    public Optional<ReportJob> findJob(Long id, String requester, boolean admin) {
+        ReportJob job = jobs.get(id);
+        return job != null && (admin || job.owner.equals(requester)) ? Optional.of(job) : Optional.empty();
+    }
+    
+    /**
+     * Get the jobs of an owner, newest first
+     */
+    public List<ReportJob> findJobs(String owner) {
+        return jobs.values().stream()
+            .filter(job -> job.owner.equals(owner))
+            .sorted(Comparator.comparing((ReportJob job) -> job.id).reversed())
+            .toList();
+    }
+    
+    /**
+     * Get the result file of a completed job
+     */
+    public FileSystemResource getResult(ReportJob job) {
+        return new FileSystemResource(job.resultFile);
+    }
+    
+    /**
+     * Cancel an unfinished job, or delete a finished one with its result
+     */
+    public void cancelOrDelete(ReportJob job) {
+        // Under the job lock, like start(): a queued job cancelled here can no longer start
+        synchronized (job) {
+            if (!job.isFinished()) {
+                job.cancelRequested = true;
+                if (job.status == JobStatus.QUEUED) {
+                    finish(job, JobStatus.CANCELLED, null);
+                }
+                return;
+            }
+        }
+        jobs.remove(job.id);
+        deleteResult(job);
+    }
+    
+    /**
+     * Remove finished jobs older than the TTL together with their result files
+     */
+    @Scheduled(fixedDelayString = "${report.jobs.cleanup-interval:600000}")
+    public void cleanupExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(resultTtl);
+        int removed = 0;
+        for (ReportJob job : jobs.values()) {
+            if (job.isFinished() && job.finishedAt.isBefore(cutoff) && jobs.remove(job.id, job)) {
+                deleteResult(job);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} expired report jobs", removed);
+        }
+    }
+    
+    // Job lifecycle, driven by the worker
+    
+    boolean start(ReportJob job) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return false;
+            }
+            job.status = JobStatus.RUNNING;
+            job.startedAt = LocalDateTime.now();
+        }
+        publish(job);
+        return true;
+    }
+    
+    void progress(ReportJob job, long rowsWritten) {
+        if (job.cancelRequested) {
+            throw new JobCancelledException();
+        }
+        job.rowsWritten = rowsWritten;
+    }
+    
+    void finish(ReportJob job, JobStatus status, String error) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return;
+            }
+            job.status = status;
+            job.error = error;
+            job.finishedAt = LocalDateTime.now();
+        }
+        if (status != JobStatus.COMPLETED) {
+            deleteResult(job);
+        }
+        publish(job);
+    }
+    
+    private void deleteResult(ReportJob job) {
+        try {
+            Files.deleteIfExists(job.resultFile);
+            Files.deleteIfExists(job.partialFile());
+        } catch (IOException e) {
+            logger.warn("Could not delete report file {}: {}", job.resultFile, e.getMessage());
+        }
+    }
+    
+    private void publish(ReportJob job) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", job.id);
+        payload.put("owner", job.owner);
+        payload.put("type", job.type);
+        payload.put("format", job.format);
+        payload.put("status", job.status);
+        payload.put("rowsWritten", job.rowsWritten);
+        payload.put("error", job.error);
+        eventPublisher.publishEvent(new DomainEvent(DomainEventType.REPORT_JOB_UPDATED, job.id, payload, job.owner));
+    }
+    
+    /**
+     * Enumeration for report job states
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+    
+    /**
+     * Thrown from the progress callback to stop a cancelled job
+     */
+    static class JobCancelledException extends RuntimeException {
+        JobCancelledException() {
+            super("Report job cancelled", null, false, false);
+        }
+    }
+    
+    /**
+     * Inner class for a report job and its state
+     */
+    public static class ReportJob {
+        private final Long id;
+        private final String owner;
+        private final ReportType type;
+        private final ReportFormat format;
+        private final Map<String, String> filters;
+        private final Path resultFile;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long rowsWritten;
+        private volatile String error;
+        private volatile boolean cancelRequested;
+        
+        ReportJob(Long id, String owner, ReportType type, ReportFormat format, Map<String, String> filters,
+                  Path resultFile) {
+            this.id = id;
+            this.owner = owner;
+            this.type = type;
+            this.format = format;
+            this.filters = filters;
+            this.resultFile = resultFile;
+        }
+        
+        public boolean isFinished() {
+            return status == JobStatus.COMPLETED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+        }
+        
+        Path resultFile() {
+            return resultFile;
+        }
+        
+        Path partialFile() {
+            return resultFile.resolveSibling(resultFile.getFileName() + ".part");
+        }
+        
+        public String getFileName() {
+            return type.name().toLowerCase().replace('_', '-') + "-" + id + "." + format.getExtension();
+        }
+        
+        // Getters
+        public Long getId() { return id; }
+        public String getOwner() { return owner; }
+        public ReportType getType() { return type; }
+        public ReportFormat getFormat() { return format; }
+        public Map<String, String> getFilters() { return filters; }
+        public JobStatus getStatus() { return status; }
+        public LocalDateTime getSubmittedAt() { return submittedAt; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public long getRowsWritten() { return rowsWritten; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,61 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.service.ReportJobService.JobCancelledException;
+import ma.gov.dgh.helpdesk.service.ReportJobService.JobStatus;
+import ma.gov.dgh.helpdesk.service.ReportJobService.ReportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Runs report jobs on the report executor.
+ * The report is written to a partial file that is moved in place once complete,
+ * so a result file is never served half-written.
+ */
+@Component
+public class ReportJobWorker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobWorker.class);
+    
+    private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    
+    @Autowired
+    public ReportJobWorker(ReportService reportService, ReportJobService reportJobService) {
+        this.reportService = reportService;
+        this.reportJobService = reportJobService;
+    }
+    
+    /**
+     * Generate the job's report
+     */
+    @Async("reportExecutor")
+    public void run(ReportJob job) {
+        if (!reportJobService.start(job)) {
+            return;
+        }
+        
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(job.partialFile()))) {
+                reportService.generate(job.getType(), job.getFormat(), job.getFilters(), out,
+                    rows -> reportJobService.progress(job, rows));
+            }
+            Files.move(job.partialFile(), job.resultFile(), StandardCopyOption.REPLACE_EXISTING);
+            reportJobService.finish(job, JobStatus.COMPLETED, null);
+            logger.info("Report job {} ({} {}) completed with {} rows", job.getId(), job.getType(),
+                job.getFormat(), job.getRowsWritten());
+        } catch (JobCancelledException e) {
+            reportJobService.finish(job, JobStatus.CANCELLED, null);
+        } catch (Exception e) {
+            logger.error("Report job {} failed: {}", job.getId(), e.getMessage());
+            reportJobService.finish(job, JobStatus.FAILED, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.entity.RollupGranularity;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketMetricRollup;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.repository.TicketMetricRollupRepository;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import ma.gov.dgh.helpdesk.utils.ReportFormat;
+import ma.gov.dgh.helpdesk.utils.ReportType;
+import ma.gov.dgh.helpdesk.utils.ReportWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting ticket and equipment reports.
+ * Rows are read as scalar projections from a database cursor and written one by one,
+ * so memory use does not depend on the number of exported rows.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+    
+    private static final String[] TICKET_COLUMNS = {
+        "ID", "Title", "Status", "Priority", "Category", "Created By", "Assigned To", "Equipment",
+        "Escalated", "Created At", "Updated At", "Due Date", "Resolved At"
+    };
+    
+    private static final String[] EQUIPMENT_COLUMNS = {
+        "ID", "Hostname", "IP Address", "MAC Address", "Type", "Status", "Location", "Manufacturer",
+        "Model", "Serial Number", "Asset Tag", "OS Name", "OS Version", "Managed", "Last Seen",
+        "Purchase Date", "Warranty Expiry"
+    };
+    
+    private static final String[] TECHNICIAN_PERFORMANCE_COLUMNS = {
+        "Technician ID", "Technician", "Tickets Received", "Tickets Resolved", "Average Resolution (hours)"
+    };
+    
+    // Progress is reported every this many rows
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final LongConsumer NO_PROGRESS = rows -> { };
+    
+    private final TicketRepository ticketRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final TicketMetricRollupRepository rollupRepository;
+    private final UserRepository userRepository;
+    
+    @Autowired
+    public ReportService(TicketRepository ticketRepository, EquipmentRepository equipmentRepository,
+                         TicketMetricRollupRepository rollupRepository, UserRepository userRepository) {
+        this.ticketRepository = ticketRepository;
+        this.equipmentRepository = equipmentRepository;
+        this.rollupRepository = rollupRepository;
+        this.userRepository = userRepository;
+    }
+    
+    /**
+     * Write a report described by its type and string filters (report jobs).
+     * The progress callback receives the number of rows written so far and may throw to abort.
+     */
+    public long generate(ReportType type, ReportFormat format, Map<String, String> filters, OutputStream out,
+                         LongConsumer progress) throws IOException {
+        ReportFilters params = new ReportFilters(filters);
+        return switch (type) {
+            case TICKETS -> {
+                try (Stream<Object[]> rows = ticketRepository.streamTicketReportRows(
+                        params.text("search"), params.enumValue("status", TicketStatus.class),
+                        params.enumValue("priority", TicketPriority.class),
+                        params.enumValue("category", TicketCategory.class), params.longValue("createdById"),
+                        params.longValue("assignedToId"), params.longValue("equipmentId"))) {
+                    yield write(format.open(out, "Tickets"), TICKET_COLUMNS, rows, progress);
+                }
+            }
+            case EQUIPMENT -> {
+                try (Stream<Object[]> rows = equipmentRepository.streamEquipmentReportRows(
+                        params.text("search"), params.enumValue("equipmentType", EquipmentType.class),
+                        params.enumValue("status", EquipmentStatus.class), params.text("location"),
+                        params.booleanValue("isManaged"))) {
+                    yield write(format.open(out, "Equipment"), EQUIPMENT_COLUMNS, rows, progress);
+                }
+            }
+            case TECHNICIAN_PERFORMANCE -> {
+                LocalDateTime to = params.dateTime("to", LocalDateTime.now());
+                LocalDateTime from = params.dateTime("from", to.minusYears(1));
+                yield exportTechnicianPerformance(format, out, from, to, progress);
+            }
+        };
+    }
+    
+    /**
+     * Write the tickets matching the list filters to the output; returns the number of rows
+     */
+    public long exportTickets(ReportFormat format, OutputStream out, String search, TicketStatus status,
+                              TicketPriority priority, TicketCategory category, Long createdById,
+                              Long assignedToId, Long equipmentId) throws IOException {
+        try (Stream<Object[]> rows = ticketRepository.streamTicketReportRows(
+                search, status, priority, category, createdById, assignedToId, equipmentId)) {
+            long count = write(format.open(out, "Tickets"), TICKET_COLUMNS, rows, NO_PROGRESS);
+            logger.info("Exported {} tickets as {}", count, format);
+            return count;
+        }
+    }
+    
+    /**
+     * Write the equipment matching the list filters to the output; returns the number of rows
+     */
+    public long exportEquipment(ReportFormat format, OutputStream out, String search, EquipmentType equipmentType,
+                                EquipmentStatus status, String location, Boolean isManaged) throws IOException {
+        try (Stream<Object[]> rows = equipmentRepository.streamEquipmentReportRows(
+                search, equipmentType, status, location, isManaged)) {
+            long count = write(format.open(out, "Equipment"), EQUIPMENT_COLUMNS, rows, NO_PROGRESS);
+            logger.info("Exported {} equipment as {}", count, format);
+            return count;
+        }
+    }
+    
+    /**
+     * Write ticket counts and average resolution time per technician from the daily metric rollups
+     */
+    public long exportTechnicianPerformance(ReportFormat format, OutputStream out, LocalDateTime from,
+                                            LocalDateTime to, LongConsumer progress) throws IOException {
+        List<Object[]> totals = rollupRepository.getTotalsByAssignee(RollupGranularity.DAY, from, to);
+        Map<Long, String> names = new HashMap<>();
+        for (User user : userRepository.findAllById(totals.stream().map(row -> (Long) row[0]).toList())) {
+            names.put(user.getId(), user.getFullName());
+        }
+        
+        Stream<Object[]> rows = totals.stream()
+            .filter(row -> (Long) row[0] != TicketMetricRollup.UNASSIGNED)
+            .sorted(Comparator.comparing((Object[] row) -> (Long) row[2]).reversed())
+            .map(row -> {
+                long resolved = (Long) row[2];
+                Double averageHours = resolved > 0 ? ((Long) row[3]) / 60.0 / resolved : null;
+                return new Object[] { row[0], names.get((Long) row[0]), row[1], resolved, averageHours };
+            });
+        return write(format.open(out, "Technician Performance"), TECHNICIAN_PERFORMANCE_COLUMNS, rows, progress);
+    }
+    
+    private long write(ReportWriter writer, String[] columns, Stream<Object[]> rows, LongConsumer progress)
+            throws IOException {
+        long count = 0;
+        try (writer) {
+            writer.writeHeader(columns);
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeRow(iterator.next());
+                if (++count % PROGRESS_INTERVAL == 0) {
+                    progress.accept(count);
+                }
+            }
+        }
+        progress.accept(count);
+        return count;
+    }
+    
+    /**
+     * String filters of a report job, converted on access
+     */
+    private static class ReportFilters {
+        private final Map<String, String> values;
+        
+        ReportFilters(Map<String, String> values) {
+            this.values = values != null ? values : Map.of();
+        }
+        
+        String text(String name) {
+            String value = values.get(name);
+            return value != null && !value.isBlank() ? value.trim() : null;
+        }
+        
+        Long longValue(String name) {
+            String value = text(name);
+            try {
+                return value != null ? Long.valueOf(value) : null;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for filter " + name + ": " + value);
+            }
+        }
+        
+        Boolean booleanValue(String name) {
+            String value = text(name);
+            return value != null ? Boolean.valueOf(value) : null;
+        }
+        
+        <E extends Enum<E>> E enumValue(String name, Class<E> type) {
+            String value = text(name);
+            try {
+                return value != null ? Enum.valueOf(type, value.toUpperCase()) : null;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for filter " + name + ": " + value);
+            }
+        }
+        
+        LocalDateTime dateTime(String name, LocalDateTime defaultValue) {
+            String value = text(name);
+            try {
+                return value != null ? LocalDateTime.parse(value) : defaultValue;
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid date-time for filter " + name + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ma.gov.dgh.helpdesk.service;
+
+import java.io.IOException;
+
+/**
+ * Blocking PTR lookup used by ReverseDnsService; implementations can be swapped,
+ * for instance for a local stub in tests
+ */
+@FunctionalInterface
+public interface ReverseDnsResolver {
+    
+    /**
+     * Look up the host name of an IP address; returns null when the address has no PTR record.
+     * Throws IOException when the lookup could not be completed.
+     */
+    String lookup(String ipAddress) throws IOException;
+}
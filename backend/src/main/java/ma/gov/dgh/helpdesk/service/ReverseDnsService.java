@@ -0,0 +1,148 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service resolving host names of discovered addresses without blocking the scan.
+ * Lookups are started as soon as hosts are found and run concurrently on a bounded pool;
+ * callers collect them later and wait at most the lookup timeout. Answers are cached
+ * across scans: names for the positive TTL, missing PTR records and failures for the
+ * shorter negative TTL.
+ */
+@Service
+public class ReverseDnsService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReverseDnsService.class);
+    
+    private final ReverseDnsResolver resolver;
+    private final Executor dnsExecutor;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private final long timeoutMillis;
+    private final int maxEntries;
+    
+    private final Map<String, CachedName> cache = new ConcurrentHashMap<>();
+    // Lookups in progress, so concurrent scans of one address share a query
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public ReverseDnsService(ReverseDnsResolver resolver, @Qualifier("dnsExecutor") Executor dnsExecutor,
+                             @Value("${network.discovery.dns.positive-ttl:1h}") Duration positiveTtl,
+                             @Value("${network.discovery.dns.negative-ttl:5m}") Duration negativeTtl,
+                             @Value("${network.discovery.dns.timeout:2000}") long timeoutMillis,
+                             @Value("${network.discovery.dns.cache-size:100000}") int maxEntries) {
+        this.resolver = resolver;
+        this.dnsExecutor = dnsExecutor;
+        this.positiveTtlMillis = positiveTtl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.timeoutMillis = timeoutMillis;
+        this.maxEntries = maxEntries;
+    }
+    
+    /**
+     * Start resolving the host name of an address; the future completes with null when the
+     * address has no name or the lookup failed. Collect it with await.
+     */
+    public CompletableFuture<String> resolveAsync(String ipAddress) {
+        CachedName cached = cache.get(ipAddress);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached.hostname);
+        }
+        
+        CompletableFuture<String> lookup = inFlight.computeIfAbsent(ipAddress, this::startLookup);
+        if (lookup == null) {
+            // Pool saturated: answer without a name this time and leave the cache alone
+            return CompletableFuture.completedFuture(null);
+        }
+        // A copy, so a caller giving up does not complete the shared lookup, which still caches its answer
+        return lookup.copy();
+    }
+    
+    /**
+     * Wait for a started lookup, at most the lookup timeout counted from now; null when it did not answer
+     */
+    public String await(CompletableFuture<String> pending) {
+        return pending.completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS).join();
+    }
+    
+    /**
+     * Resolve the host name of an address, waiting at most the lookup timeout
+     */
+    public String resolve(String ipAddress) {
+        return await(resolveAsync(ipAddress));
+    }
+    
+    /**
+     * Drop expired cache entries
+     */
+    @Scheduled(fixedDelayString = "${network.discovery.dns.purge-interval:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+    
+    private CompletableFuture<String> startLookup(String ipAddress) {
+        try {
+            return CompletableFuture.supplyAsync(() -> lookupAndCache(ipAddress), dnsExecutor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+    
+    private String lookupAndCache(String ipAddress) {
+        try {
+            return lookupAndCacheName(ipAddress);
+        } finally {
+            // Waits for the computeIfAbsent that registered this lookup, so it never stays registered
+            inFlight.remove(ipAddress);
+        }
+    }
+    
+    private String lookupAndCacheName(String ipAddress) {
+        String hostname = null;
+        long ttl = negativeTtlMillis;
+        try {
+            hostname = resolver.lookup(ipAddress);
+            if (hostname != null && !hostname.isBlank() && !hostname.equals(ipAddress)) {
+                ttl = positiveTtlMillis;
+            } else {
+                hostname = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Reverse lookup failed for {}: {}", ipAddress, e.getMessage());
+        }
+        
+        if (cache.size() >= maxEntries) {
+            purgeExpired();
+        }
+        if (cache.size() < maxEntries) {
+            cache.put(ipAddress, new CachedName(hostname, System.currentTimeMillis() + ttl));
+        }
+        return hostname;
+    }
+    
+    private static class CachedName {
+        private final String hostname;
+        private final long expiresAt;
+        
+        CachedName(String hostname, long expiresAt) {
+            this.hostname = hostname;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.utils.HashedTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Service firing SLA breaches at ticket due dates.
+ * Due dates of open tickets live in a hashed timing wheel, loaded at startup with one
+ * projection query and kept current from the ticket domain events, so overdue tickets
+ * are acted on at their deadline instead of being found by periodic scans.
+ */
+@Service
+public class SlaSchedulerService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SlaSchedulerService.class);
+    
+    private static final Set<TicketStatus> CLOSED_STATUSES =
+        EnumSet.of(TicketStatus.RESOLVED, TicketStatus.CLOSED, TicketStatus.CANCELLED);
+    
+    private final TicketRepository ticketRepository;
+    private final TicketService ticketService;
+    private final Executor taskExecutor;
+    private final HashedTimingWheel<Long> timingWheel;
+    
+    @Value("${sla.scheduler.enabled:true}")
+    private boolean schedulerEnabled;
+    
+    @Autowired
+    public SlaSchedulerService(TicketRepository ticketRepository, TicketService ticketService,
+                               @Qualifier("taskExecutor") Executor taskExecutor,
+                               @Value("${sla.scheduler.tick-ms:1000}") long tickMillis,
+                               @Value("${sla.scheduler.wheel-size:4096}") int wheelSize) {
+        this.ticketRepository = ticketRepository;
+        this.ticketService = ticketService;
+        this.taskExecutor = taskExecutor;
+        this.timingWheel = new HashedTimingWheel<>(tickMillis, wheelSize, this::onDeadline, "DGH-SLA-Timer");
+    }
+    
+    /**
+     * Rebuild the timer state from the open tickets and start the wheel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadOpenTickets() {
+        if (!schedulerEnabled) {
+            logger.info("SLA scheduler is disabled");
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> deadlines = ticketRepository.findOpenTicketDeadlines();
+        int skipped = 0;
+        for (Object[] row : deadlines) {
+            Long ticketId = (Long) row[0];
+            LocalDateTime dueDate = (LocalDateTime) row[1];
+            Boolean isEscalated = (Boolean) row[2];
+            // Breaches already escalated before the restart are not fired again
+            if (dueDate.isBefore(now) && Boolean.TRUE.equals(isEscalated)) {
+                skipped++;
+                continue;
+            }
+            timingWheel.schedule(ticketId, toEpochMillis(dueDate));
+        }
+        
+        timingWheel.start();
+        logger.info("SLA scheduler started with {} deadlines ({} past-due escalated tickets skipped)",
+            timingWheel.size(), skipped);
+    }
+    
+    /**
+     * Keep the wheel in line with ticket changes once they are committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTicketEvent(DomainEvent event) {
+        if (!schedulerEnabled || !DomainEvent.TOPIC_TICKETS.equals(event.getTopic())) {
+            return;
+        }
+        
+        DomainEventType type = event.getType();
+        if (type == DomainEventType.TICKET_COMMENT_ADDED || type == DomainEventType.TICKET_SLA_BREACHED) {
+            return;
+        }
+        if (type == DomainEventType.TICKET_DELETED) {
+            timingWheel.cancel(event.getAggregateId());
+            return;
+        }
+        
+        TicketStatus status = (TicketStatus) event.getPayload().get("status");
+        LocalDateTime dueDate = (LocalDateTime) event.getPayload().get("dueDate");
+        boolean breachHandled = Boolean.TRUE.equals(event.getPayload().get("isEscalated"))
+            && dueDate != null && !dueDate.isAfter(LocalDateTime.now());
+        if (dueDate == null || CLOSED_STATUSES.contains(status) || breachHandled) {
+            timingWheel.cancel(event.getAggregateId());
+        } else {
+            Long currentDeadline = timingWheel.getDeadline(event.getAggregateId());
+            long deadline = toEpochMillis(dueDate);
+            if (currentDeadline == null || currentDeadline != deadline) {
+                timingWheel.schedule(event.getAggregateId(), deadline);
+            }
+        }
+    }
+    
+    /**
+     * Get the number of tickets with a pending SLA deadline
+     */
+    public int getScheduledCount() {
+        return timingWheel.size();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+    }
+    
+    private void onDeadline(Long ticketId) {
+        // Database work is kept off the wheel thread so ticks stay on time
+        taskExecutor.execute(() -> {
+            try {
+                ticketService.handleSlaBreach(ticketId);
+            } catch (Exception e) {
+                logger.error("Error handling SLA breach for ticket {}: {}", ticketId, e.getMessage());
+            }
+        });
+    }
+    
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,600 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.utils.TimeSeriesStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.AssignableFromLong;
+import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service polling managed equipment over SNMP into the embedded time-series store.
+ * Devices are spread over one-second slots of the polling interval; each poll is a single
+ * asynchronous GETBULK carrying the uptime and host-resource scalars plus the interface octet
+ * counter columns, answered on the transport thread, so thousands of requests can be in flight
+ * from one shared session. Counters are stored as bit rates, gauges as read.
+ */
+@Service
+public class SnmpPollingService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SnmpPollingService.class);
+    
+    public static final String METRIC_SYS_UPTIME = "sys_uptime";
+    public static final String METRIC_HR_UPTIME = "hr_uptime";
+    public static final String METRIC_PROCESSES = "processes";
+    public static final String METRIC_IF_IN_BPS = "if_in_bps";
+    public static final String METRIC_IF_OUT_BPS = "if_out_bps";
+    public static final String METRIC_RESPONSE_TIME = "response_ms";
+    
+    private static final OID[] SCALAR_INSTANCES = {
+        new OID(SnmpService.OID_SYSTEM_UPTIME),
+        new OID(SnmpService.OID_HR_SYSTEM_UPTIME),
+        new OID(SnmpService.OID_HR_SYSTEM_PROCESSES)
+    };
+    // Non-repeaters have GETNEXT semantics: the object is requested and its .0 instance comes back
+    private static final OID[] SCALAR_OBJECTS = {
+        new OID(SnmpService.OID_SYSTEM_UPTIME).trim(),
+        new OID(SnmpService.OID_HR_SYSTEM_UPTIME).trim(),
+        new OID(SnmpService.OID_HR_SYSTEM_PROCESSES).trim()
+    };
+    private static final String[] SCALAR_METRICS = {METRIC_SYS_UPTIME, METRIC_HR_UPTIME, METRIC_PROCESSES};
+    
+    // ifXTable 64-bit octet counters, with the ifTable 32-bit ones for agents without ifXTable
+    static final OID IF_HC_IN_OCTETS = new OID("1.3.6.1.2.1.31.1.1.1.6");
+    static final OID IF_HC_OUT_OCTETS = new OID("1.3.6.1.2.1.31.1.1.1.10");
+    static final OID IF_IN_OCTETS = new OID("1.3.6.1.2.1.2.2.1.10");
+    static final OID IF_OUT_OCTETS = new OID("1.3.6.1.2.1.2.2.1.16");
+    
+    private final EquipmentRepository equipmentRepository;
+    private final TimeSeriesStore store;
+    private final Path snapshotFile;
+    private final Semaphore inFlight;
+    private final int slotCount;
+    
+    private final Map<Long, PollTarget> targets = new ConcurrentHashMap<>();
+    // Slots are replaced, never changed in place, as the poller iterates them without locking
+    private volatile List<List<PollTarget>> slots = List.of();
+    // Serializes target refreshes and removals
+    private final Object targetLock = new Object();
+    private volatile Snmp snmp;
+    private long tick;
+    
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    
+    @Value("${snmp.polling.enabled:false}")
+    private boolean pollingEnabled;
+    
+    @Value("${network.discovery.snmp.community:public}")
+    private String snmpCommunity;
+    
+    @Value("${snmp.polling.timeout:2000}")
+    private long timeoutMillis;
+    
+    @Value("${snmp.polling.retries:1}")
+    private int retries;
+    
+    @Value("${snmp.polling.max-repetitions:48}")
+    private int maxRepetitions;
+    
+    @Autowired
+    public SnmpPollingService(EquipmentRepository equipmentRepository,
+                              @Value("${snmp.polling.interval:60000}") long intervalMillis,
+                              @Value("${snmp.polling.max-in-flight:512}") int maxInFlight,
+                              @Value("${snmp.polling.raw-retention:6h}") Duration rawRetention,
+                              @Value("${snmp.polling.rollup-step:15m}") Duration rollupStep,
+                              @Value("${snmp.polling.rollup-retention:7d}") Duration rollupRetention,
+                              @Value("${snmp.polling.storage-file:./data/metrics/snmp.tsdb}") String storageFile) {
+        this.equipmentRepository = equipmentRepository;
+        this.store = new TimeSeriesStore(rawRetention.toMillis(), rollupStep.toMillis(), rollupRetention.toMillis());
+        this.snapshotFile = Paths.get(storageFile).toAbsolutePath().normalize();
+        this.inFlight = new Semaphore(maxInFlight);
+        this.slotCount = (int) Math.max(1, intervalMillis / 1000);
+    }
+    
+    /**
+     * Restore the stored history and open the polling session
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (Files.isRegularFile(snapshotFile)) {
+            try {
+                store.load(snapshotFile);
+                logger.info("Loaded {} metric series from {}", store.getStats()[0], snapshotFile);
+            } catch (IOException e) {
+                logger.error("Could not load metric snapshot {}: {}", snapshotFile, e.getMessage());
+            }
+        }
+        if (!pollingEnabled) {
+            logger.info("SNMP polling is disabled");
+            return;
+        }
+        
+        try {
+            DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping();
+            Snmp session = new Snmp(transport);
+            session.listen();
+            snmp = session;
+        } catch (IOException e) {
+            logger.error("Could not open SNMP polling session: {}", e.getMessage());
+            return;
+        }
+        refreshTargets();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        Snmp session = snmp;
+        snmp = null;
+        if (session != null) {
+            try {
+                session.close();
+            } catch (IOException e) {
+                logger.debug("Error closing SNMP polling session: {}", e.getMessage());
+            }
+        }
+        saveSnapshot();
+    }
+    
+    /**
+     * Reload the managed equipment and spread it over the polling slots
+     */
+    @Scheduled(fixedDelayString = "${snmp.polling.target-refresh-interval:300000}",
+               initialDelayString = "${snmp.polling.target-refresh-interval:300000}")
+    public void refreshTargets() {
+        if (snmp == null) {
+            return;
+        }
+        List<Object[]> rows = equipmentRepository.findManagedPollTargets();
+        Map<Long, PollTarget> current = new HashMap<>();
+        List<List<PollTarget>> assigned = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            assigned.add(new ArrayList<>());
+        }
+        
+        synchronized (targetLock) {
+            int index = 0;
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                String ipAddress = (String) row[1];
+                PollTarget target = targets.get(id);
+                // Counter state survives refreshes unless the address changed
+                if (target == null || !target.ipAddress.equals(ipAddress)) {
+                    target = new PollTarget(id, ipAddress, createTarget(ipAddress));
+                }
+                current.put(id, target);
+                assigned.get(index++ % slotCount).add(target);
+            }
+            targets.keySet().retainAll(current.keySet());
+            targets.putAll(current);
+            slots = assigned;
+        }
+        logger.debug("SNMP polling {} managed devices over {} slots", current.size(), slotCount);
+    }
+    
+    /**
+     * Send the polls of the current one-second slot
+     */
+    @Scheduled(fixedRate = 1000)
+    public void pollSlot() {
+        Snmp session = snmp;
+        List<List<PollTarget>> current = slots;
+        if (session == null || current.isEmpty()) {
+            return;
+        }
+        for (PollTarget target : current.get((int) (tick++ % current.size()))) {
+            // A device still answering its previous poll, or a full pipeline, skips this round
+            if (!target.busy.compareAndSet(false, true)) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            if (!inFlight.tryAcquire()) {
+                target.busy.set(false);
+                skipped.incrementAndGet();
+                continue;
+            }
+            new PollRequest(session, target).send();
+        }
+    }
+    
+    /**
+     * Roll old raw samples up and drop expired history
+     */
+    @Scheduled(fixedDelayString = "${snmp.polling.compact-interval:600000}",
+               initialDelayString = "${snmp.polling.compact-interval:600000}")
+    public void compact() {
+        store.compact(System.currentTimeMillis());
+    }
+    
+    /**
+     * Write the history to disk so it survives restarts
+     */
+    @Scheduled(fixedDelayString = "${snmp.polling.snapshot-interval:300000}",
+               initialDelayString = "${snmp.polling.snapshot-interval:300000}")
+    public void saveSnapshot() {
+        if (store.getStats()[0] == 0 && !Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            store.save(snapshotFile);
+        } catch (IOException e) {
+            logger.error("Could not save metric snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+    
+    /**
+     * Stop polling deleted equipment and drop its history
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEquipmentEvent(DomainEvent event) {
+        if (event.getType() == DomainEventType.EQUIPMENT_DELETED) {
+            synchronized (targetLock) {
+                PollTarget removed = targets.remove(event.getAggregateId());
+                if (removed != null) {
+                    List<List<PollTarget>> remaining = new ArrayList<>(slots.size());
+                    for (List<PollTarget> slot : slots) {
+                        remaining.add(slot.stream().filter(target -> target != removed).toList());
+                    }
+                    slots = remaining;
+                }
+            }
+            store.removeAll(event.getAggregateId() + "/");
+        }
+    }
+    
+    /**
+     * Get the names of the metrics recorded for a device
+     */
+    public List<String> getMetricNames(Long equipmentId) {
+        String prefix = equipmentId + "/";
+        return store.keys(prefix).stream().map(key -> key.substring(prefix.length())).toList();
+    }
+    
+    /**
+     * Get a device metric over a time range. Resolution is raw, rollup, or auto, which uses
+     * the rollup points when the range starts before the oldest raw sample.
+     */
+    public MetricHistory getHistory(Long equipmentId, String metric, LocalDateTime from, LocalDateTime to,
+                                    String resolution) {
+        String key = equipmentId + "/" + metric;
+        long fromMillis = from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long toMillis = to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean rollup = switch (resolution.toLowerCase()) {
+            case "raw" -> false;
+            case "rollup" -> true;
+            case "auto" -> {
+                Long oldestRaw = store.getOldestRawTimestamp(key);
+                yield oldestRaw == null || fromMillis < oldestRaw;
+            }
+            default -> throw new IllegalArgumentException("Unknown resolution: " + resolution);
+        };
+        return new MetricHistory(metric, rollup ? "rollup" : "raw", store.query(key, fromMillis, toMillis, rollup));
+    }
+    
+    /**
+     * Get poller counters and the size of the metric store
+     */
+    public PollingStats getStats() {
+        long[] storeStats = store.getStats();
+        return new PollingStats(pollingEnabled && snmp != null, targets.size(), sent.get(), answered.get(),
+            failed.get(), skipped.get(), storeStats[0], storeStats[1]);
+    }
+    
+    private CommunityTarget<Address> createTarget(String ipAddress) {
+        CommunityTarget<Address> target = new CommunityTarget<>();
+        target.setCommunity(new OctetString(snmpCommunity));
+        target.setAddress(GenericAddress.parse("udp:" + ipAddress + "/161"));
+        target.setRetries(retries);
+        target.setTimeout(timeoutMillis);
+        target.setVersion(SnmpConstants.version2c);
+        return target;
+    }
+    
+    /**
+     * Polling state of one device, carried between polls
+     */
+    private static class PollTarget {
+        private final Long id;
+        private final String ipAddress;
+        private final CommunityTarget<Address> target;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        // Guarded by busy: only the poll in flight touches the fields below
+        private boolean highCapacity = true;
+        private Map<Integer, long[]> previousCounters = Map.of();
+        private long previousTimestamp;
+        private long previousUptime = -1;
+        
+        PollTarget(Long id, String ipAddress, CommunityTarget<Address> target) {
+            this.id = id;
+            this.ipAddress = ipAddress;
+            this.target = target;
+        }
+    }
+    
+    /**
+     * One poll of a device: the first GETBULK and, for devices with more interfaces than
+     * max-repetitions, the GETBULKs continuing the counter columns
+     */
+    private class PollRequest implements ResponseListener {
+        private final Snmp session;
+        private final PollTarget target;
+        private final OID inColumn;
+        private final OID outColumn;
+        private final long timestamp = System.currentTimeMillis();
+        private final long startedNanos = System.nanoTime();
+        private final Map<Integer, long[]> counters = new HashMap<>();
+        private long[] scalars;
+        
+        PollRequest(Snmp session, PollTarget target) {
+            this.session = session;
+            this.target = target;
+            this.inColumn = target.highCapacity ? IF_HC_IN_OCTETS : IF_IN_OCTETS;
+            this.outColumn = target.highCapacity ? IF_HC_OUT_OCTETS : IF_OUT_OCTETS;
+        }
+        
+        void send() {
+            sendPdu(firstPollPdu(inColumn, outColumn, maxRepetitions));
+        }
+        
+        private void sendPdu(PDU pdu) {
+            try {
+                sent.incrementAndGet();
+                session.send(pdu, target.target, null, this);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                finish(false);
+            }
+        }
+        
+        @Override
+        public <A extends Address> void onResponse(ResponseEvent<A> event) {
+            // Asynchronous requests must be cancelled once answered, or they linger until timeout
+            ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+            PDU response = event.getResponse();
+            if (response == null || response.getErrorStatus() != PDU.noError) {
+                failed.incrementAndGet();
+                finish(false);
+                return;
+            }
+            answered.incrementAndGet();
+            try {
+                handle(response);
+            } catch (RuntimeException e) {
+                logger.debug("Invalid SNMP poll response from {}: {}", target.ipAddress, e.getMessage());
+                finish(false);
+            }
+        }
+        
+        private void handle(PDU response) {
+            List<? extends VariableBinding> bindings = response.getVariableBindings();
+            int first = 0;
+            if (scalars == null) {
+                scalars = readScalars(bindings);
+                first = SCALAR_OBJECTS.length;
+            }
+            
+            int rows = readCounters(bindings, first, inColumn, outColumn, counters);
+            OID lastIn = rows > 0 ? bindings.get(first + 2 * rows - 2).getOid() : null;
+            OID lastOut = rows > 0 ? bindings.get(first + 2 * rows - 1).getOid() : null;
+            
+            if (first > 0 && rows == 0 && target.highCapacity && bindings.size() > first) {
+                // No ifXTable on this agent; fall back to the 32-bit counters from the next poll
+                target.highCapacity = false;
+            }
+            if (rows > 0 && rows == maxRepetitions) {
+                PDU next = new PDU();
+                next.setType(PDU.GETBULK);
+                next.add(new VariableBinding(lastIn));
+                next.add(new VariableBinding(lastOut));
+                next.setMaxRepetitions(maxRepetitions);
+                sendPdu(next);
+                return;
+            }
+            finish(true);
+        }
+        
+        private void finish(boolean success) {
+            try {
+                // A device deleted while its poll was in flight keeps no history
+                if (success && targets.get(target.id) == target) {
+                    record();
+                }
+            } finally {
+                target.busy.set(false);
+                inFlight.release();
+            }
+        }
+        
+        private void record() {
+            String prefix = target.id + "/";
+            for (int i = 0; i < SCALAR_METRICS.length; i++) {
+                if (scalars[i] >= 0) {
+                    // Uptimes are TimeTicks (hundredths of a second), stored in seconds
+                    long value = i < 2 ? scalars[i] / 100 : scalars[i];
+                    store.append(prefix + SCALAR_METRICS[i], timestamp, value);
+                }
+            }
+            store.append(prefix + METRIC_RESPONSE_TIME, timestamp, (System.nanoTime() - startedNanos) / 1_000_000);
+            
+            // A restarted agent resets its counters, so no rate is computed across a reboot
+            long uptime = scalars[0];
+            boolean rebooted = uptime >= 0 && target.previousUptime >= 0 && uptime < target.previousUptime;
+            long elapsed = timestamp - target.previousTimestamp;
+            if (!counters.isEmpty() && !target.previousCounters.isEmpty() && !rebooted && elapsed > 0) {
+                long inOctets = 0;
+                long outOctets = 0;
+                for (Map.Entry<Integer, long[]> entry : counters.entrySet()) {
+                    long[] previous = target.previousCounters.get(entry.getKey());
+                    if (previous != null) {
+                        inOctets += counterDelta(previous[0], entry.getValue()[0]);
+                        outOctets += counterDelta(previous[1], entry.getValue()[1]);
+                    }
+                }
+                store.append(prefix + METRIC_IF_IN_BPS, timestamp, inOctets * 8000 / elapsed);
+                store.append(prefix + METRIC_IF_OUT_BPS, timestamp, outOctets * 8000 / elapsed);
+            }
+            if (!counters.isEmpty()) {
+                target.previousCounters = counters;
+                target.previousTimestamp = timestamp;
+            }
+            target.previousUptime = uptime;
+        }
+        
+        private long counterDelta(long previous, long current) {
+            long delta = current - previous;
+            if (delta >= 0) {
+                return delta;
+            }
+            // 32-bit counters wrap; a 64-bit counter going back was reset
+            return inColumn.equals(IF_IN_OCTETS) ? delta + (1L << 32) : 0;
+        }
+    }
+    
+    /**
+     * Build the first GETBULK of a poll: the scalars as non-repeaters, then the two counter columns
+     */
+    static PDU firstPollPdu(OID inColumn, OID outColumn, int maxRepetitions) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        for (OID oid : SCALAR_OBJECTS) {
+            pdu.add(new VariableBinding(oid));
+        }
+        pdu.setNonRepeaters(SCALAR_OBJECTS.length);
+        pdu.add(new VariableBinding(inColumn));
+        pdu.add(new VariableBinding(outColumn));
+        pdu.setMaxRepetitions(maxRepetitions);
+        return pdu;
+    }
+    
+    /**
+     * Read the scalars answered to the non-repeaters; -1 for an object the agent does not have,
+     * whose binding then holds the next object in the MIB (of any syntax) or endOfMibView
+     */
+    static long[] readScalars(List<? extends VariableBinding> bindings) {
+        long[] values = new long[SCALAR_INSTANCES.length];
+        for (int i = 0; i < SCALAR_INSTANCES.length; i++) {
+            VariableBinding binding = i < bindings.size() ? bindings.get(i) : null;
+            boolean answered = binding != null && binding.getOid().equals(SCALAR_INSTANCES[i])
+                && binding.getVariable() instanceof AssignableFromLong;
+            values[i] = answered ? binding.getVariable().toLong() : -1;
+        }
+        return values;
+    }
+    
+    /**
+     * Read the counter rows of a GETBULK response from the first repetition on, into counters
+     * keyed by interface index; returns the number of rows read, which stops at the end of the columns
+     */
+    static int readCounters(List<? extends VariableBinding> bindings, int first, OID inColumn, OID outColumn,
+                            Map<Integer, long[]> counters) {
+        // Repetitions alternate between the in and out columns, row by row
+        int rows = 0;
+        for (int i = first; i + 1 < bindings.size(); i += 2) {
+            VariableBinding in = bindings.get(i);
+            VariableBinding out = bindings.get(i + 1);
+            if (!in.getOid().startsWith(inColumn) || !out.getOid().startsWith(outColumn)
+                    || in.getOid().size() != inColumn.size() + 1 || in.getOid().last() != out.getOid().last()
+                    || !(in.getVariable() instanceof AssignableFromLong) || !(out.getVariable() instanceof AssignableFromLong)) {
+                break;
+            }
+            counters.put(in.getOid().last(), new long[]{in.getVariable().toLong(), out.getVariable().toLong()});
+            rows++;
+        }
+        return rows;
+    }
+    
+    /**
+     * Inner class for metric history responses
+     */
+    public static class MetricHistory {
+        private final String metric;
+        private final String resolution;
+        private final List<TimeSeriesStore.Sample> samples;
+        
+        public MetricHistory(String metric, String resolution, List<TimeSeriesStore.Sample> samples) {
+            this.metric = metric;
+            this.resolution = resolution;
+            this.samples = samples;
+        }
+        
+        // Getters
+        public String getMetric() { return metric; }
+        public String getResolution() { return resolution; }
+        public List<TimeSeriesStore.Sample> getSamples() { return samples; }
+    }
+    
+    /**
+     * Inner class for poller statistics
+     */
+    public static class PollingStats {
+        private final boolean running;
+        private final int devices;
+        private final long requestsSent;
+        private final long responses;
+        private final long failures;
+        private final long skippedPolls;
+        private final long series;
+        private final long storedBytes;
+        
+        public PollingStats(boolean running, int devices, long requestsSent, long responses, long failures,
+                            long skippedPolls, long series, long storedBytes) {
+            this.running = running;
+            this.devices = devices;
+            this.requestsSent = requestsSent;
+            this.responses = responses;
+            this.failures = failures;
+            this.skippedPolls = skippedPolls;
+            this.series = series;
+            this.storedBytes = storedBytes;
+        }
+        
+        // Getters
+        public boolean isRunning() { return running; }
+        public int getDevices() { return devices; }
+        public long getRequestsSent() { return requestsSent; }
+        public long getResponses() { return responses; }
+        public long getFailures() { return failures; }
+        public long getSkippedPolls() { return skippedPolls; }
+        public long getSeries() { return series; }
+        public long getStoredBytes() { return storedBytes; }
+    }
+}
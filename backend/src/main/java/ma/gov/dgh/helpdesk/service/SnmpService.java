@@ -1,7 +1,6 @@
 package ma.gov.dgh.helpdesk.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.utils.DeviceRuleSet.Classification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snmp4j.*;
@@ -9,12 +8,21 @@ import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.smi.*;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Service for SNMP operations to gather device information
@@ -30,10 +38,13 @@ public class SnmpService {
     @Value("${network.discovery.snmp.timeout:5000}")
     private long snmpTimeout;
     
-    // Standard SNMP OIDs
+    @Value("${network.discovery.snmp.max-repetitions:25}")
+    private int maxRepetitions;
+    
+    // Standard SNMP OIDs (package-private ones are shared with the poller)
     private static final String OID_SYSTEM_DESCRIPTION = "1.3.6.1.2.1.1.1.0";
     private static final String OID_SYSTEM_OBJECT_ID = "1.3.6.1.2.1.1.2.0";
-    private static final String OID_SYSTEM_UPTIME = "1.3.6.1.2.1.1.3.0";
+    static final String OID_SYSTEM_UPTIME = "1.3.6.1.2.1.1.3.0";
     private static final String OID_SYSTEM_CONTACT = "1.3.6.1.2.1.1.4.0";
     private static final String OID_SYSTEM_NAME = "1.3.6.1.2.1.1.5.0";
     private static final String OID_SYSTEM_LOCATION = "1.3.6.1.2.1.1.6.0";
@@ -45,14 +56,36 @@ public class SnmpService {
     private static final String OID_IF_TYPE = "1.3.6.1.2.1.2.2.1.3";
     private static final String OID_IF_SPEED = "1.3.6.1.2.1.2.2.1.5";
     private static final String OID_IF_PHYS_ADDRESS = "1.3.6.1.2.1.2.2.1.6";
+    private static final String OID_IF_MTU = "1.3.6.1.2.1.2.2.1.4";
+    private static final String OID_IF_ADMIN_STATUS = "1.3.6.1.2.1.2.2.1.7";
+    private static final String OID_IF_OPER_STATUS = "1.3.6.1.2.1.2.2.1.8";
+    private static final String OID_IF_NAME = "1.3.6.1.2.1.31.1.1.1.1";
+    private static final String OID_IF_HIGH_SPEED = "1.3.6.1.2.1.31.1.1.1.15";
+    private static final String OID_IF_ALIAS = "1.3.6.1.2.1.31.1.1.1.18";
+    
+    // ifTable and ifXTable columns walked together; both tables are indexed by ifIndex
+    private static final List<OID> INTERFACE_COLUMNS = List.of(
+        new OID(OID_IF_DESCR), new OID(OID_IF_TYPE), new OID(OID_IF_MTU), new OID(OID_IF_SPEED),
+        new OID(OID_IF_PHYS_ADDRESS), new OID(OID_IF_ADMIN_STATUS), new OID(OID_IF_OPER_STATUS),
+        new OID(OID_IF_NAME), new OID(OID_IF_HIGH_SPEED), new OID(OID_IF_ALIAS));
+    
+    // ifAdminStatus / ifOperStatus values, RFC 2863
+    private static final String[] INTERFACE_STATUSES =
+        {"up", "down", "testing", "unknown", "dormant", "notPresent", "lowerLayerDown"};
     
     // Host resources (for servers/workstations)
-    private static final String OID_HR_SYSTEM_UPTIME = "1.3.6.1.2.1.25.1.1.0";
-    private static final String OID_HR_SYSTEM_DATE = "1.3.6.1.2.1.25.1.2.0";
-    private static final String OID_HR_SYSTEM_PROCESSES = "1.3.6.1.2.1.25.1.6.0";
-    private static final String OID_HR_SYSTEM_MAX_PROCESSES = "1.3.6.1.2.1.25.1.7.0";
+    static final String OID_HR_SYSTEM_UPTIME = "1.3.6.1.2.1.25.1.1.0";
+    static final String OID_HR_SYSTEM_DATE = "1.3.6.1.2.1.25.1.2.0";
+    static final String OID_HR_SYSTEM_PROCESSES = "1.3.6.1.2.1.25.1.6.0";
+    static final String OID_HR_SYSTEM_MAX_PROCESSES = "1.3.6.1.2.1.25.1.7.0";
+    private static final String OID_HR_MEMORY_SIZE = "1.3.6.1.2.1.25.2.2.0";
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeviceClassificationService deviceClassificationService;
+    
+    @Autowired
+    public SnmpService(DeviceClassificationService deviceClassificationService) {
+        this.deviceClassificationService = deviceClassificationService;
+    }
     
     /**
      * Get device information via SNMP
@@ -67,22 +100,27 @@ public class SnmpService {
             
             // Get system information
             deviceInfo.setSystemDescription(getSnmpValue(snmp, target, OID_SYSTEM_DESCRIPTION));
+            deviceInfo.setSystemObjectId(getSnmpValue(snmp, target, OID_SYSTEM_OBJECT_ID));
             deviceInfo.setSystemName(getSnmpValue(snmp, target, OID_SYSTEM_NAME));
             deviceInfo.setSystemLocation(getSnmpValue(snmp, target, OID_SYSTEM_LOCATION));
             deviceInfo.setSystemContact(getSnmpValue(snmp, target, OID_SYSTEM_CONTACT));
-            deviceInfo.setSystemUptime(getSnmpValue(snmp, target, OID_SYSTEM_UPTIME));
+            Variable uptime = getSnmpVariable(snmp, target, OID_SYSTEM_UPTIME);
+            if (uptime != null) {
+                deviceInfo.setSystemUptime(uptime.toString());
+                // TimeTicks are hundredths of a second
+                Long ticks = toLong(uptime);
+                deviceInfo.setSystemUptimeSeconds(ticks != null ? ticks / 100 : null);
+            }
             
-            // Parse manufacturer and model from system description
-            parseManufacturerAndModel(deviceInfo);
+            // Classify manufacturer, model and operating system
+            classifyDevice(deviceInfo);
             
-            // Get interface count
-            String ifNumber = getSnmpValue(snmp, target, OID_IF_NUMBER);
-            if (ifNumber != null) {
-                try {
-                    deviceInfo.setInterfaceCount(Integer.parseInt(ifNumber));
-                } catch (NumberFormatException e) {
-                    logger.debug("Could not parse interface count: {}", ifNumber);
-                }
+            // Get interface count and inventory
+            deviceInfo.setInterfaceCount(getInterfaceCount(snmp, target));
+            try {
+                deviceInfo.setInterfaces(walkInterfaces(snmp, target, deviceInfo.getInterfaceCount()));
+            } catch (IOException e) {
+                logger.debug("SNMP interface walk failed for {}: {}", ipAddress, e.getMessage());
             }
             
             // Get host resources information (if available)
@@ -90,18 +128,189 @@ public class SnmpService {
             if (hrProcesses != null) {
                 deviceInfo.setProcessCount(hrProcesses);
             }
+            deviceInfo.setMemoryKb(toLong(getSnmpVariable(snmp, target, OID_HR_MEMORY_SIZE)));
             
             snmp.close();
             
             logger.debug("Retrieved SNMP info for {}: {}", ipAddress, deviceInfo.getSystemDescription());
             return deviceInfo;
-            
+        
         } catch (Exception e) {
             logger.debug("SNMP query failed for {}: {}", ipAddress, e.getMessage());
             return null;
         }
     }
     
+    /**
+     * Walk the interface tables of a device; returns null when the device does not answer
+     */
+    public List<InterfaceInfo> getInterfaces(String ipAddress) {
+        try {
+            Snmp snmp = createSnmpSession();
+            try {
+                Target target = createTarget(ipAddress);
+                return walkInterfaces(snmp, target, getInterfaceCount(snmp, target));
+            } finally {
+                snmp.close();
+            }
+        } catch (IOException e) {
+            logger.debug("SNMP interface walk failed for {}: {}", ipAddress, e.getMessage());
+            return null;
+        }
+    }
+    
+    private Integer getInterfaceCount(Snmp snmp, Target target) {
+        String ifNumber = getSnmpValue(snmp, target, OID_IF_NUMBER);
+        if (ifNumber != null) {
+            try {
+                return Integer.parseInt(ifNumber);
+            } catch (NumberFormatException e) {
+                logger.debug("Could not parse interface count: {}", ifNumber);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Walk ifTable and ifXTable into one normalized row per interface
+     */
+    private List<InterfaceInfo> walkInterfaces(Snmp snmp, Target target, Integer ifNumber) throws IOException {
+        Map<OID, Variable[]> rows = walkColumns(snmp, target, INTERFACE_COLUMNS, ifNumber != null ? ifNumber : 0);
+        if (rows == null) {
+            return null;
+        }
+        
+        List<InterfaceInfo> interfaces = new ArrayList<>(rows.size());
+        for (Map.Entry<OID, Variable[]> row : rows.entrySet()) {
+            Variable[] values = row.getValue();
+            InterfaceInfo info = new InterfaceInfo();
+            info.setIfIndex(row.getKey().last());
+            info.setDescription(text(values[0]));
+            info.setIfType(number(values[1]));
+            info.setMtu(number(values[2]));
+            // ifHighSpeed is in Mb/s and does not saturate at 4.2 Gb/s like ifSpeed
+            Integer highSpeed = number(values[8]);
+            Long speed = values[3] != null ? values[3].toLong() : null;
+            info.setSpeedMbps(highSpeed != null && highSpeed > 0 ? Long.valueOf(highSpeed)
+                : speed != null ? speed / 1_000_000 : null);
+            info.setMacAddress(macAddress(values[4]));
+            info.setAdminStatus(status(values[5]));
+            info.setOperStatus(status(values[6]));
+            String name = text(values[7]);
+            info.setName(name != null ? name : info.getDescription());
+            info.setAlias(text(values[9]));
+            interfaces.add(info);
+        }
+        return interfaces;
+    }
+    
+    /**
+     * Walk table columns side by side with GETBULK. Every request carries one varbind per column
+     * still in progress and enough repetitions for the rows expected from the table size, so a
+     * table is fetched in a few round trips; agents truncating a response just continue from the
+     * last row they returned, and a tooBig answer halves the repetitions. Returns the rows by
+     * index, with a slot per column, or null when the agent does not answer.
+     */
+    Map<OID, Variable[]> walkColumns(Snmp snmp, Target target, List<OID> columns, int expectedRows) throws IOException {
+        OID[] cursors = columns.toArray(new OID[0]);
+        boolean[] finished = new boolean[columns.size()];
+        int[] rowsSeen = new int[columns.size()];
+        Map<OID, Variable[]> rows = new TreeMap<>();
+        int repetitions = maxRepetitions;
+        int requests = 0;
+        
+        while (true) {
+            List<Integer> active = new ArrayList<>();
+            int remaining = 0;
+            for (int c = 0; c < cursors.length; c++) {
+                if (!finished[c]) {
+                    active.add(c);
+                    remaining = Math.max(remaining, expectedRows - rowsSeen[c]);
+                }
+            }
+            if (active.isEmpty()) {
+                break;
+            }
+            
+            PDU pdu = new PDU();
+            pdu.setType(PDU.GETBULK);
+            for (int c : active) {
+                pdu.add(new VariableBinding(cursors[c]));
+            }
+            pdu.setNonRepeaters(0);
+            // One extra repetition shows the end of the column without another request; without a
+            // usable row count (unknown, or rows beyond it) the full repetitions are requested
+            pdu.setMaxRepetitions(remaining > 0 ? Math.min(repetitions, remaining + 1) : repetitions);
+            
+            ResponseEvent event = snmp.send(pdu, target, null);
+            requests++;
+            PDU response = event != null ? event.getResponse() : null;
+            if (response == null) {
+                // A partial table would read as removed interfaces, so a late timeout fails the walk
+                if (requests == 1) {
+                    return null;
+                }
+                throw new IOException("GETBULK timed out after " + requests + " requests");
+            }
+            if (response.getErrorStatus() == PDU.tooBig && repetitions > 1) {
+                repetitions /= 2;
+                continue;
+            }
+            if (response.getErrorStatus() != PDU.noError) {
+                throw new IOException("GETBULK failed: " + response.getErrorStatusText());
+            }
+            
+            boolean progressed = false;
+            List<? extends VariableBinding> bindings = response.getVariableBindings();
+            for (int i = 0; i < bindings.size(); i++) {
+                int c = active.get(i % active.size());
+                if (finished[c]) {
+                    continue;
+                }
+                VariableBinding vb = bindings.get(i);
+                OID oid = vb.getOid();
+                if (vb.getVariable().isException() || !oid.startsWith(columns.get(c)) || oid.compareTo(cursors[c]) <= 0) {
+                    finished[c] = true;
+                    continue;
+                }
+                OID index = new OID(oid.getValue(), columns.get(c).size(), oid.size() - columns.get(c).size());
+                rows.computeIfAbsent(index, key -> new Variable[columns.size()])[c] = vb.getVariable();
+                cursors[c] = oid;
+                rowsSeen[c]++;
+                progressed = true;
+            }
+            if (!progressed) {
+                Arrays.fill(finished, true);
+            }
+        }
+        logger.debug("Walked {} rows of {} columns in {} requests", rows.size(), columns.size(), requests);
+        return rows;
+    }
+    
+    private static String text(Variable variable) {
+        if (variable == null) {
+            return null;
+        }
+        String value = variable.toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static Integer number(Variable variable) {
+        return variable != null ? variable.toInt() : null;
+    }
+    
+    private static String status(Variable variable) {
+        Integer value = number(variable);
+        return value != null && value >= 1 && value <= INTERFACE_STATUSES.length ? INTERFACE_STATUSES[value - 1] : null;
+    }
+    
+    private static String macAddress(Variable variable) {
+        if (!(variable instanceof OctetString octets) || octets.length() != 6) {
+            return null;
+        }
+        return octets.toHexString(':');
+    }
+    
     /**
      * Create SNMP session
      */
@@ -129,6 +338,11 @@ public class SnmpService {
      * Get SNMP value for a specific OID
      */
     private String getSnmpValue(Snmp snmp, Target target, String oid) {
+        Variable variable = getSnmpVariable(snmp, target, oid);
+        return variable != null ? variable.toString() : null;
+    }
+    
+    private Variable getSnmpVariable(Snmp snmp, Target target, String oid) {
         try {
             PDU pdu = new PDU();
             pdu.add(new VariableBinding(new OID(oid)));
@@ -140,7 +354,7 @@ public class SnmpService {
                 if (response.getErrorStatus() == 0) {
                     VariableBinding vb = response.get(0);
                     if (vb.getVariable() != null && !vb.getVariable().isException()) {
-                        return vb.getVariable().toString();
+                        return vb.getVariable();
                     }
                 }
             }
@@ -150,84 +364,73 @@ public class SnmpService {
         return null;
     }
     
-    /**
-     * Parse manufacturer and model from system description
-     */
-    private void parseManufacturerAndModel(SnmpDeviceInfo deviceInfo) {
-        String sysDescr = deviceInfo.getSystemDescription();
-        if (sysDescr == null) return;
-        
-        String sysDescrLower = sysDescr.toLowerCase();
-        
-        // Common manufacturer patterns
-        if (sysDescrLower.contains("cisco")) {
-            deviceInfo.setManufacturer("Cisco");
-            parseModelFromDescription(deviceInfo, sysDescr, "cisco");
-        } else if (sysDescrLower.contains("hp") || sysDescrLower.contains("hewlett")) {
-            deviceInfo.setManufacturer("HP");
-            parseModelFromDescription(deviceInfo, sysDescr, "hp");
-        } else if (sysDescrLower.contains("dell")) {
-            deviceInfo.setManufacturer("Dell");
-            parseModelFromDescription(deviceInfo, sysDescr, "dell");
-        } else if (sysDescrLower.contains("juniper")) {
-            deviceInfo.setManufacturer("Juniper");
-            parseModelFromDescription(deviceInfo, sysDescr, "juniper");
-        } else if (sysDescrLower.contains("netgear")) {
-            deviceInfo.setManufacturer("Netgear");
-            parseModelFromDescription(deviceInfo, sysDescr, "netgear");
-        } else if (sysDescrLower.contains("d-link")) {
-            deviceInfo.setManufacturer("D-Link");
-            parseModelFromDescription(deviceInfo, sysDescr, "d-link");
-        } else if (sysDescrLower.contains("windows")) {
-            deviceInfo.setManufacturer("Microsoft");
-            deviceInfo.setOsName("Windows");
-            parseWindowsVersion(deviceInfo, sysDescr);
-        } else if (sysDescrLower.contains("linux")) {
-            deviceInfo.setOsName("Linux");
-            parseLinuxDistribution(deviceInfo, sysDescr);
+    private static Long toLong(Variable variable) {
+        if (variable instanceof Integer32 || variable instanceof UnsignedInteger32 || variable instanceof Counter64) {
+            return variable.toLong();
         }
+        return null;
     }
     
     /**
-     * Parse model from system description
+     * Set manufacturer, model and operating system from the classification rules
      */
-    private void parseModelFromDescription(SnmpDeviceInfo deviceInfo, String sysDescr, String manufacturer) {
-        // This is a simplified parser - in practice, you'd have more sophisticated parsing
-        String[] parts = sysDescr.split("\\s+");
-        for (int i = 0; i < parts.length; i++) {
-            if (parts[i].toLowerCase().contains(manufacturer.toLowerCase()) && i + 1 < parts.length) {
-                deviceInfo.setModel(parts[i + 1]);
-                break;
-            }
-        }
+    private void classifyDevice(SnmpDeviceInfo deviceInfo) {
+        Classification classification = deviceClassificationService.classify(
+            deviceInfo.getSystemObjectId(), deviceInfo.getSystemDescription(), deviceInfo.getSystemName());
+        deviceInfo.setManufacturer(classification.getManufacturer());
+        deviceInfo.setModel(classification.getModel());
+        deviceInfo.setOsName(classification.getOsName());
+        deviceInfo.setOsVersion(classification.getOsVersion());
     }
     
     /**
-     * Parse Windows version from system description
+     * Get the fingerprint of a device: a hash of its sysObjectID and sysDescr, read with one GET.
+     * Returns null when the device does not answer SNMP.
      */
-    private void parseWindowsVersion(SnmpDeviceInfo deviceInfo, String sysDescr) {
-        if (sysDescr.contains("Windows Server")) {
-            deviceInfo.setOsVersion("Server");
-        } else if (sysDescr.contains("Windows 10")) {
-            deviceInfo.setOsVersion("10");
-        } else if (sysDescr.contains("Windows 11")) {
-            deviceInfo.setOsVersion("11");
+    public String getFingerprint(String ipAddress) {
+        try {
+            Snmp snmp = createSnmpSession();
+            try {
+                Target target = createTarget(ipAddress);
+                target.setRetries(1);
+                PDU pdu = new PDU();
+                pdu.add(new VariableBinding(new OID(OID_SYSTEM_OBJECT_ID)));
+                pdu.add(new VariableBinding(new OID(OID_SYSTEM_DESCRIPTION)));
+                pdu.setType(PDU.GET);
+                
+                ResponseEvent event = snmp.send(pdu, target, null);
+                PDU response = event != null ? event.getResponse() : null;
+                if (response == null || response.getErrorStatus() != 0 || response.size() < 2) {
+                    return null;
+                }
+                Variable objectId = response.get(0).getVariable();
+                Variable description = response.get(1).getVariable();
+                return fingerprint(objectId == null || objectId.isException() ? null : text(objectId),
+                    description == null || description.isException() ? null : text(description));
+            } finally {
+                snmp.close();
+            }
+        } catch (IOException e) {
+            logger.debug("SNMP fingerprint failed for {}: {}", ipAddress, e.getMessage());
+            return null;
         }
     }
     
     /**
-     * Parse Linux distribution from system description
+     * Hash sysObjectID and sysDescr into a fingerprint; null when both are missing
      */
-    private void parseLinuxDistribution(SnmpDeviceInfo deviceInfo, String sysDescr) {
-        String sysDescrLower = sysDescr.toLowerCase();
-        if (sysDescrLower.contains("ubuntu")) {
-            deviceInfo.setManufacturer("Ubuntu");
-        } else if (sysDescrLower.contains("centos")) {
-            deviceInfo.setManufacturer("CentOS");
-        } else if (sysDescrLower.contains("red hat")) {
-            deviceInfo.setManufacturer("Red Hat");
-        } else if (sysDescrLower.contains("debian")) {
-            deviceInfo.setManufacturer("Debian");
+    static String fingerprint(String systemObjectId, String systemDescription) {
+        if (systemObjectId == null && systemDescription == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(systemObjectId).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(systemDescription).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
@@ -247,24 +450,75 @@ public class SnmpService {
             return false;
         }
     }
+    
+    /**
+     * Inner class for one interface walked from ifTable/ifXTable
+     */
+    public static class InterfaceInfo {
+        private int ifIndex;
+        private String name;
+        private String description;
+        private String alias;
+        private Integer ifType;
+        private Integer mtu;
+        private Long speedMbps;
+        private String macAddress;
+        private String adminStatus;
+        private String operStatus;
+        
+        // Getters and setters
+        public int getIfIndex() { return ifIndex; }
+        public void setIfIndex(int ifIndex) { this.ifIndex = ifIndex; }
+        
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        
+        public String getAlias() { return alias; }
+        public void setAlias(String alias) { this.alias = alias; }
+        
+        public Integer getIfType() { return ifType; }
+        public void setIfType(Integer ifType) { this.ifType = ifType; }
+        
+        public Integer getMtu() { return mtu; }
+        public void setMtu(Integer mtu) { this.mtu = mtu; }
+        
+        public Long getSpeedMbps() { return speedMbps; }
+        public void setSpeedMbps(Long speedMbps) { this.speedMbps = speedMbps; }
+        
+        public String getMacAddress() { return macAddress; }
+        public void setMacAddress(String macAddress) { this.macAddress = macAddress; }
+        
+        public String getAdminStatus() { return adminStatus; }
+        public void setAdminStatus(String adminStatus) { this.adminStatus = adminStatus; }
+        
+        public String getOperStatus() { return operStatus; }
+        public void setOperStatus(String operStatus) { this.operStatus = operStatus; }
+    }
 }
-
+    
 /**
  * Class to hold SNMP device information
  */
 class SnmpDeviceInfo {
     private String ipAddress;
     private String systemDescription;
+    private String systemObjectId;
     private String systemName;
     private String systemLocation;
     private String systemContact;
     private String systemUptime;
+    private Long systemUptimeSeconds;
     private String manufacturer;
     private String model;
     private String osName;
     private String osVersion;
     private Integer interfaceCount;
+    private List<SnmpService.InterfaceInfo> interfaces;
     private String processCount;
+    private Long memoryKb;
     
     // Getters and setters
     public String getIpAddress() { return ipAddress; }
@@ -273,6 +527,9 @@ class SnmpDeviceInfo {
     public String getSystemDescription() { return systemDescription; }
     public void setSystemDescription(String systemDescription) { this.systemDescription = systemDescription; }
     
+    public String getSystemObjectId() { return systemObjectId; }
+    public void setSystemObjectId(String systemObjectId) { this.systemObjectId = systemObjectId; }
+    
     public String getSystemName() { return systemName; }
     public void setSystemName(String systemName) { this.systemName = systemName; }
     
@@ -285,6 +542,9 @@ class SnmpDeviceInfo {
     public String getSystemUptime() { return systemUptime; }
     public void setSystemUptime(String systemUptime) { this.systemUptime = systemUptime; }
     
+    public Long getSystemUptimeSeconds() { return systemUptimeSeconds; }
+    public void setSystemUptimeSeconds(Long systemUptimeSeconds) { this.systemUptimeSeconds = systemUptimeSeconds; }
+    
     public String getManufacturer() { return manufacturer; }
     public void setManufacturer(String manufacturer) { this.manufacturer = manufacturer; }
     
@@ -300,26 +560,28 @@ class SnmpDeviceInfo {
     public Integer getInterfaceCount() { return interfaceCount; }
     public void setInterfaceCount(Integer interfaceCount) { this.interfaceCount = interfaceCount; }
     
+    public List<SnmpService.InterfaceInfo> getInterfaces() { return interfaces; }
+    public void setInterfaces(List<SnmpService.InterfaceInfo> interfaces) { this.interfaces = interfaces; }
+    
     public String getProcessCount() { return processCount; }
     public void setProcessCount(String processCount) { this.processCount = processCount; }
     
+    public Long getMemoryKb() { return memoryKb; }
+    public void setMemoryKb(Long memoryKb) { this.memoryKb = memoryKb; }
+    
     /**
-     * Convert to JSON string for storage
+     * Specifications document stored on the equipment, serialized by the caller
      */
-    public String toJson() {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> data = new HashMap<>();
-            data.put("systemDescription", systemDescription);
-            data.put("systemName", systemName);
-            data.put("systemLocation", systemLocation);
-            data.put("systemContact", systemContact);
-            data.put("systemUptime", systemUptime);
-            data.put("interfaceCount", interfaceCount);
-            data.put("processCount", processCount);
-            return mapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            return "{}";
-        }
+    public Map<String, Object> toSpecifications() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("systemDescription", systemDescription);
+        data.put("systemName", systemName);
+        data.put("systemLocation", systemLocation);
+        data.put("systemContact", systemContact);
+        data.put("systemUptime", systemUptime);
+        data.put("interfaceCount", interfaceCount);
+        data.put("processCount", processCount);
+        data.put("memoryKb", memoryKb);
+        return data;
     }
 }
@@ -0,0 +1,478 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.RollupGranularity;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketMetricRollup;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.TicketMetricRollupRepository;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service maintaining hourly and daily ticket metric rollups.
+ * Committed ticket events are folded into in-memory deltas that a scheduled flush adds to the
+ * rollup rows in one transaction, so dashboard trends read a few pre-aggregated rows instead of
+ * scanning tickets. A ticket counts as resolved once, at its last resolution: reopening it takes
+ * the resolution back. The rollups can be rebuilt from ticket history; a backfill attributes each
+ * ticket to its current category, priority, assignee and resolution status. Events committed while
+ * a backfill runs are held back and folded afterwards unless the backfill already read their change.
+ */
+@Service
+public class TicketMetricsService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TicketMetricsService.class);
+    
+    private final TicketMetricRollupRepository rollupRepository;
+    private final TicketRepository ticketRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor taskExecutor;
+    
+    @Value("${ticket.metrics.enabled:true}")
+    private boolean metricsEnabled;
+    
+    // Pending counter deltas: created, resolved, resolution minutes
+    private final Map<RollupKey, long[]> pending = new ConcurrentHashMap<>();
+    // Serializes flushes and backfills, which both write the rollup table
+    private final Object writeLock = new Object();
+    // Guards pending against a backfill swapping it out, and the events held back meanwhile
+    private final Object eventLock = new Object();
+    private Map<Long, List<DomainEvent>> backfillEvents;
+    
+    @Autowired
+    public TicketMetricsService(TicketMetricRollupRepository rollupRepository, TicketRepository ticketRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.rollupRepository = rollupRepository;
+        this.ticketRepository = ticketRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+    }
+    
+    /**
+     * Backfill the rollups at startup when they are empty but tickets exist
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!metricsEnabled || rollupRepository.count() > 0 || ticketRepository.count() == 0) {
+            return;
+        }
+        taskExecutor.execute(() -> {
+            try {
+                backfill();
+            } catch (Exception e) {
+                logger.error("Error backfilling ticket metric rollups: {}", e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Fold a committed ticket creation, resolution or reopening into the pending deltas
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTicketEvent(DomainEvent event) {
+        if (!metricsEnabled || !DomainEvent.TOPIC_TICKETS.equals(event.getTopic())) {
+            return;
+        }
+        synchronized (eventLock) {
+            if (backfillEvents != null) {
+                backfillEvents.computeIfAbsent(event.getAggregateId(), id -> new ArrayList<>()).add(event);
+                return;
+            }
+            fold(event);
+        }
+    }
+    
+    /**
+     * Add the pending deltas to the rollup rows; failed deltas are kept for the next flush
+     */
+    @Scheduled(fixedDelayString = "${ticket.metrics.flush-interval:10000}")
+    public void flush() {
+        synchronized (writeLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<RollupKey, long[]> deltas = new HashMap<>();
+            for (RollupKey key : new ArrayList<>(pending.keySet())) {
+                long[] delta = pending.remove(key);
+                if (delta != null) {
+                    deltas.put(key, delta);
+                }
+            }
+            
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(deltas));
+                logger.debug("Flushed {} ticket metric rollup deltas", deltas.size());
+            } catch (RuntimeException e) {
+                deltas.forEach(this::merge);
+                logger.error("Error flushing ticket metric rollups, will retry: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Rebuild every rollup from ticket history
+     */
+    public int backfill() {
+        synchronized (writeLock) {
+            // Pending deltas are of committed changes, which the backfill reads anyway
+            Map<RollupKey, long[]> replaced;
+            synchronized (eventLock) {
+                replaced = new HashMap<>(pending);
+                pending.clear();
+                backfillEvents = new HashMap<>();
+            }
+            
+            Map<RollupKey, long[]> totals = new HashMap<>();
+            Map<Long, TicketState> read = new HashMap<>();
+            Integer tickets = null;
+            try {
+                tickets = transactionTemplate.execute(status -> {
+                    rollupRepository.deleteAllRollups();
+                    int count = 0;
+                    try (Stream<Object[]> history = ticketRepository.streamTicketHistory()) {
+                        for (Object[] row : (Iterable<Object[]>) history::iterator) {
+                            accumulateHistory(totals, row);
+                            read.put((Long) row[6], new TicketState((TicketStatus) row[2], (LocalDateTime) row[1]));
+                            count++;
+                        }
+                    }
+                    rollupRepository.saveAll(totals.entrySet().stream().map(entry -> {
+                        TicketMetricRollup row = entry.getKey().newRow();
+                        row.add(entry.getValue()[0], entry.getValue()[1], entry.getValue()[2]);
+                        return row;
+                    }).toList());
+                    return count;
+                });
+            } finally {
+                synchronized (eventLock) {
+                    if (tickets == null) {
+                        // Rolled back: the old rollups still miss the replaced deltas and every held event
+                        replaced.forEach(this::merge);
+                        read.clear();
+                    }
+                    backfillEvents.forEach((id, events) -> foldUnread(read.get(id), events));
+                    backfillEvents = null;
+                }
+            }
+            logger.info("Ticket metric rollups backfilled from {} tickets into {} rows", tickets, totals.size());
+            return tickets;
+        }
+    }
+    
+    /**
+     * Get created and resolved counts per bucket in a time range
+     */
+    public List<TrendPoint> getTrend(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        List<TrendPoint> trend = new ArrayList<>();
+        for (Object[] row : rollupRepository.getTrend(granularity, from, to)) {
+            trend.add(new TrendPoint((LocalDateTime) row[0], (Long) row[1], (Long) row[2], (Long) row[3]));
+        }
+        return trend;
+    }
+    
+    /**
+     * Get created and resolved counts in a time range broken down by one dimension
+     * (category, priority, status or assignee)
+     */
+    public List<MetricBreakdown> getBreakdown(String dimension, RollupGranularity granularity,
+                                              LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = switch (dimension.toLowerCase()) {
+            case "category" -> rollupRepository.getTotalsByCategory(granularity, from, to);
+            case "priority" -> rollupRepository.getTotalsByPriority(granularity, from, to);
+            case "status" -> rollupRepository.getTotalsByStatus(granularity, from, to);
+            case "assignee" -> rollupRepository.getTotalsByAssignee(granularity, from, to);
+            default -> throw new IllegalArgumentException("Unknown metric dimension: " + dimension);
+        };
+        
+        List<MetricBreakdown> breakdown = new ArrayList<>();
+        for (Object[] row : rows) {
+            String key = row[0] instanceof Long id && id == TicketMetricRollup.UNASSIGNED
+                ? "unassigned" : String.valueOf(row[0] instanceof Enum<?> value ? value.name() : row[0]);
+            breakdown.add(new MetricBreakdown(key, (Long) row[1], (Long) row[2], (Long) row[3]));
+        }
+        return breakdown;
+    }
+    
+    private void fold(DomainEvent event) {
+        Map<String, Object> payload = event.getPayload();
+        TicketStatus status = (TicketStatus) payload.get("status");
+        LocalDateTime createdAt = (LocalDateTime) payload.get("createdAt");
+        if (event.getType() == DomainEventType.TICKET_CREATED) {
+            record(createdAt != null ? createdAt : event.getTimestamp(), (TicketCategory) payload.get("category"),
+                (TicketPriority) payload.get("priority"), TicketStatus.OPEN, (Long) payload.get("assignedToId"),
+                1, 0, 0);
+            return;
+        }
+        
+        TicketStatus previousStatus = (TicketStatus) payload.get("previousStatus");
+        if (status == null || previousStatus == null || status.isResolved() == previousStatus.isResolved()) {
+            return;
+        }
+        LocalDateTime resolvedAt = (LocalDateTime) payload.get("resolvedAt");
+        if (status.isResolved()) {
+            if (resolvedAt == null) {
+                resolvedAt = event.getTimestamp();
+            }
+            record(resolvedAt, (TicketCategory) payload.get("category"), (TicketPriority) payload.get("priority"),
+                status, (Long) payload.get("assignedToId"), 0, 1, resolutionMinutes(createdAt, resolvedAt));
+        } else if (resolvedAt != null) {
+            // Reopened: reopening keeps the resolution time, so the resolution counted then is taken back
+            record(resolvedAt, (TicketCategory) payload.get("category"), (TicketPriority) payload.get("priority"),
+                previousStatus, (Long) payload.get("assignedToId"), 0, -1, -resolutionMinutes(createdAt, resolvedAt));
+        }
+    }
+    
+    // Fold the events of one ticket held back during a backfill, skipping those up to the state it read
+    private void foldUnread(TicketState read, List<DomainEvent> events) {
+        int start = 0;
+        if (read != null) {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                if (read.matches(events.get(i))) {
+                    start = i + 1;
+                    break;
+                }
+            }
+        }
+        events.subList(start, events.size()).forEach(this::fold);
+    }
+    
+    private void accumulateHistory(Map<RollupKey, long[]> totals, Object[] row) {
+        LocalDateTime createdAt = (LocalDateTime) row[0];
+        LocalDateTime resolvedAt = (LocalDateTime) row[1];
+        TicketStatus status = (TicketStatus) row[2];
+        TicketCategory category = (TicketCategory) row[3];
+        TicketPriority priority = (TicketPriority) row[4];
+        Long assigneeId = (Long) row[5];
+        
+        if (createdAt != null) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                add(totals, RollupKey.of(granularity, createdAt, category, priority, TicketStatus.OPEN, assigneeId),
+                    1, 0, 0);
+            }
+        }
+        if (resolvedAt != null && status != null && status.isResolved()) {
+            long minutes = resolutionMinutes(createdAt, resolvedAt);
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                add(totals, RollupKey.of(granularity, resolvedAt, category, priority, status, assigneeId),
+                    0, 1, minutes);
+            }
+        }
+    }
+    
+    private void record(LocalDateTime time, TicketCategory category, TicketPriority priority, TicketStatus status,
+                        Long assigneeId, long created, long resolved, long resolutionMinutes) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            add(pending, RollupKey.of(granularity, time, category, priority, status, assigneeId),
+                created, resolved, resolutionMinutes);
+        }
+    }
+    
+    private void merge(RollupKey key, long[] delta) {
+        add(pending, key, delta[0], delta[1], delta[2]);
+    }
+    
+    private static void add(Map<RollupKey, long[]> target, RollupKey key,
+                            long created, long resolved, long resolutionMinutes) {
+        target.compute(key, (k, delta) -> {
+            long[] result = delta != null ? delta : new long[3];
+            result[0] += created;
+            result[1] += resolved;
+            result[2] += resolutionMinutes;
+            return result;
+        });
+    }
+    
+    // Add deltas to existing rows, loaded with one query per granularity, and insert the missing ones
+    private void apply(Map<RollupKey, long[]> deltas) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Set<LocalDateTime> buckets = deltas.keySet().stream()
+                .filter(key -> key.granularity == granularity)
+                .map(key -> key.bucketStart)
+                .collect(Collectors.toSet());
+            if (buckets.isEmpty()) {
+                continue;
+            }
+            
+            Map<RollupKey, TicketMetricRollup> rows = new HashMap<>();
+            for (TicketMetricRollup row : rollupRepository.findByGranularityAndBucketStartIn(granularity, buckets)) {
+                rows.put(RollupKey.of(row), row);
+            }
+            
+            List<TicketMetricRollup> changed = new ArrayList<>();
+            deltas.forEach((key, delta) -> {
+                if (key.granularity != granularity) {
+                    return;
+                }
+                if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0) {
+                    return;
+                }
+                TicketMetricRollup row = rows.computeIfAbsent(key, RollupKey::newRow);
+                row.add(delta[0], delta[1], delta[2]);
+                changed.add(row);
+            });
+            rollupRepository.saveAll(changed);
+        }
+    }
+    
+    private static long resolutionMinutes(LocalDateTime createdAt, LocalDateTime resolvedAt) {
+        if (createdAt == null || resolvedAt == null || resolvedAt.isBefore(createdAt)) {
+            return 0;
+        }
+        return Duration.between(createdAt, resolvedAt).toMinutes();
+    }
+    
+    /**
+     * Bucket and dimensions identifying one rollup row
+     */
+    private static final class RollupKey {
+        private final RollupGranularity granularity;
+        private final LocalDateTime bucketStart;
+        private final TicketCategory category;
+        private final TicketPriority priority;
+        private final TicketStatus status;
+        private final long assigneeId;
+        
+        private RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, TicketCategory category,
+                          TicketPriority priority, TicketStatus status, long assigneeId) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.category = category;
+            this.priority = priority;
+            this.status = status;
+            this.assigneeId = assigneeId;
+        }
+        
+        static RollupKey of(RollupGranularity granularity, LocalDateTime time, TicketCategory category,
+                            TicketPriority priority, TicketStatus status, Long assigneeId) {
+            return new RollupKey(granularity, granularity.bucketStart(time),
+                category != null ? category : TicketCategory.OTHER,
+                priority != null ? priority : TicketPriority.MEDIUM,
+                status,
+                assigneeId != null ? assigneeId : TicketMetricRollup.UNASSIGNED);
+        }
+        
+        static RollupKey of(TicketMetricRollup row) {
+            return new RollupKey(row.getGranularity(), row.getBucketStart(), row.getCategory(),
+                row.getPriority(), row.getStatus(), row.getAssigneeId());
+        }
+        
+        TicketMetricRollup newRow() {
+            return new TicketMetricRollup(granularity, bucketStart, category, priority, status, assigneeId);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey other)) return false;
+            return assigneeId == other.assigneeId && granularity == other.granularity
+                && bucketStart.equals(other.bucketStart) && category == other.category
+                && priority == other.priority && status == other.status;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucketStart, category, priority, status, assigneeId);
+        }
+    }
+    
+    /**
+     * Status and resolution time of a ticket as read by a backfill
+     */
+    private static final class TicketState {
+        private final TicketStatus status;
+        private final LocalDateTime resolvedAt;
+        
+        private TicketState(TicketStatus status, LocalDateTime resolvedAt) {
+            this.status = status;
+            this.resolvedAt = truncate(resolvedAt);
+        }
+        
+        // The event left the ticket in this state; stored timestamps may have lost precision
+        boolean matches(DomainEvent event) {
+            return status == event.getPayload().get("status")
+                && Objects.equals(resolvedAt, truncate((LocalDateTime) event.getPayload().get("resolvedAt")));
+        }
+        
+        private static LocalDateTime truncate(LocalDateTime time) {
+            return time != null ? time.truncatedTo(ChronoUnit.MILLIS) : null;
+        }
+    }
+    
+    /**
+     * Inner class for one bucket of a ticket trend
+     */
+    public static class TrendPoint {
+        private final LocalDateTime bucketStart;
+        private final long created;
+        private final long resolved;
+        private final Double averageResolutionMinutes;
+        
+        public TrendPoint(LocalDateTime bucketStart, Long created, Long resolved, Long resolutionMinutes) {
+            this.bucketStart = bucketStart;
+            this.created = created != null ? created : 0;
+            this.resolved = resolved != null ? resolved : 0;
+            this.averageResolutionMinutes = averageMinutes(this.resolved, resolutionMinutes);
+        }
+        
+        // Getters
+        public LocalDateTime getBucketStart() { return bucketStart; }
+        public long getCreated() { return created; }
+        public long getResolved() { return resolved; }
+        public Double getAverageResolutionMinutes() { return averageResolutionMinutes; }
+    }
+    
+    /**
+     * Inner class for the totals of one dimension value
+     */
+    public static class MetricBreakdown {
+        private final String key;
+        private final long created;
+        private final long resolved;
+        private final Double averageResolutionMinutes;
+        
+        public MetricBreakdown(String key, Long created, Long resolved, Long resolutionMinutes) {
+            this.key = key;
+            this.created = created != null ? created : 0;
+            this.resolved = resolved != null ? resolved : 0;
+            this.averageResolutionMinutes = averageMinutes(this.resolved, resolutionMinutes);
+        }
+        
+        // Getters
+        public String getKey() { return key; }
+        public long getCreated() { return created; }
+        public long getResolved() { return resolved; }
+        public Double getAverageResolutionMinutes() { return averageResolutionMinutes; }
+    }
+    
+    private static Double averageMinutes(long resolved, Long resolutionMinutes) {
+        return resolved > 0 && resolutionMinutes != null ? (double) resolutionMinutes / resolved : null;
+    }
+}
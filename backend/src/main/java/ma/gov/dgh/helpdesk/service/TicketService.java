@@ -1,14 +1,22 @@
 package ma.gov.dgh.helpdesk.service;
 
 import ma.gov.dgh.helpdesk.entity.*;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.exception.BusinessException.AttachmentQuotaExceededException;
 import ma.gov.dgh.helpdesk.repository.TicketRepository;
 import ma.gov.dgh.helpdesk.repository.TicketCommentRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,11 +30,36 @@ public class TicketService {
     
     private final TicketRepository ticketRepository;
     private final TicketCommentRepository ticketCommentRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AutoAssignmentService autoAssignmentService;
+    private final AttachmentStorageService attachmentStorageService;
+    private final AttachmentPreviewService attachmentPreviewService;
+    private final EquipmentTicketCountService equipmentTicketCountService;
+    
+    @Value("${ticket.system-user:admin}")
+    private String systemUsername;
+    
+    @Value("${attachments.max-files-per-ticket:20}")
+    private int maxAttachmentsPerTicket;
+    
+    @Value("${attachments.max-bytes-per-ticket:52428800}")
+    private long maxAttachmentBytesPerTicket;
     
     @Autowired
-    public TicketService(TicketRepository ticketRepository, TicketCommentRepository ticketCommentRepository) {
+    public TicketService(TicketRepository ticketRepository, TicketCommentRepository ticketCommentRepository,
+                         UserRepository userRepository, ApplicationEventPublisher eventPublisher, AutoAssignmentService autoAssignmentService,
+                         AttachmentStorageService attachmentStorageService,
+                         AttachmentPreviewService attachmentPreviewService,
+                         EquipmentTicketCountService equipmentTicketCountService) {
         this.ticketRepository = ticketRepository;
         this.ticketCommentRepository = ticketCommentRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.autoAssignmentService = autoAssignmentService;
+        this.attachmentStorageService = attachmentStorageService;
+        this.attachmentPreviewService = attachmentPreviewService;
+        this.equipmentTicketCountService = equipmentTicketCountService;
     }
     
     /**
@@ -47,7 +80,7 @@ public class TicketService {
         
         // Set due date based on priority if not set
         if (ticket.getDueDate() == null) {
-            ticket.setDueDate(calculateDueDate(ticket.getPriority()));
+            ticket.setDueDate(calculateDueDate(LocalDateTime.now(), ticket.getPriority()));
         }
         
         Ticket savedTicket = ticketRepository.save(ticket);
@@ -58,6 +91,18 @@ public class TicketService {
         initialComment.setCommentType(CommentType.SYSTEM);
         ticketCommentRepository.save(initialComment);
         
+        // Route unassigned tickets to the least loaded technician
+        if (savedTicket.getAssignedTo() == null) {
+            Optional<User> technician = autoAssignmentService.selectTechnician(savedTicket);
+            if (technician.isPresent()) {
+                savedTicket.setAssignedTo(technician.get());
+                savedTicket.setStatus(TicketStatus.IN_PROGRESS);
+                addAutoAssignmentComment(savedTicket, technician.get());
+            }
+        }
+        
+        equipmentTicketCountService.ticketCreated(savedTicket);
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_CREATED, savedTicket));
         return savedTicket;
     }
     
@@ -69,28 +114,43 @@ public class TicketService {
             throw new IllegalArgumentException("Ticket ID cannot be null for update operation");
         }
         
-        Optional<Ticket> existingTicket = ticketRepository.findById(ticket.getId());
-        if (existingTicket.isEmpty()) {
+        // A query here would flush the pending changes: the ticket is looked up by id only
+        if (ticketRepository.findById(ticket.getId()).isEmpty()) {
             throw new IllegalArgumentException("Ticket not found with ID: " + ticket.getId());
         }
         
-        Ticket oldTicket = existingTicket.get();
+        // Stored values: with open-in-view the loaded ticket may already be the edited instance
+        Object[] stored = ticketRepository.findStoredState(ticket.getId()).get(0);
+        TicketStatus previousStatus = (TicketStatus) stored[0];
+        Long previousEquipmentId = (Long) stored[1];
+        TicketPriority previousPriority = (TicketPriority) stored[2];
+        Long previousAssigneeId = (Long) stored[3];
         
         // Track changes for audit trail
-        if (!oldTicket.getStatus().equals(ticket.getStatus())) {
-            addStatusChangeComment(ticket, oldTicket.getStatus(), ticket.getStatus());
+        if (!previousStatus.equals(ticket.getStatus())) {
+            addStatusChangeComment(ticket, previousStatus, ticket.getStatus());
+            if (ticket.getStatus().isResolved() && ticket.getResolvedAt() == null) {
+                ticket.setResolvedAt(LocalDateTime.now());
+            }
         }
         
-        if (!oldTicket.getPriority().equals(ticket.getPriority())) {
-            addPriorityChangeComment(ticket, oldTicket.getPriority(), ticket.getPriority());
+        if (!previousPriority.equals(ticket.getPriority())) {
+            addPriorityChangeComment(ticket, previousPriority, ticket.getPriority());
+            // The SLA window follows the new priority, counted from creation
+            LocalDateTime slaStart = ticket.getCreatedAt() != null ? ticket.getCreatedAt() : LocalDateTime.now();
+            ticket.setDueDate(calculateDueDate(slaStart, ticket.getPriority()));
         }
         
-        if ((oldTicket.getAssignedTo() == null && ticket.getAssignedTo() != null) ||
-            (oldTicket.getAssignedTo() != null && !oldTicket.getAssignedTo().equals(ticket.getAssignedTo()))) {
-            addAssignmentChangeComment(ticket, oldTicket.getAssignedTo(), ticket.getAssignedTo());
+        Long assigneeId = ticket.getAssignedTo() != null ? ticket.getAssignedTo().getId() : null;
+        if (assigneeId != null && !assigneeId.equals(previousAssigneeId)) {
+            User previousAssignee = previousAssigneeId != null ? userRepository.findById(previousAssigneeId).orElse(null) : null;
+            addAssignmentChangeComment(ticket, previousAssignee, ticket.getAssignedTo());
         }
         
-        return ticketRepository.save(ticket);
+        Ticket savedTicket = ticketRepository.save(ticket);
+        equipmentTicketCountService.ticketChanged(previousEquipmentId, previousStatus, savedTicket);
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_UPDATED, savedTicket, previousStatus));
+        return savedTicket;
     }
     
     /**
@@ -230,9 +290,29 @@ public class TicketService {
         // Add assignment change comment
         addAssignmentChangeComment(savedTicket, previousAssignee, assignedTo);
         
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_ASSIGNED, savedTicket));
         return savedTicket;
     }
     
+    /**
+     * Assign an unassigned ticket to the technician picked by the workload index
+     */
+    public Ticket autoAssignTicket(Long ticketId) {
+        Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
+        if (ticketOpt.isEmpty()) {
+            throw new IllegalArgumentException("Ticket not found with ID: " + ticketId);
+        }
+        if (ticketOpt.get().getAssignedTo() != null) {
+            throw new IllegalArgumentException("Ticket is already assigned: " + ticketId);
+        }
+        
+        Optional<User> technician = autoAssignmentService.selectTechnician(ticketOpt.get());
+        if (technician.isEmpty()) {
+            throw new IllegalArgumentException("No technician available for automatic assignment");
+        }
+        return assignTicket(ticketId, technician.get());
+    }
+    
     /**
      * Change ticket status
      */
@@ -246,7 +326,8 @@ public class TicketService {
         TicketStatus oldStatus = ticket.getStatus();
         ticket.setStatus(newStatus);
         
-        if (newStatus == TicketStatus.RESOLVED || newStatus == TicketStatus.CLOSED) {
+        // Closing a resolved ticket keeps the original resolution time
+        if (newStatus.isResolved() && (!oldStatus.isResolved() || ticket.getResolvedAt() == null)) {
             ticket.setResolvedAt(LocalDateTime.now());
         }
         
@@ -262,6 +343,8 @@ public class TicketService {
             ticketCommentRepository.save(userComment);
         }
         
+        equipmentTicketCountService.ticketStatusChanged(oldStatus, savedTicket);
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_STATUS_CHANGED, savedTicket, oldStatus));
         return savedTicket;
     }
     
@@ -293,9 +376,32 @@ public class TicketService {
         escalationComment.setCommentType(CommentType.SYSTEM);
         ticketCommentRepository.save(escalationComment);
         
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_ESCALATED, savedTicket));
         return savedTicket;
     }
     
+    /**
+     * Handle a due date reached by the SLA scheduler: escalate the ticket once and publish a breach event
+     */
+    public void handleSlaBreach(Long ticketId) {
+        Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
+        if (ticketOpt.isEmpty()) {
+            return;
+        }
+        
+        Ticket ticket = ticketOpt.get();
+        // Skip tickets closed or given a later due date since the deadline was scheduled
+        if (ticket.getStatus() == TicketStatus.CANCELLED || ticket.isResolved()
+                || ticket.getDueDate() == null || ticket.getDueDate().isAfter(LocalDateTime.now())) {
+            return;
+        }
+        
+        if (!Boolean.TRUE.equals(ticket.getIsEscalated())) {
+            ticket = escalateTicket(ticketId, "SLA breached, ticket was due " + ticket.getDueDate());
+        }
+        eventPublisher.publishEvent(DomainEvent.ticket(DomainEventType.TICKET_SLA_BREACHED, ticket));
+    }
+    
     /**
      * Add comment to ticket
      */
@@ -307,7 +413,52 @@ public class TicketService {
         
         Ticket ticket = ticketOpt.get();
         TicketComment ticketComment = new TicketComment(ticket, user, comment, isInternal);
-        return ticketCommentRepository.save(ticketComment);
+        TicketComment savedComment = ticketCommentRepository.save(ticketComment);
+        eventPublisher.publishEvent(DomainEvent.comment(savedComment));
+        return savedComment;
+    }
+    
+    /**
+     * Add a comment carrying an attachment, within the ticket's attachment quota.
+     * The content is stored before the comment; if the transaction fails the stored
+     * file is left unreferenced and removed by the orphan sweep. The quota is checked
+     * again with the ticket's row locked, so concurrent uploads cannot exceed it together.
+     */
+    public TicketComment addAttachment(Long ticketId, User user, String fileName, long declaredSize,
+                                       InputStream content, String comment, Boolean isInternal) throws IOException {
+        Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
+        if (ticketOpt.isEmpty()) {
+            throw new IllegalArgumentException("Ticket not found with ID: " + ticketId);
+        }
+        
+        // Reject early, before the content is read
+        checkAttachmentQuota(ticketId, declaredSize);
+        AttachmentStorageService.StoredFile stored = attachmentStorageService.store(content);
+        ticketRepository.lockById(ticketId);
+        checkAttachmentQuota(ticketId, stored.getSize());
+        
+        String text = comment != null && !comment.isBlank() ? comment : "Attached " + fileName;
+        TicketComment ticketComment = new TicketComment(ticketOpt.get(), user, text, isInternal);
+        ticketComment.setAttachmentPath(stored.getPath());
+        ticketComment.setAttachmentName(fileName);
+        ticketComment.setAttachmentSize(stored.getSize());
+        TicketComment savedComment = ticketCommentRepository.save(ticketComment);
+        attachmentPreviewService.schedule(stored.getPath());
+        eventPublisher.publishEvent(DomainEvent.comment(savedComment));
+        return savedComment;
+    }
+    
+    /**
+     * Find a ticket comment that has an attachment, if the requester may read it: internal
+     * comments are reserved to technicians and administrators, and non-administrators must
+     * have created or be assigned the ticket. Anonymous requesters (only let through where
+     * ticket endpoints are left open, in development) get public attachments only.
+     */
+    @Transactional(readOnly = true)
+    public Optional<TicketComment> findAttachmentComment(Long ticketId, Long commentId, User requester) {
+        return ticketCommentRepository.findById(commentId)
+            .filter(comment -> comment.getTicket().getId().equals(ticketId) && comment.getAttachmentPath() != null)
+            .filter(comment -> canRead(comment, requester));
     }
     
     /**
@@ -322,10 +473,12 @@ public class TicketService {
      * Delete ticket
      */
     public void deleteTicket(Long ticketId) {
-        if (!ticketRepository.existsById(ticketId)) {
-            throw new IllegalArgumentException("Ticket not found with ID: " + ticketId);
-        }
-        ticketRepository.deleteById(ticketId);
+        Ticket ticket = ticketRepository.findById(ticketId)
+            .orElseThrow(() -> new IllegalArgumentException("Ticket not found with ID: " + ticketId));
+        ticketRepository.delete(ticket);
+        equipmentTicketCountService.ticketDeleted(ticket.getEquipment() != null ? ticket.getEquipment().getId() : null,
+            ticket.getStatus(), ticket.getCreatedAt());
+        eventPublisher.publishEvent(DomainEvent.deleted(DomainEventType.TICKET_DELETED, ticketId));
     }
     
     /**
@@ -367,16 +520,44 @@ public class TicketService {
     
     // Private helper methods
     
-    private LocalDateTime calculateDueDate(TicketPriority priority) {
-        LocalDateTime now = LocalDateTime.now();
+    private LocalDateTime calculateDueDate(LocalDateTime from, TicketPriority priority) {
         return switch (priority) {
-            case CRITICAL -> now.plusHours(4);
-            case HIGH -> now.plusDays(1);
-            case MEDIUM -> now.plusDays(3);
-            case LOW -> now.plusDays(7);
+            case CRITICAL -> from.plusHours(4);
+            case HIGH -> from.plusDays(1);
+            case MEDIUM -> from.plusDays(3);
+            case LOW -> from.plusDays(7);
         };
     }
     
+    private void checkAttachmentQuota(Long ticketId, long addedBytes) {
+        Object[] usage = ticketCommentRepository.getAttachmentUsageByTicketId(ticketId).get(0);
+        if ((Long) usage[0] >= maxAttachmentsPerTicket) {
+            throw new AttachmentQuotaExceededException(ticketId, maxAttachmentsPerTicket + " files");
+        }
+        if (((Number) usage[1]).longValue() + addedBytes > maxAttachmentBytesPerTicket) {
+            throw new AttachmentQuotaExceededException(ticketId, maxAttachmentBytesPerTicket + " bytes");
+        }
+    }
+    
+    private static boolean canRead(TicketComment comment, User requester) {
+        boolean internal = Boolean.TRUE.equals(comment.getIsInternal());
+        if (requester == null) {
+            return !internal;
+        }
+        if (requester.getRole() == UserRole.ADMIN) {
+            return true;
+        }
+        if (internal && requester.getRole() != UserRole.TECHNICIAN) {
+            return false;
+        }
+        Ticket ticket = comment.getTicket();
+        return isSameUser(ticket.getCreatedBy(), requester) || isSameUser(ticket.getAssignedTo(), requester);
+    }
+    
+    private static boolean isSameUser(User user, User requester) {
+        return user != null && user.getId().equals(requester.getId());
+    }
+    
     private void addStatusChangeComment(Ticket ticket, TicketStatus oldStatus, TicketStatus newStatus) {
         String comment = String.format("Status changed from %s to %s", oldStatus.getDisplayName(), newStatus.getDisplayName());
         TicketComment statusComment = new TicketComment(ticket, ticket.getAssignedTo(), comment, true);
@@ -403,6 +584,18 @@ public class TicketService {
         ticketCommentRepository.save(assignmentComment);
     }
     
+    private void addAutoAssignmentComment(Ticket ticket, User technician) {
+        String comment = String.format("Ticket automatically assigned to %s", technician.getFullName());
+        TicketComment assignmentComment = new TicketComment(ticket, systemUser(ticket), comment, true);
+        assignmentComment.setCommentType(CommentType.ASSIGNMENT_CHANGE);
+        ticketCommentRepository.save(assignmentComment);
+    }
+    
+    // Author of comments the application writes on its own; the ticket's creator if the account is missing
+    private User systemUser(Ticket ticket) {
+        return userRepository.findByLdapUsername(systemUsername).orElse(ticket.getCreatedBy());
+    }
+    
     /**
      * Inner class for ticket statistics
      */
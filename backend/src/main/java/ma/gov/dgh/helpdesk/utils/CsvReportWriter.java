@@ -0,0 +1,75 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * RFC 4180 CSV report writer streaming straight to the output.
+ * The file starts with a UTF-8 byte order mark so spreadsheet tools detect the encoding,
+ * and text starting with a formula character is prefixed with a quote to prevent formula injection.
+ */
+public class CsvReportWriter implements ReportWriter {
+    
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private final Writer writer;
+    
+    public CsvReportWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            writer.write('\uFEFF');
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start CSV report", e);
+        }
+    }
+    
+    @Override
+    public void writeHeader(String... columns) throws IOException {
+        writeRow((Object[]) columns);
+    }
+    
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(values[i]);
+        }
+        writer.write("\r\n");
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+    
+    private void writeCell(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            writer.write(value.toString());
+            return;
+        }
+        
+        String text = value instanceof LocalDateTime dateTime ? DATE_TIME_FORMAT.format(dateTime)
+            : value instanceof Enum<?> constant ? constant.name() : value.toString();
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
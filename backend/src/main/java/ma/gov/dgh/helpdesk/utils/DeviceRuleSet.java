@@ -0,0 +1,314 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.IntStream;
+
+/**
+ * Compiled device classification rules.
+ * A rule applies when the device's sysObjectID starts with one of its enterprise OID prefixes,
+ * or one of its keywords occurs in the sysDescr or host name. Prefixes are looked up in a
+ * trie of OID arcs and keywords in one Aho-Corasick pass per text, so classifying costs the
+ * same whatever the number of rules. Each attribute is taken from the applying rule with the
+ * highest priority that sets it; on equal priority the earlier rule wins.
+ */
+public class DeviceRuleSet {
+    
+    private final String version;
+    private final List<Rule> rules;
+    // Rule indexes by descending priority, then file order
+    private final int[] order;
+    private final Pattern[] modelPatterns;
+    private final OidNode oidRoot = new OidNode();
+    private final KeywordMatcher descriptionMatcher;
+    private final int[][] descriptionRules;
+    private final KeywordMatcher hostnameMatcher;
+    private final int[][] hostnameRules;
+    
+    private DeviceRuleSet(RuleFile file) {
+        this.version = file.getVersion();
+        this.rules = List.copyOf(file.getRules());
+        this.order = IntStream.range(0, rules.size()).boxed()
+            .sorted(Comparator.comparingInt((Integer r) -> -rules.get(r).getPriority()).thenComparingInt(r -> r))
+            .mapToInt(Integer::intValue).toArray();
+        this.modelPatterns = new Pattern[rules.size()];
+        
+        Map<String, List<Integer>> descriptionKeywords = new LinkedHashMap<>();
+        Map<String, List<Integer>> hostnameKeywords = new LinkedHashMap<>();
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            for (String prefix : rule.getObjectIds()) {
+                oidRoot.add(prefix, r);
+            }
+            for (String keyword : rule.getDescriptionKeywords()) {
+                descriptionKeywords.computeIfAbsent(keyword.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(r);
+            }
+            for (String keyword : rule.getHostnameKeywords()) {
+                hostnameKeywords.computeIfAbsent(keyword.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(r);
+            }
+            if (rule.getModelPattern() != null) {
+                modelPatterns[r] = Pattern.compile(rule.getModelPattern());
+            }
+        }
+        oidRoot.freeze();
+        this.descriptionMatcher = new KeywordMatcher(new ArrayList<>(descriptionKeywords.keySet()));
+        this.descriptionRules = toArrays(descriptionKeywords);
+        this.hostnameMatcher = new KeywordMatcher(new ArrayList<>(hostnameKeywords.keySet()));
+        this.hostnameRules = toArrays(hostnameKeywords);
+    }
+    
+    /**
+     * Validate and compile a rule file
+     */
+    public static DeviceRuleSet compile(RuleFile file) {
+        if (file == null || file.getVersion() == null || file.getVersion().isBlank()) {
+            throw new IllegalArgumentException("Rule file has no version");
+        }
+        if (file.getRules() == null || file.getRules().isEmpty()) {
+            throw new IllegalArgumentException("Rule file " + file.getVersion() + " has no rules");
+        }
+        for (Rule rule : file.getRules()) {
+            if (rule.getId() == null || rule.getId().isBlank()) {
+                throw new IllegalArgumentException("Rule without id in rule file " + file.getVersion());
+            }
+            if (rule.getObjectIds().isEmpty() && rule.getDescriptionKeywords().isEmpty()
+                    && rule.getHostnameKeywords().isEmpty()) {
+                throw new IllegalArgumentException("Rule " + rule.getId() + " matches nothing");
+            }
+            for (String prefix : rule.getObjectIds()) {
+                if (!prefix.matches("\\.?\\d+(\\.\\d+)*")) {
+                    throw new IllegalArgumentException("Rule " + rule.getId() + " has an invalid OID prefix: " + prefix);
+                }
+            }
+            if (rule.getModelPattern() != null) {
+                try {
+                    if (Pattern.compile(rule.getModelPattern()).matcher("").groupCount() < 1) {
+                        throw new IllegalArgumentException("Rule " + rule.getId() + " model pattern has no group");
+                    }
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Rule " + rule.getId() + " has an invalid model pattern: " + e.getDescription());
+                }
+            }
+        }
+        return new DeviceRuleSet(file);
+    }
+    
+    /**
+     * Classify a device from its sysObjectID, sysDescr and host name; any of them may be null
+     */
+    public Classification classify(String objectId, String description, String hostname) {
+        boolean[] applies = new boolean[rules.size()];
+        oidRoot.match(objectId, applies);
+        descriptionMatcher.match(description, (keyword, start, end) -> {
+            for (int r : descriptionRules[keyword]) {
+                applies[r] = true;
+            }
+        });
+        hostnameMatcher.match(hostname, (keyword, start, end) -> {
+            for (int r : hostnameRules[keyword]) {
+                applies[r] = true;
+            }
+        });
+        
+        Classification result = new Classification();
+        for (int r : order) {
+            if (!applies[r]) {
+                continue;
+            }
+            Rule rule = rules.get(r);
+            if (result.manufacturer == null) {
+                result.manufacturer = rule.getManufacturer();
+            }
+            if (result.equipmentType == null) {
+                result.equipmentType = rule.getEquipmentType();
+            }
+            if (result.osName == null) {
+                result.osName = rule.getOsName();
+            }
+            if (result.osVersion == null) {
+                result.osVersion = rule.getOsVersion();
+            }
+            if (result.model == null && modelPatterns[r] != null && description != null) {
+                Matcher matcher = modelPatterns[r].matcher(description);
+                if (matcher.find() && matcher.group(1) != null) {
+                    result.model = matcher.group(1);
+                }
+            }
+        }
+        if (result.equipmentType == null) {
+            result.equipmentType = EquipmentType.UNKNOWN;
+        }
+        return result;
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public int getRuleCount() {
+        return rules.size();
+    }
+    
+    private static int[][] toArrays(Map<String, List<Integer>> rulesByKeyword) {
+        return rulesByKeyword.values().stream()
+            .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+            .toArray(int[][]::new);
+    }
+    
+    /**
+     * Trie over OID arcs; every node on the path of an OID contributes its rules.
+     * Built with maps, then frozen into sorted arc arrays searched without boxing.
+     */
+    private static class OidNode {
+        private Map<Long, OidNode> building = new HashMap<>();
+        private List<Integer> buildingRules = new ArrayList<>();
+        private long[] arcs;
+        private OidNode[] children;
+        private int[] rules;
+        
+        void add(String prefix, int rule) {
+            OidNode node = this;
+            for (String arc : prefix.startsWith(".") ? prefix.substring(1).split("\\.") : prefix.split("\\.")) {
+                node = node.building.computeIfAbsent(Long.parseLong(arc), a -> new OidNode());
+            }
+            node.buildingRules.add(rule);
+        }
+        
+        OidNode freeze() {
+            arcs = building.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            children = new OidNode[arcs.length];
+            for (int i = 0; i < arcs.length; i++) {
+                children[i] = building.get(arcs[i]).freeze();
+            }
+            rules = buildingRules.stream().mapToInt(Integer::intValue).toArray();
+            building = null;
+            buildingRules = null;
+            return this;
+        }
+        
+        /**
+         * Walk the OID arc by arc without splitting it; stops at the first arc that is not a number
+         */
+        void match(String objectId, boolean[] applies) {
+            if (objectId == null) {
+                return;
+            }
+            OidNode node = this;
+            long arc = 0;
+            boolean digits = false;
+            for (int i = 0; i <= objectId.length(); i++) {
+                char c = i < objectId.length() ? objectId.charAt(i) : '.';
+                if (c >= '0' && c <= '9' && arc < Long.MAX_VALUE / 10) {
+                    arc = arc * 10 + (c - '0');
+                    digits = true;
+                } else if (c == '.' && digits) {
+                    int child = Arrays.binarySearch(node.arcs, arc);
+                    if (child < 0) {
+                        return;
+                    }
+                    node = node.children[child];
+                    for (int rule : node.rules) {
+                        applies[rule] = true;
+                    }
+                    arc = 0;
+                    digits = false;
+                } else if (c != '.' || i > 0) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Versioned rule file, as stored in JSON
+     */
+    public static class RuleFile {
+        private String version;
+        private List<Rule> rules;
+        
+        public String getVersion() { return version; }
+        public void setVersion(String version) { this.version = version; }
+        
+        public List<Rule> getRules() { return rules; }
+        public void setRules(List<Rule> rules) { this.rules = rules; }
+    }
+    
+    /**
+     * One classification rule: what it matches and which attributes it sets
+     */
+    public static class Rule {
+        private String id;
+        private int priority;
+        private List<String> objectIds = List.of();
+        private List<String> descriptionKeywords = List.of();
+        private List<String> hostnameKeywords = List.of();
+        private String manufacturer;
+        private EquipmentType equipmentType;
+        private String osName;
+        private String osVersion;
+        private String modelPattern;
+        
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        
+        public int getPriority() { return priority; }
+        public void setPriority(int priority) { this.priority = priority; }
+        
+        public List<String> getObjectIds() { return objectIds; }
+        public void setObjectIds(List<String> objectIds) { this.objectIds = objectIds != null ? objectIds : List.of(); }
+        
+        public List<String> getDescriptionKeywords() { return descriptionKeywords; }
+        public void setDescriptionKeywords(List<String> descriptionKeywords) {
+            this.descriptionKeywords = descriptionKeywords != null ? descriptionKeywords : List.of();
+        }
+        
+        public List<String> getHostnameKeywords() { return hostnameKeywords; }
+        public void setHostnameKeywords(List<String> hostnameKeywords) {
+            this.hostnameKeywords = hostnameKeywords != null ? hostnameKeywords : List.of();
+        }
+        
+        public String getManufacturer() { return manufacturer; }
+        public void setManufacturer(String manufacturer) { this.manufacturer = manufacturer; }
+        
+        public EquipmentType getEquipmentType() { return equipmentType; }
+        public void setEquipmentType(EquipmentType equipmentType) { this.equipmentType = equipmentType; }
+        
+        public String getOsName() { return osName; }
+        public void setOsName(String osName) { this.osName = osName; }
+        
+        public String getOsVersion() { return osVersion; }
+        public void setOsVersion(String osVersion) { this.osVersion = osVersion; }
+        
+        public String getModelPattern() { return modelPattern; }
+        public void setModelPattern(String modelPattern) { this.modelPattern = modelPattern; }
+    }
+    
+    /**
+     * Result of classifying one device; type is UNKNOWN when no rule sets it
+     */
+    public static class Classification {
+        private String manufacturer;
+        private String model;
+        private String osName;
+        private String osVersion;
+        private EquipmentType equipmentType;
+        
+        // Getters
+        public String getManufacturer() { return manufacturer; }
+        public String getModel() { return model; }
+        public String getOsName() { return osName; }
+        public String getOsVersion() { return osVersion; }
+        public EquipmentType getEquipmentType() { return equipmentType; }
+    }
+}
@@ -0,0 +1,217 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-memory schedule of incremental network discovery.
+ * Keeps per host when it last answered, the hash of its last SNMP fingerprint and its
+ * consecutive failures, and per range how many sweeps in a row found nothing new.
+ * Live hosts are due again after the live interval; hosts that stop answering and ranges
+ * that stay empty back off exponentially, up to the maximum backoff. Hosts that answer pings
+ * but not SNMP are asked over SNMP again on the same backoff, in case an agent was enabled.
+ */
+public class DiscoveryStateStore {
+    
+    /**
+     * Fingerprint of hosts that answer pings but not SNMP
+     */
+    public static final String NO_SNMP = "-";
+    
+    // 2^20 times any sensible base interval is far beyond the cap already
+    private static final int MAX_BACKOFF_SHIFT = 20;
+    
+    private final long liveIntervalMillis;
+    private final long rangeIntervalMillis;
+    private final long maxBackoffMillis;
+    
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final Map<String, RangeState> ranges = new ConcurrentHashMap<>();
+    
+    public DiscoveryStateStore(long liveIntervalMillis, long rangeIntervalMillis, long maxBackoffMillis) {
+        this.liveIntervalMillis = liveIntervalMillis;
+        this.rangeIntervalMillis = rangeIntervalMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+    
+    /**
+     * Track a host known from the inventory without probing it yet; its first probe is
+     * spread over the live interval so a restart does not probe every host at once
+     */
+    public void addHost(String ipAddress, Long equipmentId, long now) {
+        hosts.computeIfAbsent(ipAddress, ip -> {
+            HostState state = new HostState(equipmentId);
+            state.nextProbeAt = now + ThreadLocalRandom.current().nextLong(Math.max(1, liveIntervalMillis));
+            return state;
+        });
+    }
+    
+    public boolean isKnown(String ipAddress) {
+        return hosts.containsKey(ipAddress);
+    }
+    
+    public HostState getHost(String ipAddress) {
+        return hosts.get(ipAddress);
+    }
+    
+    /**
+     * Record that a host answered; a null fingerprint or equipment id keeps the stored one.
+     * A {@link #NO_SNMP} fingerprint counts one more SNMP miss and pushes the next SNMP probe out.
+     */
+    public void recordSeen(String ipAddress, Long equipmentId, String fingerprint, long now) {
+        HostState state = hosts.computeIfAbsent(ipAddress, ip -> new HostState(equipmentId));
+        synchronized (state) {
+            if (equipmentId != null) {
+                state.equipmentId = equipmentId;
+            }
+            if (fingerprint != null) {
+                state.snmpMisses = NO_SNMP.equals(fingerprint) ? state.snmpMisses + 1 : 0;
+                state.nextSnmpProbeAt = now + backoff(liveIntervalMillis, state.snmpMisses, maxBackoffMillis);
+                state.fingerprint = fingerprint;
+            }
+            state.lastSeen = now;
+            state.failures = 0;
+            state.nextProbeAt = now + liveIntervalMillis;
+        }
+    }
+    
+    /**
+     * Record that a host did not answer; it is probed again after an exponentially growing delay
+     */
+    public void recordFailure(String ipAddress, long now) {
+        HostState state = hosts.get(ipAddress);
+        if (state != null) {
+            synchronized (state) {
+                state.failures++;
+                state.nextProbeAt = now + backoff(liveIntervalMillis, state.failures, maxBackoffMillis);
+            }
+        }
+    }
+    
+    /**
+     * Make a backed-off host due now, when a range sweep saw it answer again
+     */
+    public void wakeUp(String ipAddress, long now) {
+        HostState state = hosts.get(ipAddress);
+        if (state != null) {
+            synchronized (state) {
+                if (state.failures > 0) {
+                    state.nextProbeAt = now;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether a host should be asked over SNMP: always, unless it did not answer SNMP lately
+     */
+    public boolean isSnmpProbeDue(String ipAddress, long now) {
+        HostState state = hosts.get(ipAddress);
+        return state == null || !NO_SNMP.equals(state.fingerprint) || state.nextSnmpProbeAt <= now;
+    }
+    
+    /**
+     * Record a range sweep; sweeps finding no new host push the next one further out
+     */
+    public void recordSweep(String range, boolean foundNewHosts, long now) {
+        RangeState state = ranges.computeIfAbsent(range, r -> new RangeState());
+        synchronized (state) {
+            state.emptySweeps = foundNewHosts ? 0 : state.emptySweeps + 1;
+            state.nextSweepAt = now + backoff(rangeIntervalMillis, state.emptySweeps, maxBackoffMillis);
+        }
+    }
+    
+    /**
+     * Get the hosts whose probe is due
+     */
+    public List<String> dueHosts(long now) {
+        List<String> due = new ArrayList<>();
+        hosts.forEach((ip, state) -> {
+            if (state.nextProbeAt <= now) {
+                due.add(ip);
+            }
+        });
+        return due;
+    }
+    
+    /**
+     * Get the ranges whose sweep is due; ranges never swept are due immediately
+     */
+    public List<String> dueRanges(Collection<String> configuredRanges, long now) {
+        List<String> due = new ArrayList<>();
+        for (String range : configuredRanges) {
+            RangeState state = ranges.get(range);
+            if (state == null || state.nextSweepAt <= now) {
+                due.add(range);
+            }
+        }
+        return due;
+    }
+    
+    /**
+     * Forget the host of a deleted equipment, so a sweep discovers it anew if it is still there
+     */
+    public void removeEquipment(Long equipmentId) {
+        hosts.values().removeIf(state -> equipmentId.equals(state.equipmentId));
+    }
+    
+    public int getHostCount() {
+        return hosts.size();
+    }
+    
+    /**
+     * Get the number of hosts that failed their last probe
+     */
+    public int getUnreachableCount() {
+        int count = 0;
+        for (HostState state : hosts.values()) {
+            if (state.failures > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Delay after the given number of consecutive failures: base * 2^failures, capped
+     */
+    public static long backoff(long baseMillis, int failures, long maxMillis) {
+        int shift = Math.min(failures, MAX_BACKOFF_SHIFT);
+        return baseMillis > (maxMillis >> shift) ? maxMillis : baseMillis << shift;
+    }
+    
+    /**
+     * Discovery state of one host
+     */
+    public static class HostState {
+        private volatile Long equipmentId;
+        private volatile String fingerprint;
+        private volatile long lastSeen;
+        private volatile int failures;
+        private volatile long nextProbeAt;
+        private volatile int snmpMisses;
+        private volatile long nextSnmpProbeAt;
+        
+        HostState(Long equipmentId) {
+            this.equipmentId = equipmentId;
+        }
+        
+        // Getters
+        public Long getEquipmentId() { return equipmentId; }
+        public String getFingerprint() { return fingerprint; }
+        public long getLastSeen() { return lastSeen; }
+        public int getFailures() { return failures; }
+        public long getNextProbeAt() { return nextProbeAt; }
+        public int getSnmpMisses() { return snmpMisses; }
+        public long getNextSnmpProbeAt() { return nextSnmpProbeAt; }
+    }
+    
+    private static class RangeState {
+        private int emptySweeps;
+        private volatile long nextSweepAt;
+    }
+}
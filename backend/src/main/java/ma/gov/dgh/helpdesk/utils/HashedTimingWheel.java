@@ -0,0 +1,184 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel keyed by an identifier, with one pending deadline per key.
+ * Scheduling and cancelling are O(1); each tick only visits the entries of one bucket,
+ * and entries further away than one revolution carry a remaining-rounds counter.
+ * Expired keys are handed to the callback on the wheel thread, which must return quickly.
+ */
+public class HashedTimingWheel<K> {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+    
+    private final long tickMillis;
+    private final int mask;
+    private final List<Set<Entry<K>>> buckets;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final Consumer<K> onExpire;
+    private final String threadName;
+    
+    private final long startMillis;
+    // Next tick to process; its bucket is due at startMillis + currentTick * tickMillis
+    private long currentTick = 0;
+    private volatile boolean running = false;
+    private Thread worker;
+    
+    public HashedTimingWheel(long tickMillis, int wheelSize, Consumer<K> onExpire, String threadName) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+        this.onExpire = onExpire;
+        this.threadName = threadName;
+        this.startMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * Schedule (or reschedule) the key to expire at the given epoch time.
+     * Deadlines already in the past expire on the next tick.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick);
+        long ticksAhead = deadlineTick - currentTick;
+        Entry<K> entry = new Entry<>(key, deadlineMillis, (int) (deadlineTick & mask), ticksAhead / buckets.size());
+        buckets.get(entry.bucket).add(entry);
+        entries.put(key, entry);
+    }
+    
+    /**
+     * Cancel the pending deadline of the key, if any
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        buckets.get(entry.bucket).remove(entry);
+        return true;
+    }
+    
+    /**
+     * Get the pending deadline of the key, or null when none is scheduled
+     */
+    public synchronized Long getDeadline(K key) {
+        Entry<K> entry = entries.get(key);
+        return entry != null ? entry.deadlineMillis : null;
+    }
+    
+    /**
+     * Get the number of pending deadlines
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Start the wheel thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Stop the wheel thread; pending deadlines are kept but no longer fire
+     */
+    public void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            long nextTickMillis;
+            synchronized (this) {
+                nextTickMillis = startMillis + currentTick * tickMillis;
+            }
+            long sleepMillis = nextTickMillis - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            // A late wake-up processes every missed tick, so no bucket is skipped
+            for (K key : advance()) {
+                try {
+                    onExpire.accept(key);
+                } catch (RuntimeException e) {
+                    logger.error("Timing wheel callback failed for {}: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private synchronized List<K> advance() {
+        List<K> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (startMillis + currentTick * tickMillis <= now) {
+            Iterator<Entry<K>> iterator = buckets.get((int) (currentTick & mask)).iterator();
+            while (iterator.hasNext()) {
+                Entry<K> entry = iterator.next();
+                if (entry.remainingRounds > 0) {
+                    entry.remainingRounds--;
+                } else {
+                    iterator.remove();
+                    entries.remove(entry.key);
+                    expired.add(entry.key);
+                }
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+    
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+    
+    private static class Entry<K> {
+        private final K key;
+        private final long deadlineMillis;
+        private final int bucket;
+        private long remainingRounds;
+        
+        Entry(K key, long deadlineMillis, int bucket, long remainingRounds) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.bucket = bucket;
+            this.remainingRounds = remainingRounds;
+        }
+    }
+}
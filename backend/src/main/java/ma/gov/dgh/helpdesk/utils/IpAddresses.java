@@ -0,0 +1,216 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Numeric form of IP addresses and CIDR ranges.
+ * Every address is a 128-bit key: IPv6 addresses as they are, IPv4 addresses in the IPv4-mapped
+ * block ::ffff:0:0/96. Both families share one ordered key space, so a subnet of either family
+ * is one contiguous key range.
+ */
+public final class IpAddresses {
+    
+    private static final BigInteger IPV4_MAPPED_BASE = BigInteger.valueOf(0xFFFFL).shiftLeft(32);
+    private static final BigInteger IPV4_MAPPED_LAST = IPV4_MAPPED_BASE.add(BigInteger.valueOf(0xFFFFFFFFL));
+    
+    private IpAddresses() {
+    }
+    
+    /**
+     * Numeric key of an IPv4 or IPv6 address, or null when it is not an address literal
+     */
+    public static BigInteger toKey(String ipAddress) {
+        if (ipAddress == null || ipAddress.isBlank()) {
+            return null;
+        }
+        String address = ipAddress.trim();
+        if (address.indexOf(':') < 0) {
+            long ipv4 = parseIpv4(address);
+            return ipv4 < 0 ? null : IPV4_MAPPED_BASE.or(BigInteger.valueOf(ipv4));
+        }
+        if (!address.matches("[0-9A-Fa-f:.]+")) {
+            return null;
+        }
+        try {
+            // A literal containing ':' is parsed, never resolved
+            byte[] bytes = InetAddress.getByName(address).getAddress();
+            BigInteger value = new BigInteger(1, bytes);
+            return bytes.length == 4 ? IPV4_MAPPED_BASE.or(value) : value;
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Address text of a numeric key: dotted quad for IPv4-mapped keys, IPv6 text otherwise
+     */
+    public static String format(BigInteger key) {
+        if (isIpv4(key)) {
+            long ipv4 = key.longValue() & 0xFFFFFFFFL;
+            return (ipv4 >>> 24) + "." + ((ipv4 >>> 16) & 0xFF) + "." + ((ipv4 >>> 8) & 0xFF) + "." + (ipv4 & 0xFF);
+        }
+        byte[] bytes = new byte[16];
+        byte[] value = key.toByteArray();
+        int length = Math.min(value.length, 16);
+        System.arraycopy(value, value.length - length, bytes, 16 - length, length);
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static boolean isIpv4(BigInteger key) {
+        return key.compareTo(IPV4_MAPPED_BASE) >= 0 && key.compareTo(IPV4_MAPPED_LAST) <= 0;
+    }
+    
+    /**
+     * Parse a CIDR range ("10.2.0.0/15", "2001:db8::/32") or a single address.
+     * Host bits below the prefix are ignored.
+     *
+     * @throws IllegalArgumentException when the text is not a valid range
+     */
+    public static Range parseRange(String cidr) {
+        if (cidr == null || cidr.isBlank()) {
+            throw new IllegalArgumentException("IP range is required");
+        }
+        String text = cidr.trim();
+        int slash = text.indexOf('/');
+        BigInteger address = toKey(slash < 0 ? text : text.substring(0, slash));
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid IP range: " + cidr);
+        }
+        boolean ipv4 = isIpv4(address);
+        int bits = ipv4 ? 32 : 128;
+        int prefix;
+        try {
+            prefix = slash < 0 ? bits : Integer.parseInt(text.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid IP range: " + cidr);
+        }
+        if (prefix < 0 || prefix > bits) {
+            throw new IllegalArgumentException("Invalid prefix length in IP range: " + cidr);
+        }
+        BigInteger hostMask = BigInteger.ONE.shiftLeft(bits - prefix).subtract(BigInteger.ONE);
+        BigInteger first = address.andNot(hostMask);
+        return new Range(first, first.or(hostMask), ipv4, prefix);
+    }
+    
+    /**
+     * Sort ranges and merge the ones that overlap or touch, so each address is covered once
+     */
+    public static List<Range> merge(Collection<Range> ranges) {
+        List<Range> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparing(Range::getFirst));
+        List<Range> merged = new ArrayList<>();
+        Range current = null;
+        for (Range range : sorted) {
+            if (current != null && range.getFirst().compareTo(current.getLast().add(BigInteger.ONE)) <= 0) {
+                if (range.getLast().compareTo(current.getLast()) > 0) {
+                    current = new Range(current.getFirst(), range.getLast(), current.isIpv4() && range.isIpv4(), -1);
+                }
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = range;
+            }
+        }
+        if (current != null) {
+            merged.add(current);
+        }
+        return merged;
+    }
+    
+    private static long parseIpv4(String address) {
+        String[] octets = address.split("\\.", -1);
+        if (octets.length != 4) {
+            return -1;
+        }
+        long value = 0;
+        for (String octet : octets) {
+            if (octet.isEmpty() || octet.length() > 3) {
+                return -1;
+            }
+            int part = 0;
+            for (int i = 0; i < octet.length(); i++) {
+                char c = octet.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                part = part * 10 + (c - '0');
+            }
+            if (part > 255) {
+                return -1;
+            }
+            value = (value << 8) | part;
+        }
+        return value;
+    }
+    
+    /**
+     * Inclusive range of numeric keys; the prefix length is -1 for merged ranges
+     */
+    public static class Range {
+        private final BigInteger first;
+        private final BigInteger last;
+        private final boolean ipv4;
+        private final int prefix;
+        
+        Range(BigInteger first, BigInteger last, boolean ipv4, int prefix) {
+            this.first = first;
+            this.last = last;
+            this.ipv4 = ipv4;
+            this.prefix = prefix;
+        }
+        
+        /**
+         * Number of addresses in the range
+         */
+        public BigInteger size() {
+            return last.subtract(first).add(BigInteger.ONE);
+        }
+        
+        /**
+         * First address that can be assigned to a host: an IPv4 network address is not
+         */
+        public BigInteger firstHost() {
+            return ipv4 && prefix >= 0 && prefix < 31 ? first.add(BigInteger.ONE) : first;
+        }
+        
+        /**
+         * Last address that can be assigned to a host: an IPv4 broadcast address is not
+         */
+        public BigInteger lastHost() {
+            return ipv4 && prefix >= 0 && prefix < 31 ? last.subtract(BigInteger.ONE) : last;
+        }
+        
+        public boolean contains(BigInteger key) {
+            return key.compareTo(first) >= 0 && key.compareTo(last) <= 0;
+        }
+        
+        /**
+         * Whether the two ranges share at least one address
+         */
+        public boolean overlaps(Range other) {
+            return first.compareTo(other.last) <= 0 && other.first.compareTo(last) <= 0;
+        }
+        
+        @Override
+        public String toString() {
+            return prefix >= 0 ? format(first) + "/" + prefix : format(first) + "-" + format(last);
+        }
+        
+        // Getters
+        public BigInteger getFirst() { return first; }
+        public BigInteger getLast() { return last; }
+        public boolean isIpv4() { return ipv4; }
+        public int getPrefix() { return prefix; }
+    }
+}
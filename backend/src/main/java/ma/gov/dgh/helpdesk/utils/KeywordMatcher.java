@@ -0,0 +1,162 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton finding a fixed set of keywords in one pass over a text.
+ * Keywords are ASCII and matched case-insensitively without copying the text. Only matches
+ * delimited by non-letters or the ends of the text are reported, so "ap" is found in
+ * "AP-1200" and "ap3" but not in "snmpap" or "Apache". The automaton is compiled into a
+ * transition table over the keyword alphabet; instances are immutable and thread-safe.
+ */
+public class KeywordMatcher {
+    
+    private static final int[] NO_OUTPUT = new int[0];
+    
+    // Column of each ASCII character, upper case sharing the lower case column; 0 for characters no keyword contains
+    private final int[] columns = new int[128];
+    private final int width;
+    // Row offset of the next state per state row and column; complemented when that state has outputs
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final int[] lengths;
+    
+    /**
+     * Receives each delimited keyword match; keyword is the index in the keyword list
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        void onMatch(int keyword, int start, int end);
+    }
+    
+    public KeywordMatcher(List<String> keywords) {
+        lengths = new int[keywords.size()];
+        int alphabet = 0;
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword at index " + k);
+            }
+            lengths[k] = keyword.length();
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = lower(keyword.charAt(i));
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Keyword is not ASCII: " + keyword);
+                }
+                if (columns[c] == 0) {
+                    columns[c] = ++alphabet;
+                    if (c >= 'a' && c <= 'z') {
+                        columns[c - ('a' - 'A')] = alphabet;
+                    }
+                }
+            }
+        }
+        width = alphabet + 1;
+        
+        // Trie of the keywords
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        gotos.add(newRow());
+        nodeOutputs.add(new ArrayList<>());
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int column = columns[lower(keyword.charAt(i))];
+                if (gotos.get(node)[column] < 0) {
+                    gotos.get(node)[column] = gotos.size();
+                    gotos.add(newRow());
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = gotos.get(node)[column];
+            }
+            nodeOutputs.get(node).add(k);
+        }
+        
+        // Breadth-first: failure links, inherited outputs and the full transition table
+        int nodes = gotos.size();
+        transitions = new int[nodes * width];
+        int[] failure = new int[nodes];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < width; column++) {
+            int child = gotos.get(0)[column];
+            transitions[column] = child > 0 ? child : 0;
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(failure[node]));
+            for (int column = 0; column < width; column++) {
+                int child = gotos.get(node)[column];
+                int fallback = transitions[failure[node] * width + column];
+                if (child > 0) {
+                    failure[child] = fallback;
+                    transitions[node * width + column] = child;
+                    queue.add(child);
+                } else {
+                    transitions[node * width + column] = fallback;
+                }
+            }
+        }
+        
+        outputs = new int[nodes][];
+        Map<List<Integer>, int[]> shared = new HashMap<>();
+        for (int node = 0; node < nodes; node++) {
+            List<Integer> ids = nodeOutputs.get(node);
+            outputs[node] = ids.isEmpty() ? NO_OUTPUT
+                : shared.computeIfAbsent(ids, list -> list.stream().mapToInt(Integer::intValue).toArray());
+        }
+        
+        // Store row offsets instead of states, complemented when the target state has outputs
+        for (int i = 0; i < transitions.length; i++) {
+            int target = transitions[i];
+            transitions[i] = outputs[target].length > 0 ? ~(target * width) : target * width;
+        }
+    }
+    
+    /**
+     * Report every delimited keyword occurrence in the text, in order of end position
+     */
+    public void match(String text, MatchHandler handler) {
+        if (text == null) {
+            return;
+        }
+        int row = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            row = transitions[row + (c < 128 ? columns[c] : 0)];
+            if (row < 0) {
+                row = ~row;
+                for (int keyword : outputs[row / width]) {
+                    int start = i + 1 - lengths[keyword];
+                    if (isDelimiter(text, start - 1) && isDelimiter(text, i + 1)) {
+                        handler.onMatch(keyword, start, i + 1);
+                    }
+                }
+            }
+        }
+    }
+    
+    private int[] newRow() {
+        int[] row = new int[width];
+        Arrays.fill(row, -1);
+        return row;
+    }
+    
+    private static boolean isDelimiter(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetter(text.charAt(index));
+    }
+    
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,34 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.io.OutputStream;
+
+/**
+ * Output formats of tabular report exports
+ */
+public enum ReportFormat {
+    CSV("text/csv; charset=UTF-8", "csv"),
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+    
+    private final String contentType;
+    private final String extension;
+    
+    ReportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+    
+    /**
+     * Open a streaming writer of this format on the given output
+     */
+    public ReportWriter open(OutputStream out, String sheetName) {
+        return this == XLSX ? new XlsxReportWriter(out, sheetName) : new CsvReportWriter(out);
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+}
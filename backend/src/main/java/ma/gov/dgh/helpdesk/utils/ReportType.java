@@ -0,0 +1,21 @@
+package ma.gov.dgh.helpdesk.utils;
+
+/**
+ * Reports that can be generated by background report jobs
+ */
+public enum ReportType {
+    /**
+     * Ticket list, filtered like the ticket list endpoint
+     */
+    TICKETS,
+    
+    /**
+     * Equipment inventory, filtered like the equipment list endpoint
+     */
+    EQUIPMENT,
+    
+    /**
+     * Received and resolved tickets and average resolution time per technician over a period
+     */
+    TECHNICIAN_PERFORMANCE
+}
@@ -0,0 +1,26 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.io.IOException;
+
+/**
+ * Row-by-row writer of a tabular report.
+ * Implementations keep a bounded amount of rows in memory whatever the report size.
+ */
+public interface ReportWriter extends AutoCloseable {
+    
+    /**
+     * Write the header row
+     */
+    void writeHeader(String... columns) throws IOException;
+    
+    /**
+     * Write one data row; null values produce empty cells
+     */
+    void writeRow(Object... values) throws IOException;
+    
+    /**
+     * Finish the document and flush it to the output, which is left open
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,62 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldset of a JSON response: the "fields" request parameter, a comma-separated list of
+ * the properties to return ("fields=hostname,ipAddress,status"). The id is always returned, so
+ * every item can still be linked to its detail view.
+ */
+public final class SparseFieldset {
+    
+    private final Set<String> fields;
+    
+    private SparseFieldset(Set<String> fields) {
+        this.fields = fields;
+    }
+    
+    /**
+     * Parse a fields parameter against the properties a view can return; no parameter selects all of them
+     *
+     * @throws IllegalArgumentException when a field is not one of the allowed properties
+     */
+    public static SparseFieldset parse(String fields, Collection<String> allowed) {
+        if (fields == null || fields.isBlank()) {
+            return new SparseFieldset(null);
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + " (allowed: " + String.join(",", allowed) + ")");
+            }
+            selected.add(name);
+        }
+        return new SparseFieldset(selected);
+    }
+    
+    public boolean isAll() {
+        return fields == null;
+    }
+    
+    /**
+     * Serialize one item and keep the selected properties only
+     */
+    public JsonNode select(ObjectMapper objectMapper, Object value) {
+        JsonNode node = objectMapper.valueToTree(value);
+        if (fields != null && node instanceof ObjectNode object) {
+            object.retain(fields);
+        }
+        return node;
+    }
+}
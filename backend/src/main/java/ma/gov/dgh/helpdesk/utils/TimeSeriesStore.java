@@ -0,0 +1,407 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded in-memory store of long-valued time series.
+ * Samples are packed into chunks as zigzag varints of the timestamp delta-of-delta and the
+ * value delta, so regularly polled, slowly changing metrics take one to three bytes per sample.
+ * Raw samples older than the raw retention are averaged into fixed-step rollup points, which
+ * are kept for the rollup retention. Samples must be appended in timestamp order per series.
+ */
+public class TimeSeriesStore {
+    
+    private static final int FILE_MAGIC = 0x54534431; // "TSD1"
+    private static final int SAMPLES_PER_CHUNK = 240;
+    
+    private final long rawRetentionMillis;
+    private final long rollupStepMillis;
+    private final long rollupRetentionMillis;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    
+    public TimeSeriesStore(long rawRetentionMillis, long rollupStepMillis, long rollupRetentionMillis) {
+        if (rollupStepMillis <= 0) {
+            throw new IllegalArgumentException("Rollup step must be positive");
+        }
+        this.rawRetentionMillis = rawRetentionMillis;
+        this.rollupStepMillis = rollupStepMillis;
+        this.rollupRetentionMillis = rollupRetentionMillis;
+    }
+    
+    /**
+     * Append a sample; samples not newer than the series' last one are ignored
+     */
+    public void append(String key, long timestampMillis, long value) {
+        series.computeIfAbsent(key, k -> new Series()).append(timestampMillis, value);
+    }
+    
+    /**
+     * Get the samples of a series in [from, to], raw or from the rollup points
+     */
+    public List<Sample> query(String key, long fromMillis, long toMillis, boolean rollup) {
+        Series target = series.get(key);
+        return target != null ? target.query(fromMillis, toMillis, rollup) : List.of();
+    }
+    
+    /**
+     * Get the timestamp of the oldest raw sample of a series, or null when it has none
+     */
+    public Long getOldestRawTimestamp(String key) {
+        Series target = series.get(key);
+        return target != null ? target.oldestRaw() : null;
+    }
+    
+    /**
+     * Get the keys starting with the given prefix, sorted
+     */
+    public List<String> keys(String prefix) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String key : series.keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+    
+    /**
+     * Remove every series whose key starts with the given prefix
+     */
+    public void removeAll(String prefix) {
+        series.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+    
+    /**
+     * Roll raw chunks past the raw retention up into rollup points and drop expired data
+     */
+    public void compact(long nowMillis) {
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (entry.getValue().compact(nowMillis)) {
+                series.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Get the number of series and the encoded size of their chunks
+     */
+    public long[] getStats() {
+        long bytes = 0;
+        for (Series target : series.values()) {
+            bytes += target.encodedBytes();
+        }
+        return new long[]{series.size(), bytes};
+    }
+    
+    /**
+     * Write a snapshot of every series, atomically replacing the file
+     */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "tsdb-", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                List<Map.Entry<String, Series>> entries = new ArrayList<>(series.entrySet());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Series> entry : entries) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Load a snapshot written by save, replacing the current content
+     */
+    public void load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a time series snapshot: " + file);
+            }
+            int count = in.readInt();
+            series.clear();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Series loaded = new Series();
+                loaded.read(in);
+                series.put(key, loaded);
+            }
+        }
+    }
+    
+    /**
+     * One series: raw chunks, rollup chunks and the rollup bucket being filled
+     */
+    private class Series {
+        private final Deque<Chunk> raw = new ArrayDeque<>();
+        private final Deque<Chunk> rollup = new ArrayDeque<>();
+        private long bucketStart = Long.MIN_VALUE;
+        private long bucketSum;
+        private long bucketCount;
+        
+        synchronized void append(long timestamp, long value) {
+            Chunk last = raw.peekLast();
+            if (last != null && timestamp <= last.lastTimestamp) {
+                return;
+            }
+            if (last == null || last.count >= SAMPLES_PER_CHUNK) {
+                if (last != null) {
+                    last.seal();
+                }
+                last = new Chunk();
+                raw.addLast(last);
+            }
+            last.append(timestamp, value);
+        }
+        
+        synchronized List<Sample> query(long from, long to, boolean fromRollup) {
+            List<Sample> samples = new ArrayList<>();
+            for (Chunk chunk : fromRollup ? rollup : raw) {
+                if (chunk.lastTimestamp >= from && chunk.firstTimestamp <= to) {
+                    chunk.decode(samples, from, to);
+                }
+            }
+            return samples;
+        }
+        
+        synchronized Long oldestRaw() {
+            Chunk first = raw.peekFirst();
+            return first != null ? first.firstTimestamp : null;
+        }
+        
+        synchronized long encodedBytes() {
+            long bytes = 0;
+            for (Chunk chunk : raw) {
+                bytes += chunk.length;
+            }
+            for (Chunk chunk : rollup) {
+                bytes += chunk.length;
+            }
+            return bytes;
+        }
+        
+        // Returns true when the series holds no data anymore
+        synchronized boolean compact(long now) {
+            long rawCutoff = now - rawRetentionMillis;
+            while (!raw.isEmpty() && raw.peekFirst().lastTimestamp < rawCutoff) {
+                Chunk expired = raw.pollFirst();
+                List<Sample> samples = new ArrayList<>(expired.count);
+                expired.decode(samples, Long.MIN_VALUE, Long.MAX_VALUE);
+                for (Sample sample : samples) {
+                    addToBucket(sample.getTimestamp(), sample.getValue());
+                }
+            }
+            // The open bucket is complete once the raw data has moved past it
+            Chunk oldestRaw = raw.peekFirst();
+            if (bucketCount > 0 && (oldestRaw == null || oldestRaw.firstTimestamp >= bucketStart + rollupStepMillis)) {
+                closeBucket();
+            }
+            
+            long rollupCutoff = now - rollupRetentionMillis;
+            while (!rollup.isEmpty() && rollup.peekFirst().lastTimestamp < rollupCutoff) {
+                rollup.pollFirst();
+            }
+            return raw.isEmpty() && rollup.isEmpty() && bucketCount == 0;
+        }
+        
+        private void addToBucket(long timestamp, long value) {
+            long start = Math.floorDiv(timestamp, rollupStepMillis) * rollupStepMillis;
+            if (bucketCount > 0 && start != bucketStart) {
+                closeBucket();
+            }
+            bucketStart = start;
+            bucketSum += value;
+            bucketCount++;
+        }
+        
+        private void closeBucket() {
+            Chunk last = rollup.peekLast();
+            if (last == null || last.count >= SAMPLES_PER_CHUNK) {
+                if (last != null) {
+                    last.seal();
+                }
+                last = new Chunk();
+                rollup.addLast(last);
+            }
+            if (bucketStart > last.lastTimestamp || last.count == 0) {
+                last.append(bucketStart, Math.round((double) bucketSum / bucketCount));
+            }
+            bucketSum = 0;
+            bucketCount = 0;
+        }
+        
+        synchronized void write(DataOutputStream out) throws IOException {
+            out.writeLong(bucketStart);
+            out.writeLong(bucketSum);
+            out.writeLong(bucketCount);
+            writeChunks(out, raw);
+            writeChunks(out, rollup);
+        }
+        
+        synchronized void read(DataInputStream in) throws IOException {
+            bucketStart = in.readLong();
+            bucketSum = in.readLong();
+            bucketCount = in.readLong();
+            readChunks(in, raw);
+            readChunks(in, rollup);
+        }
+    }
+    
+    private static void writeChunks(DataOutputStream out, Deque<Chunk> chunks) throws IOException {
+        out.writeInt(chunks.size());
+        for (Chunk chunk : chunks) {
+            chunk.write(out);
+        }
+    }
+    
+    private static void readChunks(DataInputStream in, Deque<Chunk> chunks) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            chunks.addLast(Chunk.read(in));
+        }
+    }
+    
+    /**
+     * Delta-of-delta encoded block of samples
+     */
+    private static class Chunk {
+        private byte[] data = new byte[64];
+        private int length;
+        private int count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long lastDelta;
+        private long lastValue;
+        
+        void append(long timestamp, long value) {
+            if (count == 0) {
+                firstTimestamp = timestamp;
+                writeVarLong(zigzag(value));
+            } else {
+                long delta = timestamp - lastTimestamp;
+                writeVarLong(zigzag(delta - lastDelta));
+                writeVarLong(zigzag(value - lastValue));
+                lastDelta = delta;
+            }
+            lastTimestamp = timestamp;
+            lastValue = value;
+            count++;
+        }
+        
+        void decode(List<Sample> samples, long from, long to) {
+            int[] position = {0};
+            long timestamp = firstTimestamp;
+            long delta = 0;
+            long value = unzigzag(readVarLong(position));
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    delta += unzigzag(readVarLong(position));
+                    timestamp += delta;
+                    value += unzigzag(readVarLong(position));
+                }
+                if (timestamp > to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    samples.add(new Sample(timestamp, value));
+                }
+            }
+        }
+        
+        void seal() {
+            data = Arrays.copyOf(data, length);
+        }
+        
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            out.writeLong(firstTimestamp);
+            out.writeLong(lastTimestamp);
+            out.writeLong(lastDelta);
+            out.writeLong(lastValue);
+            out.writeInt(length);
+            out.write(data, 0, length);
+        }
+        
+        static Chunk read(DataInputStream in) throws IOException {
+            Chunk chunk = new Chunk();
+            chunk.count = in.readInt();
+            chunk.firstTimestamp = in.readLong();
+            chunk.lastTimestamp = in.readLong();
+            chunk.lastDelta = in.readLong();
+            chunk.lastValue = in.readLong();
+            chunk.length = in.readInt();
+            chunk.data = new byte[Math.max(chunk.length, 1)];
+            in.readFully(chunk.data, 0, chunk.length);
+            return chunk;
+        }
+        
+        private void writeVarLong(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+        
+        // Reads the varint at position[0] and moves the position past it
+        private long readVarLong(int[] position) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+        
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+        
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+    
+    /**
+     * One timestamped value
+     */
+    public static class Sample {
+        private final long timestamp;
+        private final long value;
+        
+        public Sample(long timestamp, long value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+        
+        // Getters
+        public long getTimestamp() { return timestamp; }
+        public long getValue() { return value; }
+    }
+}
@@ -0,0 +1,115 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * XLSX report writer built on the POI streaming workbook.
+ * Only a small window of rows is kept in memory; older rows are flushed to compressed
+ * temporary files and zipped into the output on close. Reports longer than the sheet
+ * row limit continue on additional sheets that repeat the header.
+ */
+public class XlsxReportWriter implements ReportWriter {
+    
+    private static final int ROW_WINDOW = 100;
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    // Excel rejects cell text longer than this
+    private static final int MAX_CELL_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+    
+    private final OutputStream out;
+    private final String sheetName;
+    private final SXSSFWorkbook workbook;
+    private final CellStyle headerStyle;
+    private final CellStyle dateTimeStyle;
+    
+    private SXSSFSheet sheet;
+    private String[] header;
+    private int sheetCount = 0;
+    private int rowIndex = 0;
+    
+    public XlsxReportWriter(OutputStream out, String sheetName) {
+        this.out = out;
+        this.sheetName = sheetName;
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        this.workbook.setCompressTempFiles(true);
+        
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        this.headerStyle = workbook.createCellStyle();
+        this.headerStyle.setFont(bold);
+        this.dateTimeStyle = workbook.createCellStyle();
+        this.dateTimeStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+    }
+    
+    @Override
+    public void writeHeader(String... columns) {
+        this.header = columns;
+        newSheet();
+    }
+    
+    @Override
+    public void writeRow(Object... values) {
+        if (sheet == null || rowIndex >= MAX_ROWS_PER_SHEET) {
+            newSheet();
+        }
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.length; i++) {
+            setCell(row.createCell(i), values[i]);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheet == null) {
+                newSheet();
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // Also removes the temporary sheet files
+            workbook.close();
+        }
+    }
+    
+    private void newSheet() {
+        sheetCount++;
+        sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + " (" + sheetCount + ")");
+        rowIndex = 0;
+        if (header != null) {
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < header.length; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(header[i]);
+                cell.setCellStyle(headerStyle);
+            }
+            sheet.createFreezePane(0, 1);
+        }
+    }
+    
+    private void setCell(Cell cell, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number number) {
+            cell.setCellValue(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            cell.setCellValue(bool);
+        } else if (value instanceof LocalDateTime dateTime) {
+            cell.setCellValue(dateTime);
+            cell.setCellStyle(dateTimeStyle);
+        } else {
+            String text = value instanceof Enum<?> constant ? constant.name() : value.toString();
+            cell.setCellValue(text.length() > MAX_CELL_LENGTH ? text.substring(0, MAX_CELL_LENGTH) : text);
+        }
+    }
+}
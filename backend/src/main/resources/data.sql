@@ -74,13 +74,8 @@ VALUES
 (15, 1, 'Backup system not responding to scheduled jobs', false, CURRENT_TIMESTAMP, 'COMMENT'),
 (15, 2, 'Running backup system diagnostics', true, CURRENT_TIMESTAMP, 'COMMENT');
 
--- Create indexes for better performance (if not already created by JPA)
-CREATE INDEX IF NOT EXISTS idx_tickets_created_at ON tickets(created_at);
-CREATE INDEX IF NOT EXISTS idx_tickets_status_priority ON tickets(status, priority);
-CREATE INDEX IF NOT EXISTS idx_equipment_last_seen ON equipment(last_seen);
-CREATE INDEX IF NOT EXISTS idx_equipment_status_type ON equipment(status, equipment_type);
+-- Query indexes are declared on the entities (and in db/migration for the persistent profile)
 CREATE INDEX IF NOT EXISTS idx_users_department_role ON users(department, role);
-CREATE INDEX IF NOT EXISTS idx_ticket_comments_created_at ON ticket_comments(created_at);
 
 -- Insert some sample departments for reference
 -- Note: This would typically come from LDAP, but we're adding some for testing
@@ -104,12 +99,6 @@ CREATE TABLE IF NOT EXISTS activity_logs (
     location VARCHAR(100)
 );
 
--- Create indexes for activity_logs table
-CREATE INDEX IF NOT EXISTS idx_activity_logs_timestamp ON activity_logs(timestamp);
-CREATE INDEX IF NOT EXISTS idx_activity_logs_user_identifier ON activity_logs(user_identifier);
-CREATE INDEX IF NOT EXISTS idx_activity_logs_action ON activity_logs(action);
-CREATE INDEX IF NOT EXISTS idx_activity_logs_severity ON activity_logs(severity);
-
 -- Insert sample activity logs (using H2-compatible DATEADD function instead of INTERVAL)
 INSERT INTO activity_logs (timestamp, user_identifier, action, details, severity, ip_address, user_agent, session_id, affected_resource, old_value, new_value, department, location) 
 VALUES 
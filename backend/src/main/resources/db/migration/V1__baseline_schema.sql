@@ -0,0 +1,128 @@
+-- Baseline schema for DGH HelpDesk System
+-- Mirrors the JPA entity mappings; applied by Flyway in the persistent profile.
+-- Written in the common subset of PostgreSQL and H2 (MODE=PostgreSQL).
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ldap_username VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    full_name VARCHAR(255),
+    department VARCHAR(100),
+    role VARCHAR(50),
+    is_active BOOLEAN,
+    phone_number VARCHAR(20),
+    office_location VARCHAR(100),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    last_login TIMESTAMP(6),
+    CONSTRAINT uk_users_ldap_username UNIQUE (ldap_username)
+);
+
+CREATE TABLE equipment (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    hostname VARCHAR(255),
+    ip_address VARCHAR(45),
+    mac_address VARCHAR(17),
+    equipment_type VARCHAR(50),
+    manufacturer VARCHAR(100),
+    model VARCHAR(100),
+    serial_number VARCHAR(100),
+    os_name VARCHAR(100),
+    os_version VARCHAR(100),
+    location VARCHAR(255),
+    status VARCHAR(50),
+    last_seen TIMESTAMP(6),
+    specifications TEXT,
+    cpu_info VARCHAR(255),
+    memory_gb INTEGER,
+    disk_gb INTEGER,
+    network_ports INTEGER,
+    is_managed BOOLEAN,
+    asset_tag VARCHAR(50),
+    purchase_date TIMESTAMP(6),
+    warranty_expiry TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE tickets (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    priority VARCHAR(20),
+    status VARCHAR(50),
+    category VARCHAR(100),
+    created_by BIGINT NOT NULL,
+    assigned_to BIGINT,
+    equipment_id BIGINT,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    resolved_at TIMESTAMP(6),
+    due_date TIMESTAMP(6),
+    resolution TEXT,
+    estimated_hours INTEGER,
+    actual_hours INTEGER,
+    customer_satisfaction INTEGER,
+    is_escalated BOOLEAN,
+    escalation_reason VARCHAR(500),
+    CONSTRAINT fk_tickets_created_by FOREIGN KEY (created_by) REFERENCES users (id),
+    CONSTRAINT fk_tickets_assigned_to FOREIGN KEY (assigned_to) REFERENCES users (id),
+    CONSTRAINT fk_tickets_equipment FOREIGN KEY (equipment_id) REFERENCES equipment (id)
+);
+
+CREATE TABLE ticket_comments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ticket_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    comment TEXT NOT NULL,
+    is_internal BOOLEAN,
+    created_at TIMESTAMP(6) NOT NULL,
+    attachment_path VARCHAR(500),
+    attachment_name VARCHAR(255),
+    attachment_size BIGINT,
+    comment_type VARCHAR(50),
+    CONSTRAINT fk_ticket_comments_ticket FOREIGN KEY (ticket_id) REFERENCES tickets (id),
+    CONSTRAINT fk_ticket_comments_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE activity_logs (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    timestamp TIMESTAMP(6) NOT NULL,
+    user_identifier VARCHAR(255) NOT NULL,
+    action VARCHAR(255) NOT NULL,
+    details TEXT,
+    severity VARCHAR(50) NOT NULL,
+    ip_address VARCHAR(255),
+    user_agent VARCHAR(255),
+    session_id VARCHAR(255),
+    affected_resource VARCHAR(255),
+    old_value TEXT,
+    new_value TEXT,
+    department VARCHAR(255),
+    location VARCHAR(255)
+);
+
+-- Indexes declared on the entities
+CREATE INDEX idx_user_ldap_username ON users (ldap_username);
+CREATE INDEX idx_user_email ON users (email);
+CREATE INDEX idx_user_department ON users (department);
+
+CREATE INDEX idx_equipment_ip ON equipment (ip_address);
+CREATE INDEX idx_equipment_mac ON equipment (mac_address);
+CREATE INDEX idx_equipment_hostname ON equipment (hostname);
+CREATE INDEX idx_equipment_type ON equipment (equipment_type);
+CREATE INDEX idx_equipment_location ON equipment (location);
+CREATE INDEX idx_equipment_status ON equipment (status);
+
+CREATE INDEX idx_ticket_status ON tickets (status);
+CREATE INDEX idx_ticket_priority ON tickets (priority);
+CREATE INDEX idx_ticket_category ON tickets (category);
+CREATE INDEX idx_ticket_created_by ON tickets (created_by);
+CREATE INDEX idx_ticket_assigned_to ON tickets (assigned_to);
+CREATE INDEX idx_ticket_equipment ON tickets (equipment_id);
+CREATE INDEX idx_ticket_created_at ON tickets (created_at);
+
+CREATE INDEX idx_comment_ticket ON ticket_comments (ticket_id);
+CREATE INDEX idx_comment_user ON ticket_comments (user_id);
+CREATE INDEX idx_comment_created_at ON ticket_comments (created_at);
+CREATE INDEX idx_comment_internal ON ticket_comments (is_internal);
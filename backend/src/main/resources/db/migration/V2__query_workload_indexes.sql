@@ -0,0 +1,79 @@
+-- Composite indexes designed from the repository query inventory
+-- (TicketRepository, ActivityLogRepository, TicketCommentRepository, EquipmentRepository).
+-- Single-column indexes that became a leading prefix of a composite index are dropped.
+-- Guarded by QueryPlanRegressionTest: every query listed there must use an index.
+
+-- Tickets
+-- findByAssignedTo, findByAssignedToIsNull, findByStatusAndAssignedTo, findByAssignedToAndStatus
+DROP INDEX idx_ticket_assigned_to;
+CREATE INDEX idx_ticket_assigned_to_status ON tickets (assigned_to, status);
+
+-- findByCreatedBy, findByStatusAndCreatedBy, findByCreatedByAndStatus
+DROP INDEX idx_ticket_created_by;
+CREATE INDEX idx_ticket_created_by_status ON tickets (created_by, status);
+
+-- findByPriority, findCriticalOpenTickets, findHighPriorityUnassignedTickets
+DROP INDEX idx_ticket_priority;
+CREATE INDEX idx_ticket_priority_status ON tickets (priority, status, assigned_to);
+
+-- findByCreatedAtBetween, findTicketsCreatedToday, getTicketStatsByDateRange (covering)
+DROP INDEX idx_ticket_created_at;
+CREATE INDEX idx_ticket_created_at_status ON tickets (created_at, status);
+
+-- findOverdueTickets
+CREATE INDEX idx_ticket_due_date_status ON tickets (due_date, status);
+
+-- findByResolvedAtBetween, findTicketsResolvedToday, getAverageResolutionTimeByCategory (covering)
+CREATE INDEX idx_ticket_resolved_at_category ON tickets (resolved_at, category);
+
+-- findByIsEscalatedTrue, countByIsEscalatedTrue
+CREATE INDEX idx_ticket_escalated ON tickets (is_escalated);
+
+-- Ticket comments
+-- findByTicketIdOrderByCreatedAtAsc, findLatestCommentByTicketId, findByTicketAndIsInternal*
+DROP INDEX idx_comment_ticket;
+CREATE INDEX idx_comment_ticket_created_at ON ticket_comments (ticket_id, created_at);
+
+-- findByUserId, findByUserAndCreatedAtBetween
+DROP INDEX idx_comment_user;
+CREATE INDEX idx_comment_user_created_at ON ticket_comments (user_id, created_at);
+
+-- findByCommentType (is_internal alone is never filtered without ticket_id)
+DROP INDEX idx_comment_internal;
+CREATE INDEX idx_comment_type ON ticket_comments (comment_type);
+
+-- Activity logs
+-- findByTimestampBetweenOrderByTimestampDesc, countBySeverityForLast24Hours, getMostActiveUsers
+CREATE INDEX idx_activity_timestamp ON activity_logs (timestamp);
+
+-- findByUserIdentifierOrderByTimestampDesc, findByUserIdentifierAndSeverityOrderByTimestampDesc
+CREATE INDEX idx_activity_user_timestamp ON activity_logs (user_identifier, timestamp);
+
+-- findByActionOrderByTimestampDesc, findFailedLoginAttempts, findSuspiciousActivities (covering)
+CREATE INDEX idx_activity_action_timestamp ON activity_logs (action, timestamp, ip_address);
+
+-- findBySeverityOrderByTimestampDesc
+CREATE INDEX idx_activity_severity_timestamp ON activity_logs (severity, timestamp);
+
+-- findByIpAddressOrderByTimestampDesc
+CREATE INDEX idx_activity_ip_timestamp ON activity_logs (ip_address, timestamp);
+
+-- findByAffectedResourceOrderByTimestampDesc
+CREATE INDEX idx_activity_resource_timestamp ON activity_logs (affected_resource, timestamp);
+
+-- Equipment
+-- findByStatus, findOnlineEquipment, offline detection (status + last_seen)
+DROP INDEX idx_equipment_status;
+CREATE INDEX idx_equipment_status_last_seen ON equipment (status, last_seen);
+
+-- findByLastSeenAfter, findByLastSeenBefore, findEquipmentNotSeenSince
+CREATE INDEX idx_equipment_last_seen ON equipment (last_seen);
+
+-- findByAssetTag
+CREATE INDEX idx_equipment_asset_tag ON equipment (asset_tag);
+
+-- findByManufacturer, findByManufacturerAndModel, findDistinctManufacturers (covering)
+CREATE INDEX idx_equipment_manufacturer_model ON equipment (manufacturer, model);
+
+-- findByWarrantyExpiryBetween
+CREATE INDEX idx_equipment_warranty_expiry ON equipment (warranty_expiry);
@@ -0,0 +1,21 @@
+-- Pre-aggregated ticket counters per hour/day bucket and category, priority, status, assignee.
+-- Maintained incrementally from ticket events; rebuilt from tickets by the rollup backfill.
+-- assignee_id 0 stands for unassigned tickets so that the unique key stays NOT NULL.
+
+CREATE TABLE ticket_metric_rollups (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    category VARCHAR(100) NOT NULL,
+    priority VARCHAR(20) NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    assignee_id BIGINT NOT NULL,
+    created_count BIGINT NOT NULL,
+    resolved_count BIGINT NOT NULL,
+    resolution_minutes_total BIGINT NOT NULL,
+    CONSTRAINT uk_rollup_bucket_dimensions UNIQUE (granularity, bucket_start, category, priority, status, assignee_id)
+);
+
+-- Trend and breakdown reads filter on (granularity, bucket_start) through the unique key;
+-- per-technician reads lead with the assignee
+CREATE INDEX idx_rollup_assignee_bucket ON ticket_metric_rollups (assignee_id, granularity, bucket_start);
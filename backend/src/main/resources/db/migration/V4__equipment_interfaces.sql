@@ -0,0 +1,20 @@
+-- Interface inventory per equipment, walked from the SNMP ifTable/ifXTable.
+-- Rows follow their device: deleting equipment deletes its interfaces.
+
+CREATE TABLE equipment_interfaces (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    equipment_id BIGINT NOT NULL,
+    if_index INTEGER NOT NULL,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    alias VARCHAR(255),
+    if_type INTEGER,
+    mtu INTEGER,
+    speed_mbps BIGINT,
+    mac_address VARCHAR(17),
+    admin_status VARCHAR(20),
+    oper_status VARCHAR(20),
+    updated_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_equipment_interface_index UNIQUE (equipment_id, if_index),
+    CONSTRAINT fk_equipment_interfaces_equipment FOREIGN KEY (equipment_id) REFERENCES equipment (id) ON DELETE CASCADE
+);
@@ -0,0 +1,7 @@
+-- Numeric IP key for subnet and range queries (EquipmentRepository.findByIpNumericBetween).
+-- 128-bit value: IPv6 addresses as they are, IPv4 addresses in the IPv4-mapped block ::ffff:0:0/96,
+-- so a CIDR range of either family is one contiguous key range.
+-- Existing rows are filled in at startup by EquipmentSubnetService, which parses the addresses.
+
+ALTER TABLE equipment ADD COLUMN ip_numeric NUMERIC(39, 0);
+CREATE INDEX idx_equipment_ip_numeric ON equipment (ip_numeric);
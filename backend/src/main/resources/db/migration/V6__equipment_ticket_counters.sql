@@ -0,0 +1,17 @@
+-- Per-equipment ticket counters, maintained with each ticket write by EquipmentTicketCountService
+-- and recounted periodically, so equipment pages and the top problem devices view never
+-- aggregate the tickets table.
+-- Open tickets are those not RESOLVED, CLOSED or CANCELLED.
+
+ALTER TABLE equipment ADD COLUMN open_ticket_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE equipment ADD COLUMN total_ticket_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE equipment ADD COLUMN last_ticket_at TIMESTAMP(6);
+
+UPDATE equipment SET
+    open_ticket_count = (SELECT COUNT(*) FROM tickets t
+                         WHERE t.equipment_id = equipment.id AND t.status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')),
+    total_ticket_count = (SELECT COUNT(*) FROM tickets t WHERE t.equipment_id = equipment.id),
+    last_ticket_at = (SELECT MAX(t.created_at) FROM tickets t WHERE t.equipment_id = equipment.id);
+
+-- findTopByTicketCounts: read in index order, most open tickets first
+CREATE INDEX idx_equipment_ticket_counts ON equipment (open_ticket_count DESC, total_ticket_count DESC);
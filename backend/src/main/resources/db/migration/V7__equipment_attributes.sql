@@ -0,0 +1,18 @@
+-- Structured specification attributes per equipment, read over SNMP at discovery.
+-- Text attributes (sysLocation, sysName, ...) and numeric ones (bootTime, ifNumber, ...) are
+-- each indexed with their key, so inventory queries are index lookups or range scans.
+-- Existing specifications JSON is converted at startup by EquipmentAttributeService.
+
+CREATE TABLE equipment_attributes (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    equipment_id BIGINT NOT NULL,
+    attribute_key VARCHAR(50) NOT NULL,
+    text_value VARCHAR(512),
+    numeric_value BIGINT,
+    updated_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_equipment_attribute_key UNIQUE (equipment_id, attribute_key),
+    CONSTRAINT fk_equipment_attributes_equipment FOREIGN KEY (equipment_id) REFERENCES equipment (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_equipment_attribute_text ON equipment_attributes (attribute_key, text_value);
+CREATE INDEX idx_equipment_attribute_numeric ON equipment_attributes (attribute_key, numeric_value);
@@ -0,0 +1,102 @@
+package ma.gov.dgh.helpdesk.config;
+
+import ma.gov.dgh.helpdesk.service.ChangeVersionService;
+import ma.gov.dgh.helpdesk.service.ChangeVersionService.Aggregate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GET handling of {@link ConditionalGet} handlers
+ */
+class ConditionalGetInterceptorTest {
+
+    private ChangeVersionService changeVersionService;
+    private VersionedController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        changeVersionService = new ChangeVersionService();
+        controller = new VersionedController();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .addInterceptors(new ConditionalGetInterceptor(changeVersionService))
+            .build();
+    }
+
+    @Test
+    void matchingETagIsAnswered304WithoutRunningTheHandler() throws Exception {
+        String etag = mockMvc.perform(get("/tickets"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", "no-cache"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/tickets").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+        assertEquals(1, controller.calls.get());
+    }
+
+    @Test
+    void writeToAnAggregateChangesTheETag() throws Exception {
+        String etag = mockMvc.perform(get("/tickets")).andReturn().getResponse().getHeader("ETag");
+
+        changeVersionService.markChanged(Aggregate.EQUIPMENT);
+        mockMvc.perform(get("/tickets").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        changeVersionService.markChanged(Aggregate.TICKETS);
+        mockMvc.perform(get("/tickets").header("If-None-Match", etag))
+            .andExpect(status().isOk());
+        assertEquals(2, controller.calls.get());
+    }
+
+    @Test
+    void clockDependentResponsesCarryTheTimeBucket() throws Exception {
+        String etag = mockMvc.perform(get("/durations")).andReturn().getResponse().getHeader("ETag");
+
+        long bucket = System.currentTimeMillis() / 1000 / 60;
+        assertTrue(etag.endsWith("-t" + bucket + "\"") || etag.endsWith("-t" + (bucket - 1) + "\""), etag);
+    }
+
+    @Test
+    void handlersWithoutTheAnnotationAreLeftAlone() throws Exception {
+        mockMvc.perform(get("/plain").header("If-None-Match", "*"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @RestController
+    static class VersionedController {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @GetMapping("/tickets")
+        @ConditionalGet(Aggregate.TICKETS)
+        ResponseEntity<String> tickets() {
+            calls.incrementAndGet();
+            return ResponseEntity.ok("tickets");
+        }
+
+        @GetMapping("/durations")
+        @ConditionalGet(value = Aggregate.TICKETS, timeBucketSeconds = 60)
+        ResponseEntity<String> durations() {
+            return ResponseEntity.ok("durations");
+        }
+
+        @GetMapping("/plain")
+        ResponseEntity<String> plain() {
+            return ResponseEntity.ok("plain");
+        }
+    }
+}
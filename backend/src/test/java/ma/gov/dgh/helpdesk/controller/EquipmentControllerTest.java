@@ -0,0 +1,110 @@
+package ma.gov.dgh.helpdesk.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sparse fieldsets of the equipment endpoints, on the development sample data
+ * (equipment 1 is the server server-01)
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@Transactional
+class EquipmentControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void listsAreSummariesWithoutSpecifications() throws Exception {
+        JsonNode page = read("/api/equipment?size=50");
+
+        assertEquals(5, page.get("content").size());
+        for (JsonNode item : page.get("content")) {
+            assertTrue(item.has("hostname"));
+            assertTrue(item.has("openTicketCount"));
+            assertFalse(item.has("specifications"));
+            assertFalse(item.has("tickets"));
+        }
+    }
+
+    @Test
+    void listKeepsTheSelectedFieldsAndTheId() throws Exception {
+        JsonNode page = read("/api/equipment?size=50&fields=hostname, status");
+
+        assertEquals(5, page.get("content").size());
+        assertEquals(5, page.get("totalElements").asInt());
+        for (JsonNode item : page.get("content")) {
+            assertEquals(Set.of("id", "hostname", "status"), fieldNames(item));
+        }
+
+        JsonNode servers = read("/api/equipment/type/SERVER?fields=ipAddress");
+        assertEquals(1, servers.size());
+        assertEquals(Set.of("id", "ipAddress"), fieldNames(servers.get(0)));
+        assertEquals("192.168.1.10", servers.get(0).get("ipAddress").asText());
+    }
+
+    @Test
+    void detailSelectsFromTheFullEquipment() throws Exception {
+        JsonNode full = read("/api/equipment/1");
+        assertTrue(full.has("specifications"));
+        assertEquals("server-01", full.get("hostname").asText());
+
+        JsonNode selected = read("/api/equipment/1?fields=specifications,hostname");
+        assertEquals(Set.of("id", "hostname", "specifications"), fieldNames(selected));
+
+        JsonNode byIp = read("/api/equipment/ip/192.168.1.10?fields=macAddress");
+        assertEquals(Set.of("id", "macAddress"), fieldNames(byIp));
+        assertEquals(1, byIp.get("id").asInt());
+    }
+
+    @Test
+    void unknownFieldsAreRejected() throws Exception {
+        mockMvc.perform(get("/api/equipment").param("fields", "hostname,password"))
+            .andExpect(status().isBadRequest());
+        // Lists never carry the specifications, so they cannot be selected there
+        mockMvc.perform(get("/api/equipment/status/ONLINE").param("fields", "specifications"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/equipment/1").param("fields", "tickets"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode read(String uri) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(uri))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString());
+    }
+
+    private static Set<String> fieldNames(JsonNode item) {
+        Set<String> names = new HashSet<>();
+        item.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,136 @@
+package ma.gov.dgh.helpdesk.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import ma.gov.dgh.helpdesk.security.CustomUserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ticket updates through the REST API, on the development profile and its sample data
+ * (ticket 4 is a CRITICAL network ticket created by employee 4 and assigned to technician 3)
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@Transactional
+class TicketControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void priorityChangeRecomputesDueDateFromCreation() throws Exception {
+        JsonNode updated = update(4, "LOW", "OPEN", 3L);
+
+        assertEquals("LOW", updated.get("priority").asText());
+        LocalDateTime createdAt = LocalDateTime.parse(updated.get("createdAt").asText());
+        assertEquals(createdAt.plusDays(7), LocalDateTime.parse(updated.get("dueDate").asText()));
+    }
+
+    @Test
+    void unchangedPriorityKeepsDueDate() throws Exception {
+        JsonNode first = update(4, "HIGH", "OPEN", 3L);
+        JsonNode second = update(4, "HIGH", "IN_PROGRESS", 3L);
+
+        assertEquals(first.get("dueDate").asText(), second.get("dueDate").asText());
+    }
+
+    @Test
+    void internalAttachmentIsHiddenFromEmployees() throws Exception {
+        long attachmentId = upload(4, true);
+
+        mockMvc.perform(get(attachmentUri(4, attachmentId)).with(user(userDetails(4L))))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get(attachmentUri(4, attachmentId)))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get(attachmentUri(4, attachmentId)).with(user(userDetails(3L))))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void publicAttachmentIsHiddenFromUsersOutsideTheTicket() throws Exception {
+        long attachmentId = upload(4, false);
+
+        mockMvc.perform(get(attachmentUri(4, attachmentId)).with(user(userDetails(5L))))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get(attachmentUri(4, attachmentId)).with(user(userDetails(4L))))
+            .andExpect(status().isOk());
+    }
+
+    long upload(long ticketId, boolean internal) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain",
+            ("notes " + internal).getBytes(StandardCharsets.UTF_8));
+        String response = mockMvc.perform(multipart("/api/tickets/" + ticketId + "/attachments")
+                .file(file)
+                .param("userId", "3")
+                .param("isInternal", String.valueOf(internal)))
+            .andExpect(status().isCreated())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private static String attachmentUri(long ticketId, long commentId) {
+        return "/api/tickets/" + ticketId + "/comments/" + commentId + "/attachment";
+    }
+
+    private CustomUserDetails userDetails(Long userId) {
+        return new CustomUserDetails(userRepository.findById(userId).orElseThrow(), List.of());
+    }
+
+    JsonNode update(long ticketId, String priority, String status, Long assignedToId) throws Exception {
+        JsonNode current = objectMapper.readTree(mockMvc.perform(get("/api/tickets/" + ticketId))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString());
+
+        StringBuilder body = new StringBuilder("{")
+            .append("\"title\":").append(current.get("title"))
+            .append(",\"description\":").append(current.get("description"))
+            .append(",\"category\":").append(current.get("category"))
+            .append(",\"priority\":\"").append(priority).append('"')
+            .append(",\"status\":\"").append(status).append('"');
+        if (assignedToId != null) {
+            body.append(",\"assignedToId\":").append(assignedToId);
+        }
+        body.append('}');
+
+        String response = mockMvc.perform(put("/api/tickets/" + ticketId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.toString()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
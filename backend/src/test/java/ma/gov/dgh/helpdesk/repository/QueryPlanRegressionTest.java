@@ -0,0 +1,128 @@
+package ma.gov.dgh.helpdesk.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Guards the indexes from db/migration against plan regressions.
+ * Each statement is the SQL equivalent of a repository query; its H2 plan must not contain a table scan.
+ * Not covered on purpose: findOpenTickets (NOT IN on status only), the *WithFilters catch-all queries
+ * and the LIKE '%term%' searches, which cannot use a B-tree index.
+ */
+class QueryPlanRegressionTest {
+
+    private static final String URL = "jdbc:h2:mem:plan_regression;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+        connection = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        connection.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // TicketRepository
+        "SELECT * FROM tickets WHERE status = 'OPEN'",
+        "SELECT * FROM tickets WHERE priority = 'HIGH'",
+        "SELECT * FROM tickets WHERE category = 'HARDWARE'",
+        "SELECT * FROM tickets WHERE created_by = 1",
+        "SELECT * FROM tickets WHERE assigned_to = 1",
+        "SELECT * FROM tickets WHERE assigned_to IS NULL",
+        "SELECT * FROM tickets WHERE equipment_id = 1",
+        "SELECT DISTINCT equipment_id FROM tickets WHERE equipment_id IN (1, 2) AND status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')",
+        "SELECT * FROM tickets WHERE created_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00'",
+        "SELECT * FROM tickets WHERE resolved_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00'",
+        "SELECT * FROM tickets WHERE due_date < TIMESTAMP '2025-01-01 00:00:00' AND status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')",
+        "SELECT * FROM tickets WHERE is_escalated = TRUE",
+        "SELECT * FROM tickets WHERE status = 'OPEN' AND assigned_to = 1",
+        "SELECT * FROM tickets WHERE status = 'OPEN' AND created_by = 1",
+        "SELECT * FROM tickets WHERE priority = 'HIGH' AND assigned_to IS NULL",
+        "SELECT * FROM tickets WHERE priority = 'CRITICAL' AND status NOT IN ('RESOLVED', 'CLOSED', 'CANCELLED')",
+        "SELECT status, COUNT(*) FROM tickets WHERE created_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00' GROUP BY status",
+        "SELECT category, AVG(DATEDIFF('MINUTE', created_at, resolved_at)), COUNT(*) FROM tickets WHERE resolved_at IS NOT NULL GROUP BY category",
+        // TicketCommentRepository
+        "SELECT * FROM ticket_comments WHERE ticket_id = 1 ORDER BY created_at",
+        "SELECT * FROM ticket_comments WHERE ticket_id = 1 ORDER BY created_at DESC LIMIT 1",
+        "SELECT * FROM ticket_comments WHERE ticket_id = 1 AND is_internal = TRUE",
+        "SELECT * FROM ticket_comments WHERE user_id = 1",
+        "SELECT * FROM ticket_comments WHERE user_id = 1 AND created_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00'",
+        "SELECT * FROM ticket_comments WHERE comment_type = 'COMMENT'",
+        "SELECT * FROM ticket_comments WHERE created_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00'",
+        "SELECT CAST(created_at AS DATE), COUNT(*) FROM ticket_comments WHERE created_at BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00' GROUP BY CAST(created_at AS DATE)",
+        // ActivityLogRepository
+        "SELECT * FROM activity_logs WHERE user_identifier = 'admin' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE action = 'LOGIN' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE severity = 'ERROR' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE user_identifier = 'admin' AND severity = 'ERROR' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE timestamp BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2025-02-01 00:00:00' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE ip_address = '10.0.0.1' ORDER BY timestamp DESC",
+        "SELECT * FROM activity_logs WHERE affected_resource = 'Ticket #1' ORDER BY timestamp DESC",
+        "SELECT severity, COUNT(*) FROM activity_logs WHERE timestamp >= TIMESTAMP '2025-01-01 00:00:00' GROUP BY severity",
+        "SELECT * FROM activity_logs WHERE action = 'LOGIN_FAILED' AND timestamp >= TIMESTAMP '2025-01-01 00:00:00' ORDER BY timestamp DESC",
+        "SELECT ip_address, COUNT(*) FROM activity_logs WHERE action = 'LOGIN_FAILED' AND timestamp >= TIMESTAMP '2025-01-01 00:00:00' GROUP BY ip_address HAVING COUNT(*) > 3",
+        // EquipmentRepository
+        "SELECT * FROM equipment WHERE ip_address = '10.0.0.1'",
+        "SELECT * FROM equipment WHERE mac_address = '00:11:22:33:44:55'",
+        "SELECT * FROM equipment WHERE hostname = 'srv-01'",
+        "SELECT * FROM equipment WHERE asset_tag = 'DGH-0001'",
+        "SELECT * FROM equipment WHERE equipment_type = 'SERVER'",
+        "SELECT * FROM equipment WHERE status = 'ONLINE'",
+        "SELECT * FROM equipment WHERE location = 'Rabat'",
+        "SELECT * FROM equipment WHERE manufacturer = 'Cisco' AND model = 'C2960'",
+        "SELECT * FROM equipment WHERE last_seen > TIMESTAMP '2025-01-01 00:00:00'",
+        "SELECT * FROM equipment WHERE last_seen < TIMESTAMP '2025-01-01 00:00:00'",
+        "SELECT * FROM equipment WHERE warranty_expiry BETWEEN TIMESTAMP '2025-01-01 00:00:00' AND TIMESTAMP '2026-01-01 00:00:00'",
+        "SELECT DISTINCT manufacturer FROM equipment WHERE manufacturer IS NOT NULL ORDER BY manufacturer",
+        "SELECT id, ip_address FROM equipment WHERE ip_address IN ('10.0.0.1', '10.0.0.2')",
+        "SELECT id FROM equipment WHERE id IN (1, 2) AND (status IS NULL OR status <> 'ONLINE')",
+        "SELECT id, hostname, ip_address, equipment_type, location, last_seen FROM equipment WHERE status = 'ONLINE' AND last_seen < TIMESTAMP '2025-01-01 00:00:00' AND equipment_type IN ('SERVER', 'SWITCH')",
+        "SELECT * FROM equipment WHERE id > 0 ORDER BY id LIMIT 1000",
+        "SELECT * FROM equipment WHERE ip_numeric BETWEEN 281470849220608 AND 281470849351679 ORDER BY ip_numeric, id",
+        "SELECT DISTINCT ip_numeric FROM equipment WHERE ip_numeric BETWEEN 281470849220608 AND 281470849351679 ORDER BY ip_numeric",
+        "SELECT * FROM equipment WHERE total_ticket_count > 0 ORDER BY open_ticket_count DESC, total_ticket_count DESC LIMIT 10",
+        // EquipmentInterfaceRepository
+        "SELECT * FROM equipment_interfaces WHERE equipment_id = 1 ORDER BY if_index",
+        // EquipmentAttributeRepository
+        "SELECT * FROM equipment_attributes WHERE equipment_id = 1 ORDER BY attribute_key",
+        "SELECT equipment_id FROM equipment_attributes WHERE attribute_key = 'SYS_LOCATION' AND text_value = 'Server Room'",
+        "SELECT equipment_id FROM equipment_attributes WHERE attribute_key = 'BOOT_TIME' AND numeric_value BETWEEN 1760000000 AND 9223372036854775807",
+        // TicketMetricRollupRepository
+        "SELECT * FROM ticket_metric_rollups WHERE granularity = 'HOUR' AND bucket_start IN (TIMESTAMP '2025-01-01 10:00:00', TIMESTAMP '2025-01-01 11:00:00')",
+        "SELECT bucket_start, SUM(created_count), SUM(resolved_count) FROM ticket_metric_rollups WHERE granularity = 'DAY' AND bucket_start >= TIMESTAMP '2025-01-01 00:00:00' AND bucket_start < TIMESTAMP '2025-02-01 00:00:00' GROUP BY bucket_start",
+        // UserRepository
+        "SELECT * FROM users WHERE ldap_username = 'admin'",
+        "SELECT * FROM users WHERE email = 'admin@dgh.gov.ma'"
+    })
+    void queryUsesIndex(String sql) throws Exception {
+        String plan = explain(sql);
+        assertFalse(plan.contains("tableScan"), () -> "Full table scan for: " + sql + "\n" + plan);
+    }
+
+    private static String explain(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.service.AttachmentPreviewService.Preview;
+import ma.gov.dgh.helpdesk.service.AttachmentPreviewService.PreviewSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Preview generation on an executor the tests drive: generation runs only when the test runs the
+ * queued tasks, so requests made before see the preview pending.
+ */
+class AttachmentPreviewServiceTest {
+
+    @TempDir
+    Path storageDir;
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private AttachmentPreviewService service;
+
+    @BeforeEach
+    void setUp() {
+        AttachmentStorageService storage = mock(AttachmentStorageService.class);
+        when(storage.resolve(anyString())).thenAnswer(invocation -> storageDir.resolve((String) invocation.getArgument(0)));
+        when(storage.resolveDerivative(anyString(), anyString())).thenAnswer(invocation ->
+            storageDir.resolve(invocation.getArgument(0) + "." + invocation.getArgument(1)));
+        service = newService(storage, queued::add);
+    }
+
+    @Test
+    void imageIsRenderedInEverySize() throws Exception {
+        ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "png",
+            storageDir.resolve("abc").toFile());
+
+        assertTrue(service.getPreview("abc", PreviewSize.THUMBNAIL).isPending());
+        runQueued();
+
+        Preview thumbnail = service.getPreview("abc", PreviewSize.THUMBNAIL);
+        Preview preview = service.getPreview("abc", PreviewSize.PREVIEW);
+        assertFalse(thumbnail.isPending());
+        assertDimensions(200, 100, thumbnail.getFile().orElseThrow());
+        assertDimensions(1024, 512, preview.getFile().orElseThrow());
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void unsupportedFormatIsMarkedAndNeverDecodedAgain() throws Exception {
+        Files.writeString(storageDir.resolve("def"), "not an image");
+
+        service.getPreview("def", PreviewSize.PREVIEW);
+        runQueued();
+
+        Preview preview = service.getPreview("def", PreviewSize.PREVIEW);
+        assertFalse(preview.isPending());
+        assertTrue(preview.getFile().isEmpty());
+        assertTrue(Files.exists(storageDir.resolve("def.nopreview")));
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void requestsDoNotWaitForAPendingGeneration() throws Exception {
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "png",
+            storageDir.resolve("ghi").toFile());
+
+        assertTrue(service.getPreview("ghi", PreviewSize.THUMBNAIL).isPending());
+        assertTrue(service.getPreview("ghi", PreviewSize.PREVIEW).isPending());
+        // Both requests share one generation
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void saturatedPoolLeavesThePreviewPending() throws Exception {
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "png",
+            storageDir.resolve("jkl").toFile());
+        AttachmentStorageService storage = mock(AttachmentStorageService.class);
+        when(storage.resolveDerivative(anyString(), anyString())).thenAnswer(invocation ->
+            storageDir.resolve(invocation.getArgument(0) + "." + invocation.getArgument(1)));
+        AttachmentPreviewService saturated = newService(storage, task -> {
+            throw new RejectedExecutionException("queue full");
+        });
+
+        assertTrue(saturated.getPreview("jkl", PreviewSize.THUMBNAIL).isPending());
+    }
+
+    private static AttachmentPreviewService newService(AttachmentStorageService storage, Executor executor) {
+        AttachmentPreviewService service = new AttachmentPreviewService(storage, executor);
+        ReflectionTestUtils.setField(service, "previewsEnabled", true);
+        ReflectionTestUtils.setField(service, "maxSourcePixels", 100_000_000L);
+        return service;
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static void assertDimensions(int width, int height, Path file) throws Exception {
+        BufferedImage image = ImageIO.read(file.toFile());
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+}
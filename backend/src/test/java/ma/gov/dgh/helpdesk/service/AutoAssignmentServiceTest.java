@@ -0,0 +1,119 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.entity.User;
+import ma.gov.dgh.helpdesk.entity.UserRole;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the workload index around rebuilds: changes made while the database is read survive
+ * the swap, and events older than the rebuild still apply.
+ */
+class AutoAssignmentServiceTest {
+
+    private TicketRepository ticketRepository;
+    private UserRepository userRepository;
+    private AutoAssignmentService service;
+
+    @BeforeEach
+    void setUp() {
+        ticketRepository = mock(TicketRepository.class);
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByRoleAndIsActiveTrue(UserRole.TECHNICIAN))
+            .thenReturn(List.of(technician(2L, "John Doe"), technician(3L, "Jane Smith")));
+        when(userRepository.findById(anyLong())).thenAnswer(call -> Optional.of(technician(call.getArgument(0), "")));
+        when(ticketRepository.getResolvedCountByAssigneeAndCategory()).thenReturn(List.of());
+        when(ticketRepository.findOpenAssignedTicketPriorities()).thenReturn(List.of());
+        service = new AutoAssignmentService(ticketRepository, userRepository);
+        ReflectionTestUtils.setField(service, "autoAssignmentEnabled", true);
+        service.rebuildIndex();
+    }
+
+    @Test
+    void reservationMadeDuringRebuildIsKept() {
+        // The ticket is reserved after the open tickets were read, so the rebuild does not see it
+        when(ticketRepository.findOpenAssignedTicketPriorities()).thenAnswer(call -> {
+            service.selectTechnician(ticket(10L, TicketPriority.CRITICAL));
+            return List.of();
+        });
+        service.rebuildIndex();
+
+        assertEquals(8, totalLoad());
+        assertEquals(1, totalOpenTickets());
+    }
+
+    @Test
+    void ticketClosedDuringRebuildIsDropped() {
+        List<Object[]> open = new ArrayList<>();
+        open.add(new Object[] {10L, 2L, TicketPriority.HIGH});
+        when(ticketRepository.findOpenAssignedTicketPriorities()).thenAnswer(call -> {
+            service.onTicketEvent(event(10L, TicketStatus.RESOLVED, 2L, TicketPriority.HIGH));
+            return open;
+        });
+        service.rebuildIndex();
+
+        assertEquals(0, totalLoad());
+    }
+
+    @Test
+    void eventOlderThanRebuildStillApplies() {
+        DomainEvent resolved = event(10L, TicketStatus.RESOLVED, 2L, TicketPriority.HIGH);
+        List<Object[]> open = new ArrayList<>();
+        open.add(new Object[] {10L, 2L, TicketPriority.HIGH});
+        when(ticketRepository.findOpenAssignedTicketPriorities()).thenReturn(open);
+        service.rebuildIndex();
+        assertEquals(4, totalLoad());
+
+        service.onTicketEvent(resolved);
+
+        assertEquals(0, totalLoad());
+    }
+
+    private int totalLoad() {
+        return service.getWorkloadSnapshot().stream().mapToInt(AutoAssignmentService.TechnicianWorkload::getWeightedLoad).sum();
+    }
+
+    private int totalOpenTickets() {
+        return service.getWorkloadSnapshot().stream().mapToInt(AutoAssignmentService.TechnicianWorkload::getOpenTickets).sum();
+    }
+
+    private static User technician(Long id, String fullName) {
+        User user = new User(fullName, fullName + "@dgh.gov.ma", fullName);
+        user.setId(id);
+        user.setRole(UserRole.TECHNICIAN);
+        return user;
+    }
+
+    private static Ticket ticket(Long id, TicketPriority priority) {
+        Ticket ticket = new Ticket("Printer", "Out of toner", technician(5L, "Bob"));
+        ticket.setId(id);
+        ticket.setPriority(priority);
+        ticket.setCategory(TicketCategory.HARDWARE);
+        return ticket;
+    }
+
+    private static DomainEvent event(Long ticketId, TicketStatus status, Long assignedToId, TicketPriority priority) {
+        Ticket ticket = ticket(ticketId, priority);
+        ticket.setStatus(status);
+        ticket.setAssignedTo(technician(assignedToId, ""));
+        return DomainEvent.ticket(DomainEventType.TICKET_UPDATED, ticket);
+    }
+}
@@ -0,0 +1,151 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.utils.DeviceRuleSet.Classification;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the throughput of the device classification rules next to the contains() chains they
+ * replaced, over the corpus of {@link DeviceClassificationServiceTest}. Timings are reported, not
+ * asserted; the benchmark is left out of the default build and runs with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class DeviceClassificationBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    private static DeviceClassificationService service;
+    private static List<String[]> corpus;
+
+    @BeforeAll
+    static void load() throws Exception {
+        service = new DeviceClassificationService(new ObjectMapper(), new DefaultResourceLoader(),
+            "classpath:classification/device-rules.json");
+        corpus = DeviceClassificationServiceTest.loadCorpus();
+    }
+
+    @Test
+    void benchmark() {
+        int legacyCorrect = 0;
+        for (String[] sample : corpus) {
+            if (legacyType(sample[4], sample[3]) == EquipmentType.valueOf(sample[0])) {
+                legacyCorrect++;
+            }
+        }
+
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += runRules() + runLegacy();
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += runRules();
+        }
+        long rulesNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += runLegacy();
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        long classifications = (long) MEASURED_ROUNDS * corpus.size();
+        System.out.printf("Device classification over %d samples: rules %.0f ns/device (%d/%d types right), "
+                + "contains() chains %.0f ns/device (%d/%d types right)%n", corpus.size(),
+            (double) rulesNanos / classifications, corpus.size(), corpus.size(),
+            (double) legacyNanos / classifications, legacyCorrect, corpus.size());
+        assertTrue(sink > 0);
+    }
+
+    private static long runRules() {
+        long hash = 0;
+        for (String[] sample : corpus) {
+            Classification classification = service.classify(sample[2], sample[4], sample[3]);
+            hash += classification.getEquipmentType().ordinal()
+                + (classification.getManufacturer() != null ? classification.getManufacturer().length() : 0);
+        }
+        return hash;
+    }
+
+    private static long runLegacy() {
+        long hash = 0;
+        for (String[] sample : corpus) {
+            String manufacturer = legacyManufacturer(sample[4]);
+            hash += legacyType(sample[4], sample[3]).ordinal() + (manufacturer != null ? manufacturer.length() : 0);
+        }
+        return hash;
+    }
+
+    // The manufacturer and type checks the rules replaced, kept as the baseline
+
+    private static String legacyManufacturer(String sysDescr) {
+        if (sysDescr == null) return null;
+        String sysDescrLower = sysDescr.toLowerCase();
+        if (sysDescrLower.contains("cisco")) {
+            return "Cisco";
+        } else if (sysDescrLower.contains("hp") || sysDescrLower.contains("hewlett")) {
+            return "HP";
+        } else if (sysDescrLower.contains("dell")) {
+            return "Dell";
+        } else if (sysDescrLower.contains("juniper")) {
+            return "Juniper";
+        } else if (sysDescrLower.contains("netgear")) {
+            return "Netgear";
+        } else if (sysDescrLower.contains("d-link")) {
+            return "D-Link";
+        } else if (sysDescrLower.contains("windows")) {
+            return "Microsoft";
+        } else if (sysDescrLower.contains("linux")) {
+            if (sysDescrLower.contains("ubuntu")) {
+                return "Ubuntu";
+            } else if (sysDescrLower.contains("centos")) {
+                return "CentOS";
+            } else if (sysDescrLower.contains("red hat")) {
+                return "Red Hat";
+            } else if (sysDescrLower.contains("debian")) {
+                return "Debian";
+            }
+        }
+        return null;
+    }
+
+    private static EquipmentType legacyType(String sysDescr, String hostname) {
+        if (sysDescr != null) {
+            String sysDescrLower = sysDescr.toLowerCase();
+            if (sysDescrLower.contains("switch")) {
+                return EquipmentType.SWITCH;
+            } else if (sysDescrLower.contains("router")) {
+                return EquipmentType.ROUTER;
+            } else if (sysDescrLower.contains("printer")) {
+                return EquipmentType.PRINTER;
+            } else if (sysDescrLower.contains("access point") || sysDescrLower.contains("ap")) {
+                return EquipmentType.ACCESS_POINT;
+            } else if (sysDescrLower.contains("server")) {
+                return EquipmentType.SERVER;
+            } else if (sysDescrLower.contains("windows") || sysDescrLower.contains("linux")) {
+                return EquipmentType.DESKTOP;
+            }
+        }
+        if (hostname != null) {
+            String hostnameLower = hostname.toLowerCase();
+            if (hostnameLower.contains("switch")) {
+                return EquipmentType.SWITCH;
+            } else if (hostnameLower.contains("router")) {
+                return EquipmentType.ROUTER;
+            } else if (hostnameLower.contains("printer")) {
+                return EquipmentType.PRINTER;
+            } else if (hostnameLower.contains("server")) {
+                return EquipmentType.SERVER;
+            }
+        }
+        return EquipmentType.UNKNOWN;
+    }
+}
@@ -0,0 +1,120 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.utils.DeviceRuleSet.Classification;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks the device classification rules against a corpus of sysDescr strings from real devices.
+ * {@link DeviceClassificationBenchmarkTest} measures them against the contains() chains they replaced.
+ */
+class DeviceClassificationServiceTest {
+
+    private static final String CORPUS = "classification/sysdescr-corpus.txt";
+
+    private static DeviceClassificationService service;
+    private static List<String[]> corpus;
+
+    @BeforeAll
+    static void load() throws Exception {
+        service = new DeviceClassificationService(new ObjectMapper(), new DefaultResourceLoader(),
+            "classpath:classification/device-rules.json");
+        corpus = loadCorpus();
+    }
+
+    @Test
+    void classifiesCorpus() {
+        for (String[] sample : corpus) {
+            Classification classification = service.classify(sample[2], sample[4], sample[3]);
+            String device = sample[4] != null ? sample[4] : sample[3];
+            assertEquals(EquipmentType.valueOf(sample[0]), classification.getEquipmentType(), "type of " + device);
+            assertEquals(sample[1], classification.getManufacturer(), "manufacturer of " + device);
+        }
+    }
+
+    @Test
+    void keepsRulesInUseWhenReloadIsRejected(@TempDir Path directory) throws Exception {
+        Path rules = directory.resolve("rules.json");
+        Files.writeString(rules, "{\"version\": \"1\", \"rules\": [{\"id\": \"switch\", \"priority\": 1, "
+            + "\"descriptionKeywords\": [\"switch\"], \"equipmentType\": \"SWITCH\"}]}");
+        DeviceClassificationService reloadable = new DeviceClassificationService(new ObjectMapper(),
+            new DefaultResourceLoader(), rules.toUri().toString());
+        assertEquals("1", reloadable.getInfo().getVersion());
+
+        Files.writeString(rules, "{\"version\": \"2\", \"rules\": [{\"id\": \"router\", \"priority\": 1, "
+            + "\"descriptionKeywords\": [\"router\"], \"equipmentType\": \"ROUTER\"}]}");
+        assertEquals("2", reloadable.reload().getVersion());
+        assertEquals(EquipmentType.ROUTER, reloadable.classify(null, "Edge Router", null).getEquipmentType());
+
+        Files.writeString(rules, "{\"rules\": []}");
+        assertNotNull(reloadable.reload().getError());
+        assertEquals("2", reloadable.getInfo().getVersion());
+        assertEquals(EquipmentType.ROUTER, reloadable.classify(null, "Edge Router", null).getEquipmentType());
+    }
+
+    @Test
+    void classifiesDevicesByVendorObjectIdAndHostName() {
+        // A "ap" substring is not an access point, and a vendor is not only its name in sysDescr
+        assertClassified(EquipmentType.UPS, "APC", "1.3.6.1.4.1.318.1.3.27",
+            "APC Web/SNMP Management Card (MB:v4.1.0 PF:v6.4.6 PN:apc_hw05_aos_646.bin)", null);
+        assertClassified(EquipmentType.ROUTER, "Cisco", "1.3.6.1.4.1.9.1.1041",
+            "Cisco IOS Software, C2900 Software (C2900-UNIVERSALK9-M), Version 15.2(4)M6, RELEASE SOFTWARE (fc2)", null);
+        assertClassified(EquipmentType.FIREWALL, "Fortinet", "1.3.6.1.4.1.12356.101.1.624",
+            "FortiGate-60E v6.0.4,build0231,190107 (GA)", null);
+        assertClassified(EquipmentType.PRINTER, "HP", "1.3.6.1.4.1.11.2.3.9.1", "HP LaserJet M402dn", null);
+        assertClassified(EquipmentType.LAPTOP, "Microsoft", "1.3.6.1.4.1.311.1.1.3.1.1",
+            "Hardware: Intel64 Family 6 Model 140 Stepping 1 AT/AT COMPATIBLE - Software: Windows Version 6.3 "
+                + "(Build 22631 Multiprocessor Free)", "LAPTOP-7QK2M1");
+        assertClassified(EquipmentType.SERVER, null, "1.3.6.1.4.1.8072.3.2.10",
+            "Linux db01 3.10.0-1160.el7.x86_64 #1 SMP Mon Oct 19 16:18:59 UTC 2020 x86_64", "srv-db01");
+        assertClassified(EquipmentType.ACCESS_POINT, null, null, null, "ap-floor2-east");
+        assertClassified(EquipmentType.UNKNOWN, null, null, null, "snmpap01");
+    }
+
+    /**
+     * Load the corpus: expected type, expected manufacturer, sysObjectID, host name and sysDescr,
+     * with null for absent fields
+     */
+    static List<String[]> loadCorpus() throws IOException {
+        List<String[]> samples = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                DeviceClassificationServiceTest.class.getClassLoader().getResourceAsStream(CORPUS), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s*\\|\\s*", 5);
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = fields[i].equals("-") ? null : fields[i];
+                }
+                samples.add(fields);
+            }
+        }
+        return samples;
+    }
+
+    private static void assertClassified(EquipmentType type, String manufacturer, String objectId,
+                                         String sysDescr, String hostname) {
+        Classification classification = service.classify(objectId, sysDescr, hostname);
+        String device = sysDescr != null ? sysDescr : hostname;
+        assertEquals(type, classification.getEquipmentType(), "type of " + device);
+        assertEquals(manufacturer, classification.getManufacturer(), "manufacturer of " + device);
+    }
+}
@@ -0,0 +1,142 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.persistence.EntityManager;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttribute;
+import ma.gov.dgh.helpdesk.entity.EquipmentAttributeKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Attribute rows of the development sample equipment (1 is server-01, 2 is switch-01, 3 is
+ * printer-01): stored from discovery, converted from older specifications documents, and queried.
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@ActiveProfiles("dev")
+@Transactional
+class EquipmentAttributeServiceTest {
+
+    @Autowired
+    private EquipmentAttributeService equipmentAttributeService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void backfillConvertsDiscoveredSpecificationsOnly() {
+        specifications(2L, "{\"systemDescription\": \"Cisco IOS Software, C2960\", \"systemLocation\": \"Rack B2\", "
+            + "\"systemUptime\": \"3 days\", \"interfaceCount\": 24, \"processCount\": \"No Such Object\", "
+            + "\"memoryKb\": 262144}");
+        specifications(3L, "Bought in 2019, toner under contract");
+
+        equipmentAttributeService.backfillFromSpecifications();
+
+        Map<EquipmentAttributeKey, EquipmentAttribute> attributes = attributes(2L);
+        assertEquals(List.of(EquipmentAttributeKey.SYS_DESCR, EquipmentAttributeKey.SYS_LOCATION,
+            EquipmentAttributeKey.IF_NUMBER, EquipmentAttributeKey.HR_MEMORY_SIZE), List.copyOf(attributes.keySet()));
+        assertEquals("Rack B2", attributes.get(EquipmentAttributeKey.SYS_LOCATION).getTextValue());
+        assertEquals(24L, attributes.get(EquipmentAttributeKey.IF_NUMBER).getNumericValue());
+        assertEquals(262144L, attributes.get(EquipmentAttributeKey.HR_MEMORY_SIZE).getNumericValue());
+        assertTrue(attributes(3L).isEmpty());
+
+        // Converted equipment is not read again
+        specifications(2L, "{\"systemLocation\": \"Rack C3\"}");
+        equipmentAttributeService.backfillFromSpecifications();
+        assertEquals("Rack B2", attributes(2L).get(EquipmentAttributeKey.SYS_LOCATION).getTextValue());
+    }
+
+    @Test
+    void rediscoveryReplacesAttributes() {
+        equipmentAttributeService.recordDeviceInfo(1L, device("Rack A1", 3_600L, 16_777_216L));
+        equipmentAttributeService.recordDeviceInfo(1L, device(null, 7_200L, null));
+
+        Map<EquipmentAttributeKey, EquipmentAttribute> attributes = attributes(1L);
+        assertEquals(List.of(EquipmentAttributeKey.SYS_NAME, EquipmentAttributeKey.SYS_UP_TIME,
+            EquipmentAttributeKey.BOOT_TIME), List.copyOf(attributes.keySet()));
+        assertEquals(7_200L, attributes.get(EquipmentAttributeKey.SYS_UP_TIME).getNumericValue());
+    }
+
+    @Test
+    void attributesAreQueriedByValueAndRange() {
+        equipmentAttributeService.recordDeviceInfo(1L, device("Rack A1", 3_600L, 16_777_216L));
+        equipmentAttributeService.recordDeviceInfo(2L, device("Rack B2", 3 * 86_400L, 262_144L));
+        equipmentAttributeService.recordDeviceInfo(3L, device("Rack A1", null, null));
+
+        assertEquals(List.of(1L, 3L), ids(equipmentAttributeService.findByAttribute(
+            EquipmentAttributeKey.SYS_LOCATION, " Rack A1 ", null, null)));
+        assertEquals(List.of(1L), ids(equipmentAttributeService.findByAttribute(
+            EquipmentAttributeKey.HR_MEMORY_SIZE, null, 1_048_576L, null)));
+        assertEquals(List.of(1L, 2L), ids(equipmentAttributeService.findByAttribute(
+            EquipmentAttributeKey.HR_MEMORY_SIZE, null, null, 16_777_216L)));
+        assertTrue(equipmentAttributeService.findByAttribute(EquipmentAttributeKey.SYS_LOCATION, "Rack Z9", null, null).isEmpty());
+
+        assertEquals(List.of(1L), ids(equipmentAttributeService.findBootedWithin(24)));
+        assertEquals(List.of(1L, 2L), ids(equipmentAttributeService.findBootedWithin(24 * 7)));
+    }
+
+    @Test
+    void queriesMustMatchTheAttributeKind() {
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentAttributeService.findByAttribute(EquipmentAttributeKey.SYS_LOCATION, null, 1L, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentAttributeService.findByAttribute(EquipmentAttributeKey.SYS_LOCATION, " ", null, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentAttributeService.findByAttribute(EquipmentAttributeKey.IF_NUMBER, "24", null, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentAttributeService.findByAttribute(EquipmentAttributeKey.IF_NUMBER, null, null, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentAttributeService.findByAttribute(EquipmentAttributeKey.IF_NUMBER, null, 48L, 24L));
+        assertThrows(IllegalArgumentException.class, () -> equipmentAttributeService.findBootedWithin(0));
+        assertThrows(IllegalArgumentException.class, () -> equipmentAttributeService.getAttributes(999L));
+    }
+
+    private void specifications(Long equipmentId, String specifications) {
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE equipment SET specifications = ? WHERE id = ?", specifications, equipmentId);
+        entityManager.clear();
+    }
+
+    private Map<EquipmentAttributeKey, EquipmentAttribute> attributes(Long equipmentId) {
+        entityManager.flush();
+        Map<EquipmentAttributeKey, EquipmentAttribute> attributes = new EnumMap<>(EquipmentAttributeKey.class);
+        for (EquipmentAttribute attribute : equipmentAttributeService.getAttributes(equipmentId)) {
+            attributes.put(attribute.getAttributeKey(), attribute);
+        }
+        return attributes;
+    }
+
+    private static SnmpDeviceInfo device(String location, Long uptimeSeconds, Long memoryKb) {
+        SnmpDeviceInfo info = new SnmpDeviceInfo();
+        info.setSystemName("device");
+        info.setSystemLocation(location);
+        info.setSystemUptimeSeconds(uptimeSeconds);
+        info.setMemoryKb(memoryKb);
+        return info;
+    }
+
+    private static List<Long> ids(List<EquipmentSummary> equipment) {
+        return equipment.stream().map(EquipmentSummary::getId).toList();
+    }
+}
@@ -0,0 +1,99 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.persistence.EntityManager;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heartbeat batching against the development sample equipment (1 is server-01 at 192.168.1.10).
+ * The flush joins the test transaction, which is rolled back afterwards.
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@ActiveProfiles("dev")
+@RecordApplicationEvents
+@Transactional
+class EquipmentHeartbeatServiceTest {
+
+    @Autowired
+    private EquipmentHeartbeatService equipmentHeartbeatService;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void repeatedHeartbeatsCollapseIntoOnePendingEntry() {
+        int accepted = equipmentHeartbeatService.record(List.of(3L, 3L, 3L), List.of("192.168.1.10", " 192.168.1.10 "));
+
+        assertEquals(5, accepted);
+        assertEquals(2, equipmentHeartbeatService.getPendingCount());
+        equipmentHeartbeatService.flush();
+        assertEquals(0, equipmentHeartbeatService.getPendingCount());
+    }
+
+    @Test
+    void flushUpdatesLastSeenAndPublishesOnlyTransitions() {
+        Equipment printer = equipmentRepository.findById(3L).orElseThrow();
+        printer.setStatus(EquipmentStatus.OFFLINE);
+        equipmentRepository.saveAndFlush(printer);
+        LocalDateTime before = LocalDateTime.now();
+
+        equipmentHeartbeatService.record(List.of(3L, 999_999L), List.of("192.168.1.10", "10.255.255.255"));
+        equipmentHeartbeatService.flush();
+        entityManager.clear();
+
+        Equipment printerAfter = equipmentRepository.findById(3L).orElseThrow();
+        assertEquals(EquipmentStatus.ONLINE, printerAfter.getStatus());
+        assertFalse(printerAfter.getLastSeen().isBefore(before));
+        assertFalse(equipmentRepository.findById(1L).orElseThrow().getLastSeen().isBefore(before));
+        assertTrue(equipmentRepository.findById(2L).orElseThrow().getLastSeen().isBefore(before),
+            "equipment without a heartbeat keeps its last seen");
+
+        // server-01 was already online: only the printer's transition is pushed
+        List<DomainEvent> transitions = applicationEvents.stream(DomainEvent.class)
+            .filter(event -> event.getType() == DomainEventType.EQUIPMENT_STATUS_CHANGED)
+            .toList();
+        assertEquals(1, transitions.size());
+        assertEquals(3L, transitions.get(0).getAggregateId());
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        List<Long> ids = LongStream.rangeClosed(1, 5001).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> equipmentHeartbeatService.record(ids, null));
+        assertEquals(0, equipmentHeartbeatService.getPendingCount());
+    }
+}
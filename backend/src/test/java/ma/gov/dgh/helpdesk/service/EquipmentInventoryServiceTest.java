@@ -0,0 +1,132 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the inventory around rebuilds: changes committed while the pages are read end up in
+ * the loaded inventory exactly once, whether or not the pages already contained them.
+ */
+class EquipmentInventoryServiceTest {
+
+    // The database, by id; changes below are committed to it before they are recorded
+    private final Map<Long, Equipment> table = new TreeMap<>();
+    private EquipmentRepository equipmentRepository;
+    private EquipmentInventoryService service;
+
+    @BeforeEach
+    void setUp() {
+        table.put(1L, equipment(1L, "srv-01", "10.0.0.1"));
+        table.put(2L, equipment(2L, "sw-01", "10.0.0.2"));
+        equipmentRepository = mock(EquipmentRepository.class);
+        when(equipmentRepository.findAllById(any())).thenAnswer(call -> {
+            Iterable<Long> ids = call.getArgument(0);
+            return StreamSupport.stream(ids.spliterator(), false)
+                .filter(table::containsKey).map(table::get).toList();
+        });
+        when(equipmentRepository.findSpecificationsById(anyLong())).thenAnswer(call ->
+            Optional.ofNullable(table.get(call.<Long>getArgument(0))).map(Equipment::getSpecifications));
+        service = new EquipmentInventoryService(equipmentRepository, mock(PlatformTransactionManager.class), true, 1000);
+    }
+
+    @Test
+    void ticketCountsCommittedDuringRebuildAreNotCountedTwice() {
+        when(equipmentRepository.findPageAfterId(anyLong(), any(Pageable.class))).thenAnswer(call -> {
+            // A ticket is opened on srv-01 while its page is read: the page already counts it
+            commitTicket(1L);
+            return pageAfter(call.getArgument(0));
+        });
+        service.rebuild();
+
+        assertEquals(1, service.findByHostname("srv-01").orElseThrow().getOpenTicketCount());
+        assertEquals(1, service.findByHostname("srv-01").orElseThrow().getTotalTicketCount());
+    }
+
+    @Test
+    void changesCommittedAfterTheirPageWasReadAreKept() {
+        when(equipmentRepository.findPageAfterId(anyLong(), any(Pageable.class))).thenAnswer(call -> {
+            List<Equipment> page = pageAfter(call.getArgument(0));
+            // Committed once the page was read: neither change is in it
+            commitTicket(1L);
+            table.get(2L).setStatus(EquipmentStatus.OFFLINE);
+            service.recordStatus(List.of(2L), EquipmentStatus.OFFLINE, null);
+            table.remove(1L);
+            service.recordDeleted(1L);
+            return page;
+        });
+        service.rebuild();
+
+        assertTrue(service.findByHostname("srv-01").isEmpty());
+        assertEquals(EquipmentStatus.OFFLINE, service.findByHostname("sw-01").orElseThrow().getStatus());
+        assertEquals(List.of(2L), service.findByStatus(EquipmentStatus.OFFLINE).stream().map(EquipmentSummary::getId).toList());
+    }
+
+    @Test
+    void changesAfterTheSwapApplyToTheNewInventory() {
+        when(equipmentRepository.findPageAfterId(anyLong(), any(Pageable.class)))
+            .thenAnswer(call -> pageAfter(call.getArgument(0)));
+        service.rebuild();
+
+        commitTicket(2L);
+        commitTicket(2L);
+
+        assertEquals(2, service.findByHostname("sw-01").orElseThrow().getOpenTicketCount());
+    }
+
+    @Test
+    void singleLookupsReadTheSpecificationsBack() {
+        table.get(2L).setSpecifications("{\"systemLocation\": \"Rack B2\"}");
+        when(equipmentRepository.findPageAfterId(anyLong(), any(Pageable.class)))
+            .thenAnswer(call -> pageAfter(call.getArgument(0)));
+        service.rebuild();
+
+        assertEquals("{\"systemLocation\": \"Rack B2\"}", service.findByIpAddress("10.0.0.2").orElseThrow().getSpecifications());
+        assertNull(service.findByHostname("srv-01").orElseThrow().getSpecifications());
+    }
+
+    private void commitTicket(Long equipmentId) {
+        Equipment row = table.get(equipmentId);
+        row.setOpenTicketCount(row.getOpenTicketCount() + 1);
+        row.setTotalTicketCount(row.getTotalTicketCount() + 1);
+        service.recordTicketCounts(equipmentId, 1, 1, LocalDateTime.now());
+    }
+
+    private List<Equipment> pageAfter(Long afterId) {
+        return table.values().stream().filter(row -> row.getId() > afterId)
+            .map(EquipmentInventoryService::snapshot).toList();
+    }
+
+    private static Equipment equipment(Long id, String hostname, String ipAddress) {
+        Equipment equipment = new Equipment();
+        equipment.setId(id);
+        equipment.setHostname(hostname);
+        equipment.setIpAddress(ipAddress);
+        equipment.setEquipmentType(EquipmentType.SERVER);
+        equipment.setStatus(EquipmentStatus.ONLINE);
+        equipment.setOpenTicketCount(0);
+        equipment.setTotalTicketCount(0);
+        return equipment;
+    }
+}
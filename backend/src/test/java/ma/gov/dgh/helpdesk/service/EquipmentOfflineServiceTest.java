@@ -0,0 +1,129 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.persistence.EntityManager;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Offline sweep against the development sample equipment (1 is server-01, 2 is switch-01).
+ * The sweep under test gives servers a zero threshold, so server-01 is stale right away while
+ * other types keep an hour. Its updates and tickets join the test transaction and are rolled back.
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@ActiveProfiles("dev")
+@RecordApplicationEvents
+@Transactional
+class EquipmentOfflineServiceTest {
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private EquipmentInventoryService equipmentInventoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    private EquipmentOfflineService equipmentOfflineService;
+
+    @BeforeEach
+    void setUp() {
+        equipmentOfflineService = new EquipmentOfflineService(equipmentRepository, ticketRepository, userRepository,
+            ticketService, eventPublisher, changeVersionService, equipmentInventoryService, transactionManager,
+            "1h", "SERVER:0s", "SERVER");
+        ReflectionTestUtils.setField(equipmentOfflineService, "sweepEnabled", true);
+        ReflectionTestUtils.setField(equipmentOfflineService, "ticketCreator", "admin");
+    }
+
+    @Test
+    void staleDevicesGoOfflineOnce() {
+        assertEquals(1, equipmentOfflineService.sweep());
+        assertEquals(0, equipmentOfflineService.sweep());
+        entityManager.clear();
+
+        assertEquals(EquipmentStatus.OFFLINE, equipmentRepository.findById(1L).orElseThrow().getStatus());
+        assertEquals(EquipmentStatus.ONLINE, equipmentRepository.findById(2L).orElseThrow().getStatus(),
+            "a switch is only stale after its own threshold");
+        List<DomainEvent> transitions = applicationEvents.stream(DomainEvent.class)
+            .filter(event -> event.getType() == DomainEventType.EQUIPMENT_STATUS_CHANGED)
+            .toList();
+        assertEquals(1, transitions.size());
+        assertEquals(1L, transitions.get(0).getAggregateId());
+        assertEquals(EquipmentStatus.OFFLINE, transitions.get(0).getPayload().get("status"));
+    }
+
+    @Test
+    void criticalDeviceGetsOneTicketWhileItIsOpen() {
+        // The sample tickets about server-01 are resolved first
+        for (Ticket ticket : ticketRepository.findAll()) {
+            if (ticket.getEquipment() != null && ticket.getEquipment().getId() == 1L) {
+                ticket.setStatus(TicketStatus.RESOLVED);
+            }
+        }
+        ticketRepository.flush();
+        long ticketsBefore = ticketRepository.count();
+
+        equipmentOfflineService.sweep();
+        assertEquals(ticketsBefore + 1, ticketRepository.count());
+        assertEquals(List.of(1L), ticketRepository.findEquipmentIdsWithOpenTickets(List.of(1L)));
+
+        // Back online, then stale again while the first ticket is still open
+        entityManager.clear();
+        Equipment server = equipmentRepository.findById(1L).orElseThrow();
+        server.setStatus(EquipmentStatus.ONLINE);
+        equipmentRepository.saveAndFlush(server);
+        assertEquals(1, equipmentOfflineService.sweep());
+
+        assertEquals(ticketsBefore + 1, ticketRepository.count());
+    }
+}
@@ -0,0 +1,136 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.dto.EquipmentSummary;
+import ma.gov.dgh.helpdesk.entity.Equipment;
+import ma.gov.dgh.helpdesk.entity.EquipmentStatus;
+import ma.gov.dgh.helpdesk.entity.EquipmentType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.service.EquipmentSubnetService.FreeAddresses;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Subnet and free-address queries, served by the ordered index of a loaded inventory
+ */
+class EquipmentSubnetServiceTest {
+
+    private EquipmentSubnetService service;
+
+    @BeforeEach
+    void setUp() {
+        // Ids are not in address order, so results have to be sorted by the index
+        List<Equipment> rows = List.of(
+            equipment(1L, "10.0.0.20"),
+            equipment(2L, "10.0.0.3"),
+            equipment(3L, "10.0.1.5"),
+            equipment(4L, "2001:db8::5"),
+            equipment(5L, "192.168.1.1"),
+            equipment(6L, null));
+        EquipmentRepository equipmentRepository = mock(EquipmentRepository.class);
+        when(equipmentRepository.findPageAfterId(eq(0L), any(Pageable.class))).thenReturn(rows);
+        EquipmentInventoryService inventory = new EquipmentInventoryService(equipmentRepository,
+            mock(PlatformTransactionManager.class), true, 1000);
+        inventory.rebuild();
+        assertTrue(inventory.isReady());
+        service = new EquipmentSubnetService(equipmentRepository, inventory, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void rangeListsItsEquipmentInAddressOrder() {
+        assertEquals(List.of("10.0.0.3", "10.0.0.20"), addresses(service.findInRange("10.0.0.0/24")));
+        // Host bits below the prefix are ignored
+        assertEquals(List.of("10.0.0.3", "10.0.0.20", "10.0.1.5"), addresses(service.findInRange("10.0.0.77/23")));
+        assertEquals(List.of("10.0.1.5"), addresses(service.findInRange("10.0.1.5")));
+        assertTrue(service.findInRange("172.16.0.0/12").isEmpty());
+    }
+
+    @Test
+    void familiesDoNotOverlap() {
+        assertEquals(List.of("2001:db8::5"), addresses(service.findInRange("2001:db8::/64")));
+        assertFalse(addresses(service.findInRange("0.0.0.0/0")).contains("2001:db8::5"));
+        assertEquals(5, service.findInRange("0.0.0.0/0").size() + service.findInRange("2001:db8::/32").size());
+    }
+
+    @Test
+    void overlappingRangesListEachEquipmentOnce() {
+        assertEquals(List.of("10.0.0.3", "10.0.0.20", "10.0.1.5", "192.168.1.1"),
+            addresses(service.findInRanges(List.of("10.0.1.0/24", "10.0.0.0/25", "10.0.0.0/24", "192.168.1.0/24"))));
+    }
+
+    @Test
+    void rangeCountAndSyntaxAreChecked() {
+        assertThrows(IllegalArgumentException.class, () -> service.findInRanges(List.of()));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.findInRanges(Collections.nCopies(EquipmentSubnetService.MAX_RANGES + 1, "10.0.0.0/24")));
+        assertThrows(IllegalArgumentException.class, () -> service.findInRange("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> service.findInRange("server-01"));
+    }
+
+    @Test
+    void freeAddressesSkipUsedNetworkAndBroadcastAddresses() {
+        FreeAddresses free = service.findFreeAddresses("10.0.0.0/27", 3);
+
+        assertEquals("10.0.0.0/27", free.getRange());
+        assertEquals(BigInteger.valueOf(30), free.getHostCount());
+        assertEquals(2, free.getUsedCount());
+        assertEquals(BigInteger.valueOf(28), free.getFreeCount());
+        assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.4"), free.getAddresses());
+        assertTrue(free.isTruncated());
+
+        FreeAddresses all = service.findFreeAddresses("10.0.0.0/27", EquipmentSubnetService.MAX_FREE_ADDRESSES);
+        assertEquals(28, all.getAddresses().size());
+        assertFalse(all.getAddresses().contains("10.0.0.0"));
+        assertFalse(all.getAddresses().contains("10.0.0.20"));
+        assertFalse(all.getAddresses().contains("10.0.0.31"));
+        assertFalse(all.isTruncated());
+    }
+
+    @Test
+    void pointToPointAndIpv6RangesUseEveryAddress() {
+        assertEquals(List.of("10.0.0.2"), service.findFreeAddresses("10.0.0.2/31", 10).getAddresses());
+        FreeAddresses ipv6 = service.findFreeAddresses("2001:db8::4/126", 10);
+        assertEquals(BigInteger.valueOf(4), ipv6.getHostCount());
+        assertEquals(List.of("2001:db8:0:0:0:0:0:4", "2001:db8:0:0:0:0:0:6", "2001:db8:0:0:0:0:0:7"), ipv6.getAddresses());
+    }
+
+    @Test
+    void limitIsBounded() {
+        assertThrows(IllegalArgumentException.class, () -> service.findFreeAddresses("10.0.0.0/24", 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.findFreeAddresses("10.0.0.0/24", EquipmentSubnetService.MAX_FREE_ADDRESSES + 1));
+    }
+
+    private static List<String> addresses(List<EquipmentSummary> equipment) {
+        List<String> addresses = new ArrayList<>();
+        for (EquipmentSummary summary : equipment) {
+            addresses.add(summary.getIpAddress());
+        }
+        return addresses;
+    }
+
+    private static Equipment equipment(Long id, String ipAddress) {
+        Equipment equipment = new Equipment();
+        equipment.setId(id);
+        equipment.setHostname("host-" + id);
+        equipment.setIpAddress(ipAddress);
+        equipment.setEquipmentType(EquipmentType.DESKTOP);
+        equipment.setStatus(EquipmentStatus.ONLINE);
+        return equipment;
+    }
+}
@@ -0,0 +1,138 @@
+package ma.gov.dgh.helpdesk.service;
+
+import jakarta.persistence.EntityManager;
+import ma.gov.dgh.helpdesk.dgh_helpdesk.DghHelpdeskApplication;
+import ma.gov.dgh.helpdesk.entity.Ticket;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ticket counters of the development sample equipment (3 is printer-01, 5 is pc-hr-01) as
+ * tickets are created, resolved, moved and deleted through the ticket service. After each step
+ * the stored counters must match a recount of the tickets; the last ticket time of equipment that
+ * lost its latest ticket is repaired by the recount.
+ */
+@SpringBootTest(classes = DghHelpdeskApplication.class, properties = {
+    "spring.datasource.url=jdbc:h2:mem:helpdesk_test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "attachments.storage-dir=target/test-attachments",
+    "equipment.heartbeat.flush-interval=3600000",
+    "equipment.offline.sweep-interval=3600000"
+})
+@ActiveProfiles("dev")
+@Transactional
+class EquipmentTicketCountServiceTest {
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void countersFollowTheTicketLifecycle() {
+        int[] printer = counts(3L);
+        int[] pc = counts(5L);
+        LocalDateTime printerLastTicketAt = lastTicketAt(3L);
+        LocalDateTime pcLastTicketAt = lastTicketAt(5L);
+
+        Ticket ticket = ticketService.createTicket(ticket(3L));
+        assertArrayEquals(new int[] {printer[0] + 1, printer[1] + 1}, counts(3L));
+        assertNoDrift();
+
+        ticketService.changeStatus(ticket.getId(), TicketStatus.RESOLVED, null);
+        assertArrayEquals(new int[] {printer[0], printer[1] + 1}, counts(3L));
+        assertNoDrift();
+
+        ticketService.changeStatus(ticket.getId(), TicketStatus.OPEN, null);
+        assertArrayEquals(new int[] {printer[0] + 1, printer[1] + 1}, counts(3L));
+
+        Ticket moved = ticketService.findById(ticket.getId()).orElseThrow();
+        moved.setEquipment(equipmentRepository.findById(5L).orElseThrow());
+        ticketService.updateTicket(moved);
+        assertArrayEquals(printer, counts(3L));
+        assertArrayEquals(new int[] {pc[0] + 1, pc[1] + 1}, counts(5L));
+        // The printer keeps the moved ticket's time until the recount
+        assertRecounted(1);
+        assertEquals(printerLastTicketAt, lastTicketAt(3L));
+
+        ticketService.deleteTicket(ticket.getId());
+        assertArrayEquals(pc, counts(5L));
+        assertRecounted(1);
+        assertEquals(pcLastTicketAt, lastTicketAt(5L));
+        assertNoDrift();
+    }
+
+    @Test
+    void closedTicketCountsInTotalOnly() {
+        int[] printer = counts(3L);
+        Ticket ticket = ticketService.createTicket(ticket(3L));
+        ticketService.changeStatus(ticket.getId(), TicketStatus.CANCELLED, null);
+        endRequest();
+
+        Ticket detached = ticketService.findById(ticket.getId()).orElseThrow();
+        detached.setEquipment(null);
+        ticketService.updateTicket(detached);
+
+        assertArrayEquals(printer, counts(3L));
+        assertRecounted(1);
+        assertNoDrift();
+    }
+
+    private Ticket ticket(Long equipmentId) {
+        Ticket ticket = new Ticket("Paper jam", "Tray 2 jams on every print", userRepository.findById(5L).orElseThrow());
+        ticket.setCategory(TicketCategory.HARDWARE);
+        ticket.setPriority(TicketPriority.MEDIUM);
+        ticket.setEquipment(equipmentRepository.findById(equipmentId).orElseThrow());
+        return ticket;
+    }
+
+    // Stored open and total counts; the counters are written by UPDATE statements, so read from the table
+    private int[] counts(Long equipmentId) {
+        endRequest();
+        return jdbcTemplate.queryForObject("SELECT open_ticket_count, total_ticket_count FROM equipment WHERE id = ?",
+            (row, rowNum) -> new int[] {row.getInt(1), row.getInt(2)}, equipmentId);
+    }
+
+    // Each step runs as its own request would: with its changes flushed and a fresh persistence context
+    private void endRequest() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private LocalDateTime lastTicketAt(Long equipmentId) {
+        endRequest();
+        return jdbcTemplate.queryForObject("SELECT last_ticket_at FROM equipment WHERE id = ?", LocalDateTime.class, equipmentId);
+    }
+
+    private void assertRecounted(int equipmentCount) {
+        assertEquals(equipmentCount, equipmentRepository.reconcileTicketCounts(), "equipment recounted");
+    }
+
+    private void assertNoDrift() {
+        assertEquals(0, equipmentRepository.reconcileTicketCounts(), "equipment whose counters drifted from its tickets");
+    }
+}
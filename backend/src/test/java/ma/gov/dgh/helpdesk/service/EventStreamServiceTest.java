@@ -0,0 +1,159 @@
+package ma.gov.dgh.helpdesk.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.gov.dgh.helpdesk.controller.EventStreamController;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Replay, ordering and overflow of the event stream, read back through the SSE endpoint.
+ * The dispatch executor only queues tasks, so each test decides when outboxes are drained.
+ */
+class EventStreamServiceTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+    private final Deque<Runnable> dispatchQueue = new ArrayDeque<>();
+    private EventStreamService eventStreamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        eventStreamService = new EventStreamService(new ObjectMapper().findAndRegisterModules(), dispatchQueue::add);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EventStreamController(eventStreamService)).build();
+    }
+
+    @Test
+    void replaysMissedEventsBeforeLiveOnes() throws Exception {
+        publishTicketEvents(3);
+        dispatch();
+
+        MvcResult stream = open("/api/events/stream", "1");
+        // Published after the subscription but before the replay was written
+        publishTicketEvents(1);
+        dispatch();
+
+        assertEquals(List.of(2L, 3L, 4L), eventIds(stream));
+    }
+
+    @Test
+    void replayHonoursTopicFilter() throws Exception {
+        eventStreamService.onDomainEvent(DomainEvent.deleted(DomainEventType.TICKET_DELETED, 1L));
+        eventStreamService.onDomainEvent(DomainEvent.deleted(DomainEventType.EQUIPMENT_DELETED, 2L));
+        dispatch();
+
+        MvcResult stream = open("/api/events/stream?topics=equipment", "0");
+        dispatch();
+
+        assertEquals(List.of(2L), eventIds(stream));
+    }
+
+    @Test
+    void reportJobUpdatesOnlyReachTheirOwner() throws Exception {
+        reportJobUpdated(1L, "alice.finance");
+        MvcResult stream = open("/api/events/stream?topics=reports", "0");
+        reportJobUpdated(2L, "anonymous");
+        reportJobUpdated(3L, "bob.hr");
+        dispatch();
+
+        // Neither replayed nor live events of other users are written
+        assertEquals(List.of(2L), eventIds(stream));
+    }
+
+    @Test
+    void unknownLastEventIdTriggersResync() throws Exception {
+        publishTicketEvents(2);
+        dispatch();
+
+        MvcResult stream = open("/api/events/stream", "42");
+        dispatch();
+
+        String body = stream.getResponse().getContentAsString();
+        assertTrue(body.contains("event:resync"), body);
+        assertEquals(List.of(2L), eventIds(stream));
+    }
+
+    @Test
+    void overflowingOutboxIsReplacedByResync() throws Exception {
+        MvcResult stream = open("/api/events/stream", null);
+        dispatch();
+
+        int published = EventStreamService.OUTBOX_CAPACITY + 5;
+        publishTicketEvents(published);
+        dispatch();
+
+        String body = stream.getResponse().getContentAsString();
+        assertTrue(body.contains("event:resync"), "a subscriber that fell behind must be told to resync");
+        // Events 1..1000 fill the outbox, 1001 overflows it and becomes the resync position
+        assertEquals(List.of(1001L, 1002L, 1003L, 1004L, 1005L), eventIds(stream), "only the resync and the events after it are written");
+    }
+
+    @Test
+    void subscribersAreDrainedIndependently() throws Exception {
+        MvcResult first = open("/api/events/stream", null);
+        MvcResult second = open("/api/events/stream", null);
+        dispatch();
+
+        publishTicketEvents(2);
+        // One drain task per subscriber, whatever the number of events
+        assertEquals(2, dispatchQueue.size());
+        dispatchQueue.removeLast().run();
+
+        assertEquals(List.of(1L, 2L), eventIds(second));
+        assertTrue(eventIds(first).isEmpty(), "the first subscriber's drain has not run yet");
+        dispatch();
+        assertEquals(List.of(1L, 2L), eventIds(first));
+    }
+
+    private MvcResult open(String uri, String lastEventId) throws Exception {
+        var builder = get(uri);
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void publishTicketEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            eventStreamService.onDomainEvent(DomainEvent.deleted(DomainEventType.TICKET_DELETED, (long) i));
+        }
+    }
+
+    private void reportJobUpdated(Long jobId, String owner) {
+        eventStreamService.onDomainEvent(new DomainEvent(DomainEventType.REPORT_JOB_UPDATED, jobId,
+            Map.of("id", jobId, "owner", owner), owner));
+    }
+
+    private void dispatch() {
+        while (!dispatchQueue.isEmpty()) {
+            dispatchQueue.removeFirst().run();
+        }
+    }
+
+    private static List<Long> eventIds(MvcResult stream) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = EVENT_ID.matcher(stream.getResponse().getContentAsString());
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,90 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Parsing of the neighbor table as /proc/net/arp, `ip neigh` and `arp -an` print it
+ */
+class NeighborTableServiceTest {
+
+    @Test
+    void procArpKeepsCompleteEntriesOnly() throws IOException {
+        String procArp = """
+            IP address       HW type     Flags       HW address            Mask     Device
+            192.168.1.1      0x1         0x2         00:1a:2b:3c:4d:5e     *        eth0
+            192.168.1.20     0x1         0x0         00:00:00:00:00:00     *        eth0
+            192.168.1.21     0x1         0x6         a4:bb:6d:0:1:f2       *        eth0
+            192.168.1.22     0x1         0x2         00:00:00:00:00:00     *        eth0
+            192.168.1.23     0x1         junk        00:1a:2b:3c:4d:5f     *        eth0
+            192.168.1.24
+            """;
+
+        Map<String, String> table = NeighborTableService.parseProcArp(reader(procArp));
+
+        assertEquals(Map.of("192.168.1.1", "00:1A:2B:3C:4D:5E", "192.168.1.21", "A4:BB:6D:00:01:F2"), table);
+    }
+
+    @Test
+    void ipNeighSkipsFailedAndIncompleteEntries() throws IOException {
+        String ipNeigh = """
+            192.168.1.1 dev eth0 lladdr 00:1a:2b:3c:4d:5e REACHABLE
+            192.168.1.5 dev eth0 lladdr 00:1a:2b:3c:4d:60 STALE
+            192.168.1.20 dev eth0  FAILED
+            192.168.1.21 dev eth0  INCOMPLETE
+            fe80::1 dev eth0 lladdr 00:1a:2b:3c:4d:61 router REACHABLE
+            """;
+
+        Map<String, String> table = NeighborTableService.parseNeighborLines(reader(ipNeigh));
+
+        assertEquals(Map.of("192.168.1.1", "00:1A:2B:3C:4D:5E", "192.168.1.5", "00:1A:2B:3C:4D:60"), table);
+    }
+
+    @Test
+    void arpListingSkipsIncompleteEntries() throws IOException {
+        String arp = """
+            ? (192.168.1.1) at 0:1a:2b:3c:4d:5e [ether] on eth0
+            ? (192.168.1.20) at <incomplete> on eth0
+            gateway (10.0.0.1) at 00-1A-2B-3C-4D-70 [ether] on en0
+            """;
+
+        Map<String, String> table = NeighborTableService.parseNeighborLines(reader(arp));
+
+        assertEquals(Map.of("192.168.1.1", "00:1A:2B:3C:4D:5E", "10.0.0.1", "00:1A:2B:3C:4D:70"), table);
+    }
+
+    @Test
+    void macAddressesAreNormalized() {
+        assertEquals("00:1A:2B:3C:4D:5E", NeighborTableService.normalizeMac("0:1a:2b:3c:4d:5e"));
+        assertEquals("00:1A:2B:3C:4D:5E", NeighborTableService.normalizeMac("00-1A-2B-3C-4D-5E"));
+        assertNull(NeighborTableService.normalizeMac("00:00:00:00:00:00"));
+        assertNull(NeighborTableService.normalizeMac("00:1a:2b:3c:4d"));
+        assertNull(NeighborTableService.normalizeMac("00:1a:2b:3c:4d:5e5"));
+        assertNull(NeighborTableService.normalizeMac("00::2b:3c:4d:5e"));
+    }
+
+    @Test
+    void hungCommandIsKilledAtTheTimeout() {
+        Optional<Path> sleep = NeighborTableService.findExecutable("sleep");
+        assumeTrue(sleep.isPresent());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> assertNull(NeighborTableService.runCommand(200, sleep.get().toString(), "60")));
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+}
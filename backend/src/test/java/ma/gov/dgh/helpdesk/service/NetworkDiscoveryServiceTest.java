@@ -0,0 +1,117 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validation of the subnets a scan may be started on, against the ranges 192.168.1.0/24 and
+ * 10.0.0.0/8 with a minimum prefix length of 16, and parsing of nmap reports
+ */
+class NetworkDiscoveryServiceTest {
+
+    private NetworkDiscoveryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new NetworkDiscoveryService(null, null, null, null, null, null, null, null, null, null, null, null,
+            Duration.ofMinutes(15), Duration.ofHours(1), Duration.ofHours(24));
+        ReflectionTestUtils.setField(service, "subnetRanges", "192.168.1.0/24, 10.0.0.0/8,not-a-range");
+        ReflectionTestUtils.setField(service, "minPrefixLength", 16);
+    }
+
+    @Test
+    void subnetsAreParsedNotPatternMatched() {
+        assertTrue(NetworkDiscoveryService.isValidSubnet("10.1.0.0/16"));
+        assertTrue(NetworkDiscoveryService.isValidSubnet("10.1.2.3"));
+        assertFalse(NetworkDiscoveryService.isValidSubnet("999.1.2.3/24"));
+        assertFalse(NetworkDiscoveryService.isValidSubnet("10.1.2.3/33"));
+        assertFalse(NetworkDiscoveryService.isValidSubnet("2001:db8::/64"));
+        assertFalse(NetworkDiscoveryService.isValidSubnet(null));
+        assertEquals("10.1.0.0/16", NetworkDiscoveryService.canonicalSubnet(" 10.1.2.3/16 "));
+    }
+
+    @Test
+    void configuredRangesAreCanonicalAndInvalidOnesSkipped() {
+        assertEquals(List.of("192.168.1.0/24", "10.0.0.0/8"), service.getConfiguredSubnets());
+    }
+
+    @Test
+    void requestedSubnetsMustLieWithinConfiguredRanges() {
+        assertEquals(List.of("10.20.0.0/16", "192.168.1.128/25", "10.0.0.0/8"),
+            service.checkRequestedSubnets(List.of("10.20.30.40/16", "192.168.1.130/25", "10.0.0.0/8")));
+
+        assertThrows(IllegalArgumentException.class, () -> service.checkRequestedSubnets(List.of("172.16.0.0/16")));
+        assertThrows(IllegalArgumentException.class, () -> service.checkRequestedSubnets(List.of("192.168.0.0/23")));
+        assertThrows(IllegalArgumentException.class, () -> service.checkRequestedSubnets(List.of("0.0.0.0/0")));
+    }
+
+    @Test
+    void subsetsWiderThanTheMinimumPrefixAreRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> service.checkRequestedSubnets(List.of("10.0.0.0/9")));
+        assertTrue(e.getMessage().contains("/16"));
+    }
+
+    @Test
+    void nmapReportYieldsUpHostsWithTheirMacWhenResolved() throws Exception {
+        String report = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <nmaprun scanner="nmap" args="nmap -sn -oX - 192.168.1.0/24">
+              <taskprogress task="Ping Scan" percent="42.50" remaining="3"/>
+              <host><status state="up" reason="arp-response"/>
+                <address addr="192.168.1.1" addrtype="ipv4"/>
+                <address addr="00:1a:2b:3c:4d:5e" addrtype="mac" vendor="Cisco"/>
+              </host>
+              <host><status state="down" reason="no-response"/>
+                <address addr="192.168.1.2" addrtype="ipv4"/>
+              </host>
+              <host><status state="up" reason="echo-reply"/>
+                <address addr="192.168.1.3" addrtype="ipv4"/>
+              </host>
+              <taskprogress task="Ping Scan" percent="not-a-number"/>
+              <runstats><hosts up="2" down="1" total="3"/></runstats>
+            </nmaprun>
+            """;
+        List<String> hostsUp = new ArrayList<>();
+        List<Double> progress = new ArrayList<>();
+        NetworkDiscoveryService.ScanListener listener = new NetworkDiscoveryService.ScanListener() {
+            @Override
+            public void sweepProgress(double percent) {
+                progress.add(percent);
+            }
+        };
+
+        Map<String, String> hosts = NetworkDiscoveryService.parseNmapXml(
+            new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), hostsUp::add, listener);
+
+        assertEquals(List.of("192.168.1.1", "192.168.1.3"), new ArrayList<>(hosts.keySet()));
+        assertEquals("00:1A:2B:3C:4D:5E", hosts.get("192.168.1.1"));
+        assertNull(hosts.get("192.168.1.3"));
+        assertEquals(List.of("192.168.1.1", "192.168.1.3"), hostsUp);
+        assertEquals(List.of(42.5), progress);
+    }
+
+    @Test
+    void truncatedNmapReportIsAnError() {
+        String report = "<nmaprun><host><status state=\"up\"/><address addr=\"10.0.0.1\" addrtype=\"ipv4\"/>";
+
+        assertThrows(XMLStreamException.class, () -> NetworkDiscoveryService.parseNmapXml(
+            new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), ip -> { },
+            NetworkDiscoveryService.ScanListener.NONE));
+    }
+}
@@ -0,0 +1,102 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.service.ReportJobService.JobStatus;
+import ma.gov.dgh.helpdesk.service.ReportJobService.ReportJob;
+import ma.gov.dgh.helpdesk.utils.ReportFormat;
+import ma.gov.dgh.helpdesk.utils.ReportType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cancellation of report jobs, queued and running. Jobs are queued on a worker that does not
+ * run them; the test runs them itself, on a thread of its own when they have to be cancelled
+ * while they write.
+ */
+class ReportJobServiceTest {
+
+    @TempDir
+    Path storageDir;
+
+    private ReportService reportService;
+    private ReportJobService service;
+    private ReportJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        reportService = mock(ReportService.class);
+        ReportJobWorker queue = mock(ReportJobWorker.class);
+        service = new ReportJobService(queue, mock(ApplicationEventPublisher.class), storageDir.toString());
+        ReflectionTestUtils.setField(service, "maxJobsPerUser", 2);
+        worker = new ReportJobWorker(reportService, service);
+    }
+
+    @Test
+    void queuedJobIsCancelledAndNeverStarts() throws Exception {
+        ReportJob job = service.submit("jane.smith", ReportType.TICKETS, ReportFormat.CSV, Map.of());
+        assertEquals(JobStatus.QUEUED, job.getStatus());
+
+        service.cancelOrDelete(job);
+
+        assertEquals(JobStatus.CANCELLED, job.getStatus());
+        worker.run(job);
+        assertEquals(JobStatus.CANCELLED, job.getStatus());
+        assertNull(job.getStartedAt());
+        assertFalse(Files.exists(job.partialFile()));
+
+        // A second request deletes the cancelled job
+        service.cancelOrDelete(job);
+        assertTrue(service.findJob(job.getId(), "jane.smith", false).isEmpty());
+    }
+
+    @Test
+    void runningJobStopsAtItsNextProgressReport() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        when(reportService.generate(any(), any(), any(), any(), any())).thenAnswer(call -> {
+            OutputStream out = call.getArgument(3);
+            LongConsumer progress = call.getArgument(4);
+            out.write("id,title\n".getBytes(StandardCharsets.UTF_8));
+            progress.accept(1);
+            writing.countDown();
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            progress.accept(2);
+            return 2L;
+        });
+        ReportJob job = service.submit("jane.smith", ReportType.TICKETS, ReportFormat.CSV, Map.of());
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> worker.run(job));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        service.cancelOrDelete(job);
+        // Still writing: the job is only asked to stop, its file is left to the worker
+        assertEquals(JobStatus.RUNNING, job.getStatus());
+        assertTrue(service.findJob(job.getId(), "jane.smith", false).isPresent());
+        cancelled.countDown();
+        running.get(5, TimeUnit.SECONDS);
+
+        assertEquals(JobStatus.CANCELLED, job.getStatus());
+        assertEquals(1, job.getRowsWritten());
+        assertFalse(Files.exists(job.partialFile()));
+        assertFalse(Files.exists(job.resultFile()));
+    }
+}
@@ -0,0 +1,131 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Caching, sharing and timeouts of reverse lookups, against a stub resolver with a fixed zone:
+ * 10.0.0.1 is named, 10.0.0.2 has no PTR record, 10.0.0.3 fails and 10.0.0.4 answers with itself
+ */
+class ReverseDnsServiceTest {
+
+    private static final Map<String, String> ZONE = Map.of("10.0.0.1", "srv-01.dgh.local", "10.0.0.4", "10.0.0.4");
+
+    private final ExecutorService dnsExecutor = Executors.newFixedThreadPool(4);
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    private volatile CountDownLatch answerGate = new CountDownLatch(0);
+
+    private final ReverseDnsResolver stub = ipAddress -> {
+        lookups.computeIfAbsent(ipAddress, ip -> new AtomicInteger()).incrementAndGet();
+        try {
+            answerGate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ipAddress.equals("10.0.0.3")) {
+            throw new IOException("SERVFAIL");
+        }
+        return ZONE.get(ipAddress);
+    };
+
+    @AfterEach
+    void tearDown() {
+        answerGate.countDown();
+        dnsExecutor.shutdownNow();
+    }
+
+    @Test
+    void namesAreCachedForThePositiveTtl() {
+        ReverseDnsService service = service(Duration.ofHours(1), Duration.ZERO, 2000);
+
+        assertEquals("srv-01.dgh.local", service.resolve("10.0.0.1"));
+        assertEquals("srv-01.dgh.local", service.resolve("10.0.0.1"));
+        assertEquals(1, lookupsOf("10.0.0.1"));
+    }
+
+    @Test
+    void missingNamesAreCachedForTheNegativeTtl() {
+        ReverseDnsService shortNegative = service(Duration.ofHours(1), Duration.ZERO, 2000);
+        assertNull(shortNegative.resolve("10.0.0.2"));
+        assertNull(shortNegative.resolve("10.0.0.2"));
+        assertEquals(2, lookupsOf("10.0.0.2"), "an expired negative entry is looked up again");
+
+        lookups.clear();
+        ReverseDnsService longNegative = service(Duration.ofHours(1), Duration.ofMinutes(5), 2000);
+        assertNull(longNegative.resolve("10.0.0.2"));
+        assertNull(longNegative.resolve("10.0.0.2"));
+        assertEquals(1, lookupsOf("10.0.0.2"));
+    }
+
+    @Test
+    void failuresAndSelfAnswersYieldNoName() {
+        ReverseDnsService service = service(Duration.ofHours(1), Duration.ofMinutes(5), 2000);
+
+        assertNull(service.resolve("10.0.0.3"));
+        assertNull(service.resolve("10.0.0.4"));
+    }
+
+    @Test
+    void concurrentRequestsShareOneLookup() {
+        answerGate = new CountDownLatch(1);
+        ReverseDnsService service = service(Duration.ofHours(1), Duration.ofMinutes(5), 2000);
+
+        CompletableFuture<String> first = service.resolveAsync("10.0.0.1");
+        CompletableFuture<String> second = service.resolveAsync("10.0.0.1");
+        answerGate.countDown();
+
+        assertEquals("srv-01.dgh.local", service.await(first));
+        assertEquals("srv-01.dgh.local", service.await(second));
+        assertEquals(1, lookupsOf("10.0.0.1"));
+    }
+
+    @Test
+    void slowLookupTimesOutButStillFillsTheCache() throws InterruptedException {
+        answerGate = new CountDownLatch(1);
+        ReverseDnsService service = service(Duration.ofHours(1), Duration.ofMinutes(5), 50);
+
+        assertNull(service.resolve("10.0.0.1"), "the caller stops waiting after the timeout");
+        answerGate.countDown();
+        dnsExecutor.shutdown();
+        assertTrue(dnsExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals("srv-01.dgh.local", service.resolve("10.0.0.1"));
+        assertEquals(1, lookupsOf("10.0.0.1"));
+    }
+
+    @Test
+    void saturatedPoolAnswersWithoutCaching() {
+        ReverseDnsService saturated = new ReverseDnsService(stub, task -> {
+            throw new RejectedExecutionException("pool full");
+        }, Duration.ofHours(1), Duration.ofMinutes(5), 2000, 100);
+
+        assertNull(saturated.resolve("10.0.0.1"));
+        assertNull(saturated.resolve("10.0.0.1"));
+        assertEquals(0, lookupsOf("10.0.0.1"));
+    }
+
+    private ReverseDnsService service(Duration positiveTtl, Duration negativeTtl, long timeoutMillis) {
+        return new ReverseDnsService(stub, dnsExecutor, positiveTtl, negativeTtl, timeoutMillis, 100);
+    }
+
+    private int lookupsOf(String ipAddress) {
+        AtomicInteger count = lookups.get(ipAddress);
+        return count != null ? count.get() : 0;
+    }
+}
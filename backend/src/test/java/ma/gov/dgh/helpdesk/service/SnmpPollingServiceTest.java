@@ -0,0 +1,134 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.EquipmentRepository;
+import ma.gov.dgh.helpdesk.utils.TimeSeriesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Decoding of canned GETBULK responses, as an agent answers the first poll of a device, and
+ * removal of deleted devices from the polling slots
+ */
+class SnmpPollingServiceTest {
+
+    private static final OID IN = SnmpPollingService.IF_HC_IN_OCTETS;
+    private static final OID OUT = SnmpPollingService.IF_HC_OUT_OCTETS;
+
+    @Test
+    void scalarsAreRequestedByObjectSoTheirInstanceComesBack() {
+        PDU pdu = SnmpPollingService.firstPollPdu(IN, OUT, 48);
+
+        assertEquals(3, pdu.getNonRepeaters());
+        for (int i = 0; i < pdu.getNonRepeaters(); i++) {
+            assertTrue(pdu.get(i).getOid().last() != 0, "non-repeaters must not name the .0 instance");
+        }
+        assertEquals(IN, pdu.get(3).getOid());
+        assertEquals(OUT, pdu.get(4).getOid());
+    }
+
+    @Test
+    void fullResponseIsDecoded() {
+        List<VariableBinding> response = List.of(
+            binding("1.3.6.1.2.1.1.3.0", new TimeTicks(123_456)),
+            binding("1.3.6.1.2.1.25.1.1.0", new TimeTicks(120_000)),
+            binding("1.3.6.1.2.1.25.1.6.0", new Gauge32(87)),
+            binding(IN + ".1", new Counter64(1000)),
+            binding(OUT + ".1", new Counter64(2000)),
+            binding(IN + ".2", new Counter64(3000)),
+            binding(OUT + ".2", new Counter64(4000)),
+            // The columns are exhausted: the walk runs into the next ones
+            binding("1.3.6.1.2.1.31.1.1.1.7.1", new Counter64(5)),
+            binding("1.3.6.1.2.1.31.1.1.1.11.1", new Counter64(6)));
+
+        assertArrayEquals(new long[]{123_456, 120_000, 87}, SnmpPollingService.readScalars(response));
+        Map<Integer, long[]> counters = new HashMap<>();
+        assertEquals(2, SnmpPollingService.readCounters(response, 3, IN, OUT, counters));
+        assertArrayEquals(new long[]{1000, 2000}, counters.get(1));
+        assertArrayEquals(new long[]{3000, 4000}, counters.get(2));
+    }
+
+    @Test
+    void missingObjectsAreSkippedWhateverComesNext() {
+        // No HOST-RESOURCES-MIB: GETNEXT answers with the following objects, of other syntaxes
+        List<VariableBinding> response = List.of(
+            binding("1.3.6.1.2.1.1.3.0", new TimeTicks(500)),
+            binding("1.3.6.1.2.1.25.2.2.0", new Integer32(8_388_608)),
+            binding("1.3.6.1.2.1.31.1.1.1.1.1", new OctetString("eth0")),
+            binding(IN + ".1", Null.endOfMibView),
+            binding(OUT + ".1", Null.endOfMibView));
+
+        assertArrayEquals(new long[]{500, -1, -1}, SnmpPollingService.readScalars(response));
+        Map<Integer, long[]> counters = new HashMap<>();
+        assertEquals(0, SnmpPollingService.readCounters(response, 3, IN, OUT, counters));
+        assertTrue(counters.isEmpty());
+    }
+
+    @Test
+    void continuationResponseIsDecodedFromItsFirstBinding() {
+        List<VariableBinding> response = List.of(
+            binding(IN + ".49", new Counter64(10)),
+            binding(OUT + ".49", new Counter64(20)),
+            binding(IN + ".50", new Counter64(30)),
+            binding(OUT + ".51", new Counter64(40)));
+
+        Map<Integer, long[]> counters = new HashMap<>();
+        // The second row is misaligned (50 against 51) and ends the read
+        assertEquals(1, SnmpPollingService.readCounters(response, 0, IN, OUT, counters));
+        assertArrayEquals(new long[]{10, 20}, counters.get(49));
+        assertFalse(counters.containsKey(50));
+    }
+
+    @Test
+    void deletedEquipmentLeavesItsSlotAndHistory(@TempDir Path directory) {
+        EquipmentRepository equipmentRepository = mock(EquipmentRepository.class);
+        when(equipmentRepository.findManagedPollTargets()).thenReturn(List.of(
+            new Object[]{1L, "192.168.1.10"}, new Object[]{2L, "192.168.1.11"}, new Object[]{3L, "192.168.1.12"}));
+        SnmpPollingService service = new SnmpPollingService(equipmentRepository, 2000, 16, Duration.ofHours(6),
+            Duration.ofMinutes(15), Duration.ofDays(7), directory.resolve("snmp.tsdb").toString());
+        ReflectionTestUtils.setField(service, "snmpCommunity", "public");
+        ReflectionTestUtils.setField(service, "snmp", mock(Snmp.class));
+        service.refreshTargets();
+        TimeSeriesStore store = (TimeSeriesStore) ReflectionTestUtils.getField(service, "store");
+        store.append("1/cpu", 1_000, 10);
+        store.append("3/cpu", 1_000, 30);
+
+        service.onEquipmentEvent(new DomainEvent(DomainEventType.EQUIPMENT_DELETED, 1L, Map.of()));
+
+        List<?> slots = (List<?>) ReflectionTestUtils.getField(service, "slots");
+        assertEquals(List.of(1, 1), slots.stream().map(slot -> ((List<?>) slot).size()).toList());
+        assertEquals(2, service.getStats().getDevices());
+        assertEquals(List.of(), service.getMetricNames(1L));
+        assertEquals(List.of("cpu"), service.getMetricNames(3L));
+    }
+
+    private static VariableBinding binding(String oid, Variable variable) {
+        return new VariableBinding(new OID(oid), variable);
+    }
+}
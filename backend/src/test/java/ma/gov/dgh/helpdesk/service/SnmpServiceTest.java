@@ -0,0 +1,165 @@
+package ma.gov.dgh.helpdesk.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * GETBULK table walks against a stubbed agent answering from an in-memory MIB, which can truncate
+ * its responses, refuse large ones with tooBig, or stop answering.
+ */
+class SnmpServiceTest {
+
+    private static final OID DESCR = new OID("1.3.6.1.2.1.2.2.1.2");
+    private static final OID TYPE = new OID("1.3.6.1.2.1.2.2.1.3");
+    private static final OID OPER_STATUS = new OID("1.3.6.1.2.1.2.2.1.8");
+    private static final List<OID> COLUMNS = List.of(DESCR, TYPE, OPER_STATUS);
+    private static final int[] INDEXES = {1, 2, 3, 10, 11};
+
+    private final TreeMap<OID, Variable> mib = new TreeMap<>();
+    // Requested max-repetitions, one per PDU sent
+    private final List<Integer> requests = new ArrayList<>();
+    private final Target<?> target = new CommunityTarget<>();
+    private SnmpService service;
+    private Snmp snmp;
+    private int maxBindings = Integer.MAX_VALUE;
+    private int tooBigAbove = Integer.MAX_VALUE;
+    private int answeredRequests = Integer.MAX_VALUE;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int index : INDEXES) {
+            mib.put(new OID(DESCR).append(index), new OctetString("eth" + index));
+            mib.put(new OID(TYPE).append(index), new Integer32(6));
+            mib.put(new OID(new OID("1.3.6.1.2.1.2.2.1.4")).append(index), new Integer32(1500));
+            mib.put(new OID(OPER_STATUS).append(index), new Integer32(index % 2 == 0 ? 2 : 1));
+        }
+        mib.put(new OID("1.3.6.1.2.1.2.2.1.9.1"), new Integer32(0));
+
+        service = new SnmpService(mock(DeviceClassificationService.class));
+        ReflectionTestUtils.setField(service, "maxRepetitions", 25);
+        snmp = mock(Snmp.class);
+        when(snmp.send(any(PDU.class), any(), isNull(TransportMapping.class)))
+            .thenAnswer(invocation -> answer(invocation.getArgument(0)));
+    }
+
+    @Test
+    void rowsAreReassembledByIndexInOneRequest() throws IOException {
+        Map<OID, Variable[]> rows = service.walkColumns(snmp, target, COLUMNS, INDEXES.length);
+
+        assertFullTable(rows);
+        // Enough repetitions for every row plus one to see the end of the columns
+        assertEquals(List.of(6), requests);
+    }
+
+    @Test
+    void columnsEndWhereTheAgentMovesPastThem() throws IOException {
+        Map<OID, Variable[]> rows = service.walkColumns(snmp, target, List.of(OPER_STATUS), 0);
+
+        assertEquals(INDEXES.length, rows.size());
+        assertEquals(List.of(25), requests);
+    }
+
+    @Test
+    void truncatedResponsesContinueFromTheLastRowReturned() throws IOException {
+        maxBindings = 4;
+
+        Map<OID, Variable[]> rows = service.walkColumns(snmp, target, COLUMNS, INDEXES.length);
+
+        assertFullTable(rows);
+        assertEquals(5, requests.size());
+    }
+
+    @Test
+    void tooBigHalvesTheRepetitions() throws IOException {
+        tooBigAbove = 12;
+
+        Map<OID, Variable[]> rows = service.walkColumns(snmp, target, COLUMNS, 0);
+
+        assertFullTable(rows);
+        assertEquals(List.of(25, 12, 6, 3, 3), requests);
+    }
+
+    @Test
+    void silentAgentFailsTheWalk() throws IOException {
+        answeredRequests = 0;
+        assertNull(service.walkColumns(snmp, target, COLUMNS, INDEXES.length));
+
+        // A timeout after the first response would leave a partial table
+        requests.clear();
+        answeredRequests = 1;
+        maxBindings = 3;
+        assertThrows(IOException.class, () -> service.walkColumns(snmp, target, COLUMNS, INDEXES.length));
+        assertEquals(2, requests.size());
+    }
+
+    private void assertFullTable(Map<OID, Variable[]> rows) {
+        assertArrayEquals(INDEXES, rows.keySet().stream().mapToInt(OID::last).toArray());
+        for (int index : INDEXES) {
+            Variable[] row = rows.get(new OID(new int[] {index}));
+            assertEquals("eth" + index, row[0].toString());
+            assertEquals(6, row[1].toInt());
+            assertEquals(index % 2 == 0 ? 2 : 1, row[2].toInt());
+        }
+    }
+
+    // Answers a GETBULK like an agent: the successors of every varbind, repetition after repetition
+    private ResponseEvent<?> answer(PDU request) {
+        requests.add(request.getMaxRepetitions());
+        if (requests.size() > answeredRequests) {
+            return new ResponseEvent<>(this, null, request, null, null);
+        }
+
+        PDU response = new PDU();
+        response.setType(PDU.RESPONSE);
+        int varbinds = request.size();
+        if (request.getMaxRepetitions() * varbinds > tooBigAbove) {
+            response.setErrorStatus(PDU.tooBig);
+            return new ResponseEvent<>(this, null, request, response, null);
+        }
+
+        OID[] cursors = new OID[varbinds];
+        for (int i = 0; i < varbinds; i++) {
+            cursors[i] = request.get(i).getOid();
+        }
+        for (int repetition = 0; repetition < request.getMaxRepetitions(); repetition++) {
+            for (int i = 0; i < varbinds && response.size() < maxBindings; i++) {
+                Map.Entry<OID, Variable> next = mib.higherEntry(cursors[i]);
+                if (next == null) {
+                    response.add(new VariableBinding(cursors[i], Null.endOfMibView));
+                } else {
+                    response.add(new VariableBinding(next.getKey(), next.getValue()));
+                    cursors[i] = next.getKey();
+                }
+            }
+        }
+        return new ResponseEvent<>(this, null, request, response, null);
+    }
+}
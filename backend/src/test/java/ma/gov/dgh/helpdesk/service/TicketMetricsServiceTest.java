@@ -0,0 +1,204 @@
+package ma.gov.dgh.helpdesk.service;
+
+import ma.gov.dgh.helpdesk.entity.RollupGranularity;
+import ma.gov.dgh.helpdesk.entity.TicketCategory;
+import ma.gov.dgh.helpdesk.entity.TicketMetricRollup;
+import ma.gov.dgh.helpdesk.entity.TicketPriority;
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import ma.gov.dgh.helpdesk.event.DomainEvent;
+import ma.gov.dgh.helpdesk.event.DomainEventType;
+import ma.gov.dgh.helpdesk.repository.TicketMetricRollupRepository;
+import ma.gov.dgh.helpdesk.repository.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ticket metric rollups kept from live events and rebuilt by the backfill. The rollup table is an
+ * in-memory list behind the mocked repository.
+ */
+class TicketMetricsServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 4, 9, 0);
+    private static final LocalDateTime RESOLVED = LocalDateTime.of(2024, 3, 4, 10, 30);
+    private static final LocalDateTime RESOLVED_AGAIN = LocalDateTime.of(2024, 3, 4, 12, 0);
+
+    private final List<TicketMetricRollup> table = new ArrayList<>();
+    private TicketRepository ticketRepository;
+    private TicketMetricsService service;
+
+    @BeforeEach
+    void setUp() {
+        TicketMetricRollupRepository rollupRepository = mock(TicketMetricRollupRepository.class);
+        when(rollupRepository.findByGranularityAndBucketStartIn(any(), anyCollection())).thenAnswer(invocation -> {
+            RollupGranularity granularity = invocation.getArgument(0);
+            Collection<LocalDateTime> buckets = invocation.getArgument(1);
+            return table.stream()
+                .filter(row -> row.getGranularity() == granularity && buckets.contains(row.getBucketStart()))
+                .toList();
+        });
+        when(rollupRepository.saveAll(any())).thenAnswer(invocation -> {
+            for (TicketMetricRollup row : (Iterable<TicketMetricRollup>) invocation.getArgument(0)) {
+                if (table.stream().noneMatch(saved -> saved == row)) {
+                    table.add(row);
+                }
+            }
+            return invocation.getArgument(0);
+        });
+        when(rollupRepository.deleteAllRollups()).thenAnswer(invocation -> {
+            int deleted = table.size();
+            table.clear();
+            return deleted;
+        });
+
+        ticketRepository = mock(TicketRepository.class);
+        service = new TicketMetricsService(rollupRepository, ticketRepository,
+            mock(PlatformTransactionManager.class), Runnable::run);
+        ReflectionTestUtils.setField(service, "metricsEnabled", true);
+    }
+
+    @Test
+    void resolvedTicketCountsItsResolution() {
+        service.onTicketEvent(created(1L));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.RESOLVED, TicketStatus.IN_PROGRESS, RESOLVED));
+        service.flush();
+
+        assertEquals(List.of(1L, 1L, 90L), totals(RollupGranularity.DAY, CREATED));
+        assertEquals(List.of(0L, 1L, 90L), totals(RollupGranularity.HOUR, RESOLVED));
+    }
+
+    @Test
+    void reopenedTicketTakesItsResolutionBack() {
+        service.onTicketEvent(created(1L));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.RESOLVED, TicketStatus.IN_PROGRESS, RESOLVED));
+        service.flush();
+        service.onTicketEvent(statusChanged(1L, TicketStatus.OPEN, TicketStatus.RESOLVED, RESOLVED));
+        service.flush();
+
+        assertEquals(List.of(1L, 0L, 0L), totals(RollupGranularity.DAY, CREATED));
+        assertEquals(List.of(0L, 0L, 0L), totals(RollupGranularity.HOUR, RESOLVED));
+    }
+
+    @Test
+    void reResolvedTicketCountsOnlyItsLastResolution() {
+        service.onTicketEvent(created(1L));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.RESOLVED, TicketStatus.IN_PROGRESS, RESOLVED));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.OPEN, TicketStatus.RESOLVED, RESOLVED));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.CLOSED, TicketStatus.OPEN, RESOLVED_AGAIN));
+        service.flush();
+
+        assertEquals(List.of(1L, 1L, 180L), totals(RollupGranularity.DAY, CREATED));
+        assertEquals(List.of(0L, 0L, 0L), totals(RollupGranularity.HOUR, RESOLVED));
+        assertEquals(List.of(0L, 1L, 180L), totals(RollupGranularity.HOUR, RESOLVED_AGAIN));
+    }
+
+    @Test
+    void backfillCountsTicketsLikeLiveEvents() {
+        service.onTicketEvent(created(1L));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.RESOLVED, TicketStatus.IN_PROGRESS, RESOLVED));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.OPEN, TicketStatus.RESOLVED, RESOLVED));
+        service.onTicketEvent(statusChanged(1L, TicketStatus.CLOSED, TicketStatus.OPEN, RESOLVED_AGAIN));
+        service.onTicketEvent(created(2L));
+        service.onTicketEvent(statusChanged(2L, TicketStatus.RESOLVED, TicketStatus.OPEN, RESOLVED));
+        service.onTicketEvent(statusChanged(2L, TicketStatus.IN_PROGRESS, TicketStatus.RESOLVED, RESOLVED));
+        service.flush();
+        Map<String, List<Long>> live = rollups();
+
+        when(ticketRepository.streamTicketHistory()).thenAnswer(invocation -> Stream.of(
+            history(1L, TicketStatus.CLOSED, RESOLVED_AGAIN),
+            history(2L, TicketStatus.IN_PROGRESS, RESOLVED)));
+        assertEquals(2, service.backfill());
+
+        assertEquals(live, rollups());
+    }
+
+    @Test
+    void eventsDuringBackfillAreCountedOnce() {
+        // Committed before the backfill, which reads its ticket
+        service.onTicketEvent(created(1L));
+        when(ticketRepository.streamTicketHistory()).thenAnswer(invocation -> {
+            // Committed before the backfill read: already in the history
+            service.onTicketEvent(statusChanged(1L, TicketStatus.RESOLVED, TicketStatus.IN_PROGRESS, RESOLVED));
+            // Committed after the read: missing from the history
+            service.onTicketEvent(created(2L));
+            return Stream.<Object[]>of(history(1L, TicketStatus.RESOLVED, RESOLVED));
+        });
+
+        service.backfill();
+        service.flush();
+
+        assertEquals(List.of(2L, 1L, 90L), totals(RollupGranularity.DAY, CREATED));
+    }
+
+    private DomainEvent created(Long id) {
+        return event(DomainEventType.TICKET_CREATED, id, TicketStatus.OPEN, null, null);
+    }
+
+    private DomainEvent statusChanged(Long id, TicketStatus status, TicketStatus previousStatus,
+                                      LocalDateTime resolvedAt) {
+        return event(DomainEventType.TICKET_UPDATED, id, status, previousStatus, resolvedAt);
+    }
+
+    private DomainEvent event(DomainEventType type, Long id, TicketStatus status, TicketStatus previousStatus,
+                              LocalDateTime resolvedAt) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("id", id);
+        payload.put("status", status);
+        payload.put("priority", TicketPriority.HIGH);
+        payload.put("category", TicketCategory.NETWORK);
+        payload.put("createdAt", CREATED);
+        payload.put("resolvedAt", resolvedAt);
+        if (previousStatus != null) {
+            payload.put("previousStatus", previousStatus);
+        }
+        payload.put("assignedToId", 3L);
+        return new DomainEvent(type, id, payload);
+    }
+
+    private Object[] history(Long id, TicketStatus status, LocalDateTime resolvedAt) {
+        return new Object[] { CREATED, resolvedAt, status, TicketCategory.NETWORK, TicketPriority.HIGH, 3L, id };
+    }
+
+    // Created, resolved and resolution minutes summed over one bucket
+    private List<Long> totals(RollupGranularity granularity, LocalDateTime time) {
+        long created = 0;
+        long resolved = 0;
+        long minutes = 0;
+        for (TicketMetricRollup row : table) {
+            if (row.getGranularity() == granularity && row.getBucketStart().equals(granularity.bucketStart(time))) {
+                created += row.getCreatedCount();
+                resolved += row.getResolvedCount();
+                minutes += row.getResolutionMinutesTotal();
+            }
+        }
+        return List.of(created, resolved, minutes);
+    }
+
+    // Non-empty rollup rows by bucket and dimensions
+    private Map<String, List<Long>> rollups() {
+        Map<String, List<Long>> rollups = new HashMap<>();
+        for (TicketMetricRollup row : table) {
+            List<Long> counts = List.of(row.getCreatedCount(), row.getResolvedCount(), row.getResolutionMinutesTotal());
+            if (!counts.equals(List.of(0L, 0L, 0L))) {
+                rollups.put(row.getGranularity() + " " + row.getBucketStart() + " " + row.getCategory() + " "
+                    + row.getPriority() + " " + row.getStatus() + " " + row.getAssigneeId(), counts);
+            }
+        }
+        return rollups;
+    }
+}
@@ -0,0 +1,114 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Probe and sweep schedule of incremental discovery, on a clock the tests advance by hand.
+ */
+class DiscoveryStateStoreTest {
+
+    private static final long LIVE = 1_000;
+    private static final long RANGE = 10_000;
+    private static final long MAX = 60_000;
+
+    private final DiscoveryStateStore store = new DiscoveryStateStore(LIVE, RANGE, MAX);
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(1_000, DiscoveryStateStore.backoff(LIVE, 0, MAX));
+        assertEquals(2_000, DiscoveryStateStore.backoff(LIVE, 1, MAX));
+        assertEquals(32_000, DiscoveryStateStore.backoff(LIVE, 5, MAX));
+        assertEquals(MAX, DiscoveryStateStore.backoff(LIVE, 6, MAX));
+        assertEquals(MAX, DiscoveryStateStore.backoff(LIVE, Integer.MAX_VALUE, MAX));
+    }
+
+    @Test
+    void knownHostsAreFirstProbedWithinTheLiveInterval() {
+        for (int i = 1; i <= 50; i++) {
+            store.addHost("10.0.0." + i, (long) i, 0);
+        }
+
+        assertEquals(50, store.dueHosts(LIVE).size());
+        long next = store.getHost("10.0.0.1").getNextProbeAt();
+        assertTrue(next >= 0 && next < LIVE);
+    }
+
+    @Test
+    void unreachableHostBacksOffUntilSeenOrWokenUp() {
+        store.recordSeen("10.0.0.1", 1L, "abc", 0);
+        assertEquals(List.of(), store.dueHosts(LIVE - 1));
+        assertEquals(List.of("10.0.0.1"), store.dueHosts(LIVE));
+
+        store.recordFailure("10.0.0.1", 1_000);
+        store.recordFailure("10.0.0.1", 3_000);
+        assertEquals(2, store.getHost("10.0.0.1").getFailures());
+        assertEquals(3_000 + 4_000, store.getHost("10.0.0.1").getNextProbeAt());
+        assertEquals(1, store.getUnreachableCount());
+
+        store.wakeUp("10.0.0.1", 4_000);
+        assertEquals(List.of("10.0.0.1"), store.dueHosts(4_000));
+
+        store.recordSeen("10.0.0.1", null, null, 4_000);
+        assertEquals(0, store.getHost("10.0.0.1").getFailures());
+        assertEquals(1L, store.getHost("10.0.0.1").getEquipmentId());
+        assertEquals("abc", store.getHost("10.0.0.1").getFingerprint());
+        assertEquals(0, store.getUnreachableCount());
+    }
+
+    @Test
+    void hostWithoutSnmpIsAskedAgainOnTheBackoff() {
+        assertTrue(store.isSnmpProbeDue("10.0.0.1", 0));
+
+        store.recordSeen("10.0.0.1", 1L, DiscoveryStateStore.NO_SNMP, 0);
+        assertFalse(store.isSnmpProbeDue("10.0.0.1", 1_999));
+        assertTrue(store.isSnmpProbeDue("10.0.0.1", 2_000));
+
+        store.recordSeen("10.0.0.1", null, DiscoveryStateStore.NO_SNMP, 2_000);
+        assertEquals(2, store.getHost("10.0.0.1").getSnmpMisses());
+        assertFalse(store.isSnmpProbeDue("10.0.0.1", 5_999));
+        assertTrue(store.isSnmpProbeDue("10.0.0.1", 6_000));
+
+        // Pings between SNMP probes do not count as misses
+        store.recordSeen("10.0.0.1", null, null, 3_000);
+        assertEquals(2, store.getHost("10.0.0.1").getSnmpMisses());
+
+        store.recordSeen("10.0.0.1", null, "abc", 6_000);
+        assertEquals(0, store.getHost("10.0.0.1").getSnmpMisses());
+        assertTrue(store.isSnmpProbeDue("10.0.0.1", 6_000));
+    }
+
+    @Test
+    void emptyRangesBackOffUntilTheyFindHosts() {
+        List<String> ranges = List.of("10.0.0.0/24", "10.0.1.0/24");
+        assertEquals(ranges, store.dueRanges(ranges, 0));
+
+        store.recordSweep("10.0.0.0/24", false, 0);
+        store.recordSweep("10.0.1.0/24", true, 0);
+        assertEquals(List.of(), store.dueRanges(ranges, RANGE - 1));
+        assertEquals(List.of("10.0.1.0/24"), store.dueRanges(ranges, RANGE));
+        assertEquals(ranges, store.dueRanges(ranges, 2 * RANGE));
+
+        store.recordSweep("10.0.0.0/24", false, 2 * RANGE);
+        assertEquals(List.of(), store.dueRanges(List.of("10.0.0.0/24"), 2 * RANGE + 4 * RANGE - 1));
+        store.recordSweep("10.0.0.0/24", true, 2 * RANGE);
+        assertEquals(List.of("10.0.0.0/24"), store.dueRanges(List.of("10.0.0.0/24"), 3 * RANGE));
+    }
+
+    @Test
+    void deletedEquipmentIsForgotten() {
+        store.recordSeen("10.0.0.1", 1L, "abc", 0);
+        store.recordSeen("10.0.0.2", 2L, "def", 0);
+
+        store.removeEquipment(1L);
+
+        assertFalse(store.isKnown("10.0.0.1"));
+        assertTrue(store.isKnown("10.0.0.2"));
+        assertEquals(1, store.getHostCount());
+    }
+}
@@ -0,0 +1,59 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Address keys and CIDR ranges of both families.
+ */
+class IpAddressesTest {
+
+    @Test
+    void rangeContainsItsAddressesOnly() {
+        IpAddresses.Range range = IpAddresses.parseRange("192.168.1.77/24");
+
+        assertEquals("192.168.1.0/24", range.toString());
+        assertEquals(BigInteger.valueOf(256), range.size());
+        assertTrue(range.contains(IpAddresses.toKey("192.168.1.0")));
+        assertTrue(range.contains(IpAddresses.toKey("192.168.1.255")));
+        assertFalse(range.contains(IpAddresses.toKey("192.168.2.0")));
+        assertFalse(range.contains(IpAddresses.toKey("::c0a8:101")));
+        assertTrue(range.contains(IpAddresses.toKey("::ffff:192.168.1.1")));
+    }
+
+    @Test
+    void singleAddressIsARangeOfOne() {
+        IpAddresses.Range range = IpAddresses.parseRange("10.0.0.5");
+
+        assertEquals(32, range.getPrefix());
+        assertEquals(BigInteger.ONE, range.size());
+        assertTrue(range.contains(IpAddresses.toKey("10.0.0.5")));
+        assertFalse(range.contains(IpAddresses.toKey("10.0.0.6")));
+    }
+
+    @Test
+    void rangesOverlapWhenTheyShareAnAddress() {
+        IpAddresses.Range wide = IpAddresses.parseRange("10.0.0.0/16");
+
+        assertTrue(wide.overlaps(IpAddresses.parseRange("10.0.3.0/24")));
+        assertTrue(IpAddresses.parseRange("10.0.3.0/24").overlaps(wide));
+        assertTrue(wide.overlaps(IpAddresses.parseRange("10.0.255.255")));
+        assertFalse(wide.overlaps(IpAddresses.parseRange("10.1.0.0/24")));
+        assertFalse(wide.overlaps(IpAddresses.parseRange("2001:db8::/32")));
+    }
+
+    @Test
+    void rejectsInvalidAddressesAndRanges() {
+        assertNull(IpAddresses.toKey("10.0.0.256"));
+        assertNull(IpAddresses.toKey("printer-01"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddresses.parseRange("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddresses.parseRange("10.0.0/24"));
+    }
+}
@@ -0,0 +1,67 @@
+package ma.gov.dgh.helpdesk.utils;
+
+import ma.gov.dgh.helpdesk.entity.TicketStatus;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Streams more rows than the in-memory window and reads the workbook back
+ */
+class XlsxReportWriterTest {
+
+    private static final int ROWS = 1_000;
+
+    @Test
+    void rowsFlushedOutOfTheWindowAreInTheFile() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 14, 9, 30, 15);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxReportWriter writer = new XlsxReportWriter(out, "Tickets")) {
+            writer.writeHeader("id", "title", "status", "createdAt", "escalated", "assignee");
+            for (int i = 1; i <= ROWS; i++) {
+                writer.writeRow(i, "Ticket " + i, TicketStatus.OPEN, createdAt.plusMinutes(i), i % 2 == 0, null);
+            }
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(1, workbook.getNumberOfSheets());
+            Sheet sheet = workbook.getSheet("Tickets");
+            assertEquals(ROWS, sheet.getLastRowNum());
+            assertEquals("title", sheet.getRow(0).getCell(1).getStringCellValue());
+            assertEquals(1, sheet.getPaneInformation().getHorizontalSplitPosition());
+
+            for (int i = 1; i <= ROWS; i++) {
+                Row row = sheet.getRow(i);
+                assertEquals(i, (int) row.getCell(0).getNumericCellValue());
+                assertEquals("Ticket " + i, row.getCell(1).getStringCellValue());
+                assertEquals("OPEN", row.getCell(2).getStringCellValue());
+                assertEquals(createdAt.plusMinutes(i), row.getCell(3).getLocalDateTimeCellValue());
+                assertEquals(CellType.BOOLEAN, row.getCell(4).getCellType());
+                assertEquals(i % 2 == 0, row.getCell(4).getBooleanCellValue());
+                assertEquals(CellType.BLANK, row.getCell(5).getCellType());
+            }
+        }
+    }
+
+    @Test
+    void textIsCutAtTheCellLimit() throws Exception {
+        int limit = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxReportWriter writer = new XlsxReportWriter(out, "Equipment")) {
+            writer.writeRow("x".repeat(limit + 10));
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(limit, workbook.getSheet("Equipment").getRow(0).getCell(0).getStringCellValue().length());
+        }
+    }
+}
@@ -125,9 +125,16 @@ const Equipment = () => {
     setShowEquipmentForm(true);
   };
 
-  const handleEditEquipment = (equipment) => {
-    setSelectedEquipment(equipment);
-    setShowEquipmentForm(true);
+  const handleEditEquipment = async (equipment) => {
+    try {
+      // List rows are summaries without specifications; edit the full record
+      const details = await equipmentService.getEquipmentById(equipment.id);
+      setSelectedEquipment(details);
+      setShowEquipmentForm(true);
+    } catch (err) {
+      console.error('Error loading equipment details:', err);
+      setError('Failed to load equipment details. Please try again.');
+    }
   };
 
   const handleCloseEquipmentForm = () => {